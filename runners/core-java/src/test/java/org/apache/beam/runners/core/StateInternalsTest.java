@@ -43,6 +43,7 @@ import org.apache.beam.sdk.state.BagState;
 import org.apache.beam.sdk.state.CombiningState;
 import org.apache.beam.sdk.state.GroupingState;
 import org.apache.beam.sdk.state.MapState;
+import org.apache.beam.sdk.state.OrderedListState;
 import org.apache.beam.sdk.state.ReadableState;
 import org.apache.beam.sdk.state.SetState;
 import org.apache.beam.sdk.state.ValueState;
@@ -52,6 +53,7 @@ import org.apache.beam.sdk.transforms.Sum;
 import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
 import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
 import org.apache.beam.sdk.transforms.windowing.TimestampCombiner;
+import org.apache.beam.sdk.values.TimestampedValue;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.hamcrest.Matchers;
@@ -84,6 +86,8 @@ public abstract class StateInternalsTest {
       StateTags.set("stringSet", StringUtf8Coder.of());
   private static final StateTag<MapState<String, Integer>> STRING_MAP_ADDR =
       StateTags.map("stringMap", StringUtf8Coder.of(), VarIntCoder.of());
+  private static final StateTag<OrderedListState<String>> STRING_ORDERED_LIST_ADDR =
+      StateTags.orderedList("stringOrderedList", StringUtf8Coder.of());
   private static final StateTag<WatermarkHoldState> WATERMARK_EARLIEST_ADDR =
       StateTags.watermarkStateInternal("watermark", TimestampCombiner.EARLIEST);
   private static final StateTag<WatermarkHoldState> WATERMARK_LATEST_ADDR =
@@ -398,6 +402,53 @@ public abstract class StateInternalsTest {
     assertThat(underTest.state(NAMESPACE_1, STRING_MAP_ADDR), equalTo(value));
   }
 
+  @Test
+  public void testOrderedList() throws Exception {
+    OrderedListState<String> value = underTest.state(NAMESPACE_1, STRING_ORDERED_LIST_ADDR);
+
+    // State instances are cached, but depend on the namespace.
+    assertThat(value, equalTo(underTest.state(NAMESPACE_1, STRING_ORDERED_LIST_ADDR)));
+    assertThat(value, not(equalTo(underTest.state(NAMESPACE_2, STRING_ORDERED_LIST_ADDR))));
+
+    assertThat(value.read(), Matchers.emptyIterable());
+    TimestampedValue<String> negative = TimestampedValue.of("negative", new Instant(-5));
+    TimestampedValue<String> early = TimestampedValue.of("early", new Instant(3));
+    TimestampedValue<String> middle = TimestampedValue.of("middle", new Instant(10));
+    TimestampedValue<String> sameTime = TimestampedValue.of("sameTime", new Instant(10));
+    TimestampedValue<String> late = TimestampedValue.of("late", new Instant(1000));
+    value.add(late);
+    value.add(middle);
+    value.add(negative);
+    value.add(sameTime);
+    value.add(early);
+    assertThat(value.read(), Matchers.contains(negative, early, middle, sameTime, late));
+
+    assertThat(
+        value.readRange(new Instant(0), new Instant(1000)),
+        Matchers.contains(early, middle, sameTime));
+    assertThat(value.readRange(new Instant(4), new Instant(10)), Matchers.emptyIterable());
+
+    value.clearRange(new Instant(3), new Instant(1000));
+    assertThat(value.read(), Matchers.contains(negative, late));
+
+    value.clear();
+    assertThat(value.read(), Matchers.emptyIterable());
+    assertThat(underTest.state(NAMESPACE_1, STRING_ORDERED_LIST_ADDR), equalTo(value));
+  }
+
+  @Test
+  public void testOrderedListIsEmpty() throws Exception {
+    OrderedListState<String> value = underTest.state(NAMESPACE_1, STRING_ORDERED_LIST_ADDR);
+
+    assertThat(value.isEmpty().read(), Matchers.is(true));
+    ReadableState<Boolean> readFuture = value.isEmpty();
+    value.add(TimestampedValue.of("hello", new Instant(1)));
+    assertThat(readFuture.read(), Matchers.is(false));
+
+    value.clearRange(new Instant(0), new Instant(2));
+    assertThat(readFuture.read(), Matchers.is(true));
+  }
+
   @Test
   public void testCombiningValue() throws Exception {
 
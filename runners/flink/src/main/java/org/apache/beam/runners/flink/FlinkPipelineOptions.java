@@ -299,6 +299,16 @@ public interface FlinkPipelineOptions
 
   void setFasterCopy(Boolean fasterCopy);
 
+  @Description(
+      "The maximum number of elements that stateful ParDos buffer before processing them grouped by "
+          + "key, so that the state of a key is read only once from the state backend for all its "
+          + "buffered elements. Worth it for state backends which deserialize the state on every "
+          + "read, like RocksDB. A value <= 1 disables the feature.")
+  @Default.Integer(0)
+  Integer getStateReadBatchSize();
+
+  void setStateReadBatchSize(Integer stateReadBatchSize);
+
   static FlinkPipelineOptions defaults() {
     return PipelineOptionsFactory.as(FlinkPipelineOptions.class);
   }
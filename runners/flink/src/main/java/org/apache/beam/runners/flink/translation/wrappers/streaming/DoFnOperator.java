@@ -201,6 +201,9 @@ public class DoFnOperator<InputT, OutputT>
 
   private final boolean finishBundleBeforeCheckpointing;
 
+  /** Max number of elements to buffer before processing them grouped by key, if more than 1. */
+  private final int stateReadBatchSize;
+
   /** Stores new finalizations being gathered. */
   private transient InMemoryBundleFinalizer bundleFinalizer;
   /** Pending bundle finalizations which have not been acknowledged yet. */
@@ -241,6 +244,13 @@ public class DoFnOperator<InputT, OutputT>
   private transient volatile long elementCount;
   /** Time that the last bundle was finished (to set the timer). */
   private transient volatile long lastFinishBundleTime;
+  /**
+   * Elements buffered by key to be processed together, so that the state of a key is read once for
+   * all its elements (null if the feature is disabled).
+   */
+  private transient @Nullable Map<ByteBuffer, List<WindowedValue<InputT>>> stateReadBatch;
+  /** Number of elements in {@link #stateReadBatch}. */
+  private transient int stateReadBatchCount;
   /** Callback to be executed before the current bundle is started. */
   private transient volatile Runnable preBundleCallback;
   /** Callback to be executed after the current bundle was finished. */
@@ -320,6 +330,7 @@ public class DoFnOperator<InputT, OutputT>
     }
 
     this.finishBundleBeforeCheckpointing = flinkOptions.getFinishBundleBeforeCheckpointing();
+    this.stateReadBatchSize = flinkOptions.getStateReadBatchSize();
   }
 
   // allow overriding this in WindowDoFnOperator because this one dynamically creates
@@ -459,6 +470,15 @@ public class DoFnOperator<InputT, OutputT>
     return NoopLock.get();
   }
 
+  /**
+   * Subclasses may disable the buffering of elements by key, see {@link
+   * FlinkPipelineOptions#getStateReadBatchSize()}, if their state is not only accessed from the
+   * processing thread.
+   */
+  protected boolean supportsStateReadBatching() {
+    return true;
+  }
+
   @Override
   public void open() throws Exception {
     // WindowDoFnOperator need use state and timer to get DoFn.
@@ -518,6 +538,18 @@ public class DoFnOperator<InputT, OutputT>
       }
     }
 
+    if (keyedStateInternals != null && stateReadBatchSize > 1 && supportsStateReadBatching()) {
+      keyedStateInternals.enableReadCache(
+          flinkMetricContainer != null
+              ? flinkMetricContainer
+                  .getMetricsContainer(stepName)
+                  .getDistribution(
+                      MetricName.named(FlinkStateInternals.class, "stateReadLatencyMicros"))
+              : null);
+      stateReadBatch = new LinkedHashMap<>();
+      stateReadBatchCount = 0;
+    }
+
     elementCount = 0L;
     lastFinishBundleTime = getProcessingTimeService().getCurrentProcessingTime();
 
@@ -579,6 +611,7 @@ public class DoFnOperator<InputT, OutputT>
   @Override
   public void close() throws Exception {
     try {
+      processStateReadBatch();
       // This is our last change to block shutdown of this operator while
       // there are still remaining processing-time timers. Flink will ignore pending
       // processing-time timers when upstream operators have shut down and will also
@@ -640,13 +673,51 @@ public class DoFnOperator<InputT, OutputT>
 
   @Override
   public final void processElement(StreamRecord<WindowedValue<InputT>> streamRecord) {
+    if (stateReadBatch != null) {
+      ByteBuffer key = this.<ByteBuffer>getKeyedStateBackend().getCurrentKey();
+      stateReadBatch.computeIfAbsent(key, k -> new ArrayList<>()).add(streamRecord.getValue());
+      if (++stateReadBatchCount >= stateReadBatchSize) {
+        processStateReadBatch();
+      }
+      return;
+    }
+    processElementNow(streamRecord.getValue());
+  }
+
+  private void processElementNow(WindowedValue<InputT> element) {
     checkInvokeStartBundle();
     long oldHold = keyCoder != null ? keyedStateInternals.minWatermarkHoldMs() : -1L;
-    doFnRunner.processElement(streamRecord.getValue());
+    doFnRunner.processElement(element);
     checkInvokeFinishBundleByCount();
     emitWatermarkIfHoldChanged(oldHold);
   }
 
+  /**
+   * Processes the elements buffered by {@link #processElement}, one key after the other and in
+   * their arrival order for each key, so that the state read for the first element of a key is
+   * cached for the following ones. This must happen before any watermark, timer or checkpoint.
+   */
+  private void processStateReadBatch() {
+    if (stateReadBatch == null || stateReadBatchCount == 0) {
+      return;
+    }
+    Map<ByteBuffer, List<WindowedValue<InputT>>> batch = stateReadBatch;
+    stateReadBatch = new LinkedHashMap<>();
+    stateReadBatchCount = 0;
+    KeyedStateBackend<ByteBuffer> keyedStateBackend = getKeyedStateBackend();
+    // restore the key of the caller, e.g. the key of a timer about to fire.
+    ByteBuffer currentKey = keyedStateBackend.getCurrentKey();
+    for (Map.Entry<ByteBuffer, List<WindowedValue<InputT>>> elementsOfKey : batch.entrySet()) {
+      keyedStateBackend.setCurrentKey(elementsOfKey.getKey());
+      for (WindowedValue<InputT> element : elementsOfKey.getValue()) {
+        processElementNow(element);
+      }
+    }
+    if (currentKey != null) {
+      keyedStateBackend.setCurrentKey(currentKey);
+    }
+  }
+
   @Override
   public final void processElement1(StreamRecord<WindowedValue<InputT>> streamRecord)
       throws Exception {
@@ -728,6 +799,7 @@ public class DoFnOperator<InputT, OutputT>
 
   @Override
   public final void processWatermark1(Watermark mark) throws Exception {
+    processStateReadBatch();
     // Flush any data buffered during snapshotState().
     outputManager.flushBuffer();
 
@@ -884,6 +956,7 @@ public class DoFnOperator<InputT, OutputT>
   private void checkInvokeFinishBundleByTime() {
     long now = getProcessingTimeService().getCurrentProcessingTime();
     if (now - lastFinishBundleTime >= maxBundleTimeMills) {
+      processStateReadBatch();
       invokeFinishBundle();
     }
   }
@@ -907,6 +980,8 @@ public class DoFnOperator<InputT, OutputT>
 
   @Override
   public void prepareSnapshotPreBarrier(long checkpointId) {
+    // The buffered elements are not part of the snapshot.
+    processStateReadBatch();
     if (finishBundleBeforeCheckpointing) {
       // We finish the bundle and flush any pending data.
       // This avoids buffering any data as part of snapshotState() below.
@@ -939,6 +1014,7 @@ public class DoFnOperator<InputT, OutputT>
 
     try {
       outputManager.openBuffer();
+      processStateReadBatch();
       // Ensure that no new bundle gets started as part of finishing a bundle
       while (bundleStarted) {
         invokeFinishBundle();
@@ -991,6 +1067,7 @@ public class DoFnOperator<InputT, OutputT>
 
   @Override
   public void onProcessingTime(InternalTimer<ByteBuffer, TimerData> timer) {
+    processStateReadBatch();
     checkInvokeStartBundle();
     fireTimerInternal(timer.getKey(), timer.getNamespace());
   }
@@ -228,6 +228,12 @@ public class ExecutableStageDoFnOperator<InputT, OutputT> extends DoFnOperator<I
     return stateBackendLock;
   }
 
+  @Override
+  protected boolean supportsStateReadBatching() {
+    // The SDK harness accesses the state concurrently, from other threads.
+    return false;
+  }
+
   @Override
   public void open() throws Exception {
     executableStage = ExecutableStage.fromPayload(payload);
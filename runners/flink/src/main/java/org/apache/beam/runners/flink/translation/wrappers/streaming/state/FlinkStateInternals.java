@@ -18,9 +18,12 @@
 package org.apache.beam.runners.flink.translation.wrappers.streaming.state;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -36,6 +39,7 @@ import org.apache.beam.runners.flink.translation.wrappers.streaming.FlinkKeyUtil
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.InstantCoder;
 import org.apache.beam.sdk.coders.VoidCoder;
+import org.apache.beam.sdk.metrics.Distribution;
 import org.apache.beam.sdk.state.BagState;
 import org.apache.beam.sdk.state.CombiningState;
 import org.apache.beam.sdk.state.MapState;
@@ -54,6 +58,7 @@ import org.apache.beam.sdk.transforms.CombineWithContext;
 import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
 import org.apache.beam.sdk.transforms.windowing.TimestampCombiner;
 import org.apache.beam.sdk.util.CombineContextFactory;
+import org.apache.beam.sdk.values.TimestampedValue;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.MoreObjects;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
@@ -67,8 +72,11 @@ import org.apache.flink.api.common.state.StateDescriptor;
 import org.apache.flink.api.common.state.ValueStateDescriptor;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.api.common.typeutils.base.BooleanSerializer;
+import org.apache.flink.api.common.typeutils.base.LongSerializer;
 import org.apache.flink.api.common.typeutils.base.StringSerializer;
 import org.apache.flink.api.common.typeutils.base.VoidSerializer;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.api.java.typeutils.runtime.TupleSerializer;
 import org.apache.flink.runtime.state.KeyedStateBackend;
 import org.apache.flink.runtime.state.VoidNamespace;
 import org.apache.flink.runtime.state.VoidNamespaceSerializer;
@@ -150,6 +158,8 @@ public class FlinkStateInternals<K> implements StateInternals {
 
   private final SerializablePipelineOptions pipelineOptions;
 
+  private final StateReadCache readCache;
+
   public FlinkStateInternals(
       KeyedStateBackend<ByteBuffer> flinkStateBackend,
       Coder<K> keyCoder,
@@ -163,10 +173,23 @@ public class FlinkStateInternals<K> implements StateInternals {
             StringSerializer.INSTANCE,
             new CoderTypeSerializer<>(InstantCoder.of(), pipelineOptions));
     this.pipelineOptions = pipelineOptions;
+    this.readCache = new StateReadCache(flinkStateBackend);
 
     restoreWatermarkHoldsView();
   }
 
+  /**
+   * Caches the values read from value, bag and combining state for the current key, until the key
+   * changes, and prefetches them on {@code readLater()}. This saves the repeated reads of state
+   * backends which deserialize the state on every read, like RocksDB, when the elements of a key
+   * are processed together.
+   *
+   * @param readLatencyMicros if not null, records the latency of the reads from the state backend.
+   */
+  public void enableReadCache(@Nullable Distribution readLatencyMicros) {
+    readCache.enable(readLatencyMicros);
+  }
+
   /** Returns the minimum over all watermark holds. */
   public Long minWatermarkHoldMs() {
     if (watermarkHolds.isEmpty()) {
@@ -206,6 +229,7 @@ public class FlinkStateInternals<K> implements StateInternals {
       }
       // Clear set to avoid repeating the cleanup
       globalWindowStateDescriptors.clear();
+      readCache.invalidateAll();
     } catch (Exception e) {
       throw new RuntimeException("Failed to cleanup global state.", e);
     }
@@ -225,7 +249,8 @@ public class FlinkStateInternals<K> implements StateInternals {
     public <T2> ValueState<T2> bindValue(
         String id, StateSpec<ValueState<T2>> spec, Coder<T2> coder) {
       FlinkValueState<T2> valueState =
-          new FlinkValueState<>(flinkStateBackend, id, namespace, coder, pipelineOptions);
+          new FlinkValueState<>(
+              flinkStateBackend, readCache, id, namespace, coder, pipelineOptions);
       collectGlobalWindowStateDescriptor(
           valueState.flinkStateDescriptor,
           valueState.namespace.stringKey(),
@@ -236,7 +261,8 @@ public class FlinkStateInternals<K> implements StateInternals {
     @Override
     public <T2> BagState<T2> bindBag(String id, StateSpec<BagState<T2>> spec, Coder<T2> elemCoder) {
       FlinkBagState<Object, T2> bagState =
-          new FlinkBagState<>(flinkStateBackend, id, namespace, elemCoder, pipelineOptions);
+          new FlinkBagState<>(
+              flinkStateBackend, readCache, id, namespace, elemCoder, pipelineOptions);
       collectGlobalWindowStateDescriptor(
           bagState.flinkStateDescriptor, bagState.namespace.stringKey(), StringSerializer.INSTANCE);
       return bagState;
@@ -268,8 +294,17 @@ public class FlinkStateInternals<K> implements StateInternals {
     @Override
     public <T> OrderedListState<T> bindOrderedList(
         String id, StateSpec<OrderedListState<T>> spec, Coder<T> elemCoder) {
-      throw new UnsupportedOperationException(
-          String.format("%s is not supported", OrderedListState.class.getSimpleName()));
+      FlinkOrderedListState<T> orderedListState =
+          new FlinkOrderedListState<>(flinkStateBackend, id, namespace, elemCoder, pipelineOptions);
+      collectGlobalWindowStateDescriptor(
+          orderedListState.flinkStateDescriptor,
+          orderedListState.namespace.stringKey(),
+          StringSerializer.INSTANCE);
+      collectGlobalWindowStateDescriptor(
+          orderedListState.sequenceStateDescriptor,
+          orderedListState.namespace.stringKey(),
+          StringSerializer.INSTANCE);
+      return orderedListState;
     }
 
     @Override
@@ -280,7 +315,7 @@ public class FlinkStateInternals<K> implements StateInternals {
         Combine.CombineFn<InputT, AccumT, OutputT> combineFn) {
       FlinkCombiningState<Object, InputT, AccumT, OutputT> combiningState =
           new FlinkCombiningState<>(
-              flinkStateBackend, id, combineFn, namespace, accumCoder, pipelineOptions);
+              flinkStateBackend, readCache, id, combineFn, namespace, accumCoder, pipelineOptions);
       collectGlobalWindowStateDescriptor(
           combiningState.flinkStateDescriptor,
           combiningState.namespace.stringKey(),
@@ -298,6 +333,7 @@ public class FlinkStateInternals<K> implements StateInternals {
       FlinkCombiningStateWithContext<Object, InputT, AccumT, OutputT> combiningStateWithContext =
           new FlinkCombiningStateWithContext<>(
               flinkStateBackend,
+              readCache,
               id,
               combineFn,
               namespace,
@@ -336,9 +372,11 @@ public class FlinkStateInternals<K> implements StateInternals {
     private final String stateId;
     private final ValueStateDescriptor<T> flinkStateDescriptor;
     private final KeyedStateBackend<ByteBuffer> flinkStateBackend;
+    private final StateReadCache readCache;
 
     FlinkValueState(
         KeyedStateBackend<ByteBuffer> flinkStateBackend,
+        StateReadCache readCache,
         String stateId,
         StateNamespace namespace,
         Coder<T> coder,
@@ -347,6 +385,7 @@ public class FlinkStateInternals<K> implements StateInternals {
       this.namespace = namespace;
       this.stateId = stateId;
       this.flinkStateBackend = flinkStateBackend;
+      this.readCache = readCache;
 
       flinkStateDescriptor =
           new ValueStateDescriptor<>(stateId, new CoderTypeSerializer<>(coder, pipelineOptions));
@@ -359,6 +398,7 @@ public class FlinkStateInternals<K> implements StateInternals {
             .getPartitionedState(
                 namespace.stringKey(), StringSerializer.INSTANCE, flinkStateDescriptor)
             .update(input);
+        readCache.put(namespace.stringKey(), stateId, input);
       } catch (Exception e) {
         throw new RuntimeException("Error updating state.", e);
       }
@@ -366,21 +406,26 @@ public class FlinkStateInternals<K> implements StateInternals {
 
     @Override
     public ValueState<T> readLater() {
+      readCache.prefetch(namespace.stringKey(), stateId, this::readFromBackend);
       return this;
     }
 
     @Override
     public T read() {
       try {
-        return flinkStateBackend
-            .getPartitionedState(
-                namespace.stringKey(), StringSerializer.INSTANCE, flinkStateDescriptor)
-            .value();
+        return readCache.read(namespace.stringKey(), stateId, this::readFromBackend);
       } catch (Exception e) {
         throw new RuntimeException("Error reading state.", e);
       }
     }
 
+    private T readFromBackend() throws Exception {
+      return flinkStateBackend
+          .getPartitionedState(
+              namespace.stringKey(), StringSerializer.INSTANCE, flinkStateDescriptor)
+          .value();
+    }
+
     @Override
     public void clear() {
       try {
@@ -388,6 +433,7 @@ public class FlinkStateInternals<K> implements StateInternals {
             .getPartitionedState(
                 namespace.stringKey(), StringSerializer.INSTANCE, flinkStateDescriptor)
             .clear();
+        readCache.put(namespace.stringKey(), stateId, null);
       } catch (Exception e) {
         throw new RuntimeException("Error clearing state.", e);
       }
@@ -421,10 +467,12 @@ public class FlinkStateInternals<K> implements StateInternals {
     private final String stateId;
     private final ListStateDescriptor<T> flinkStateDescriptor;
     private final KeyedStateBackend<ByteBuffer> flinkStateBackend;
+    private final StateReadCache readCache;
     private final boolean storesVoidValues;
 
     FlinkBagState(
         KeyedStateBackend<ByteBuffer> flinkStateBackend,
+        StateReadCache readCache,
         String stateId,
         StateNamespace namespace,
         Coder<T> coder,
@@ -433,6 +481,7 @@ public class FlinkStateInternals<K> implements StateInternals {
       this.namespace = namespace;
       this.stateId = stateId;
       this.flinkStateBackend = flinkStateBackend;
+      this.readCache = readCache;
       this.storesVoidValues = coder instanceof VoidCoder;
       this.flinkStateDescriptor =
           new ListStateDescriptor<>(stateId, new CoderTypeSerializer<>(coder, pipelineOptions));
@@ -451,6 +500,7 @@ public class FlinkStateInternals<K> implements StateInternals {
           input = (T) VoidCoder.of().structuralValue((Void) input);
         }
         partitionedState.add(input);
+        readCache.invalidate(namespace.stringKey(), stateId);
       } catch (Exception e) {
         throw new RuntimeException("Error adding to bag state.", e);
       }
@@ -458,6 +508,7 @@ public class FlinkStateInternals<K> implements StateInternals {
 
     @Override
     public BagState<T> readLater() {
+      readCache.prefetch(namespace.stringKey(), stateId, this::readFromBackend);
       return this;
     }
 
@@ -465,36 +516,40 @@ public class FlinkStateInternals<K> implements StateInternals {
     @Nonnull
     public Iterable<T> read() {
       try {
-        ListState<T> partitionedState =
-            flinkStateBackend.getPartitionedState(
-                namespace.stringKey(), StringSerializer.INSTANCE, flinkStateDescriptor);
-        Iterable<T> result = partitionedState.get();
-        if (storesVoidValues) {
-          return () -> {
-            final Iterator underlying = result.iterator();
-            return new Iterator<T>() {
-              @Override
-              public boolean hasNext() {
-                return underlying.hasNext();
-              }
-
-              @Override
-              public T next() {
-                // Simply move the iterator forward but ignore the value.
-                // The value can be the structural null value or NULL itself,
-                // if this has been restored from serialized state.
-                underlying.next();
-                return null;
-              }
-            };
-          };
-        }
-        return result != null ? ImmutableList.copyOf(result) : Collections.emptyList();
+        return readCache.read(namespace.stringKey(), stateId, this::readFromBackend);
       } catch (Exception e) {
         throw new RuntimeException("Error reading state.", e);
       }
     }
 
+    private Iterable<T> readFromBackend() throws Exception {
+      ListState<T> partitionedState =
+          flinkStateBackend.getPartitionedState(
+              namespace.stringKey(), StringSerializer.INSTANCE, flinkStateDescriptor);
+      Iterable<T> result = partitionedState.get();
+      if (storesVoidValues) {
+        return () -> {
+          final Iterator underlying = result.iterator();
+          return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+              return underlying.hasNext();
+            }
+
+            @Override
+            public T next() {
+              // Simply move the iterator forward but ignore the value.
+              // The value can be the structural null value or NULL itself,
+              // if this has been restored from serialized state.
+              underlying.next();
+              return null;
+            }
+          };
+        };
+      }
+      return result != null ? ImmutableList.copyOf(result) : Collections.emptyList();
+    }
+
     @Override
     public ReadableState<Boolean> isEmpty() {
       return new ReadableState<Boolean>() {
@@ -526,6 +581,7 @@ public class FlinkStateInternals<K> implements StateInternals {
             .getPartitionedState(
                 namespace.stringKey(), StringSerializer.INSTANCE, flinkStateDescriptor)
             .clear();
+        readCache.put(namespace.stringKey(), stateId, Collections.emptyList());
       } catch (Exception e) {
         throw new RuntimeException("Error clearing state.", e);
       }
@@ -561,9 +617,11 @@ public class FlinkStateInternals<K> implements StateInternals {
     private final Combine.CombineFn<InputT, AccumT, OutputT> combineFn;
     private final ValueStateDescriptor<AccumT> flinkStateDescriptor;
     private final KeyedStateBackend<ByteBuffer> flinkStateBackend;
+    private final StateReadCache readCache;
 
     FlinkCombiningState(
         KeyedStateBackend<ByteBuffer> flinkStateBackend,
+        StateReadCache readCache,
         String stateId,
         Combine.CombineFn<InputT, AccumT, OutputT> combineFn,
         StateNamespace namespace,
@@ -574,6 +632,7 @@ public class FlinkStateInternals<K> implements StateInternals {
       this.stateId = stateId;
       this.combineFn = combineFn;
       this.flinkStateBackend = flinkStateBackend;
+      this.readCache = readCache;
 
       flinkStateDescriptor =
           new ValueStateDescriptor<>(
@@ -582,6 +641,7 @@ public class FlinkStateInternals<K> implements StateInternals {
 
     @Override
     public CombiningState<InputT, AccumT, OutputT> readLater() {
+      readCache.prefetch(namespace.stringKey(), stateId, this::readFromBackend);
       return this;
     }
 
@@ -592,12 +652,13 @@ public class FlinkStateInternals<K> implements StateInternals {
             flinkStateBackend.getPartitionedState(
                 namespace.stringKey(), StringSerializer.INSTANCE, flinkStateDescriptor);
 
-        AccumT current = state.value();
+        AccumT current = readCache.read(namespace.stringKey(), stateId, state::value);
         if (current == null) {
           current = combineFn.createAccumulator();
         }
         current = combineFn.addInput(current, value);
         state.update(current);
+        readCache.put(namespace.stringKey(), stateId, current);
       } catch (Exception e) {
         throw new RuntimeException("Error adding to state.", e);
       }
@@ -610,12 +671,14 @@ public class FlinkStateInternals<K> implements StateInternals {
             flinkStateBackend.getPartitionedState(
                 namespace.stringKey(), StringSerializer.INSTANCE, flinkStateDescriptor);
 
-        AccumT current = state.value();
+        AccumT current = readCache.read(namespace.stringKey(), stateId, state::value);
         if (current == null) {
           state.update(accum);
+          readCache.put(namespace.stringKey(), stateId, accum);
         } else {
           current = combineFn.mergeAccumulators(Lists.newArrayList(current, accum));
           state.update(current);
+          readCache.put(namespace.stringKey(), stateId, current);
         }
       } catch (Exception e) {
         throw new RuntimeException("Error adding to state.", e);
@@ -625,11 +688,7 @@ public class FlinkStateInternals<K> implements StateInternals {
     @Override
     public AccumT getAccum() {
       try {
-        AccumT accum =
-            flinkStateBackend
-                .getPartitionedState(
-                    namespace.stringKey(), StringSerializer.INSTANCE, flinkStateDescriptor)
-                .value();
+        AccumT accum = readCache.read(namespace.stringKey(), stateId, this::readFromBackend);
         return accum != null ? accum : combineFn.createAccumulator();
       } catch (Exception e) {
         throw new RuntimeException("Error reading state.", e);
@@ -644,11 +703,7 @@ public class FlinkStateInternals<K> implements StateInternals {
     @Override
     public OutputT read() {
       try {
-        org.apache.flink.api.common.state.ValueState<AccumT> state =
-            flinkStateBackend.getPartitionedState(
-                namespace.stringKey(), StringSerializer.INSTANCE, flinkStateDescriptor);
-
-        AccumT accum = state.value();
+        AccumT accum = readCache.read(namespace.stringKey(), stateId, this::readFromBackend);
         if (accum != null) {
           return combineFn.extractOutput(accum);
         } else {
@@ -659,17 +714,20 @@ public class FlinkStateInternals<K> implements StateInternals {
       }
     }
 
+    private AccumT readFromBackend() throws Exception {
+      return flinkStateBackend
+          .getPartitionedState(
+              namespace.stringKey(), StringSerializer.INSTANCE, flinkStateDescriptor)
+          .value();
+    }
+
     @Override
     public ReadableState<Boolean> isEmpty() {
       return new ReadableState<Boolean>() {
         @Override
         public Boolean read() {
           try {
-            return flinkStateBackend
-                    .getPartitionedState(
-                        namespace.stringKey(), StringSerializer.INSTANCE, flinkStateDescriptor)
-                    .value()
-                == null;
+            return readCache.read(namespace.stringKey(), stateId, () -> readFromBackend()) == null;
           } catch (Exception e) {
             throw new RuntimeException("Error reading state.", e);
           }
@@ -689,6 +747,7 @@ public class FlinkStateInternals<K> implements StateInternals {
             .getPartitionedState(
                 namespace.stringKey(), StringSerializer.INSTANCE, flinkStateDescriptor)
             .clear();
+        readCache.put(namespace.stringKey(), stateId, null);
       } catch (Exception e) {
         throw new RuntimeException("Error clearing state.", e);
       }
@@ -724,10 +783,12 @@ public class FlinkStateInternals<K> implements StateInternals {
     private final CombineWithContext.CombineFnWithContext<InputT, AccumT, OutputT> combineFn;
     private final ValueStateDescriptor<AccumT> flinkStateDescriptor;
     private final KeyedStateBackend<ByteBuffer> flinkStateBackend;
+    private final StateReadCache readCache;
     private final CombineWithContext.Context context;
 
     FlinkCombiningStateWithContext(
         KeyedStateBackend<ByteBuffer> flinkStateBackend,
+        StateReadCache readCache,
         String stateId,
         CombineWithContext.CombineFnWithContext<InputT, AccumT, OutputT> combineFn,
         StateNamespace namespace,
@@ -739,6 +800,7 @@ public class FlinkStateInternals<K> implements StateInternals {
       this.stateId = stateId;
       this.combineFn = combineFn;
       this.flinkStateBackend = flinkStateBackend;
+      this.readCache = readCache;
       this.context = context;
 
       flinkStateDescriptor =
@@ -748,6 +810,7 @@ public class FlinkStateInternals<K> implements StateInternals {
 
     @Override
     public CombiningState<InputT, AccumT, OutputT> readLater() {
+      readCache.prefetch(namespace.stringKey(), stateId, this::readFromBackend);
       return this;
     }
 
@@ -758,12 +821,13 @@ public class FlinkStateInternals<K> implements StateInternals {
             flinkStateBackend.getPartitionedState(
                 namespace.stringKey(), StringSerializer.INSTANCE, flinkStateDescriptor);
 
-        AccumT current = state.value();
+        AccumT current = readCache.read(namespace.stringKey(), stateId, state::value);
         if (current == null) {
           current = combineFn.createAccumulator(context);
         }
         current = combineFn.addInput(current, value, context);
         state.update(current);
+        readCache.put(namespace.stringKey(), stateId, current);
       } catch (Exception e) {
         throw new RuntimeException("Error adding to state.", e);
       }
@@ -776,12 +840,14 @@ public class FlinkStateInternals<K> implements StateInternals {
             flinkStateBackend.getPartitionedState(
                 namespace.stringKey(), StringSerializer.INSTANCE, flinkStateDescriptor);
 
-        AccumT current = state.value();
+        AccumT current = readCache.read(namespace.stringKey(), stateId, state::value);
         if (current == null) {
           state.update(accum);
+          readCache.put(namespace.stringKey(), stateId, accum);
         } else {
           current = combineFn.mergeAccumulators(Lists.newArrayList(current, accum), context);
           state.update(current);
+          readCache.put(namespace.stringKey(), stateId, current);
         }
       } catch (Exception e) {
         throw new RuntimeException("Error adding to state.", e);
@@ -791,11 +857,7 @@ public class FlinkStateInternals<K> implements StateInternals {
     @Override
     public AccumT getAccum() {
       try {
-        AccumT accum =
-            flinkStateBackend
-                .getPartitionedState(
-                    namespace.stringKey(), StringSerializer.INSTANCE, flinkStateDescriptor)
-                .value();
+        AccumT accum = readCache.read(namespace.stringKey(), stateId, this::readFromBackend);
         return accum != null ? accum : combineFn.createAccumulator(context);
       } catch (Exception e) {
         throw new RuntimeException("Error reading state.", e);
@@ -810,11 +872,7 @@ public class FlinkStateInternals<K> implements StateInternals {
     @Override
     public OutputT read() {
       try {
-        org.apache.flink.api.common.state.ValueState<AccumT> state =
-            flinkStateBackend.getPartitionedState(
-                namespace.stringKey(), StringSerializer.INSTANCE, flinkStateDescriptor);
-
-        AccumT accum = state.value();
+        AccumT accum = readCache.read(namespace.stringKey(), stateId, this::readFromBackend);
         if (accum != null) {
           return combineFn.extractOutput(accum, context);
         } else {
@@ -825,17 +883,20 @@ public class FlinkStateInternals<K> implements StateInternals {
       }
     }
 
+    private AccumT readFromBackend() throws Exception {
+      return flinkStateBackend
+          .getPartitionedState(
+              namespace.stringKey(), StringSerializer.INSTANCE, flinkStateDescriptor)
+          .value();
+    }
+
     @Override
     public ReadableState<Boolean> isEmpty() {
       return new ReadableState<Boolean>() {
         @Override
         public Boolean read() {
           try {
-            return flinkStateBackend
-                    .getPartitionedState(
-                        namespace.stringKey(), StringSerializer.INSTANCE, flinkStateDescriptor)
-                    .value()
-                == null;
+            return readCache.read(namespace.stringKey(), stateId, () -> readFromBackend()) == null;
           } catch (Exception e) {
             throw new RuntimeException("Error reading state.", e);
           }
@@ -855,6 +916,7 @@ public class FlinkStateInternals<K> implements StateInternals {
             .getPartitionedState(
                 namespace.stringKey(), StringSerializer.INSTANCE, flinkStateDescriptor)
             .clear();
+        readCache.put(namespace.stringKey(), stateId, null);
       } catch (Exception e) {
         throw new RuntimeException("Error clearing state.", e);
       }
@@ -1195,6 +1257,220 @@ public class FlinkStateInternals<K> implements StateInternals {
     }
   }
 
+  /**
+   * An {@link OrderedListState} stored as a Flink map state whose keys are the timestamps of the
+   * values together with a sequence number, so that adding a value writes a single entry. The
+   * sequence number, kept in a separate value state, orders the values added at the same timestamp.
+   *
+   * <p>The timestamps are stored with their sign bit flipped, so that their big-endian encoding by
+   * {@link LongSerializer} sorts as unsigned bytes in timestamp order. The RocksDB state backend
+   * iterates over map state in the order of the encoded keys, so reading or clearing a range stops
+   * at the first timestamp past its end rather than reading and sorting the whole list. All other
+   * state backends are assumed to iterate in an arbitrary order, so the values of a range are
+   * sorted after reading them.
+   */
+  private static class FlinkOrderedListState<T> implements OrderedListState<T> {
+    private static final String ROCKSDB_KEYED_STATE_BACKEND =
+        "org.apache.flink.contrib.streaming.state.RocksDBKeyedStateBackend";
+
+    private static final Comparator<Tuple2<Long, Long>> KEY_ORDER =
+        Comparator.<Tuple2<Long, Long>>comparingLong(key -> decodeTimestamp(key.f0).getMillis())
+            .thenComparingLong(key -> key.f1);
+
+    private final StateNamespace namespace;
+    private final String stateId;
+    private final MapStateDescriptor<Tuple2<Long, Long>, T> flinkStateDescriptor;
+    private final ValueStateDescriptor<Long> sequenceStateDescriptor;
+    private final KeyedStateBackend<ByteBuffer> flinkStateBackend;
+    private final boolean iteratesInKeyOrder;
+
+    FlinkOrderedListState(
+        KeyedStateBackend<ByteBuffer> flinkStateBackend,
+        String stateId,
+        StateNamespace namespace,
+        Coder<T> elemCoder,
+        SerializablePipelineOptions pipelineOptions) {
+      this.namespace = namespace;
+      this.stateId = stateId;
+      this.flinkStateBackend = flinkStateBackend;
+      this.flinkStateDescriptor = mapStateDescriptor(stateId, elemCoder, pipelineOptions);
+      this.sequenceStateDescriptor = sequenceStateDescriptor(stateId);
+      // The class is matched by name, as the RocksDB state backend is an optional dependency.
+      this.iteratesInKeyOrder =
+          flinkStateBackend.getClass().getName().equals(ROCKSDB_KEYED_STATE_BACKEND);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> MapStateDescriptor<Tuple2<Long, Long>, T> mapStateDescriptor(
+        String stateId, Coder<T> elemCoder, SerializablePipelineOptions pipelineOptions) {
+      // The fields of the key are written one after the other, so the key sorts by timestamp and
+      // then by sequence number.
+      return new MapStateDescriptor<>(
+          stateId,
+          new TupleSerializer<>(
+              (Class<Tuple2<Long, Long>>) (Class<?>) Tuple2.class,
+              new TypeSerializer<?>[] {LongSerializer.INSTANCE, LongSerializer.INSTANCE}),
+          new CoderTypeSerializer<>(elemCoder, pipelineOptions));
+    }
+
+    static ValueStateDescriptor<Long> sequenceStateDescriptor(String stateId) {
+      return new ValueStateDescriptor<>(stateId + "-sequence", LongSerializer.INSTANCE);
+    }
+
+    private static long encodeTimestamp(Instant timestamp) {
+      return timestamp.getMillis() ^ Long.MIN_VALUE;
+    }
+
+    private static Instant decodeTimestamp(long key) {
+      return Instant.ofEpochMilli(key ^ Long.MIN_VALUE);
+    }
+
+    private org.apache.flink.api.common.state.MapState<Tuple2<Long, Long>, T> getFlinkState()
+        throws Exception {
+      return flinkStateBackend.getPartitionedState(
+          namespace.stringKey(), StringSerializer.INSTANCE, flinkStateDescriptor);
+    }
+
+    private org.apache.flink.api.common.state.ValueState<Long> getSequenceState()
+        throws Exception {
+      return flinkStateBackend.getPartitionedState(
+          namespace.stringKey(), StringSerializer.INSTANCE, sequenceStateDescriptor);
+    }
+
+    @Override
+    public void add(TimestampedValue<T> value) {
+      try {
+        org.apache.flink.api.common.state.ValueState<Long> sequenceState = getSequenceState();
+        Long sequence = sequenceState.value();
+        long next = sequence == null ? 0 : sequence + 1;
+        sequenceState.update(next);
+        getFlinkState()
+            .put(Tuple2.of(encodeTimestamp(value.getTimestamp()), next), value.getValue());
+      } catch (Exception e) {
+        throw new RuntimeException("Error adding to ordered list state.", e);
+      }
+    }
+
+    @Override
+    public Iterable<TimestampedValue<T>> read() {
+      return readRange(Instant.ofEpochMilli(Long.MIN_VALUE), Instant.ofEpochMilli(Long.MAX_VALUE));
+    }
+
+    @Override
+    public Iterable<TimestampedValue<T>> readRange(Instant minTimestamp, Instant limitTimestamp) {
+      try {
+        Iterable<Map.Entry<Tuple2<Long, Long>, T>> entries = getFlinkState().entries();
+        if (entries == null) {
+          return Collections.emptyList();
+        }
+        List<Map.Entry<Tuple2<Long, Long>, T>> inRange = new ArrayList<>();
+        for (Map.Entry<Tuple2<Long, Long>, T> entry : entries) {
+          Instant timestamp = decodeTimestamp(entry.getKey().f0);
+          if (!timestamp.isBefore(limitTimestamp)) {
+            if (iteratesInKeyOrder) {
+              break;
+            }
+          } else if (!timestamp.isBefore(minTimestamp)) {
+            inRange.add(entry);
+          }
+        }
+        if (!iteratesInKeyOrder) {
+          inRange.sort(Map.Entry.comparingByKey(KEY_ORDER));
+        }
+        List<TimestampedValue<T>> result = new ArrayList<>(inRange.size());
+        for (Map.Entry<Tuple2<Long, Long>, T> entry : inRange) {
+          result.add(TimestampedValue.of(entry.getValue(), decodeTimestamp(entry.getKey().f0)));
+        }
+        return result;
+      } catch (Exception e) {
+        throw new RuntimeException("Error reading ordered list state.", e);
+      }
+    }
+
+    @Override
+    public void clearRange(Instant minTimestamp, Instant limitTimestamp) {
+      try {
+        Iterator<Map.Entry<Tuple2<Long, Long>, T>> iterator = getFlinkState().iterator();
+        if (iterator == null) {
+          return;
+        }
+        while (iterator.hasNext()) {
+          Instant timestamp = decodeTimestamp(iterator.next().getKey().f0);
+          if (!timestamp.isBefore(limitTimestamp)) {
+            if (iteratesInKeyOrder) {
+              break;
+            }
+          } else if (!timestamp.isBefore(minTimestamp)) {
+            iterator.remove();
+          }
+        }
+      } catch (Exception e) {
+        throw new RuntimeException("Error clearing ordered list state range.", e);
+      }
+    }
+
+    @Override
+    public OrderedListState<T> readLater() {
+      return this;
+    }
+
+    @Override
+    public OrderedListState<T> readRangeLater(Instant minTimestamp, Instant limitTimestamp) {
+      return this;
+    }
+
+    @Override
+    public ReadableState<Boolean> isEmpty() {
+      return new ReadableState<Boolean>() {
+        @Override
+        public Boolean read() {
+          try {
+            Iterable<Tuple2<Long, Long>> keys = getFlinkState().keys();
+            return keys == null || Iterables.isEmpty(keys);
+          } catch (Exception e) {
+            throw new RuntimeException("Error reading state.", e);
+          }
+        }
+
+        @Override
+        public ReadableState<Boolean> readLater() {
+          return this;
+        }
+      };
+    }
+
+    @Override
+    public void clear() {
+      try {
+        getFlinkState().clear();
+        getSequenceState().clear();
+      } catch (Exception e) {
+        throw new RuntimeException("Error clearing state.", e);
+      }
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+
+      FlinkOrderedListState<?> that = (FlinkOrderedListState<?>) o;
+
+      return namespace.equals(that.namespace) && stateId.equals(that.stateId);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = namespace.hashCode();
+      result = 31 * result + stateId.hashCode();
+      return result;
+    }
+  }
+
   private static class FlinkSetState<T> implements SetState<T> {
 
     private final StateNamespace namespace;
@@ -1445,8 +1721,16 @@ public class FlinkStateInternals<K> implements StateInternals {
     @Override
     public <T> OrderedListState<T> bindOrderedList(
         String id, StateSpec<OrderedListState<T>> spec, Coder<T> elemCoder) {
-      throw new UnsupportedOperationException(
-          String.format("%s is not supported", OrderedListState.class.getSimpleName()));
+      try {
+        keyedStateBackend.getOrCreateKeyedState(
+            StringSerializer.INSTANCE,
+            FlinkOrderedListState.mapStateDescriptor(id, elemCoder, pipelineOptions));
+        keyedStateBackend.getOrCreateKeyedState(
+            StringSerializer.INSTANCE, FlinkOrderedListState.sequenceStateDescriptor(id));
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+      return null;
     }
 
     @Override
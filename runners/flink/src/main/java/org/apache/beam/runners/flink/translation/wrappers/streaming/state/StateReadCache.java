@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.flink.translation.wrappers.streaming.state;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.beam.sdk.metrics.Distribution;
+import org.apache.beam.sdk.values.KV;
+import org.apache.flink.runtime.state.KeyedStateBackend;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Caches the values read from the state cells of the current key of a {@link KeyedStateBackend},
+ * so that a cell is read only once from the backend while the key does not change, however often
+ * it is read or written. The cache is dropped whenever the current key of the backend changes.
+ *
+ * <p>This is only worth it for state backends which deserialize the state on every read, like
+ * RocksDB, and when the elements of the same key are processed together. It is disabled by default.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+class StateReadCache {
+
+  /** Reads the value of a state cell from the backend. */
+  interface StateReader<T> {
+    T read() throws Exception;
+  }
+
+  private final KeyedStateBackend<ByteBuffer> flinkStateBackend;
+  /** The cached values, by namespace and state id. */
+  private final Map<KV<String, String>, Object> values = new HashMap<>();
+
+  private boolean enabled = false;
+  private @Nullable Distribution readLatencyMicros;
+  private @Nullable ByteBuffer cachedKey;
+
+  StateReadCache(KeyedStateBackend<ByteBuffer> flinkStateBackend) {
+    this.flinkStateBackend = flinkStateBackend;
+  }
+
+  void enable(@Nullable Distribution readLatencyMicros) {
+    this.enabled = true;
+    this.readLatencyMicros = readLatencyMicros;
+  }
+
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Returns the cached value of a state cell, reading it from the backend if it is not cached. */
+  @SuppressWarnings("unchecked")
+  <T> T read(String namespace, String stateId, StateReader<T> reader) throws Exception {
+    if (!enabled) {
+      return reader.read();
+    }
+    KV<String, String> cell = cellOfCurrentKey(namespace, stateId);
+    if (values.containsKey(cell)) {
+      return (T) values.get(cell);
+    }
+    T value = timedRead(reader);
+    values.put(cell, value);
+    return value;
+  }
+
+  /** Reads a state cell into the cache ahead of its use, if the cache is enabled. */
+  <T> void prefetch(String namespace, String stateId, StateReader<T> reader) {
+    if (enabled) {
+      try {
+        read(namespace, stateId, reader);
+      } catch (Exception e) {
+        throw new RuntimeException("Error reading state.", e);
+      }
+    }
+  }
+
+  /** Records the value just written to a state cell. */
+  void put(String namespace, String stateId, @Nullable Object value) {
+    if (enabled) {
+      values.put(cellOfCurrentKey(namespace, stateId), value);
+    }
+  }
+
+  /** Drops the cached value of a state cell, which was modified without knowing its new value. */
+  void invalidate(String namespace, String stateId) {
+    if (enabled) {
+      values.remove(cellOfCurrentKey(namespace, stateId));
+    }
+  }
+
+  /** Drops all the cached values, after the state was modified for other keys. */
+  void invalidateAll() {
+    values.clear();
+    cachedKey = null;
+  }
+
+  private KV<String, String> cellOfCurrentKey(String namespace, String stateId) {
+    ByteBuffer currentKey = flinkStateBackend.getCurrentKey();
+    if (!currentKey.equals(cachedKey)) {
+      values.clear();
+      cachedKey = currentKey;
+    }
+    return KV.of(namespace, stateId);
+  }
+
+  private <T> T timedRead(StateReader<T> reader) throws Exception {
+    if (readLatencyMicros == null) {
+      return reader.read();
+    }
+    long start = System.nanoTime();
+    T value = reader.read();
+    readLatencyMicros.update(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    return value;
+  }
+}
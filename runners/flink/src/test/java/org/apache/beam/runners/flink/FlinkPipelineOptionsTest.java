@@ -101,6 +101,7 @@ public class FlinkPipelineOptionsTest {
     assertThat(options.getAllowNonRestoredState(), is(false));
     assertThat(options.getDisableMetrics(), is(false));
     assertThat(options.getFasterCopy(), is(false));
+    assertThat(options.getStateReadBatchSize(), is(0));
   }
 
   @Test(expected = Exception.class)
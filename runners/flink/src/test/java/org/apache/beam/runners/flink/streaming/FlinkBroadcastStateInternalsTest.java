@@ -101,4 +101,12 @@ public class FlinkBroadcastStateInternalsTest extends StateInternalsTest {
   @Override
   @Ignore
   public void testMapReadable() {}
+
+  @Override
+  @Ignore
+  public void testOrderedList() {}
+
+  @Override
+  @Ignore
+  public void testOrderedListIsEmpty() {}
 }
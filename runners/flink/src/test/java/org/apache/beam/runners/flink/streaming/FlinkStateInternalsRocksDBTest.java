@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.flink.streaming;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.beam.runners.core.StateInternals;
+import org.apache.beam.runners.core.StateInternalsTest;
+import org.apache.beam.runners.core.StateNamespaces;
+import org.apache.beam.runners.core.StateTags;
+import org.apache.beam.runners.core.construction.SerializablePipelineOptions;
+import org.apache.beam.runners.flink.FlinkPipelineOptions;
+import org.apache.beam.runners.flink.translation.wrappers.streaming.state.FlinkStateInternals;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.state.OrderedListState;
+import org.apache.beam.sdk.values.TimestampedValue;
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.api.java.typeutils.GenericTypeInfo;
+import org.apache.flink.contrib.streaming.state.RocksDBKeyedStateBackend;
+import org.apache.flink.contrib.streaming.state.RocksDBStateBackend;
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.runtime.jobgraph.JobVertexID;
+import org.apache.flink.runtime.operators.testutils.DummyEnvironment;
+import org.apache.flink.runtime.query.KvStateRegistry;
+import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.memory.MemoryStateBackend;
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.hamcrest.Matchers;
+import org.joda.time.Instant;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link FlinkStateInternals} on the RocksDB state backend, which iterates over map state
+ * in key order. This is based on {@link StateInternalsTest}.
+ */
+@RunWith(JUnit4.class)
+public class FlinkStateInternalsRocksDBTest extends StateInternalsTest {
+
+  @Rule public TemporaryFolder dbFolder = new TemporaryFolder();
+
+  private final List<AbstractKeyedStateBackend<ByteBuffer>> keyedStateBackends = new ArrayList<>();
+
+  @Override
+  protected StateInternals createStateInternals() {
+    try {
+      AbstractKeyedStateBackend<ByteBuffer> keyedStateBackend = createStateBackend();
+      keyedStateBackends.add(keyedStateBackend);
+      return new FlinkStateInternals<>(
+          keyedStateBackend,
+          StringUtf8Coder.of(),
+          new SerializablePipelineOptions(FlinkPipelineOptions.defaults()));
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @After
+  public void tearDown() {
+    for (AbstractKeyedStateBackend<ByteBuffer> keyedStateBackend : keyedStateBackends) {
+      keyedStateBackend.dispose();
+    }
+  }
+
+  @Test
+  public void testUsesRocksDB() {
+    // FlinkStateInternals recognizes the RocksDB state backend by the name of its class.
+    assertEquals(
+        RocksDBKeyedStateBackend.class.getName(),
+        keyedStateBackends.get(0).getClass().getName());
+  }
+
+  @Test
+  public void testOrderedListRangesStopAtLimit() throws Exception {
+    OrderedListState<String> value =
+        createStateInternals()
+            .state(
+                StateNamespaces.global(),
+                StateTags.orderedList("orderedList", StringUtf8Coder.of()));
+    // Added out of order, with negative timestamps, whose encoding must still sort first.
+    for (long timestamp : new long[] {50, -20, 10, 30, -40, 0, 20, 40, -10, -30}) {
+      value.add(TimestampedValue.of("v" + timestamp, new Instant(timestamp)));
+    }
+    value.add(TimestampedValue.of("v10again", new Instant(10)));
+
+    assertThat(
+        value.readRange(new Instant(-30), new Instant(20)),
+        Matchers.contains(
+            TimestampedValue.of("v-30", new Instant(-30)),
+            TimestampedValue.of("v-20", new Instant(-20)),
+            TimestampedValue.of("v-10", new Instant(-10)),
+            TimestampedValue.of("v0", new Instant(0)),
+            TimestampedValue.of("v10", new Instant(10)),
+            TimestampedValue.of("v10again", new Instant(10))));
+
+    value.clearRange(new Instant(-40), new Instant(30));
+    assertThat(
+        value.read(),
+        Matchers.contains(
+            TimestampedValue.of("v30", new Instant(30)),
+            TimestampedValue.of("v40", new Instant(40)),
+            TimestampedValue.of("v50", new Instant(50))));
+  }
+
+  private AbstractKeyedStateBackend<ByteBuffer> createStateBackend() throws Exception {
+    RocksDBStateBackend backend = new RocksDBStateBackend(new MemoryStateBackend());
+    backend.setDbStoragePath(dbFolder.newFolder().getAbsolutePath());
+    AbstractKeyedStateBackend<ByteBuffer> keyedStateBackend =
+        backend.createKeyedStateBackend(
+            new DummyEnvironment("test", 1, 0),
+            new JobID(),
+            "test_op",
+            new GenericTypeInfo<>(ByteBuffer.class).createSerializer(new ExecutionConfig()),
+            2,
+            new KeyGroupRange(0, 1),
+            new KvStateRegistry().createTaskRegistry(new JobID(), new JobVertexID()),
+            TtlTimeProvider.DEFAULT,
+            null,
+            Collections.emptyList(),
+            new CloseableRegistry());
+
+    FlinkStateInternalsTest.changeKey(keyedStateBackend);
+
+    return keyedStateBackend;
+  }
+}
@@ -206,7 +206,7 @@ public class FlinkStateInternalsTest extends StateInternalsTest {
     return keyedStateBackend;
   }
 
-  private static void changeKey(KeyedStateBackend<ByteBuffer> keyedStateBackend)
+  static void changeKey(KeyedStateBackend<ByteBuffer> keyedStateBackend)
       throws CoderException {
     keyedStateBackend.setCurrentKey(
         ByteBuffer.wrap(
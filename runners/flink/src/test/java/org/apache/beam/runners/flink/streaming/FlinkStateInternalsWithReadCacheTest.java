@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.flink.streaming;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import java.nio.ByteBuffer;
+import org.apache.beam.runners.core.StateInternals;
+import org.apache.beam.runners.core.StateInternalsTest;
+import org.apache.beam.runners.core.StateNamespaces;
+import org.apache.beam.runners.core.StateTags;
+import org.apache.beam.runners.core.construction.SerializablePipelineOptions;
+import org.apache.beam.runners.flink.FlinkPipelineOptions;
+import org.apache.beam.runners.flink.translation.wrappers.streaming.state.FlinkStateInternals;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.state.BagState;
+import org.apache.beam.sdk.state.CombiningState;
+import org.apache.beam.sdk.state.ValueState;
+import org.apache.beam.sdk.transforms.Sum;
+import org.apache.flink.runtime.state.KeyedStateBackend;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link FlinkStateInternals} with the read cache enabled. This is based on {@link
+ * StateInternalsTest}.
+ */
+@RunWith(JUnit4.class)
+public class FlinkStateInternalsWithReadCacheTest extends StateInternalsTest {
+
+  @Override
+  protected StateInternals createStateInternals() {
+    try {
+      return createStateInternals(FlinkStateInternalsTest.createStateBackend());
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Test
+  public void testReadCacheIsDroppedWhenKeyChanges() throws Exception {
+    KeyedStateBackend<ByteBuffer> keyedStateBackend = FlinkStateInternalsTest.createStateBackend();
+    FlinkStateInternals<String> stateInternals = createStateInternals(keyedStateBackend);
+    ValueState<String> value =
+        stateInternals.state(
+            StateNamespaces.global(), StateTags.value("value", StringUtf8Coder.of()));
+    BagState<String> bag =
+        stateInternals.state(StateNamespaces.global(), StateTags.bag("bag", StringUtf8Coder.of()));
+    CombiningState<Integer, int[], Integer> sum =
+        stateInternals.state(
+            StateNamespaces.global(),
+            StateTags.combiningValueFromInputInternal("sum", VarIntCoder.of(), Sum.ofIntegers()));
+
+    ByteBuffer firstKey = keyedStateBackend.getCurrentKey();
+    value.write("first");
+    bag.add("first");
+    sum.add(1);
+    assertThat(value.read(), is("first"));
+    assertThat(bag.read(), Matchers.contains("first"));
+    assertThat(sum.read(), is(1));
+
+    FlinkStateInternalsTest.changeKey(keyedStateBackend);
+    assertThat(value.readLater().read(), is(Matchers.nullValue()));
+    assertThat(bag.readLater().read(), Matchers.emptyIterable());
+    assertThat(sum.readLater().read(), is(0));
+    value.write("second");
+    bag.add("second");
+    sum.add(2);
+
+    keyedStateBackend.setCurrentKey(firstKey);
+    assertThat(value.read(), is("first"));
+    assertThat(bag.read(), Matchers.contains("first"));
+    assertThat(sum.read(), is(1));
+  }
+
+  private static FlinkStateInternals<String> createStateInternals(
+      KeyedStateBackend<ByteBuffer> keyedStateBackend) throws Exception {
+    FlinkStateInternals<String> stateInternals =
+        new FlinkStateInternals<>(
+            keyedStateBackend,
+            StringUtf8Coder.of(),
+            new SerializablePipelineOptions(FlinkPipelineOptions.defaults()));
+    stateInternals.enableReadCache(null);
+    return stateInternals;
+  }
+}
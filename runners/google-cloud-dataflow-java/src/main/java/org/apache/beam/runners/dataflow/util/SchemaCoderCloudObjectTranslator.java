@@ -40,6 +40,7 @@ public class SchemaCoderCloudObjectTranslator implements CloudObjectTranslator<S
   private static final String TYPE_DESCRIPTOR = "typeDescriptor";
   private static final String TO_ROW_FUNCTION = "toRowFunction";
   private static final String FROM_ROW_FUNCTION = "fromRowFunction";
+  private static final String LAZY_DECODING = "lazyDecoding";
 
   /** Convert to a cloud object. */
   @Override
@@ -66,6 +67,9 @@ public class SchemaCoderCloudObjectTranslator implements CloudObjectTranslator<S
         SCHEMA,
         StringUtils.byteArrayToJsonString(
             SchemaTranslation.schemaToProto(target.getSchema(), true).toByteArray()));
+    if (target.usesLazyDecoding()) {
+      Structs.addBoolean(base, LAZY_DECODING, true);
+    }
     return base;
   }
 
@@ -95,7 +99,11 @@ public class SchemaCoderCloudObjectTranslator implements CloudObjectTranslator<S
           SchemaApi.Schema.parseFrom(
               StringUtils.jsonStringToByteArray(Structs.getString(cloudObject, SCHEMA)));
       Schema schema = SchemaTranslation.schemaFromProto(protoSchema);
-      return SchemaCoder.of(schema, typeDescriptor, toRowFunction, fromRowFunction);
+      SchemaCoder schemaCoder =
+          SchemaCoder.of(schema, typeDescriptor, toRowFunction, fromRowFunction);
+      return Boolean.TRUE.equals(Structs.getBoolean(cloudObject, LAZY_DECODING, false))
+          ? schemaCoder.withLazyDecoding()
+          : schemaCoder;
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
@@ -179,7 +179,11 @@ public class CloudObjectsTest {
                       new RowIdentity()))
               .add(
                   SchemaCoder.of(
-                      TEST_SCHEMA, TypeDescriptors.rows(), new RowIdentity(), new RowIdentity()));
+                      TEST_SCHEMA, TypeDescriptors.rows(), new RowIdentity(), new RowIdentity()))
+              .add(
+                  SchemaCoder.of(
+                          TEST_SCHEMA, TypeDescriptors.rows(), new RowIdentity(), new RowIdentity())
+                      .withLazyDecoding());
       for (Class<? extends Coder> atomicCoder :
           DefaultCoderCloudObjectTranslatorRegistrar.KNOWN_ATOMIC_CODERS) {
         dataBuilder.add(InstanceBuilder.ofType(atomicCoder).fromFactoryMethod("of").build());
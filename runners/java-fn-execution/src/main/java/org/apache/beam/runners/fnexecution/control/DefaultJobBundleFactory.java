@@ -41,6 +41,7 @@ import org.apache.beam.runners.core.construction.Timer;
 import org.apache.beam.runners.core.construction.graph.ExecutableStage;
 import org.apache.beam.runners.fnexecution.GrpcContextHeaderAccessorProvider;
 import org.apache.beam.runners.fnexecution.GrpcFnServer;
+import org.apache.beam.runners.fnexecution.InProcessServerFactory;
 import org.apache.beam.runners.fnexecution.ServerFactory;
 import org.apache.beam.runners.fnexecution.artifact.ArtifactRetrievalService;
 import org.apache.beam.runners.fnexecution.control.ProcessBundleDescriptors.ExecutableProcessBundleDescriptor;
@@ -63,6 +64,7 @@ import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.fn.IdGenerator;
 import org.apache.beam.sdk.fn.IdGenerators;
 import org.apache.beam.sdk.fn.data.FnDataReceiver;
+import org.apache.beam.sdk.fn.data.InProcessDataServices;
 import org.apache.beam.sdk.fn.stream.OutboundObserverFactory;
 import org.apache.beam.sdk.function.ThrowingFunction;
 import org.apache.beam.sdk.options.ExperimentalOptions;
@@ -235,21 +237,28 @@ public class DefaultJobBundleFactory implements JobBundleFactory {
                       environmentFactoryProviderMap.get(environment.getUrn());
                   ServerFactory serverFactory = environmentFactoryProvider.getServerFactory();
                   ServerInfo serverInfo = serverInfoCreator.apply(serverFactory);
-                  String workerId = stageIdGenerator.getId();
-                  serverInfo
-                      .getProvisioningServer()
-                      .getService()
-                      .registerEnvironment(workerId, environment);
-                  EnvironmentFactory environmentFactory =
-                      environmentFactoryProvider.createEnvironmentFactory(
-                          serverInfo.getControlServer(),
-                          serverInfo.getLoggingServer(),
-                          serverInfo.getRetrievalServer(),
-                          serverInfo.getProvisioningServer(),
-                          clientPool,
-                          stageIdGenerator);
-                  return WrappedSdkHarnessClient.wrapping(
-                      environmentFactory.createEnvironment(environment, workerId), serverInfo);
+                  try {
+                    String workerId = stageIdGenerator.getId();
+                    serverInfo
+                        .getProvisioningServer()
+                        .getService()
+                        .registerEnvironment(workerId, environment);
+                    EnvironmentFactory environmentFactory =
+                        environmentFactoryProvider.createEnvironmentFactory(
+                            serverInfo.getControlServer(),
+                            serverInfo.getLoggingServer(),
+                            serverInfo.getRetrievalServer(),
+                            serverInfo.getProvisioningServer(),
+                            clientPool,
+                            stageIdGenerator);
+                    return WrappedSdkHarnessClient.wrapping(
+                        environmentFactory.createEnvironment(environment, workerId), serverInfo);
+                  } catch (Exception e) {
+                    // The client which would unregister the in-process data service is not created.
+                    InProcessDataServices.unregister(
+                        serverInfo.getDataServer().getApiServiceDescriptor());
+                    throw e;
+                  }
                 }
               });
 
@@ -631,6 +640,10 @@ public class DefaultJobBundleFactory implements JobBundleFactory {
           AutoCloseable retrievalServer = serverInfo.getRetrievalServer();
           AutoCloseable stateServer = serverInfo.getStateServer();
           AutoCloseable dataServer = serverInfo.getDataServer();
+          AutoCloseable inProcessDataService =
+              () ->
+                  InProcessDataServices.unregister(
+                      serverInfo.getDataServer().getApiServiceDescriptor());
           AutoCloseable controlServer = serverInfo.getControlServer();
           // Close the logging server first to prevent spaming the logs with error messages
           AutoCloseable loggingServer = serverInfo.getLoggingServer()) {
@@ -695,6 +708,12 @@ public class DefaultJobBundleFactory implements JobBundleFactory {
             serverFactory);
     GrpcFnServer<GrpcStateService> stateServer =
         GrpcFnServer.allocatePortAndCreateFor(GrpcStateService.create(), serverFactory);
+    // Registered once all the servers are allocated, and unregistered when the client is closed.
+    if (serverFactory instanceof InProcessServerFactory
+        && ExperimentalOptions.hasExperiment(
+            portableOptions, EmbeddedEnvironmentFactory.IN_PROCESS_DATA_SERVICE_EXPERIMENT)) {
+      InProcessDataServices.register(dataServer.getApiServiceDescriptor(), dataServer.getService());
+    }
 
     ServerInfo serverInfo =
         new AutoValue_DefaultJobBundleFactory_ServerInfo.Builder()
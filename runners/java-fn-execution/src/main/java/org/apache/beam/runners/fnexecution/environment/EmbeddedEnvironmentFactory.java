@@ -38,6 +38,7 @@ import org.apache.beam.runners.fnexecution.control.InstructionRequestHandler;
 import org.apache.beam.runners.fnexecution.logging.GrpcLoggingService;
 import org.apache.beam.runners.fnexecution.provisioning.StaticGrpcProvisionService;
 import org.apache.beam.sdk.fn.IdGenerator;
+import org.apache.beam.sdk.fn.data.InProcessDataServices;
 import org.apache.beam.sdk.fn.stream.OutboundObserverFactory;
 import org.apache.beam.sdk.fn.test.InProcessManagedChannelFactory;
 import org.apache.beam.sdk.options.PipelineOptions;
@@ -54,6 +55,12 @@ import org.slf4j.LoggerFactory;
 public class EmbeddedEnvironmentFactory implements EnvironmentFactory {
   private static final Logger LOG = LoggerFactory.getLogger(EmbeddedEnvironmentFactory.class);
 
+  /**
+   * Experiment to exchange data with the embedded {@link FnHarness} through {@link
+   * InProcessDataServices}, passing the data messages by reference instead of over gRPC.
+   */
+  public static final String IN_PROCESS_DATA_SERVICE_EXPERIMENT = "use_in_process_data_service";
+
   private final PipelineOptions options;
 
   private final GrpcFnServer<GrpcLoggingService> loggingServer;
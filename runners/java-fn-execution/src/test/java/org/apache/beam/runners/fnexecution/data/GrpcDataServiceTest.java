@@ -22,6 +22,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -40,7 +41,9 @@ import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.CoderException;
 import org.apache.beam.sdk.coders.LengthPrefixCoder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.fn.data.BeamFnDataGrpcMultiplexer;
 import org.apache.beam.sdk.fn.data.CloseableFnDataReceiver;
+import org.apache.beam.sdk.fn.data.InProcessDataServices;
 import org.apache.beam.sdk.fn.data.InboundDataClient;
 import org.apache.beam.sdk.fn.data.LogicalEndpoint;
 import org.apache.beam.sdk.fn.stream.OutboundObserverFactory;
@@ -173,6 +176,69 @@ public class GrpcDataServiceTest {
     }
   }
 
+  @Test
+  public void testInProcessClientBypassesGrpc() throws Exception {
+    final LinkedBlockingQueue<Elements> clientInboundElements = new LinkedBlockingQueue<>();
+    GrpcDataService service =
+        GrpcDataService.create(
+            PipelineOptionsFactory.create(),
+            Executors.newCachedThreadPool(),
+            OutboundObserverFactory.serverDirect());
+    try (GrpcFnServer<GrpcDataService> server =
+        GrpcFnServer.allocatePortAndCreateFor(service, InProcessServerFactory.create())) {
+      InProcessDataServices.register(server.getApiServiceDescriptor(), service);
+      try {
+        BeamFnDataGrpcMultiplexer client =
+            new BeamFnDataGrpcMultiplexer(
+                server.getApiServiceDescriptor(),
+                OutboundObserverFactory.clientDirect(),
+                InProcessDataServices.connectorFor(server.getApiServiceDescriptor()));
+        client.registerConsumer(
+            LogicalEndpoint.data("0", TRANSFORM_ID),
+            (data, isLast) ->
+                clientInboundElements.add(
+                    Elements.newBuilder()
+                        .addData(
+                            Elements.Data.newBuilder()
+                                .setInstructionId("0")
+                                .setTransformId(TRANSFORM_ID)
+                                .setData(data)
+                                .setIsLast(isLast))
+                        .build()));
+
+        // From the client to the service.
+        Collection<WindowedValue<String>> serverInboundValues = new LinkedBlockingQueue<>();
+        InboundDataClient readFuture =
+            service.receive(
+                LogicalEndpoint.data("1", TRANSFORM_ID), CODER, serverInboundValues::add);
+        client.getOutboundObserver().onNext(elementsWithData("1"));
+        readFuture.awaitCompletion();
+        assertThat(
+            serverInboundValues,
+            contains(
+                WindowedValue.valueInGlobalWindow("A1"),
+                WindowedValue.valueInGlobalWindow("B1"),
+                WindowedValue.valueInGlobalWindow("C1")));
+
+        // From the service to the client.
+        CloseableFnDataReceiver<WindowedValue<String>> consumer =
+            service.send(LogicalEndpoint.data("0", TRANSFORM_ID), CODER);
+        consumer.accept(WindowedValue.valueInGlobalWindow("A0"));
+        consumer.accept(WindowedValue.valueInGlobalWindow("B0"));
+        consumer.accept(WindowedValue.valueInGlobalWindow("C0"));
+        consumer.close();
+        assertThat(
+            Elements.newBuilder()
+                .addData(clientInboundElements.take().getData(0))
+                .addData(clientInboundElements.take().getData(0))
+                .build(),
+            equalTo(elementsWithData("0")));
+      } finally {
+        InProcessDataServices.unregister(server.getApiServiceDescriptor());
+      }
+    }
+  }
+
   private BeamFnApi.Elements elementsWithData(String id) throws CoderException {
     return BeamFnApi.Elements.newBuilder()
         .addData(
@@ -23,6 +23,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -62,9 +63,11 @@ import org.apache.beam.sdk.transforms.CombineWithContext;
 import org.apache.beam.sdk.transforms.SerializableFunction;
 import org.apache.beam.sdk.transforms.reflect.DoFnSignature;
 import org.apache.beam.sdk.transforms.windowing.TimestampCombiner;
+import org.apache.beam.sdk.values.TimestampedValue;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.primitives.Ints;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.primitives.Longs;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.primitives.UnsignedBytes;
 import org.apache.samza.config.Config;
 import org.apache.samza.context.TaskContext;
@@ -183,8 +186,7 @@ public class SamzaStoreStateInternals<K> implements StateInternals {
           @Override
           public <T> OrderedListState<T> bindOrderedList(
               StateTag<OrderedListState<T>> spec, Coder<T> elemCoder) {
-            throw new UnsupportedOperationException(
-                String.format("%s is not supported", OrderedListState.class.getSimpleName()));
+            return new SamzaOrderedListState<>(namespace, address, elemCoder);
           }
 
           @Override
@@ -497,6 +499,168 @@ public class SamzaStoreStateInternals<K> implements StateInternals {
     }
   }
 
+  /**
+   * An {@link OrderedListState} that stores each value under its own store key: the encoded state
+   * key, followed by the timestamp of the value with its sign bit flipped and a sequence number,
+   * both big-endian. The store keeps its keys in byte order, so a range of timestamps is a range of
+   * store keys, and values with equal timestamps keep the order they were added in. The next
+   * sequence number is stored under the encoded state key itself, which sorts before all values.
+   */
+  private class SamzaOrderedListState<T> extends AbstractSamzaState<T>
+      implements OrderedListState<T> {
+
+    private static final long MIN_TIMESTAMP = Long.MIN_VALUE;
+    private static final long MAX_TIMESTAMP = Long.MAX_VALUE;
+
+    private final int storeKeySize;
+
+    private SamzaOrderedListState(
+        StateNamespace namespace, StateTag<? extends State> address, Coder<T> coder) {
+      super(namespace, address, coder);
+      this.storeKeySize = getEncodedStoreKeyBytes().length;
+    }
+
+    @Override
+    public void add(TimestampedValue<T> value) {
+      synchronized (store) {
+        final long sequence = getNextSequence();
+        store.put(
+            encodeKey(value.getTimestamp().getMillis(), sequence),
+            StateValue.of(value.getValue(), coder));
+        store.put(getEncodedStoreKey(), StateValue.of(Longs.toByteArray(sequence + 1)));
+      }
+    }
+
+    @Override
+    public ReadableState<Boolean> isEmpty() {
+      return new ReadableState<Boolean>() {
+        @Override
+        public Boolean read() {
+          synchronized (store) {
+            final KeyValueIterator<ByteArray, StateValue<T>> kvIter =
+                store.range(encodeKey(MIN_TIMESTAMP), encodeKey(MAX_TIMESTAMP));
+            try {
+              return !kvIter.hasNext();
+            } finally {
+              kvIter.close();
+            }
+          }
+        }
+
+        @Override
+        public ReadableState<Boolean> readLater() {
+          return this;
+        }
+      };
+    }
+
+    @Override
+    public Iterable<TimestampedValue<T>> read() {
+      return readRange(new Instant(MIN_TIMESTAMP), new Instant(MAX_TIMESTAMP));
+    }
+
+    /**
+     * Since we are not able to track the instances of the iterators returned to the user and close
+     * them properly, we load the values in the range into memory.
+     */
+    @Override
+    public Iterable<TimestampedValue<T>> readRange(Instant minTimestamp, Instant limitTimestamp) {
+      if (!minTimestamp.isBefore(limitTimestamp)) {
+        return Collections.emptyList();
+      }
+      synchronized (store) {
+        final List<TimestampedValue<T>> values = new ArrayList<>();
+        final KeyValueIterator<ByteArray, StateValue<T>> kvIter =
+            store.range(
+                encodeKey(minTimestamp.getMillis()), encodeKey(limitTimestamp.getMillis()));
+        try {
+          while (kvIter.hasNext()) {
+            final Entry<ByteArray, StateValue<T>> entry = kvIter.next();
+            values.add(
+                TimestampedValue.of(
+                    decodeValue(entry.getValue()), decodeTimestamp(entry.getKey())));
+          }
+        } finally {
+          kvIter.close();
+        }
+        return values;
+      }
+    }
+
+    @Override
+    public void clearRange(Instant minTimestamp, Instant limitTimestamp) {
+      if (!minTimestamp.isBefore(limitTimestamp)) {
+        return;
+      }
+      synchronized (store) {
+        clearRangeInternal(minTimestamp.getMillis(), limitTimestamp.getMillis());
+      }
+    }
+
+    @Override
+    public OrderedListState<T> readLater() {
+      return this;
+    }
+
+    @Override
+    public OrderedListState<T> readRangeLater(Instant minTimestamp, Instant limitTimestamp) {
+      return this;
+    }
+
+    @Override
+    public void clear() {
+      synchronized (store) {
+        clearRangeInternal(MIN_TIMESTAMP, MAX_TIMESTAMP);
+        store.delete(getEncodedStoreKey());
+      }
+    }
+
+    private void clearRangeInternal(long minTimestamp, long limitTimestamp) {
+      final List<ByteArray> keys = new ArrayList<>();
+      final KeyValueIterator<ByteArray, StateValue<T>> kvIter =
+          store.range(encodeKey(minTimestamp), encodeKey(limitTimestamp));
+      try {
+        while (kvIter.hasNext()) {
+          keys.add(kvIter.next().getKey());
+        }
+      } finally {
+        kvIter.close();
+      }
+      if (!keys.isEmpty()) {
+        store.deleteAll(keys);
+      }
+    }
+
+    private long getNextSequence() {
+      final StateValue stateSequence = store.get(getEncodedStoreKey());
+      return (stateSequence == null || stateSequence.valueBytes == null)
+          ? 0L
+          : Longs.fromByteArray(stateSequence.valueBytes);
+    }
+
+    /** Encodes the smallest store key of the values with the given timestamp. */
+    private ByteArray encodeKey(long timestamp) {
+      return ByteArray.of(
+          ByteBuffer.allocate(storeKeySize + Long.BYTES)
+              .put(getEncodedStoreKeyBytes())
+              .putLong(timestamp ^ Long.MIN_VALUE)
+              .array());
+    }
+
+    private ByteArray encodeKey(long timestamp, long sequence) {
+      return ByteArray.of(
+          ByteBuffer.allocate(storeKeySize + 2 * Long.BYTES)
+              .put(getEncodedStoreKeyBytes())
+              .putLong(timestamp ^ Long.MIN_VALUE)
+              .putLong(sequence)
+              .array());
+    }
+
+    private Instant decodeTimestamp(ByteArray key) {
+      return new Instant(ByteBuffer.wrap(key.value).getLong(storeKeySize) ^ Long.MIN_VALUE);
+    }
+  }
+
   private class SamzaSetStateImpl<T> implements SamzaSetState<T>, KeyValueIteratorState {
     private final SamzaMapStateImpl<T, Boolean> mapState;
 
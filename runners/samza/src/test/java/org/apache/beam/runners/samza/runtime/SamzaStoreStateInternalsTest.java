@@ -46,6 +46,7 @@ import org.apache.beam.sdk.coders.VarIntCoder;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.state.CombiningState;
 import org.apache.beam.sdk.state.MapState;
+import org.apache.beam.sdk.state.OrderedListState;
 import org.apache.beam.sdk.state.ReadableState;
 import org.apache.beam.sdk.state.SetState;
 import org.apache.beam.sdk.state.StateSpec;
@@ -58,6 +59,7 @@ import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.transforms.Sum;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.TimestampedValue;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterators;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Sets;
@@ -73,6 +75,7 @@ import org.apache.samza.storage.kv.KeyValueStoreMetrics;
 import org.apache.samza.storage.kv.inmemory.InMemoryKeyValueStorageEngineFactory;
 import org.apache.samza.storage.kv.inmemory.InMemoryKeyValueStore;
 import org.apache.samza.system.SystemStreamPartition;
+import org.joda.time.Instant;
 import org.junit.Rule;
 import org.junit.Test;
 
@@ -193,6 +196,73 @@ public class SamzaStoreStateInternalsTest implements Serializable {
     pipeline.run();
   }
 
+  @Test
+  public void testOrderedListState() {
+    final String stateId = "foo";
+    final String countStateId = "count";
+
+    DoFn<KV<String, KV<Long, String>>, String> fn =
+        new DoFn<KV<String, KV<Long, String>>, String>() {
+
+          @StateId(stateId)
+          private final StateSpec<OrderedListState<String>> orderedListState =
+              StateSpecs.orderedList(StringUtf8Coder.of());
+
+          @StateId(countStateId)
+          private final StateSpec<CombiningState<Integer, int[], Integer>> countState =
+              StateSpecs.combiningFromInputInternal(VarIntCoder.of(), Sum.ofIntegers());
+
+          @ProcessElement
+          public void processElement(
+              ProcessContext c,
+              @StateId(stateId) OrderedListState<String> state,
+              @StateId(countStateId) CombiningState<Integer, int[], Integer> count) {
+            ReadableState<Boolean> isEmpty = state.isEmpty();
+            KV<Long, String> value = c.element().getValue();
+            state.add(TimestampedValue.of(value.getValue(), new Instant(value.getKey())));
+            assertFalse(isEmpty.read());
+            count.add(1);
+            if (count.read() >= 5) {
+              assertEquals(
+                  ImmutableList.of(
+                      TimestampedValue.of("negative", new Instant(-5)),
+                      TimestampedValue.of("early", new Instant(3)),
+                      TimestampedValue.of("middle", new Instant(10)),
+                      TimestampedValue.of("late", new Instant(1000)),
+                      TimestampedValue.of("late", new Instant(1000))),
+                  ImmutableList.copyOf(state.read()));
+              assertEquals(
+                  ImmutableList.of(
+                      TimestampedValue.of("early", new Instant(3)),
+                      TimestampedValue.of("middle", new Instant(10))),
+                  ImmutableList.copyOf(state.readRange(new Instant(0), new Instant(1000))));
+
+              state.clearRange(new Instant(-5), new Instant(10));
+              for (TimestampedValue<String> remaining : state.read()) {
+                c.output(remaining.getValue());
+              }
+              state.clear();
+              assertTrue(isEmpty.read());
+            }
+          }
+        };
+
+    PCollection<String> output =
+        pipeline
+            .apply(
+                Create.of(
+                    KV.of("hello", KV.of(1000L, "late")),
+                    KV.of("hello", KV.of(10L, "middle")),
+                    KV.of("hello", KV.of(-5L, "negative")),
+                    KV.of("hello", KV.of(1000L, "late")),
+                    KV.of("hello", KV.of(3L, "early"))))
+            .apply(ParDo.of(fn));
+
+    PAssert.that(output).containsInAnyOrder("middle", "late", "late");
+
+    pipeline.run();
+  }
+
   /** A storage engine to create test stores. */
   public static class TestStorageEngine extends InMemoryKeyValueStorageEngineFactory {
 
@@ -101,6 +101,16 @@ public interface SparkPipelineOptions extends SparkCommonPipelineOptions {
 
   void setCacheDisabled(boolean value);
 
+  @Description(
+      "If set, streaming GroupByKey keeps its state and timers using Spark's mapWithState, "
+          + "visiting only keys with new input or due timers in each micro-batch, instead of "
+          + "updateStateByKey, which visits the state of every key in every micro-batch.")
+  @Default.Boolean(false)
+  boolean isIncrementalStateProcessing();
+
+  @Experimental
+  void setIncrementalStateProcessing(boolean value);
+
   /** Detects if the pipeline is run in spark local mode. */
   @Internal
   static boolean isLocalSparkMaster(SparkPipelineOptions options) {
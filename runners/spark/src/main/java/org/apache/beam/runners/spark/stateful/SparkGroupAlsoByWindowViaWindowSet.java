@@ -20,6 +20,8 @@ package org.apache.beam.runners.spark.stateful;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import org.apache.beam.runners.core.GroupAlsoByWindowsAggregators;
@@ -59,12 +61,19 @@ import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Joiner;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Predicate;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.AbstractIterator;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.FluentIterable;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.HashBasedTable;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Lists;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Table;
+import org.apache.spark.HashPartitioner;
+import org.apache.spark.Partitioner;
+import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.api.java.JavaSparkContext$;
 import org.apache.spark.api.java.function.FlatMapFunction;
 import org.apache.spark.streaming.Duration;
+import org.apache.spark.streaming.State;
+import org.apache.spark.streaming.StateSpec;
 import org.apache.spark.streaming.api.java.JavaDStream;
+import org.apache.spark.streaming.api.java.JavaMapWithStateDStream;
 import org.apache.spark.streaming.api.java.JavaPairDStream;
 import org.apache.spark.streaming.dstream.DStream;
 import org.apache.spark.streaming.dstream.PairDStreamFunctions;
@@ -78,6 +87,7 @@ import scala.collection.Iterator;
 import scala.collection.JavaConversions;
 import scala.collection.Seq;
 import scala.runtime.AbstractFunction1;
+import scala.runtime.AbstractFunction3;
 
 /**
  * An implementation of {@link GroupAlsoByWindow} logic for grouping by windows and controlling
@@ -92,6 +102,15 @@ import scala.runtime.AbstractFunction1;
  * state (new values for key) but also check if timers are ready to fire. Since updateStateByKey
  * bounds the types of state and output to be the same, a (state, output) tuple is used, filtering
  * the state (and output if no firing) in the following steps.
+ *
+ * <p>Since updateStateByKey visits (and re-serializes) the state of every key in every
+ * micro-batch, pipelines holding many idle keys can instead opt-in, via {@link
+ * SparkPipelineOptions#isIncrementalStateProcessing()}, to an implementation based on {@link
+ * JavaPairDStream#mapWithState(StateSpec)}, which only visits keys with new input or due timers.
+ * Its state is kept per partition: the state of every key of the partition, along with a {@link
+ * SparkTimerIndex} of their earliest timers, in which the keys with due timers are looked up. The
+ * index therefore stays on the executors and is checkpointed and recovered with the state. Both are
+ * persistent collections, so that a micro-batch only updates the entries of the keys it visits.
  */
 @SuppressWarnings({
   "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
@@ -456,6 +475,142 @@ public class SparkGroupAlsoByWindowViaWindowSet implements Serializable {
     }
   }
 
+  /**
+   * The state of a single partition of the keys of a stateful transform, along with an index of
+   * their earliest timers.
+   */
+  private static class PartitionState implements Serializable {
+    // Spark keeps the state of previous micro-batches around (and may recompute from it), so the
+    // state is immutable: a micro-batch builds a new one, sharing the entries of the keys it did
+    // not visit with the previous one, rather than copying the state of every key.
+    private final scala.collection.immutable.HashMap</*K*/ ByteArray, StateAndTimers> states;
+    private final SparkTimerIndex timers;
+
+    PartitionState() {
+      this(new scala.collection.immutable.HashMap<>(), new SparkTimerIndex());
+    }
+
+    private PartitionState(
+        final scala.collection.immutable.HashMap</*K*/ ByteArray, StateAndTimers> states,
+        final SparkTimerIndex timers) {
+      this.states = states;
+      this.timers = timers;
+    }
+  }
+
+  /**
+   * A {@link StateSpec} mapping function, visiting a single partition with its new input and
+   * previous state (if any), which delegates the processing of the keys with new input or due
+   * timers to an {@link UpdateStateByKeyFunction}.
+   *
+   * <p>Returns the serialized output of the partition.
+   */
+  private static class MapWithStateFunction<K, InputT, W extends BoundedWindow>
+      extends AbstractFunction3<
+          /*partition*/ Integer,
+          Option<Iterable<Tuple2</*K*/ ByteArray, /*WV<I>*/ byte[]>>>,
+          State<PartitionState>,
+          /*WV<KV<K, Itr<I>>>*/ List<byte[]>>
+      implements Serializable {
+
+    private final UpdateStateByKeyFunction<K, InputT, W> updateFunc;
+
+    MapWithStateFunction(final UpdateStateByKeyFunction<K, InputT, W> updateFunc) {
+      this.updateFunc = updateFunc;
+    }
+
+    @Override
+    public List<byte[]> apply(
+        final Integer partition,
+        final Option<Iterable<Tuple2<ByteArray, byte[]>>> encodedElements,
+        final State<PartitionState> state) {
+
+      final PartitionState previousState = state.exists() ? state.get() : new PartitionState();
+      scala.collection.immutable.HashMap<ByteArray, StateAndTimers> states = previousState.states;
+      SparkTimerIndex timers = previousState.timers;
+
+      // visit the keys with new input, then the keys with due timers.
+      final Map<ByteArray, List<byte[]>> elementsByKey = new LinkedHashMap<>();
+      if (encodedElements.isDefined()) {
+        for (final Tuple2<ByteArray, byte[]> element : encodedElements.get()) {
+          elementsByKey.computeIfAbsent(element._1(), key -> new ArrayList<>()).add(element._2());
+        }
+      }
+      final SparkTimerInternals timerInternals =
+          SparkTimerInternals.forStreamFromSources(
+              updateFunc.sourceIds,
+              GlobalWatermarkHolder.get(getBatchDuration(updateFunc.options)));
+      timerInternals.advanceWatermark();
+      for (final ByteArray key :
+          timers.dueKeys(timerInternals.currentInputWatermarkTime().getMillis())) {
+        elementsByKey.computeIfAbsent(key, k -> new ArrayList<>());
+      }
+
+      final List<Tuple3<ByteArray, Seq<byte[]>, Option<Tuple2<StateAndTimers, List<byte[]>>>>>
+          visited = new ArrayList<>(elementsByKey.size());
+      for (final Map.Entry<ByteArray, List<byte[]>> entry : elementsByKey.entrySet()) {
+        // the key is added back below, unless its state is evicted.
+        final Option<StateAndTimers> previous = states.get(entry.getKey());
+        states = states.$minus(entry.getKey());
+        timers = timers.put(entry.getKey(), null);
+        visited.add(
+            new Tuple3<>(
+                entry.getKey(),
+                JavaConversions.asScalaBuffer(entry.getValue()),
+                previous.isEmpty()
+                    ? Option.<Tuple2<StateAndTimers, List<byte[]>>>empty()
+                    : Option.apply(
+                        new Tuple2<>(
+                            new StateAndTimers(
+                                HashBasedTable.create(previous.get().getState()),
+                                previous.get().getTimers()),
+                            Collections.<byte[]>emptyList()))));
+      }
+
+      final List<byte[]> outputs = new ArrayList<>();
+      final Iterator<Tuple2<ByteArray, Tuple2<StateAndTimers, List<byte[]>>>> processed =
+          updateFunc.apply(JavaConversions.asScalaIterator(visited.iterator()));
+      while (processed.hasNext()) {
+        final Tuple2<ByteArray, Tuple2<StateAndTimers, List<byte[]>>> next = processed.next();
+        final StateAndTimers stateAndTimers = next._2()._1();
+        if (!stateAndTimers.getState().isEmpty() || !stateAndTimers.getTimers().isEmpty()) {
+          states = states.updated(next._1(), stateAndTimers);
+          timers =
+              timers.put(next._1(), earliestTimer(stateAndTimers, updateFunc.timerDataCoder));
+        }
+        outputs.addAll(next._2()._2());
+      }
+
+      if (!states.isEmpty()) {
+        state.update(new PartitionState(states, timers));
+      } else if (state.exists()) {
+        state.remove();
+      }
+      return outputs;
+    }
+  }
+
+  /**
+   * Returns the timestamp (in millis) of the earliest timer held by the given state, {@link
+   * Long#MIN_VALUE} if it holds a timer which is always eligible for processing, or {@code null} if
+   * it holds no timers.
+   */
+  private static Long earliestTimer(
+      final StateAndTimers stateAndTimers, final TimerInternals.TimerDataCoderV2 timerDataCoder) {
+    Long earliest = null;
+    final java.util.Iterator<TimerInternals.TimerData> timers =
+        SparkTimerInternals.deserializeTimers(stateAndTimers.getTimers(), timerDataCoder);
+    while (timers.hasNext()) {
+      final TimerInternals.TimerData timer = timers.next();
+      final long timestamp =
+          timer.getDomain().equals(TimeDomain.EVENT_TIME)
+              ? timer.getTimestamp().getMillis()
+              : Long.MIN_VALUE;
+      earliest = earliest == null ? timestamp : Math.min(earliest, timestamp);
+    }
+    return earliest;
+  }
+
   private static <K, InputT>
       FullWindowedValueCoder<KV<K, Iterable<InputT>>> windowedValueKeyValueCoderOf(
           final Coder<K> keyCoder,
@@ -470,8 +625,7 @@ public class SparkGroupAlsoByWindowViaWindowSet implements Serializable {
   }
 
   private static void checkpointIfNeeded(
-      final DStream<Tuple2<ByteArray, Tuple2<StateAndTimers, List<byte[]>>>> firedStream,
-      final SerializablePipelineOptions options) {
+      final DStream<?> firedStream, final SerializablePipelineOptions options) {
 
     final Long checkpointDurationMillis = getBatchDuration(options);
 
@@ -489,17 +643,29 @@ public class SparkGroupAlsoByWindowViaWindowSet implements Serializable {
       final Coder<K> keyCoder,
       final FullWindowedValueCoder<InputT> wvCoder) {
 
-    return JavaPairDStream.fromPairDStream(
-            firedStream,
-            JavaSparkContext$.MODULE$.fakeClassTag(),
-            JavaSparkContext$.MODULE$.fakeClassTag())
+    return decodeOutputs(
+        JavaPairDStream.fromPairDStream(
+                firedStream,
+                JavaSparkContext$.MODULE$.fakeClassTag(),
+                JavaSparkContext$.MODULE$.fakeClassTag())
+            // drop the state since it is already persisted at this point.
+            .map(t2 -> t2._2()._2()),
+        keyCoder,
+        wvCoder);
+  }
+
+  private static <K, InputT> JavaDStream<WindowedValue<KV<K, Iterable<InputT>>>> decodeOutputs(
+      final JavaDStream</*WV<KV<K, Itr<I>>>*/ List<byte[]>> outputs,
+      final Coder<K> keyCoder,
+      final FullWindowedValueCoder<InputT> wvCoder) {
+
+    return outputs
         .filter(
             // filter output if defined.
-            t2 -> !t2._2()._2().isEmpty())
+            output -> !output.isEmpty())
         .flatMap(
             new FlatMapFunction<
-                Tuple2</*K*/ ByteArray, Tuple2<StateAndTimers, /*WV<KV<K, Itr<I>>>*/ List<byte[]>>>,
-                WindowedValue<KV<K, Iterable<InputT>>>>() {
+                /*WV<KV<K, Itr<I>>>*/ List<byte[]>, WindowedValue<KV<K, Iterable<InputT>>>>() {
 
               private final FullWindowedValueCoder<KV<K, Iterable<InputT>>>
                   windowedValueKeyValueCoder =
@@ -508,26 +674,18 @@ public class SparkGroupAlsoByWindowViaWindowSet implements Serializable {
 
               @Override
               public java.util.Iterator<WindowedValue<KV<K, Iterable<InputT>>>> call(
-                  final Tuple2<
-                          /*K*/ ByteArray,
-                          Tuple2<StateAndTimers, /*WV<KV<K, Itr<I>>>*/ List<byte[]>>>
-                      t2)
-                  throws Exception {
-                // drop the state since it is already persisted at this point.
+                  final List<byte[]> output) throws Exception {
                 // return in serialized form.
-                return CoderHelpers.fromByteArrays(t2._2()._2(), windowedValueKeyValueCoder)
-                    .iterator();
+                return CoderHelpers.fromByteArrays(output, windowedValueKeyValueCoder).iterator();
               }
             });
   }
 
-  private static <K, InputT> PairDStreamFunctions<ByteArray, byte[]> buildPairDStream(
+  private static <K, InputT> DStream<Tuple2<ByteArray, byte[]>> buildTupleDStream(
       final JavaDStream<WindowedValue<KV<K, InputT>>> inputDStream,
       final Coder<K> keyCoder,
       final Coder<WindowedValue<InputT>> wvCoder) {
 
-    // we have to switch to Scala API to avoid Optional in the Java API, see: SPARK-4819.
-    // we also have a broader API for Scala (access to the actual key and entire iterator).
     // we use coders to convert objects in the PCollection to byte arrays, so they
     // can be transferred over the network for the shuffle and be in serialized form
     // for checkpointing.
@@ -537,12 +695,22 @@ public class SparkGroupAlsoByWindowViaWindowSet implements Serializable {
     // ---- Iterable: Itr
     // ---- AccumT: A
     // ---- InputT: I
+    return inputDStream
+        .map(new ReifyTimestampsAndWindowsFunction<>())
+        .mapToPair(TranslationUtils.toPairFunction())
+        .mapToPair(CoderHelpers.toByteFunction(keyCoder, wvCoder))
+        .dstream();
+  }
+
+  private static <K, InputT> PairDStreamFunctions<ByteArray, byte[]> buildPairDStream(
+      final JavaDStream<WindowedValue<KV<K, InputT>>> inputDStream,
+      final Coder<K> keyCoder,
+      final Coder<WindowedValue<InputT>> wvCoder) {
+
+    // we have to switch to Scala API to avoid Optional in the Java API, see: SPARK-4819.
+    // we also have a broader API for Scala (access to the actual key and entire iterator).
     final DStream<Tuple2<ByteArray, byte[]>> tupleDStream =
-        inputDStream
-            .map(new ReifyTimestampsAndWindowsFunction<>())
-            .mapToPair(TranslationUtils.toPairFunction())
-            .mapToPair(CoderHelpers.toByteFunction(keyCoder, wvCoder))
-            .dstream();
+        buildTupleDStream(inputDStream, keyCoder, wvCoder);
 
     return DStream.toPairDStreamFunctions(
         tupleDStream,
@@ -561,6 +729,17 @@ public class SparkGroupAlsoByWindowViaWindowSet implements Serializable {
           final List<Integer> sourceIds,
           final String transformFullName) {
 
+    if (options.get().as(SparkPipelineOptions.class).isIncrementalStateProcessing()) {
+      return groupByKeyAndWindowIncrementally(
+          inputDStream,
+          keyCoder,
+          wvCoder,
+          windowingStrategy,
+          options,
+          sourceIds,
+          transformFullName);
+    }
+
     final PairDStreamFunctions<ByteArray, byte[]> pairDStream =
         buildPairDStream(inputDStream, keyCoder, wvCoder);
 
@@ -588,4 +767,68 @@ public class SparkGroupAlsoByWindowViaWindowSet implements Serializable {
     // filter state-only output (nothing to fire) and remove the state from the output.
     return stripStateValues(firedStream, keyCoder, (FullWindowedValueCoder<InputT>) wvCoder);
   }
+
+  private static <K, InputT, W extends BoundedWindow>
+      JavaDStream<WindowedValue<KV<K, Iterable<InputT>>>> groupByKeyAndWindowIncrementally(
+          final JavaDStream<WindowedValue<KV<K, InputT>>> inputDStream,
+          final Coder<K> keyCoder,
+          final Coder<WindowedValue<InputT>> wvCoder,
+          final WindowingStrategy<?, W> windowingStrategy,
+          final SerializablePipelineOptions options,
+          final List<Integer> sourceIds,
+          final String transformFullName) {
+
+    final DStream<Tuple2<ByteArray, byte[]>> tupleDStream =
+        buildTupleDStream(inputDStream, keyCoder, wvCoder);
+    final int numPartitions = tupleDStream.context().sparkContext().defaultParallelism();
+    final Partitioner partitioner = new HashPartitioner(numPartitions);
+
+    // group the new input by the partition of its key, and add every partition, so that
+    // mapWithState visits all partitions, including those with due timers but no new input.
+    final JavaPairDStream<
+            /*partition*/ Integer, Iterable<Tuple2</*K*/ ByteArray, /*WV<I>*/ byte[]>>>
+        partitionedInput =
+            JavaPairDStream.fromPairDStream(
+                    tupleDStream,
+                    JavaSparkContext$.MODULE$.fakeClassTag(),
+                    JavaSparkContext$.MODULE$.fakeClassTag())
+                .mapToPair(t2 -> new Tuple2<>(partitioner.getPartition(t2._1()), t2))
+                .transformToPair(
+                    rdd -> {
+                      final List<Tuple2<Integer, Boolean>> partitions = new ArrayList<>();
+                      for (int partition = 0; partition < numPartitions; partition++) {
+                        partitions.add(new Tuple2<>(partition, true));
+                      }
+                      return rdd.cogroup(
+                              JavaSparkContext.fromSparkContext(rdd.context())
+                                  .parallelizePairs(partitions),
+                              partitioner)
+                          .mapValues(elementsAndPartition -> elementsAndPartition._1());
+                    });
+
+    final UpdateStateByKeyFunction<K, InputT, W> updateFunc =
+        new UpdateStateByKeyFunction<>(
+            sourceIds,
+            windowingStrategy,
+            (FullWindowedValueCoder<InputT>) wvCoder,
+            keyCoder,
+            options,
+            transformFullName);
+
+    // use mapWithState, keyed by partition, to visit only keys with new input or due timers.
+    final JavaMapWithStateDStream<
+            Integer,
+            Iterable<Tuple2<ByteArray, byte[]>>,
+            PartitionState,
+            /*WV<KV<K, Itr<I>>>*/ List<byte[]>>
+        firedStream =
+            partitionedInput.mapWithState(
+                StateSpec.function(new MapWithStateFunction<>(updateFunc))
+                    .partitioner(partitioner));
+
+    checkpointIfNeeded(firedStream.dstream(), options);
+
+    // filter state-only output (nothing to fire).
+    return decodeOutputs(firedStream, keyCoder, (FullWindowedValueCoder<InputT>) wvCoder);
+  }
 }
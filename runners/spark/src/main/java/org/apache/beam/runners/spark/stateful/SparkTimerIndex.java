@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.spark.stateful;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.apache.beam.runners.spark.util.ByteArray;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import scala.Option;
+import scala.Tuple2;
+import scala.collection.Iterator;
+import scala.collection.immutable.HashMap;
+import scala.collection.immutable.TreeSet;
+import scala.math.Ordering;
+import scala.math.Ordering$;
+
+/**
+ * An index of the earliest pending timer of every key held by a single partition of a stateful
+ * streaming transform's state.
+ *
+ * <p>The index is kept on the executors, as part of the partition's state, so it is checkpointed
+ * and recovered along with it. It is updated with the keys each micro-batch visits and queried for
+ * the keys whose timers may be eligible for processing. This lets a stateful transform visit only
+ * keys with new input or due timers instead of scanning its entire state.
+ *
+ * <p>The index is immutable: Spark keeps the state of previous micro-batches around (and may
+ * recompute from it), so an update returns a new index, which shares all but the updated entries
+ * with this one.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+class SparkTimerIndex implements Serializable {
+
+  private static final Ordering<Tuple2<Long, ByteArray>> TIMER_ORDERING =
+      Ordering$.MODULE$.comparatorToOrdering(new TimerComparator());
+
+  private final HashMap<ByteArray, Long> timestamps;
+  private final TreeSet<Tuple2</*timestamp*/ Long, ByteArray>> timers;
+
+  SparkTimerIndex() {
+    this(new HashMap<>(), new TreeSet<>(TIMER_ORDERING));
+  }
+
+  private SparkTimerIndex(
+      HashMap<ByteArray, Long> timestamps, TreeSet<Tuple2<Long, ByteArray>> timers) {
+    this.timestamps = timestamps;
+    this.timers = timers;
+  }
+
+  /**
+   * Returns an index with the earliest timer timestamp of the given key updated. A {@code null}
+   * timestamp removes the key from the index.
+   */
+  SparkTimerIndex put(ByteArray key, @Nullable Long timestamp) {
+    Option<Long> previous = timestamps.get(key);
+    if (previous.isDefined() ? previous.get().equals(timestamp) : timestamp == null) {
+      return this;
+    }
+    HashMap<ByteArray, Long> updatedTimestamps = timestamps;
+    TreeSet<Tuple2<Long, ByteArray>> updatedTimers = timers;
+    if (previous.isDefined()) {
+      updatedTimestamps = updatedTimestamps.$minus(key);
+      updatedTimers = updatedTimers.$minus(new Tuple2<>(previous.get(), key));
+    }
+    if (timestamp != null) {
+      updatedTimestamps = updatedTimestamps.updated(key, timestamp);
+      updatedTimers = updatedTimers.$plus(new Tuple2<>(timestamp, key));
+    }
+    return new SparkTimerIndex(updatedTimestamps, updatedTimers);
+  }
+
+  /** Returns the keys holding a timer with a timestamp before the given watermark. */
+  List<ByteArray> dueKeys(long watermarkMillis) {
+    List<ByteArray> dueKeys = new ArrayList<>();
+    Iterator<Tuple2<Long, ByteArray>> iterator = timers.iterator();
+    while (iterator.hasNext()) {
+      Tuple2<Long, ByteArray> timer = iterator.next();
+      if (timer._1() >= watermarkMillis) {
+        break;
+      }
+      dueKeys.add(timer._2());
+    }
+    return dueKeys;
+  }
+
+  /** Orders the timers of the index by timestamp, then by key. */
+  private static class TimerComparator
+      implements Comparator<Tuple2<Long, ByteArray>>, Serializable {
+    @Override
+    public int compare(Tuple2<Long, ByteArray> first, Tuple2<Long, ByteArray> second) {
+      int byTimestamp = Long.compare(first._1(), second._1());
+      return byTimestamp != 0 ? byTimestamp : first._2().compareTo(second._2());
+    }
+  }
+}
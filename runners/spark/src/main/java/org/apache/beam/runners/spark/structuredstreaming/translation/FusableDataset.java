@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.spark.structuredstreaming.translation;
+
+import org.apache.beam.sdk.util.WindowedValue;
+import org.apache.spark.api.java.function.MapPartitionsFunction;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Encoder;
+
+/**
+ * The elements of a PCollection as a function of the partitions of a parent {@link Dataset}, which
+ * a consuming translator can apply along with its own function in a single pass, instead of
+ * reading the elements from their encoded {@link Dataset}.
+ *
+ * <p>This lets elements which should not be encoded, like the lazily read values of a sort-based
+ * {@link org.apache.beam.sdk.transforms.GroupByKey}, be consumed within the task producing them.
+ *
+ * @param <T> the type of the elements
+ */
+public abstract class FusableDataset<T> {
+
+  public static <InputT, T> FusableDataset<T> of(
+      Dataset<InputT> parent, MapPartitionsFunction<InputT, WindowedValue<T>> function) {
+    return new FusableDataset<T>() {
+      @Override
+      public <OutputT> Dataset<OutputT> mapPartitions(
+          MapPartitionsFunction<WindowedValue<T>, OutputT> next, Encoder<OutputT> encoder) {
+        // a local copy, so that the serialized function does not reference the parent dataset.
+        MapPartitionsFunction<InputT, WindowedValue<T>> first = function;
+        return parent.mapPartitions(
+            (MapPartitionsFunction<InputT, OutputT>) partition -> next.call(first.call(partition)),
+            encoder);
+      }
+    };
+  }
+
+  /**
+   * Applies the given function to the elements of each partition, as produced by the function of
+   * the parent partitions.
+   */
+  public abstract <OutputT> Dataset<OutputT> mapPartitions(
+      MapPartitionsFunction<WindowedValue<T>, OutputT> next, Encoder<OutputT> encoder);
+}
@@ -17,12 +17,18 @@
  */
 package org.apache.beam.runners.spark.structuredstreaming.translation;
 
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.spark.sql.types.DataType;
 import org.apache.spark.sql.types.DataTypes;
 import org.apache.spark.sql.types.Metadata;
 import org.apache.spark.sql.types.StructField;
 import org.apache.spark.sql.types.StructType;
 
 /** A {@link SchemaHelpers} for the Spark Batch Runner. */
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
 public class SchemaHelpers {
   private static final StructType BINARY_SCHEMA =
       new StructType(
@@ -36,4 +42,91 @@ public class SchemaHelpers {
     // using a NullType schema stores null in the elements
     return BINARY_SCHEMA;
   }
+
+  /**
+   * Returns whether all the fields of a Beam {@link Schema} can be mapped to Spark columns, see
+   * {@link #toStructType(Schema)}.
+   */
+  public static boolean isSupported(Schema schema) {
+    for (Schema.Field field : schema.getFields()) {
+      if (!isSupported(field.getType())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isSupported(FieldType fieldType) {
+    switch (fieldType.getTypeName()) {
+      case DECIMAL:
+        // Spark decimals have a bounded precision, unlike Beam ones.
+        return false;
+      case ARRAY:
+      case ITERABLE:
+        return isSupported(fieldType.getCollectionElementType());
+      case MAP:
+        return isSupported(fieldType.getMapKeyType()) && isSupported(fieldType.getMapValueType());
+      case ROW:
+        return isSupported(fieldType.getRowSchema());
+      case LOGICAL_TYPE:
+        return isSupported(fieldType.getLogicalType().getBaseType());
+      default:
+        return true;
+    }
+  }
+
+  /** Maps a Beam {@link Schema} to a Spark {@link StructType} with a column per field. */
+  public static StructType toStructType(Schema schema) {
+    StructField[] fields = new StructField[schema.getFieldCount()];
+    for (int i = 0; i < fields.length; i++) {
+      Schema.Field field = schema.getField(i);
+      fields[i] =
+          StructField.apply(
+              field.getName(),
+              toDataType(field.getType()),
+              field.getType().getNullable(),
+              Metadata.empty());
+    }
+    return new StructType(fields);
+  }
+
+  /** Maps a Beam {@link FieldType} to the Spark {@link DataType} of its column. */
+  public static DataType toDataType(FieldType fieldType) {
+    switch (fieldType.getTypeName()) {
+      case BYTE:
+        return DataTypes.ByteType;
+      case INT16:
+        return DataTypes.ShortType;
+      case INT32:
+        return DataTypes.IntegerType;
+      case INT64:
+        return DataTypes.LongType;
+      case FLOAT:
+        return DataTypes.FloatType;
+      case DOUBLE:
+        return DataTypes.DoubleType;
+      case BOOLEAN:
+        return DataTypes.BooleanType;
+      case STRING:
+        return DataTypes.StringType;
+      case BYTES:
+        return DataTypes.BinaryType;
+      case DATETIME:
+        return DataTypes.TimestampType;
+      case ARRAY:
+      case ITERABLE:
+        FieldType elementType = fieldType.getCollectionElementType();
+        return DataTypes.createArrayType(toDataType(elementType), elementType.getNullable());
+      case MAP:
+        FieldType valueType = fieldType.getMapValueType();
+        return DataTypes.createMapType(
+            toDataType(fieldType.getMapKeyType()), toDataType(valueType), valueType.getNullable());
+      case ROW:
+        return toStructType(fieldType.getRowSchema());
+      case LOGICAL_TYPE:
+        return toDataType(fieldType.getLogicalType().getBaseType());
+      default:
+        throw new IllegalArgumentException("Unsupported Beam field type: " + fieldType);
+    }
+  }
 }
@@ -45,6 +45,7 @@ import org.apache.spark.sql.ForeachWriter;
 import org.apache.spark.sql.SparkSession;
 import org.apache.spark.sql.streaming.DataStreamWriter;
 import org.apache.spark.sql.streaming.StreamingQueryException;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -64,6 +65,8 @@ public class TranslationContext {
   private final Map<PValue, Dataset<?>> datasets;
   /** datasets that are not used as input to other datasets (leaves of the DAG). */
   private final Set<Dataset<?>> leaves;
+  /** datasets that consuming translators can fuse with, see {@link FusableDataset}. */
+  private final Map<PValue, FusableDataset<?>> fusableDatasets;
 
   private final SerializablePipelineOptions serializablePipelineOptions;
 
@@ -102,6 +105,7 @@ public class TranslationContext {
     this.serializablePipelineOptions = new SerializablePipelineOptions(options);
     this.datasets = new HashMap<>();
     this.leaves = new HashSet<>();
+    this.fusableDatasets = new HashMap<>();
     this.broadcastDataSets = new HashMap<>();
   }
 
@@ -158,6 +162,29 @@ public class TranslationContext {
     }
   }
 
+  /**
+   * Registers the elements of the given value as a {@link FusableDataset}, in addition to their
+   * dataset put with {@link #putDataset}.
+   */
+  public <T> void putFusableDataset(PValue value, FusableDataset<T> dataset) {
+    if (!fusableDatasets.containsKey(value)) {
+      fusableDatasets.put(value, dataset);
+    }
+  }
+
+  /**
+   * Returns the {@link FusableDataset} of the given value, or {@code null} if there is none. As
+   * with {@link #getDataset}, the dataset of the value is assumed to be used as an input.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> @Nullable FusableDataset<T> getFusableDataset(PValue value) {
+    FusableDataset<?> dataset = fusableDatasets.get(value);
+    if (dataset != null) {
+      leaves.remove(datasets.get(value));
+    }
+    return (FusableDataset<T>) dataset;
+  }
+
   public <ViewT, ElemT> void setSideInputDataset(
       PCollectionView<ViewT> value, Dataset<WindowedValue<ElemT>> set) {
     if (!broadcastDataSets.containsKey(value)) {
@@ -21,11 +21,14 @@ import java.util.ArrayList;
 import java.util.List;
 import org.apache.beam.runners.spark.structuredstreaming.translation.TransformTranslator;
 import org.apache.beam.runners.spark.structuredstreaming.translation.TranslationContext;
+import org.apache.beam.runners.spark.structuredstreaming.translation.batch.functions.MergeAccumulatorsFn;
+import org.apache.beam.runners.spark.structuredstreaming.translation.batch.functions.PartialCombineFn;
 import org.apache.beam.runners.spark.structuredstreaming.translation.helpers.EncoderHelpers;
 import org.apache.beam.runners.spark.structuredstreaming.translation.helpers.KVHelpers;
 import org.apache.beam.sdk.coders.CannotProvideCoderException;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.transforms.Combine;
 import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
@@ -34,10 +37,21 @@ import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.WindowingStrategy;
 import org.apache.spark.api.java.function.FlatMapFunction;
+import org.apache.spark.api.java.function.MapFunction;
 import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Encoders;
 import org.apache.spark.sql.KeyValueGroupedDataset;
 import scala.Tuple2;
 
+/**
+ * Translates a {@link Combine.PerKey} in batch mode.
+ *
+ * <p>If the windows are non-merging, the values of each key and window are first combined into
+ * partial accumulators within each partition by {@link PartialCombineFn}, so that only the
+ * accumulators are shuffled, and then merged by {@link MergeAccumulatorsFn}. Otherwise, or if the
+ * {@value #DISABLE_PARTIAL_AGGREGATION_EXPERIMENT} experiment is set, the values are grouped by
+ * key and combined by {@link AggregatorCombiner}.
+ */
 @SuppressWarnings({
   "rawtypes" // TODO(https://issues.apache.org/jira/browse/BEAM-10556)
 })
@@ -45,6 +59,14 @@ class CombinePerKeyTranslatorBatch<K, InputT, AccumT, OutputT>
     implements TransformTranslator<
         PTransform<PCollection<KV<K, InputT>>, PCollection<KV<K, OutputT>>>> {
 
+  static final String DISABLE_PARTIAL_AGGREGATION_EXPERIMENT =
+      "disable_combine_partial_aggregation";
+
+  /** The number of partial accumulators kept in memory per partition, before flushing them. */
+  private static final int MAX_PARTIAL_ACCUMULATORS = 100_000;
+  /** The estimated size of the partial accumulators kept in memory per partition, in bytes. */
+  private static final long MAX_PARTIAL_ACCUMULATORS_BYTES = 64L * 1024 * 1024;
+
   @Override
   public void translateTransform(
       PTransform<PCollection<KV<K, InputT>>, PCollection<KV<K, OutputT>>> transform,
@@ -67,9 +89,6 @@ class CombinePerKeyTranslatorBatch<K, InputT, AccumT, OutputT>
     KvCoder<K, OutputT> outputKVCoder = (KvCoder<K, OutputT>) output.getCoder();
     Coder<OutputT> outputCoder = outputKVCoder.getValueCoder();
 
-    KeyValueGroupedDataset<K, WindowedValue<KV<K, InputT>>> groupedDataset =
-        inputDataset.groupByKey(KVHelpers.extractKey(), EncoderHelpers.fromBeamCoder(keyCoder));
-
     Coder<AccumT> accumulatorCoder = null;
     try {
       accumulatorCoder =
@@ -79,6 +98,24 @@ class CombinePerKeyTranslatorBatch<K, InputT, AccumT, OutputT>
       throw new RuntimeException(e);
     }
 
+    if (windowingStrategy.getWindowFn().isNonMerging()
+        && !ExperimentalOptions.hasExperiment(
+            context.getSerializableOptions().get(), DISABLE_PARTIAL_AGGREGATION_EXPERIMENT)) {
+      context.putDataset(
+          output,
+          combineWithPartialAggregation(
+              inputDataset,
+              combineFn,
+              windowingStrategy,
+              keyCoder,
+              accumulatorCoder,
+              outputKVCoder));
+      return;
+    }
+
+    KeyValueGroupedDataset<K, WindowedValue<KV<K, InputT>>> groupedDataset =
+        inputDataset.groupByKey(KVHelpers.extractKey(), EncoderHelpers.fromBeamCoder(keyCoder));
+
     Dataset<Tuple2<K, Iterable<WindowedValue<OutputT>>>> combinedDataset =
         groupedDataset.agg(
             new AggregatorCombiner<K, InputT, AccumT, OutputT, BoundedWindow>(
@@ -111,4 +148,38 @@ class CombinePerKeyTranslatorBatch<K, InputT, AccumT, OutputT>
             EncoderHelpers.fromBeamCoder(wvCoder));
     context.putDataset(output, outputDataset);
   }
+
+  private static <K, InputT, AccumT, OutputT, W extends BoundedWindow>
+      Dataset<WindowedValue<KV<K, OutputT>>> combineWithPartialAggregation(
+          Dataset<WindowedValue<KV<K, InputT>>> input,
+          Combine.CombineFn<InputT, AccumT, OutputT> combineFn,
+          WindowingStrategy<?, W> windowingStrategy,
+          Coder<K> keyCoder,
+          Coder<AccumT> accumulatorCoder,
+          KvCoder<K, OutputT> outputKVCoder) {
+    Coder<W> windowCoder = windowingStrategy.getWindowFn().windowCoder();
+    WindowedValue.FullWindowedValueCoder<KV<K, AccumT>> partialCoder =
+        WindowedValue.FullWindowedValueCoder.of(
+            KvCoder.of(keyCoder, accumulatorCoder), windowCoder);
+    WindowedValue.FullWindowedValueCoder<KV<K, OutputT>> outputCoder =
+        WindowedValue.FullWindowedValueCoder.of(outputKVCoder, windowCoder);
+
+    // the partial accumulators are keyed by their encoded key and window.
+    Dataset<Tuple2<byte[], byte[]>> partials =
+        input.mapPartitions(
+            new PartialCombineFn<>(
+                combineFn,
+                windowingStrategy,
+                keyCoder,
+                partialCoder,
+                MAX_PARTIAL_ACCUMULATORS,
+                MAX_PARTIAL_ACCUMULATORS_BYTES),
+            Encoders.tuple(Encoders.BINARY(), Encoders.BINARY()));
+    return partials
+        .groupByKey((MapFunction<Tuple2<byte[], byte[]>, byte[]>) Tuple2::_1, Encoders.BINARY())
+        .mapGroups(
+            new MergeAccumulatorsFn<>(
+                combineFn, windowingStrategy.getTimestampCombiner(), partialCoder),
+            EncoderHelpers.fromBeamCoder(outputCoder));
+  }
 }
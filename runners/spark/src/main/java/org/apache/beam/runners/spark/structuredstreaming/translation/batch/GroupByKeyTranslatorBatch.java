@@ -22,26 +22,55 @@ import org.apache.beam.runners.core.InMemoryStateInternals;
 import org.apache.beam.runners.core.StateInternals;
 import org.apache.beam.runners.core.StateInternalsFactory;
 import org.apache.beam.runners.core.SystemReduceFn;
+import org.apache.beam.runners.spark.structuredstreaming.translation.FusableDataset;
 import org.apache.beam.runners.spark.structuredstreaming.translation.TransformTranslator;
 import org.apache.beam.runners.spark.structuredstreaming.translation.TranslationContext;
 import org.apache.beam.runners.spark.structuredstreaming.translation.batch.functions.GroupAlsoByWindowViaOutputBufferFn;
+import org.apache.beam.runners.spark.structuredstreaming.translation.batch.functions.GroupAlsoByWindowViaSortFn;
 import org.apache.beam.runners.spark.structuredstreaming.translation.helpers.EncoderHelpers;
 import org.apache.beam.runners.spark.structuredstreaming.translation.helpers.KVHelpers;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.IterableCoder;
 import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
 import org.apache.beam.sdk.util.WindowedValue;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.WindowingStrategy;
 import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Encoders;
 import org.apache.spark.sql.KeyValueGroupedDataset;
+import scala.Tuple2;
 
+/**
+ * Translates a {@link org.apache.beam.sdk.transforms.GroupByKey} in batch mode.
+ *
+ * <p>If the windowing strategy allows it, the elements are repartitioned by key and window, and
+ * sorted within partitions, so that the values of a group are streamed by {@link
+ * GroupAlsoByWindowViaSortFn} instead of being materialized in memory. The grouping is also
+ * registered as a {@link FusableDataset}, so that a consuming {@link
+ * org.apache.beam.sdk.transforms.ParDo} reads the values in the same pass rather than from encoded
+ * groups. Otherwise, or if the {@value #DISABLE_SORT_BASED_EXPERIMENT} experiment is set, the
+ * elements are grouped by key and the windows of each key are grouped by {@link
+ * GroupAlsoByWindowViaOutputBufferFn}.
+ *
+ * <p>A fused DoFn can only iterate the values of a group until it reads the next group: a DoFn
+ * keeping them past {@code @ProcessElement}, e.g. to output them in {@code @FinishBundle}, fails
+ * unless the {@value #DISABLE_SORT_BASED_EXPERIMENT} experiment is set.
+ */
 class GroupByKeyTranslatorBatch<K, V>
     implements TransformTranslator<
         PTransform<PCollection<KV<K, V>>, PCollection<KV<K, Iterable<V>>>>> {
 
+  static final String DISABLE_SORT_BASED_EXPERIMENT = "disable_sort_based_group_by_key";
+
+  /** The size of the values of a group kept in memory to iterate them again, before spilling. */
+  private static final long SPILL_THRESHOLD_BYTES = 64L * 1024 * 1024;
+
+  private static final String KEY_COLUMN = "_1";
+
   @Override
   public void translateTransform(
       PTransform<PCollection<KV<K, V>>, PCollection<KV<K, Iterable<V>>>> transform,
@@ -53,9 +82,16 @@ class GroupByKeyTranslatorBatch<K, V>
     WindowingStrategy<?, ?> windowingStrategy = inputPCollection.getWindowingStrategy();
     KvCoder<K, V> kvCoder = (KvCoder<K, V>) inputPCollection.getCoder();
     Coder<V> valueCoder = kvCoder.getValueCoder();
+    Coder<K> keyCoder = kvCoder.getKeyCoder();
+
+    if (GroupAlsoByWindowViaSortFn.isEligible(windowingStrategy)
+        && !ExperimentalOptions.hasExperiment(
+            context.getSerializableOptions().get(), DISABLE_SORT_BASED_EXPERIMENT)) {
+      groupByKeyAndWindowViaSort(context, input, kvCoder, windowingStrategy);
+      return;
+    }
 
     // group by key only
-    Coder<K> keyCoder = kvCoder.getKeyCoder();
     KeyValueGroupedDataset<K, WindowedValue<KV<K, V>>> groupByKeyOnly =
         input.groupByKey(KVHelpers.extractKey(), EncoderHelpers.fromBeamCoder(keyCoder));
 
@@ -76,6 +112,37 @@ class GroupByKeyTranslatorBatch<K, V>
     context.putDataset(context.getOutput(), output);
   }
 
+  private static <K, V, W extends BoundedWindow> void groupByKeyAndWindowViaSort(
+      TranslationContext context,
+      Dataset<WindowedValue<KV<K, V>>> input,
+      KvCoder<K, V> kvCoder,
+      WindowingStrategy<?, W> windowingStrategy) {
+    Coder<W> windowCoder = windowingStrategy.getWindowFn().windowCoder();
+    WindowedValue.FullWindowedValueCoder<KV<K, V>> inputCoder =
+        WindowedValue.FullWindowedValueCoder.of(kvCoder, windowCoder);
+    WindowedValue.FullWindowedValueCoder<KV<K, Iterable<V>>> outputCoder =
+        WindowedValue.FullWindowedValueCoder.of(
+            KvCoder.of(kvCoder.getKeyCoder(), IterableCoder.of(kvCoder.getValueCoder())),
+            windowCoder);
+
+    // the encoded key and window is both the partitioning and the sort key.
+    Dataset<Tuple2<byte[], byte[]>> windowInKey =
+        input.flatMap(
+            GroupAlsoByWindowViaSortFn.bringWindowToKey(
+                kvCoder.getKeyCoder(), windowCoder, inputCoder),
+            Encoders.tuple(Encoders.BINARY(), Encoders.BINARY()));
+    Dataset<Tuple2<byte[], byte[]>> sorted =
+        windowInKey.repartition(windowInKey.col(KEY_COLUMN)).sortWithinPartitions(KEY_COLUMN);
+    GroupAlsoByWindowViaSortFn<K, V, W> groupAlsoByWindow =
+        new GroupAlsoByWindowViaSortFn<>(windowingStrategy, inputCoder, SPILL_THRESHOLD_BYTES);
+
+    // encoding the groups materializes their values, which only consumers that can't be fused do.
+    context.putDataset(
+        context.getOutput(),
+        sorted.mapPartitions(groupAlsoByWindow, EncoderHelpers.fromBeamCoder(outputCoder)));
+    context.putFusableDataset(context.getOutput(), FusableDataset.of(sorted, groupAlsoByWindow));
+  }
+
   /**
    * In-memory state internals factory.
    *
@@ -27,6 +27,7 @@ import java.util.Map;
 import org.apache.beam.runners.core.construction.ParDoTranslation;
 import org.apache.beam.runners.spark.structuredstreaming.metrics.MetricsAccumulator;
 import org.apache.beam.runners.spark.structuredstreaming.metrics.MetricsContainerStepMapAccumulator;
+import org.apache.beam.runners.spark.structuredstreaming.translation.FusableDataset;
 import org.apache.beam.runners.spark.structuredstreaming.translation.TransformTranslator;
 import org.apache.beam.runners.spark.structuredstreaming.translation.TranslationContext;
 import org.apache.beam.runners.spark.structuredstreaming.translation.helpers.CoderHelpers;
@@ -142,8 +143,14 @@ class ParDoTranslatorBatch<InputT, OutputT>
 
     MultiOuputCoder multipleOutputCoder =
         MultiOuputCoder.of(SerializableCoder.of(TupleTag.class), outputCoderMap, windowCoder);
+    // fuse the DoFn with the function producing the input elements, if any, to not encode them.
+    FusableDataset<InputT> fusableInput = context.getFusableDataset(input);
     Dataset<Tuple2<TupleTag<?>, WindowedValue<?>>> allOutputs =
-        inputDataSet.mapPartitions(doFnWrapper, EncoderHelpers.fromBeamCoder(multipleOutputCoder));
+        fusableInput != null
+            ? fusableInput.mapPartitions(
+                doFnWrapper, EncoderHelpers.fromBeamCoder(multipleOutputCoder))
+            : inputDataSet.mapPartitions(
+                doFnWrapper, EncoderHelpers.fromBeamCoder(multipleOutputCoder));
     if (outputs.entrySet().size() > 1) {
       allOutputs.persist();
       for (Map.Entry<TupleTag<?>, PCollection<?>> output : outputs.entrySet()) {
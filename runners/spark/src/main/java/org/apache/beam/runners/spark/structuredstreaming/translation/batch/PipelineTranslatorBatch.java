@@ -55,6 +55,11 @@ public class PipelineTranslatorBatch extends PipelineTranslator {
   private static final Map<Class<? extends PTransform>, TransformTranslator> TRANSFORM_TRANSLATORS =
       new HashMap<>();
 
+  // The translators which also apply in streaming mode.
+  @SuppressWarnings("rawtypes")
+  private static final Map<Class<? extends PTransform>, TransformTranslator>
+      STREAMING_TRANSFORM_TRANSLATORS = new HashMap<>();
+
   // TODO the ability to have more than one TransformTranslator per URN
   // that could be dynamically chosen by a predicated that evaluates based on PCollection
   // obtainable though node.getInputs.getValue()
@@ -71,9 +76,11 @@ public class PipelineTranslatorBatch extends PipelineTranslator {
     // TODO: Do we need to have a dedicated translator for {@code Reshuffle} if it's deprecated?
     // TRANSFORM_TRANSLATORS.put(Reshuffle.class, new ReshuffleTranslatorBatch());
 
-    TRANSFORM_TRANSLATORS.put(Flatten.PCollections.class, new FlattenTranslatorBatch());
+    STREAMING_TRANSFORM_TRANSLATORS.put(Flatten.PCollections.class, new FlattenTranslatorBatch());
+
+    STREAMING_TRANSFORM_TRANSLATORS.put(Window.Assign.class, new WindowAssignTranslatorBatch());
 
-    TRANSFORM_TRANSLATORS.put(Window.Assign.class, new WindowAssignTranslatorBatch());
+    TRANSFORM_TRANSLATORS.putAll(STREAMING_TRANSFORM_TRANSLATORS);
 
     TRANSFORM_TRANSLATORS.put(ParDo.MultiOutput.class, new ParDoTranslatorBatch());
 
@@ -88,6 +95,15 @@ public class PipelineTranslatorBatch extends PipelineTranslator {
     translationContext = new TranslationContext(options);
   }
 
+  /**
+   * Returns the batch translator of the given transform if it translates it in streaming mode too,
+   * otherwise null.
+   */
+  public static @Nullable TransformTranslator<?> getStreamingTranslator(
+      Class<? extends PTransform> transformClass) {
+    return STREAMING_TRANSFORM_TRANSLATORS.get(transformClass);
+  }
+
   /** Returns a translator for the given node, if it is possible, otherwise null. */
   @Override
   protected TransformTranslator<?> getTransformTranslator(TransformHierarchy.Node node) {
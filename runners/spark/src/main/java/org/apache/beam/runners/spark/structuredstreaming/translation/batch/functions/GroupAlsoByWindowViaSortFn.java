@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.spark.structuredstreaming.translation.batch.functions;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkState;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import org.apache.beam.runners.spark.structuredstreaming.translation.helpers.CoderHelpers;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.transforms.windowing.PaneInfo;
+import org.apache.beam.sdk.transforms.windowing.TimestampCombiner;
+import org.apache.beam.sdk.util.WindowedValue;
+import org.apache.beam.sdk.util.WindowedValue.FullWindowedValueCoder;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.WindowingStrategy;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.AbstractIterator;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterators;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.PeekingIterator;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.primitives.Bytes;
+import org.apache.spark.TaskContext;
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.apache.spark.api.java.function.MapPartitionsFunction;
+import org.apache.spark.util.TaskCompletionListener;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.joda.time.Instant;
+import scala.Tuple2;
+
+/**
+ * A MapPartitions function that groups by key and windows in batch mode, given the elements of a
+ * partition sorted by their key and window, see {@link #bringWindowToKey}.
+ *
+ * <p>Unlike {@link GroupAlsoByWindowViaOutputBufferFn}, the values of a group are not materialized
+ * but lazily read from the sorted partition. They can be iterated again as long as the next group
+ * is not read: the values already read are kept in memory up to a threshold of bytes, and spilled
+ * to disk above it. Iterating them after the next group is read fails.
+ *
+ * <p>Only windowing strategies with non-merging windows and an end of window timestamp combiner
+ * are supported, see {@link #isEligible}: each group then produces a single pane.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+public class GroupAlsoByWindowViaSortFn<K, V, W extends BoundedWindow>
+    implements MapPartitionsFunction<Tuple2<byte[], byte[]>, WindowedValue<KV<K, Iterable<V>>>> {
+
+  private final WindowingStrategy<?, W> windowingStrategy;
+  private final FullWindowedValueCoder<KV<K, V>> windowedValueCoder;
+  private final long spillThresholdBytes;
+
+  public GroupAlsoByWindowViaSortFn(
+      WindowingStrategy<?, W> windowingStrategy,
+      FullWindowedValueCoder<KV<K, V>> windowedValueCoder,
+      long spillThresholdBytes) {
+    this.windowingStrategy = windowingStrategy;
+    this.windowedValueCoder = windowedValueCoder;
+    this.spillThresholdBytes = spillThresholdBytes;
+  }
+
+  /**
+   * Verify if given windowing strategy is suitable for grouping by key and window via sorting.
+   *
+   * @param windowingStrategy the windowing strategy
+   * @return {@code true} if group by key and window via sorting can be used
+   */
+  public static boolean isEligible(WindowingStrategy<?, ?> windowingStrategy) {
+    return windowingStrategy.getWindowFn().isNonMerging()
+        && windowingStrategy.getTimestampCombiner() == TimestampCombiner.END_OF_WINDOW
+        && windowingStrategy.getWindowFn().windowCoder().consistentWithEquals();
+  }
+
+  /**
+   * A Spark {@link FlatMapFunction} exploding the windows of the elements, and mapping each of them
+   * to its encoded key and window as the sort key, with the encoded element as the value.
+   */
+  public static <K, V, W extends BoundedWindow>
+      FlatMapFunction<WindowedValue<KV<K, V>>, Tuple2<byte[], byte[]>> bringWindowToKey(
+          Coder<K> keyCoder, Coder<W> windowCoder, FullWindowedValueCoder<KV<K, V>> coder) {
+    return windowedValue -> {
+      final byte[] keyBytes = CoderHelpers.toByteArray(windowedValue.getValue().getKey(), keyCoder);
+      return Iterators.transform(
+          windowedValue.explodeWindows().iterator(),
+          item -> {
+            @SuppressWarnings("unchecked")
+            final W window = (W) Iterables.getOnlyElement(item.getWindows());
+            final byte[] windowBytes = CoderHelpers.toByteArray(window, windowCoder);
+            return new Tuple2<>(
+                Bytes.concat(keyBytes, windowBytes), CoderHelpers.toByteArray(item, coder));
+          });
+    };
+  }
+
+  @Override
+  public Iterator<WindowedValue<KV<K, Iterable<V>>>> call(Iterator<Tuple2<byte[], byte[]>> sorted) {
+    GroupIterator groups = new GroupIterator(Iterators.peekingIterator(sorted));
+    TaskContext taskContext = TaskContext.get();
+    if (taskContext != null) {
+      // delete the spilled values of the current group if the task does not complete the iteration.
+      taskContext.addTaskCompletionListener(
+          new TaskCompletionListener() {
+            @Override
+            public void onTaskCompletion(TaskContext context) {
+              groups.discardCurrent();
+            }
+          });
+    }
+    return groups;
+  }
+
+  /** Transforms the sorted partition into one element per key and window. */
+  private class GroupIterator extends AbstractIterator<WindowedValue<KV<K, Iterable<V>>>> {
+
+    private final PeekingIterator<Tuple2<byte[], byte[]>> inner;
+    private @Nullable GroupValues current;
+
+    GroupIterator(PeekingIterator<Tuple2<byte[], byte[]>> inner) {
+      this.inner = inner;
+    }
+
+    @Override
+    protected WindowedValue<KV<K, Iterable<V>>> computeNext() {
+      closeCurrent();
+      if (!inner.hasNext()) {
+        return endOfData();
+      }
+      Tuple2<byte[], byte[]> first = inner.peek();
+      WindowedValue<KV<K, V>> windowedValue =
+          CoderHelpers.fromByteArray(first._2, windowedValueCoder);
+      @SuppressWarnings("unchecked")
+      final W window = (W) Iterables.getOnlyElement(windowedValue.getWindows());
+      final Instant timestamp =
+          windowingStrategy
+              .getTimestampCombiner()
+              .assign(
+                  window,
+                  windowingStrategy
+                      .getWindowFn()
+                      .getOutputTime(windowedValue.getTimestamp(), window));
+      current = new GroupValues(first._1);
+      // Elements produced by GbK are always ON_TIME and ONLY_FIRING in batch mode.
+      return WindowedValue.of(
+          KV.of(windowedValue.getValue().getKey(), current),
+          timestamp,
+          window,
+          PaneInfo.ON_TIME_AND_ONLY_FIRING);
+    }
+
+    void closeCurrent() {
+      if (current != null) {
+        current.close();
+        current = null;
+      }
+    }
+
+    void discardCurrent() {
+      if (current != null) {
+        current.discard();
+      }
+    }
+
+    /**
+     * The values of a key and window, read from the sorted partition as they are iterated and
+     * buffered so that they can be iterated again.
+     */
+    private class GroupValues implements Iterable<V> {
+
+      private final byte[] groupKey;
+      private final SpillingBuffer buffer = new SpillingBuffer(spillThresholdBytes);
+      private boolean exhausted = false;
+      private boolean closed = false;
+
+      GroupValues(byte[] groupKey) {
+        this.groupKey = groupKey;
+      }
+
+      @Override
+      public Iterator<V> iterator() {
+        checkState(
+            !closed,
+            "The values of a group can't be iterated after the next group is read. Set the"
+                + " disable_sort_based_group_by_key experiment to keep the values of all groups.");
+        return new AbstractIterator<V>() {
+          private int position = 0;
+          private @Nullable Iterator<byte[]> replay;
+
+          @Override
+          protected V computeNext() {
+            checkState(!closed, "The next group was read while iterating the values of a group.");
+            while (true) {
+              if (replay != null && replay.hasNext()) {
+                position++;
+                return decodeValue(replay.next());
+              }
+              replay = null;
+              if (position < buffer.size()) {
+                // values already read from the partition, by this iterator or another one.
+                replay = buffer.iterator(position);
+              } else {
+                break;
+              }
+            }
+            byte[] next = readNext();
+            if (next == null) {
+              return endOfData();
+            }
+            position++;
+            return decodeValue(next);
+          }
+        };
+      }
+
+      /** Reads the next value of this group from the partition, {@code null} if there is none. */
+      private byte @Nullable [] readNext() {
+        if (exhausted || !inner.hasNext() || !Arrays.equals(groupKey, inner.peek()._1)) {
+          exhausted = true;
+          return null;
+        }
+        byte[] next = inner.next()._2;
+        buffer.add(next);
+        return next;
+      }
+
+      /** Skips the values which were not read and deletes the buffered ones. */
+      void close() {
+        while (!exhausted && inner.hasNext() && Arrays.equals(groupKey, inner.peek()._1)) {
+          inner.next();
+        }
+        discard();
+      }
+
+      /** Deletes the buffered values, which can't be iterated anymore. */
+      void discard() {
+        exhausted = true;
+        closed = true;
+        try {
+          buffer.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+  }
+
+  private V decodeValue(byte[] windowedValueBytes) {
+    return CoderHelpers.fromByteArray(windowedValueBytes, windowedValueCoder).getValue().getValue();
+  }
+}
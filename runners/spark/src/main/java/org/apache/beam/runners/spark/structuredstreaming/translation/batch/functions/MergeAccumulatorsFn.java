@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.spark.structuredstreaming.translation.batch.functions;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.beam.runners.spark.structuredstreaming.translation.helpers.CoderHelpers;
+import org.apache.beam.sdk.transforms.Combine;
+import org.apache.beam.sdk.transforms.windowing.PaneInfo;
+import org.apache.beam.sdk.transforms.windowing.TimestampCombiner;
+import org.apache.beam.sdk.util.WindowedValue;
+import org.apache.beam.sdk.util.WindowedValue.FullWindowedValueCoder;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterators;
+import org.apache.spark.api.java.function.MapGroupsFunction;
+import org.joda.time.Instant;
+import scala.Tuple2;
+
+/**
+ * A MapGroups function that merges the partial accumulators of a key and window produced by {@link
+ * PartialCombineFn}, and extracts the output of the combine.
+ *
+ * <p>The accumulators of a group are kept encoded, and decoded one at a time while they are merged,
+ * so that only one of them is decoded besides the merged accumulator. They are decoded again on
+ * each iteration, as a {@link Combine.CombineFn} like {@link
+ * org.apache.beam.sdk.transforms.CombineFns.ComposedCombineFn} iterates them several times.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+public class MergeAccumulatorsFn<K, AccumT, OutputT>
+    implements MapGroupsFunction<byte[], Tuple2<byte[], byte[]>, WindowedValue<KV<K, OutputT>>> {
+
+  private final Combine.CombineFn<?, AccumT, OutputT> combineFn;
+  private final TimestampCombiner timestampCombiner;
+  private final FullWindowedValueCoder<KV<K, AccumT>> accumulatorCoder;
+
+  public MergeAccumulatorsFn(
+      Combine.CombineFn<?, AccumT, OutputT> combineFn,
+      TimestampCombiner timestampCombiner,
+      FullWindowedValueCoder<KV<K, AccumT>> accumulatorCoder) {
+    this.combineFn = combineFn;
+    this.timestampCombiner = timestampCombiner;
+    this.accumulatorCoder = accumulatorCoder;
+  }
+
+  @Override
+  public WindowedValue<KV<K, OutputT>> call(
+      byte[] groupKey, Iterator<Tuple2<byte[], byte[]>> partials) {
+    // the group can only be iterated once, unlike the accumulators passed to the CombineFn.
+    List<byte[]> encodedAccumulators = new ArrayList<>();
+    Iterators.addAll(encodedAccumulators, Iterators.transform(partials, partial -> partial._2));
+    WindowedValue<KV<K, AccumT>> first =
+        CoderHelpers.fromByteArray(encodedAccumulators.get(0), accumulatorCoder);
+    Instant[] outputTime = {first.getTimestamp()};
+    Iterable<AccumT> accumulators =
+        () ->
+            Iterators.transform(
+                encodedAccumulators.iterator(),
+                encoded -> {
+                  WindowedValue<KV<K, AccumT>> windowedValue =
+                      CoderHelpers.fromByteArray(encoded, accumulatorCoder);
+                  // combining the same timestamps again on later iterations changes nothing.
+                  outputTime[0] =
+                      timestampCombiner.combine(outputTime[0], windowedValue.getTimestamp());
+                  return windowedValue.getValue().getValue();
+                });
+    AccumT accumulator = combineFn.mergeAccumulators(accumulators);
+    // Elements produced by a combine are always ON_TIME and ONLY_FIRING in batch mode.
+    return WindowedValue.of(
+        KV.of(first.getValue().getKey(), combineFn.extractOutput(accumulator)),
+        outputTime[0],
+        Iterables.getOnlyElement(first.getWindows()),
+        PaneInfo.ON_TIME_AND_ONLY_FIRING);
+  }
+}
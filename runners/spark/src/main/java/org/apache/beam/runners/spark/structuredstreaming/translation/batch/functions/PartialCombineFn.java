@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.spark.structuredstreaming.translation.batch.functions;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import org.apache.beam.runners.spark.structuredstreaming.translation.helpers.CoderHelpers;
+import org.apache.beam.runners.spark.util.ByteArray;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.transforms.Combine;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.transforms.windowing.PaneInfo;
+import org.apache.beam.sdk.transforms.windowing.TimestampCombiner;
+import org.apache.beam.sdk.util.WindowedValue;
+import org.apache.beam.sdk.util.WindowedValue.FullWindowedValueCoder;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.WindowingStrategy;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.AbstractIterator;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.primitives.Bytes;
+import org.apache.spark.api.java.function.MapPartitionsFunction;
+import org.apache.spark.util.SizeEstimator;
+import org.joda.time.Instant;
+import scala.Tuple2;
+
+/**
+ * A MapPartitions function that combines the values of each key and window of a partition into an
+ * accumulator, before the shuffle. It emits the encoded key and window with the encoded
+ * accumulator, to be merged by {@link MergeAccumulatorsFn}.
+ *
+ * <p>The accumulators are kept in a hash table, which is flushed downstream whenever it holds more
+ * than a maximum number of accumulators, or when its estimated size exceeds a maximum number of
+ * bytes, so that the memory used is bounded: a key and window can then have several accumulators
+ * per partition. As Spark does for its own in-memory collections, the size is estimated with
+ * {@link SizeEstimator} after a geometrically growing number of inputs, and extrapolated in
+ * between.
+ *
+ * <p>Only windowing strategies with non-merging windows are supported.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+public class PartialCombineFn<K, InputT, AccumT, W extends BoundedWindow>
+    implements MapPartitionsFunction<WindowedValue<KV<K, InputT>>, Tuple2<byte[], byte[]>> {
+
+  /** The growth of the number of inputs between two estimations of the size of the table. */
+  private static final double SAMPLE_GROWTH_RATE = 1.1;
+
+  private final Combine.CombineFn<InputT, AccumT, ?> combineFn;
+  private final WindowingStrategy<?, W> windowingStrategy;
+  private final Coder<K> keyCoder;
+  private final FullWindowedValueCoder<KV<K, AccumT>> accumulatorCoder;
+  private final int maxAccumulators;
+  private final long maxBytes;
+
+  public PartialCombineFn(
+      Combine.CombineFn<InputT, AccumT, ?> combineFn,
+      WindowingStrategy<?, W> windowingStrategy,
+      Coder<K> keyCoder,
+      FullWindowedValueCoder<KV<K, AccumT>> accumulatorCoder,
+      int maxAccumulators,
+      long maxBytes) {
+    this.combineFn = combineFn;
+    this.windowingStrategy = windowingStrategy;
+    this.keyCoder = keyCoder;
+    this.accumulatorCoder = accumulatorCoder;
+    this.maxAccumulators = maxAccumulators;
+    this.maxBytes = maxBytes;
+  }
+
+  @Override
+  public Iterator<Tuple2<byte[], byte[]>> call(Iterator<WindowedValue<KV<K, InputT>>> inputs) {
+    return new AbstractIterator<Tuple2<byte[], byte[]>>() {
+      private final Map<ByteArray, PartialAccumulator<K, AccumT, W>> accumulators =
+          new HashMap<>();
+      private Iterator<Map.Entry<ByteArray, PartialAccumulator<K, AccumT, W>>> flushed =
+          accumulators.entrySet().iterator();
+      private long numInputs;
+      private long nextSampleInputs;
+      private long sampledInputs;
+      private long sampledBytes;
+      private double bytesPerInput;
+
+      @Override
+      protected Tuple2<byte[], byte[]> computeNext() {
+        if (!flushed.hasNext()) {
+          accumulators.clear();
+          resetSize();
+          while (inputs.hasNext()) {
+            addInput(inputs.next());
+            if (isUnderPressure()) {
+              break;
+            }
+          }
+          if (accumulators.isEmpty()) {
+            return endOfData();
+          }
+          flushed = accumulators.entrySet().iterator();
+        }
+        Map.Entry<ByteArray, PartialAccumulator<K, AccumT, W>> next = flushed.next();
+        return new Tuple2<>(next.getKey().getValue(), encode(next.getValue()));
+      }
+
+      private void addInput(WindowedValue<KV<K, InputT>> input) {
+        byte[] keyBytes = CoderHelpers.toByteArray(input.getValue().getKey(), keyCoder);
+        for (WindowedValue<KV<K, InputT>> exploded : input.explodeWindows()) {
+          @SuppressWarnings("unchecked")
+          W window = (W) Iterables.getOnlyElement(exploded.getWindows());
+          ByteArray groupKey =
+              new ByteArray(
+                  Bytes.concat(
+                      keyBytes,
+                      CoderHelpers.toByteArray(
+                          window, windowingStrategy.getWindowFn().windowCoder())));
+          PartialAccumulator<K, AccumT, W> accumulator = accumulators.get(groupKey);
+          if (accumulator == null) {
+            accumulator =
+                new PartialAccumulator<>(
+                    input.getValue().getKey(), window, combineFn.createAccumulator());
+            accumulators.put(groupKey, accumulator);
+          }
+          add(accumulator, exploded);
+        }
+      }
+
+      private boolean isUnderPressure() {
+        return accumulators.size() >= maxAccumulators || estimateSize() >= maxBytes;
+      }
+
+      /** Estimates the size of the accumulators in bytes, sampling it from time to time. */
+      private long estimateSize() {
+        numInputs++;
+        if (numInputs < nextSampleInputs) {
+          return sampledBytes + (long) (bytesPerInput * (numInputs - sampledInputs));
+        }
+        long bytes = SizeEstimator.estimate(accumulators);
+        if (sampledInputs > 0) {
+          bytesPerInput =
+              Math.max(0, (double) (bytes - sampledBytes) / (numInputs - sampledInputs));
+        }
+        sampledInputs = numInputs;
+        sampledBytes = bytes;
+        nextSampleInputs = (long) Math.ceil(numInputs * SAMPLE_GROWTH_RATE);
+        return bytes;
+      }
+
+      private void resetSize() {
+        numInputs = 0;
+        nextSampleInputs = 1;
+        sampledInputs = 0;
+        sampledBytes = 0;
+        bytesPerInput = 0;
+      }
+    };
+  }
+
+  private void add(PartialAccumulator<K, AccumT, W> partial, WindowedValue<KV<K, InputT>> input) {
+    partial.accumulator = combineFn.addInput(partial.accumulator, input.getValue().getValue());
+    TimestampCombiner timestampCombiner = windowingStrategy.getTimestampCombiner();
+    Instant inputOutputTime =
+        timestampCombiner.assign(
+            partial.window,
+            windowingStrategy.getWindowFn().getOutputTime(input.getTimestamp(), partial.window));
+    partial.outputTime =
+        partial.outputTime == null
+            ? inputOutputTime
+            : timestampCombiner.combine(partial.outputTime, inputOutputTime);
+  }
+
+  private byte[] encode(PartialAccumulator<K, AccumT, W> partial) {
+    return CoderHelpers.toByteArray(
+        WindowedValue.of(
+            KV.of(partial.key, partial.accumulator),
+            partial.outputTime,
+            partial.window,
+            PaneInfo.NO_FIRING),
+        accumulatorCoder);
+  }
+
+  /**
+   * The accumulator of the values of a key and window. It does not reference the function, so that
+   * only the accumulators are accounted for when estimating the size of the table.
+   */
+  private static class PartialAccumulator<K, AccumT, W> {
+    private final K key;
+    private final W window;
+    private AccumT accumulator;
+    private Instant outputTime;
+
+    PartialAccumulator(K key, W window, AccumT accumulator) {
+      this.key = key;
+      this.window = window;
+      this.accumulator = accumulator;
+    }
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.spark.structuredstreaming.translation.batch.functions;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.AbstractIterator;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterators;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.io.ByteStreams;
+import org.apache.spark.SparkEnv;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An append-only buffer of encoded elements, which keeps them in memory up to a threshold of bytes
+ * and spills the following ones to a temporary file in the Spark local directories, see {@code
+ * spark.local.dir}.
+ *
+ * <p>The buffer can be iterated any number of times, also while elements are being added. It must
+ * be closed to delete the temporary file, which also closes the iterators not read to the end.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+class SpillingBuffer implements Closeable {
+
+  private final long memoryThresholdBytes;
+  private final List<byte[]> inMemory = new ArrayList<>();
+  private long inMemoryBytes = 0;
+
+  private @Nullable File spillFile;
+  private @Nullable DataOutputStream spillOutput;
+  private int spilledCount = 0;
+  /** The spill file readers of the iterators which were not read to the end yet. */
+  private final Set<Closeable> spillInputs = new HashSet<>();
+
+  SpillingBuffer(long memoryThresholdBytes) {
+    this.memoryThresholdBytes = memoryThresholdBytes;
+  }
+
+  void add(byte[] element) {
+    if (spillOutput == null && inMemoryBytes + element.length <= memoryThresholdBytes) {
+      inMemory.add(element);
+      inMemoryBytes += element.length;
+      return;
+    }
+    try {
+      if (spillOutput == null) {
+        spillFile = createSpillFile();
+        spillOutput =
+            new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile)));
+      }
+      spillOutput.writeInt(element.length);
+      spillOutput.write(element);
+      spilledCount++;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error spilling to " + spillFile, e);
+    }
+  }
+
+  /** Returns the number of elements added so far. */
+  int size() {
+    return inMemory.size() + spilledCount;
+  }
+
+  boolean hasSpilled() {
+    return spillFile != null;
+  }
+
+  /**
+   * Returns an iterator over the elements added so far, starting from the given position. Elements
+   * added afterwards are not seen by the iterator.
+   */
+  Iterator<byte[]> iterator(int from) {
+    // no element is kept in memory anymore once the buffer started to spill.
+    final int inMemoryCount = inMemory.size();
+    final int spilled = spilledCount;
+    Iterator<byte[]> inMemoryIterator =
+        new AbstractIterator<byte[]>() {
+          private int index = Math.min(from, inMemoryCount);
+
+          @Override
+          protected byte[] computeNext() {
+            return index < inMemoryCount ? inMemory.get(index++) : endOfData();
+          }
+        };
+    if (spilled == 0) {
+      return inMemoryIterator;
+    }
+    try {
+      spillOutput.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error spilling to " + spillFile, e);
+    }
+    final File file = spillFile;
+    return Iterators.concat(
+        inMemoryIterator,
+        new AbstractIterator<byte[]>() {
+          private @Nullable DataInputStream spillInput;
+          private int read = 0;
+
+          @Override
+          protected byte[] computeNext() {
+            try {
+              if (spillInput == null) {
+                spillInput =
+                    new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                spillInputs.add(spillInput);
+                for (; read < from - inMemoryCount; read++) {
+                  ByteStreams.skipFully(spillInput, spillInput.readInt());
+                }
+              }
+              if (read >= spilled) {
+                spillInputs.remove(spillInput);
+                spillInput.close();
+                return endOfData();
+              }
+              byte[] element = new byte[spillInput.readInt()];
+              spillInput.readFully(element);
+              read++;
+              return element;
+            } catch (EOFException e) {
+              throw new IllegalStateException("Spill file " + file + " is truncated", e);
+            } catch (IOException e) {
+              throw new UncheckedIOException("Error reading spilled elements from " + file, e);
+            }
+          }
+        });
+  }
+
+  /**
+   * Creates a spill file in the Spark local directories, like the Spark shuffle does, or in the
+   * default temporary directory outside of a Spark executor.
+   */
+  private static File createSpillFile() throws IOException {
+    SparkEnv sparkEnv = SparkEnv.get();
+    if (sparkEnv == null) {
+      return File.createTempFile("beam-spark-gbk-", ".spill");
+    }
+    return sparkEnv.blockManager().diskBlockManager().createTempLocalBlock()._2();
+  }
+
+  @Override
+  public void close() throws IOException {
+    inMemory.clear();
+    inMemoryBytes = 0;
+    for (Closeable spillInput : spillInputs) {
+      spillInput.close();
+    }
+    spillInputs.clear();
+    if (spillOutput != null) {
+      spillOutput.close();
+      spillOutput = null;
+    }
+    if (spillFile != null) {
+      if (!spillFile.delete()) {
+        spillFile.deleteOnExit();
+      }
+      spillFile = null;
+    }
+    spilledCount = 0;
+  }
+}
@@ -21,15 +21,22 @@ import static org.apache.spark.sql.types.DataTypes.BinaryType;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import org.apache.beam.runners.spark.structuredstreaming.translation.SchemaHelpers;
 import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.SchemaCoder;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.util.WindowedValue;
 import org.apache.spark.sql.Encoder;
 import org.apache.spark.sql.Encoders;
+import org.apache.spark.sql.catalyst.InternalRow;
 import org.apache.spark.sql.catalyst.analysis.GetColumnByOrdinal;
 import org.apache.spark.sql.catalyst.encoders.ExpressionEncoder;
+import org.apache.spark.sql.catalyst.expressions.BinaryExpression;
 import org.apache.spark.sql.catalyst.expressions.BoundReference;
 import org.apache.spark.sql.catalyst.expressions.Cast;
 import org.apache.spark.sql.catalyst.expressions.Expression;
@@ -40,7 +47,10 @@ import org.apache.spark.sql.catalyst.expressions.codegen.CodeGenerator;
 import org.apache.spark.sql.catalyst.expressions.codegen.CodegenContext;
 import org.apache.spark.sql.catalyst.expressions.codegen.ExprCode;
 import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.Metadata;
 import org.apache.spark.sql.types.ObjectType;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import scala.StringContext;
 import scala.collection.JavaConversions;
@@ -52,11 +62,32 @@ import scala.reflect.ClassTag$;
   "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
 })
 public class EncoderHelpers {
+
+  private static final String VALUE_COLUMN = "value";
+  private static final String METADATA_COLUMN = "metadata";
+
   /**
    * Wrap a Beam coder into a Spark Encoder using Catalyst Expression Encoders (which uses java code
    * generation).
+   *
+   * <p>The {@link WindowedValue WindowedValues} of elements with a Beam {@link Schema} are mapped
+   * to typed Spark columns if possible, see {@link #fromSchemaCoder}. Other elements are encoded in
+   * a single binary column.
    */
+  @SuppressWarnings("unchecked")
   public static <T> Encoder<T> fromBeamCoder(Coder<T> coder) {
+    if (coder instanceof WindowedValue.FullWindowedValueCoder) {
+      WindowedValue.FullWindowedValueCoder<?> windowedValueCoder =
+          (WindowedValue.FullWindowedValueCoder<?>) coder;
+      if (windowedValueCoder.getValueCoder() instanceof SchemaCoder
+          && SchemaHelpers.isSupported(
+              ((SchemaCoder<?>) windowedValueCoder.getValueCoder()).getSchema())) {
+        return (Encoder<T>)
+            fromSchemaCoder(
+                (SchemaCoder<?>) windowedValueCoder.getValueCoder(),
+                windowedValueCoder.getWindowCoder());
+      }
+    }
     Class<? super T> clazz = coder.getEncodedTypeDescriptor().getRawType();
     ClassTag<T> classTag = ClassTag$.MODULE$.apply(clazz);
     List<Expression> serializers =
@@ -72,6 +103,41 @@ public class EncoderHelpers {
         classTag);
   }
 
+  /**
+   * Creates a Spark Encoder of the {@link WindowedValue WindowedValues} of elements with a Beam
+   * {@link Schema}, which maps their fields to a struct column of native Spark types, so that
+   * Catalyst can optimize the queries on them. Their timestamp, windows and pane are encoded in a
+   * binary column.
+   */
+  public static <T> Encoder<WindowedValue<T>> fromSchemaCoder(
+      SchemaCoder<T> schemaCoder, Coder<? extends BoundedWindow> windowCoder) {
+    SchemaConverter<T> converter = new SchemaConverter<>(schemaCoder, windowCoder);
+    StructType valueType = converter.valueType();
+    StructType schema =
+        new StructType(
+            new StructField[] {
+              StructField.apply(VALUE_COLUMN, valueType, false, Metadata.empty()),
+              StructField.apply(METADATA_COLUMN, BinaryType, false, Metadata.empty())
+            });
+    ClassTag<WindowedValue<T>> classTag = ClassTag$.MODULE$.apply(WindowedValue.class);
+    BoundReference input = new BoundReference(0, new ObjectType(WindowedValue.class), true);
+    List<Expression> serializers =
+        Arrays.asList(
+            new EncodeUsingSchema<>(input, valueType, converter),
+            new EncodeUsingSchema<>(input, BinaryType, converter));
+
+    return new ExpressionEncoder<>(
+        schema,
+        false,
+        JavaConversions.collectionAsScalaIterable(serializers).toSeq(),
+        new DecodeUsingSchema<>(
+            new GetColumnByOrdinal(0, valueType),
+            new GetColumnByOrdinal(1, BinaryType),
+            classTag,
+            converter),
+        classTag);
+  }
+
   /**
    * Catalyst Expression that serializes elements using Beam {@link Coder}.
    *
@@ -290,4 +356,268 @@ public class EncoderHelpers {
       return isNull ? null : CoderHelpers.fromByteArray(serialized, coder);
     }
   }
+
+  /**
+   * Catalyst Expression that converts the value of an element with a Beam {@link Schema} to its
+   * Spark struct column, or its timestamp, windows and pane to a binary column, depending on the
+   * data type.
+   *
+   * @param <T>: Type of elements ot be serialized.
+   */
+  public static class EncodeUsingSchema<T> extends UnaryExpression
+      implements NonSQLExpression, Serializable {
+
+    private final Expression child;
+    private final DataType dataType;
+    private final SchemaConverter<T> converter;
+
+    public EncodeUsingSchema(Expression child, DataType dataType, SchemaConverter<T> converter) {
+      this.child = child;
+      this.dataType = dataType;
+      this.converter = converter;
+    }
+
+    @Override
+    public Expression child() {
+      return child;
+    }
+
+    @Override
+    public ExprCode doGenCode(CodegenContext ctx, ExprCode ev) {
+      String accessCode =
+          ctx.addReferenceObj("converter", converter, converter.getClass().getName());
+      ExprCode input = child.genCode(ctx);
+      String javaType = CodeGenerator.javaType(dataType());
+
+      List<String> parts = new ArrayList<>();
+      List<Object> args = new ArrayList<>();
+      /*
+        CODE GENERATED
+        final ${javaType} ${ev.value} = (${javaType}) org.apache.beam.runners.spark.structuredstreaming.translation.helpers.EncoderHelpers.EncodeUsingSchema.encode(${input.isNull()}, ${input.value}, ${converter}, ${metadata});
+      */
+      parts.add("final ");
+      args.add(javaType);
+      parts.add(" ");
+      args.add(ev.value());
+      parts.add(" = (");
+      args.add(javaType);
+      parts.add(
+          ") org.apache.beam.runners.spark.structuredstreaming.translation.helpers.EncoderHelpers.EncodeUsingSchema.encode(");
+      args.add(input.isNull());
+      parts.add(", ");
+      args.add(input.value());
+      parts.add(", ");
+      args.add(accessCode);
+      parts.add(", ");
+      args.add(dataType instanceof StructType ? "false" : "true");
+      parts.add(");");
+
+      StringContext sc =
+          new StringContext(JavaConversions.collectionAsScalaIterable(parts).toSeq());
+      Block code =
+          (new Block.BlockHelper(sc)).code(JavaConversions.collectionAsScalaIterable(args).toSeq());
+
+      return ev.copy(input.code().$plus(code), input.isNull(), ev.value());
+    }
+
+    @Override
+    public DataType dataType() {
+      return dataType;
+    }
+
+    @Override
+    public Object productElement(int n) {
+      switch (n) {
+        case 0:
+          return child;
+        case 1:
+          return dataType;
+        case 2:
+          return converter;
+        default:
+          throw new ArrayIndexOutOfBoundsException("productElement out of bounds");
+      }
+    }
+
+    @Override
+    public int productArity() {
+      return 3;
+    }
+
+    @Override
+    public boolean canEqual(Object that) {
+      return (that instanceof EncodeUsingSchema);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      EncodeUsingSchema<?> that = (EncodeUsingSchema<?>) o;
+      return child.equals(that.child)
+          && dataType.equals(that.dataType)
+          && converter.equals(that.converter);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(super.hashCode(), child, dataType, converter);
+    }
+
+    /**
+     * Convert an element to one of its columns (invoked by generated code in {@link
+     * #doGenCode(CodegenContext, ExprCode)}).
+     */
+    public static <T> Object encode(
+        boolean isNull,
+        @Nullable WindowedValue<T> value,
+        SchemaConverter<T> converter,
+        boolean metadata) {
+      if (isNull) {
+        return null;
+      }
+      return metadata ? converter.toMetadataColumn(value) : converter.toValueColumn(value);
+    }
+  }
+
+  /**
+   * Catalyst Expression that rebuilds elements with a Beam {@link Schema} from their struct and
+   * binary columns.
+   *
+   * @param <T>: Type of elements ot be deserialized.
+   */
+  public static class DecodeUsingSchema<T> extends BinaryExpression
+      implements NonSQLExpression, Serializable {
+
+    private final Expression left;
+    private final Expression right;
+    private final ClassTag<WindowedValue<T>> classTag;
+    private final SchemaConverter<T> converter;
+
+    public DecodeUsingSchema(
+        Expression left,
+        Expression right,
+        ClassTag<WindowedValue<T>> classTag,
+        SchemaConverter<T> converter) {
+      this.left = left;
+      this.right = right;
+      this.classTag = classTag;
+      this.converter = converter;
+    }
+
+    @Override
+    public Expression left() {
+      return left;
+    }
+
+    @Override
+    public Expression right() {
+      return right;
+    }
+
+    @Override
+    public ExprCode doGenCode(CodegenContext ctx, ExprCode ev) {
+      String accessCode =
+          ctx.addReferenceObj("converter", converter, converter.getClass().getName());
+      ExprCode value = left.genCode(ctx);
+      ExprCode metadata = right.genCode(ctx);
+      String javaType = CodeGenerator.javaType(dataType());
+
+      List<String> parts = new ArrayList<>();
+      List<Object> args = new ArrayList<>();
+      /*
+        CODE GENERATED:
+        final ${javaType} ${ev.value} = (${javaType}) org.apache.beam.runners.spark.structuredstreaming.translation.helpers.EncoderHelpers.DecodeUsingSchema.decode(${value.isNull()}, ${value.value}, ${metadata.value}, ${converter});
+      */
+      parts.add("final ");
+      args.add(javaType);
+      parts.add(" ");
+      args.add(ev.value());
+      parts.add(" = (");
+      args.add(javaType);
+      parts.add(
+          ") org.apache.beam.runners.spark.structuredstreaming.translation.helpers.EncoderHelpers.DecodeUsingSchema.decode(");
+      args.add(value.isNull());
+      parts.add(", ");
+      args.add(value.value());
+      parts.add(", ");
+      args.add(metadata.value());
+      parts.add(", ");
+      args.add(accessCode);
+      parts.add(");");
+
+      StringContext sc =
+          new StringContext(JavaConversions.collectionAsScalaIterable(parts).toSeq());
+      Block code =
+          (new Block.BlockHelper(sc)).code(JavaConversions.collectionAsScalaIterable(args).toSeq());
+      return ev.copy(value.code().$plus(metadata.code()).$plus(code), value.isNull(), ev.value());
+    }
+
+    @Override
+    public DataType dataType() {
+      return new ObjectType(classTag.runtimeClass());
+    }
+
+    @Override
+    public Object productElement(int n) {
+      switch (n) {
+        case 0:
+          return left;
+        case 1:
+          return right;
+        case 2:
+          return classTag;
+        case 3:
+          return converter;
+        default:
+          throw new ArrayIndexOutOfBoundsException("productElement out of bounds");
+      }
+    }
+
+    @Override
+    public int productArity() {
+      return 4;
+    }
+
+    @Override
+    public boolean canEqual(Object that) {
+      return (that instanceof DecodeUsingSchema);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      DecodeUsingSchema<?> that = (DecodeUsingSchema<?>) o;
+      return left.equals(that.left)
+          && right.equals(that.right)
+          && classTag.equals(that.classTag)
+          && converter.equals(that.converter);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(super.hashCode(), left, right, classTag, converter);
+    }
+
+    /**
+     * Rebuild an element from its columns (invoked by generated code in {@link
+     * #doGenCode(CodegenContext, ExprCode)}).
+     */
+    public static <T> WindowedValue<T> decode(
+        boolean isNull,
+        @Nullable InternalRow value,
+        byte @Nullable [] metadata,
+        SchemaConverter<T> converter) {
+      return isNull ? null : converter.fromColumns(value, metadata);
+    }
+  }
 }
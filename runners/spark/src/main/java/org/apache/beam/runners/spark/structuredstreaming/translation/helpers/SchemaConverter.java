@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.spark.structuredstreaming.translation.helpers;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.beam.runners.spark.structuredstreaming.translation.SchemaHelpers;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.VoidCoder;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.schemas.SchemaCoder;
+import org.apache.beam.sdk.transforms.SerializableFunction;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.util.WindowedValue;
+import org.apache.beam.sdk.values.Row;
+import org.apache.spark.sql.catalyst.InternalRow;
+import org.apache.spark.sql.catalyst.expressions.GenericInternalRow;
+import org.apache.spark.sql.catalyst.util.ArrayBasedMapData;
+import org.apache.spark.sql.catalyst.util.ArrayData;
+import org.apache.spark.sql.catalyst.util.GenericArrayData;
+import org.apache.spark.sql.catalyst.util.MapData;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.StructType;
+import org.apache.spark.unsafe.types.UTF8String;
+import org.joda.time.Instant;
+import org.joda.time.ReadableInstant;
+
+/**
+ * Converts the {@link WindowedValue WindowedValues} of elements with a Beam {@link Schema} to Spark
+ * columns and back: the fields of the element are mapped to a struct column of the Spark internal
+ * representation of their types, see {@link SchemaHelpers#toStructType(Schema)}, and the
+ * timestamp, windows and pane are encoded in a binary column.
+ *
+ * @param <T> The type of the elements.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+public class SchemaConverter<T> implements Serializable {
+
+  private final Schema schema;
+  private final SerializableFunction<T, Row> toRowFunction;
+  private final SerializableFunction<Row, T> fromRowFunction;
+  private final WindowedValue.FullWindowedValueCoder<Void> metadataCoder;
+
+  public SchemaConverter(SchemaCoder<T> schemaCoder, Coder<? extends BoundedWindow> windowCoder) {
+    this.schema = schemaCoder.getSchema();
+    this.toRowFunction = schemaCoder.getToRowFunction();
+    this.fromRowFunction = schemaCoder.getFromRowFunction();
+    this.metadataCoder = WindowedValue.FullWindowedValueCoder.of(VoidCoder.of(), windowCoder);
+  }
+
+  /** The Spark type of the column of the values. */
+  public StructType valueType() {
+    return SchemaHelpers.toStructType(schema);
+  }
+
+  /** Converts the value of an element to a Spark {@link InternalRow}. */
+  public InternalRow toValueColumn(WindowedValue<T> windowedValue) {
+    return toInternalRow(toRowFunction.apply(windowedValue.getValue()));
+  }
+
+  /** Encodes the timestamp, windows and pane of an element. */
+  public byte[] toMetadataColumn(WindowedValue<T> windowedValue) {
+    return CoderHelpers.toByteArray(windowedValue.<Void>withValue(null), metadataCoder);
+  }
+
+  /** Rebuilds an element from its columns. */
+  public WindowedValue<T> fromColumns(InternalRow value, byte[] metadata) {
+    WindowedValue<Void> windowedValue = CoderHelpers.fromByteArray(metadata, metadataCoder);
+    return windowedValue.withValue(fromRowFunction.apply(toRow(value, schema)));
+  }
+
+  private static InternalRow toInternalRow(Row row) {
+    Schema schema = row.getSchema();
+    Object[] values = new Object[schema.getFieldCount()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = toInternal(row.getValue(i), schema.getField(i).getType());
+    }
+    return new GenericInternalRow(values);
+  }
+
+  private static Row toRow(InternalRow internalRow, Schema schema) {
+    List<Object> values = new ArrayList<>(schema.getFieldCount());
+    for (int i = 0; i < schema.getFieldCount(); i++) {
+      FieldType fieldType = schema.getField(i).getType();
+      values.add(
+          internalRow.isNullAt(i)
+              ? null
+              : fromInternal(internalRow.get(i, SchemaHelpers.toDataType(fieldType)), fieldType));
+    }
+    return Row.withSchema(schema).addValues(values).build();
+  }
+
+  /** Converts a Beam field value to the Spark internal representation of its type. */
+  @SuppressWarnings("unchecked")
+  private static Object toInternal(Object value, FieldType fieldType) {
+    if (value == null) {
+      return null;
+    }
+    switch (fieldType.getTypeName()) {
+      case STRING:
+        return UTF8String.fromString((String) value);
+      case DATETIME:
+        // Spark timestamps are in microseconds.
+        return ((ReadableInstant) value).getMillis() * 1000;
+      case ARRAY:
+      case ITERABLE:
+        List<Object> elements = new ArrayList<>();
+        for (Object element : (Iterable<?>) value) {
+          elements.add(toInternal(element, fieldType.getCollectionElementType()));
+        }
+        return new GenericArrayData(elements.toArray());
+      case MAP:
+        Map<?, ?> map = (Map<?, ?>) value;
+        Object[] keys = new Object[map.size()];
+        Object[] values = new Object[map.size()];
+        int i = 0;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          keys[i] = toInternal(entry.getKey(), fieldType.getMapKeyType());
+          values[i] = toInternal(entry.getValue(), fieldType.getMapValueType());
+          i++;
+        }
+        return new ArrayBasedMapData(new GenericArrayData(keys), new GenericArrayData(values));
+      case ROW:
+        return toInternalRow((Row) value);
+      case LOGICAL_TYPE:
+        Schema.LogicalType<Object, Object> logicalType =
+            (Schema.LogicalType<Object, Object>) fieldType.getLogicalType();
+        return toInternal(logicalType.toBaseType(value), logicalType.getBaseType());
+      default:
+        // the other types share the same Java representation.
+        return value;
+    }
+  }
+
+  /** Converts the Spark internal representation of a value back to the Beam field value. */
+  @SuppressWarnings("unchecked")
+  private static Object fromInternal(Object value, FieldType fieldType) {
+    if (value == null) {
+      return null;
+    }
+    switch (fieldType.getTypeName()) {
+      case STRING:
+        return value.toString();
+      case DATETIME:
+        return new Instant((long) value / 1000);
+      case ARRAY:
+      case ITERABLE:
+        return fromInternalArray((ArrayData) value, fieldType.getCollectionElementType());
+      case MAP:
+        MapData mapData = (MapData) value;
+        List<Object> keys = fromInternalArray(mapData.keyArray(), fieldType.getMapKeyType());
+        List<Object> values = fromInternalArray(mapData.valueArray(), fieldType.getMapValueType());
+        Map<Object, Object> map = new HashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+          map.put(keys.get(i), values.get(i));
+        }
+        return map;
+      case ROW:
+        return toRow((InternalRow) value, fieldType.getRowSchema());
+      case LOGICAL_TYPE:
+        Schema.LogicalType<Object, Object> logicalType =
+            (Schema.LogicalType<Object, Object>) fieldType.getLogicalType();
+        return logicalType.toInputType(fromInternal(value, logicalType.getBaseType()));
+      default:
+        return value;
+    }
+  }
+
+  private static List<Object> fromInternalArray(ArrayData arrayData, FieldType elementType) {
+    DataType elementDataType = SchemaHelpers.toDataType(elementType);
+    List<Object> elements = new ArrayList<>(arrayData.numElements());
+    for (int i = 0; i < arrayData.numElements(); i++) {
+      elements.add(
+          arrayData.isNullAt(i)
+              ? null
+              : fromInternal(arrayData.get(i, elementDataType), elementType));
+    }
+    return elements;
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.spark.structuredstreaming.translation.streaming;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.beam.runners.core.LateDataUtils;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.transforms.windowing.PaneInfo;
+import org.apache.beam.sdk.transforms.windowing.TimestampCombiner;
+import org.apache.beam.sdk.transforms.windowing.Window.ClosingBehavior;
+import org.apache.beam.sdk.util.WindowedValue;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.TimestampedValue;
+import org.apache.beam.sdk.values.WindowingStrategy;
+import org.apache.spark.api.java.function.FlatMapGroupsWithStateFunction;
+import org.apache.spark.sql.streaming.GroupState;
+import org.joda.time.Instant;
+import scala.Tuple2;
+
+/**
+ * A function that groups by windows in streaming mode, with the default trigger, keeping the
+ * values of each window of each key in the Spark {@link GroupState} of their (key, window) group.
+ *
+ * <p>The state of a group holds the number of panes fired so far and the values buffered for the
+ * next pane. Its event-time timeout is set to the end of the window, to fire the on time pane, and
+ * then to the garbage collection time of the window, to clear the state. Values of a window whose
+ * on time pane has already fired are late: they fire a late pane right away, until the window
+ * expires. The values of expired windows are dropped.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+class GroupAlsoByWindowWithStateFn<K, V, W extends BoundedWindow>
+    implements FlatMapGroupsWithStateFunction<
+        KV<K, W>,
+        Tuple2<Timestamp, WindowedValue<KV<K, V>>>,
+        KV</*pane index*/ Long, List<TimestampedValue<V>>>,
+        WindowedValue<KV<K, Iterable<V>>>> {
+
+  private final WindowingStrategy<?, W> windowingStrategy;
+
+  GroupAlsoByWindowWithStateFn(WindowingStrategy<?, W> windowingStrategy) {
+    this.windowingStrategy = windowingStrategy;
+  }
+
+  @Override
+  public Iterator<WindowedValue<KV<K, Iterable<V>>>> call(
+      KV<K, W> keyAndWindow,
+      Iterator<Tuple2<Timestamp, WindowedValue<KV<K, V>>>> values,
+      GroupState<KV<Long, List<TimestampedValue<V>>>> state)
+      throws Exception {
+    K key = keyAndWindow.getKey();
+    W window = keyAndWindow.getValue();
+    long watermarkMillis = state.getCurrentWatermarkMs();
+    boolean endOfWindowPassed = window.maxTimestamp().getMillis() < watermarkMillis;
+    long garbageCollectionMillis =
+        LateDataUtils.garbageCollectionTime(window, windowingStrategy).getMillis();
+    boolean expired = garbageCollectionMillis < watermarkMillis;
+
+    long paneIndex = state.exists() ? state.get().getKey() : 0L;
+    List<TimestampedValue<V>> buffered =
+        state.exists() ? new ArrayList<>(state.get().getValue()) : new ArrayList<>();
+    List<TimestampedValue<V>> newValues = new ArrayList<>();
+    while (values.hasNext()) {
+      WindowedValue<KV<K, V>> wv = values.next()._2();
+      // the values of expired windows are dropped here, as Spark does not drop late rows.
+      if (!expired) {
+        newValues.add(TimestampedValue.of(wv.getValue().getValue(), wv.getTimestamp()));
+      }
+    }
+
+    if (!endOfWindowPassed) {
+      // the window is still open, possibly receiving values out of order.
+      buffered.addAll(newValues);
+      state.update(KV.of(paneIndex, buffered));
+      // the timeout fires once the watermark is past the given timestamp.
+      state.setTimeoutTimestamp(timeoutTimestamp(window.maxTimestamp().getMillis()));
+      return Collections.emptyIterator();
+    }
+
+    List<WindowedValue<KV<K, Iterable<V>>>> outputs = new ArrayList<>();
+    boolean accumulating =
+        windowingStrategy.getMode() == WindowingStrategy.AccumulationMode.ACCUMULATING_FIRED_PANES;
+    if (paneIndex == 0 && state.exists()) {
+      // the watermark just passed the end of the window: fire the on time pane.
+      buffered.addAll(newValues);
+      outputs.add(
+          output(
+              key,
+              window,
+              buffered,
+              onTimeTimestamp(window, buffered),
+              PaneInfo.createPane(true, expired, PaneInfo.Timing.ON_TIME)));
+      paneIndex++;
+    } else if (!newValues.isEmpty()) {
+      // late values: fire a late pane right away, as the default trigger does.
+      buffered.addAll(newValues);
+      PaneInfo pane =
+          paneIndex == 0
+              ? PaneInfo.createPane(true, expired, PaneInfo.Timing.LATE)
+              : PaneInfo.createPane(false, expired, PaneInfo.Timing.LATE, paneIndex, paneIndex);
+      outputs.add(
+          output(key, window, accumulating ? buffered : newValues, window.maxTimestamp(), pane));
+      paneIndex++;
+    } else if (expired
+        && windowingStrategy.getClosingBehavior() == ClosingBehavior.FIRE_ALWAYS
+        && paneIndex > 0) {
+      // the window expires without new values: fire the final pane anyway.
+      outputs.add(
+          output(
+              key,
+              window,
+              accumulating ? buffered : Collections.emptyList(),
+              window.maxTimestamp(),
+              PaneInfo.createPane(false, true, PaneInfo.Timing.LATE, paneIndex, paneIndex)));
+    }
+
+    if (expired) {
+      state.remove();
+    } else {
+      // only keep the fired values when accumulating them into the next panes.
+      state.update(KV.of(paneIndex, accumulating ? buffered : new ArrayList<>()));
+      state.setTimeoutTimestamp(timeoutTimestamp(garbageCollectionMillis));
+    }
+    return outputs.iterator();
+  }
+
+  /**
+   * Returns a Spark timeout timestamp for the given timestamp. Spark only accepts positive timeout
+   * timestamps, so earlier ones are moved to 1 millisecond after the epoch. This only delays the
+   * panes of the windows ending before the epoch, until the watermark passes it.
+   */
+  private static long timeoutTimestamp(long timestampMillis) {
+    return Math.max(timestampMillis, 1L);
+  }
+
+  /**
+   * Returns the timestamp of the on time pane of the given values, combining their timestamps as
+   * {@link org.apache.beam.runners.core.WatermarkHold} does.
+   */
+  private Instant onTimeTimestamp(W window, List<TimestampedValue<V>> values) {
+    TimestampCombiner timestampCombiner = windowingStrategy.getTimestampCombiner();
+    List<Instant> timestamps = new ArrayList<>(values.size());
+    for (TimestampedValue<V> value : values) {
+      timestamps.add(
+          timestampCombiner.assign(
+              window,
+              windowingStrategy.getWindowFn().getOutputTime(value.getTimestamp(), window)));
+    }
+    Instant timestamp = timestampCombiner.combine(timestamps);
+    return timestamp.isAfter(window.maxTimestamp()) ? window.maxTimestamp() : timestamp;
+  }
+
+  private WindowedValue<KV<K, Iterable<V>>> output(
+      K key, W window, List<TimestampedValue<V>> values, Instant timestamp, PaneInfo pane) {
+    List<V> grouped = new ArrayList<>(values.size());
+    for (TimestampedValue<V> value : values) {
+      grouped.add(value.getValue());
+    }
+    return WindowedValue.of(KV.of(key, grouped), timestamp, window, pane);
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.spark.structuredstreaming.translation.streaming;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkState;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.Iterator;
+import org.apache.beam.runners.spark.structuredstreaming.translation.TransformTranslator;
+import org.apache.beam.runners.spark.structuredstreaming.translation.TranslationContext;
+import org.apache.beam.runners.spark.structuredstreaming.translation.helpers.EncoderHelpers;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.IterableCoder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.ListCoder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.transforms.windowing.DefaultTrigger;
+import org.apache.beam.sdk.util.WindowedValue;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.TimestampedValue;
+import org.apache.beam.sdk.values.WindowingStrategy;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.AbstractIterator;
+import org.apache.spark.api.java.function.FilterFunction;
+import org.apache.spark.api.java.function.MapFunction;
+import org.apache.spark.api.java.function.MapPartitionsFunction;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Encoders;
+import org.apache.spark.sql.streaming.GroupStateTimeout;
+import org.apache.spark.sql.streaming.OutputMode;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import scala.Tuple2;
+
+/**
+ * Translates a windowed {@link org.apache.beam.sdk.transforms.GroupByKey} in streaming mode using
+ * {@code flatMapGroupsWithState} on (key, window) groups, with event-time timeouts driven by a
+ * Spark watermark.
+ *
+ * <p>The Spark watermark follows the latest event timestamp of the elements. Spark drops the input
+ * rows whose event time is before the watermark, whereas Beam only drops the elements of expired
+ * windows, so the rows of the elements have no event time, which Spark neither drops nor takes into
+ * account for the watermark. Each partition of a micro-batch instead ends with an extra row holding
+ * the latest timestamp of its elements, which drives the watermark and is then filtered out.
+ * Elements arriving out of order or late are handed to {@link GroupAlsoByWindowWithStateFn}, which
+ * fires the on time and late panes of each window, and drops the elements of expired windows.
+ *
+ * <p>Only the default trigger and non-merging windows are supported.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+class GroupByKeyTranslatorStreaming<K, V>
+    implements TransformTranslator<
+        PTransform<PCollection<KV<K, V>>, PCollection<KV<K, Iterable<V>>>>> {
+
+  private static final String TIMESTAMP_COLUMN = "_1";
+
+  @Override
+  public void translateTransform(
+      PTransform<PCollection<KV<K, V>>, PCollection<KV<K, Iterable<V>>>> transform,
+      TranslationContext context) {
+
+    @SuppressWarnings("unchecked")
+    final PCollection<KV<K, V>> inputPCollection = (PCollection<KV<K, V>>) context.getInput();
+    Dataset<WindowedValue<KV<K, V>>> input = context.getDataset(inputPCollection);
+    @SuppressWarnings("unchecked")
+    WindowingStrategy<?, BoundedWindow> windowingStrategy =
+        (WindowingStrategy<?, BoundedWindow>) inputPCollection.getWindowingStrategy();
+    checkState(
+        windowingStrategy.getTrigger() instanceof DefaultTrigger,
+        "Only the default trigger is supported in streaming mode for the moment.");
+    checkState(
+        windowingStrategy.getWindowFn().isNonMerging(),
+        "Merging windows are not supported in streaming mode for the moment.");
+
+    KvCoder<K, V> kvCoder = (KvCoder<K, V>) inputPCollection.getCoder();
+    Coder<K> keyCoder = kvCoder.getKeyCoder();
+    Coder<V> valueCoder = kvCoder.getValueCoder();
+    Coder<BoundedWindow> windowCoder = windowingStrategy.getWindowFn().windowCoder();
+    WindowedValue.FullWindowedValueCoder<KV<K, V>> inputCoder =
+        WindowedValue.FullWindowedValueCoder.of(kvCoder, windowCoder);
+
+    // compute the watermark from the latest timestamp of each partition, see the class javadoc.
+    Dataset<Tuple2<Timestamp, WindowedValue<KV<K, V>>>> timestamped =
+        input
+            .mapPartitions(
+                new EventTimeRowsFunction<>(),
+                Encoders.tuple(Encoders.TIMESTAMP(), EncoderHelpers.fromBeamCoder(inputCoder)))
+            .withWatermark(TIMESTAMP_COLUMN, "0 milliseconds")
+            .filter(
+                (FilterFunction<Tuple2<Timestamp, WindowedValue<KV<K, V>>>>)
+                    row -> row._1() == null);
+
+    WindowedValue.FullWindowedValueCoder<KV<K, Iterable<V>>> outputCoder =
+        WindowedValue.FullWindowedValueCoder.of(
+            KvCoder.of(keyCoder, IterableCoder.of(valueCoder)), windowCoder);
+    Dataset<WindowedValue<KV<K, Iterable<V>>>> output =
+        timestamped
+            .groupByKey(
+                (MapFunction<Tuple2<Timestamp, WindowedValue<KV<K, V>>>, KV<K, BoundedWindow>>)
+                    t2 ->
+                        KV.of(
+                            t2._2().getValue().getKey(), t2._2().getWindows().iterator().next()),
+                EncoderHelpers.fromBeamCoder(KvCoder.of(keyCoder, windowCoder)))
+            .flatMapGroupsWithState(
+                new GroupAlsoByWindowWithStateFn<>(windowingStrategy),
+                OutputMode.Append(),
+                EncoderHelpers.fromBeamCoder(
+                    KvCoder.of(
+                        VarLongCoder.of(),
+                        ListCoder.of(TimestampedValue.TimestampedValueCoder.of(valueCoder)))),
+                EncoderHelpers.fromBeamCoder(outputCoder),
+                GroupStateTimeout.EventTimeTimeout());
+
+    context.putDataset(context.getOutput(), output);
+  }
+
+  /**
+   * Explodes the windows of the elements of a partition into rows without event time, followed by
+   * a row holding the latest timestamp of the elements, if any.
+   */
+  private static class EventTimeRowsFunction<T>
+      implements MapPartitionsFunction<WindowedValue<T>, Tuple2<Timestamp, WindowedValue<T>>> {
+
+    @Override
+    public Iterator<Tuple2<Timestamp, WindowedValue<T>>> call(Iterator<WindowedValue<T>> elements) {
+      return new AbstractIterator<Tuple2<Timestamp, WindowedValue<T>>>() {
+        private Iterator<WindowedValue<T>> singleWindowValues = Collections.emptyIterator();
+        private @Nullable WindowedValue<T> latest;
+
+        @Override
+        protected Tuple2<Timestamp, WindowedValue<T>> computeNext() {
+          while (!singleWindowValues.hasNext() && elements.hasNext()) {
+            WindowedValue<T> element = elements.next();
+            if (latest == null || element.getTimestamp().isAfter(latest.getTimestamp())) {
+              latest = element;
+            }
+            singleWindowValues = element.explodeWindows().iterator();
+          }
+          if (singleWindowValues.hasNext()) {
+            return new Tuple2<>(null, singleWindowValues.next());
+          }
+          if (latest != null) {
+            // the value of the row is only there to be encoded, the row being filtered out.
+            Tuple2<Timestamp, WindowedValue<T>> latestTimestamp =
+                new Tuple2<>(new Timestamp(latest.getTimestamp().getMillis()), latest);
+            latest = null;
+            return latestTimestamp;
+          }
+          return endOfData();
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.spark.structuredstreaming.translation.streaming;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkState;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.beam.runners.core.construction.ParDoTranslation;
+import org.apache.beam.runners.spark.structuredstreaming.metrics.MetricsAccumulator;
+import org.apache.beam.runners.spark.structuredstreaming.translation.TransformTranslator;
+import org.apache.beam.runners.spark.structuredstreaming.translation.TranslationContext;
+import org.apache.beam.runners.spark.structuredstreaming.translation.batch.DoFnFunction;
+import org.apache.beam.runners.spark.structuredstreaming.translation.helpers.EncoderHelpers;
+import org.apache.beam.runners.spark.structuredstreaming.translation.helpers.MultiOuputCoder;
+import org.apache.beam.runners.spark.structuredstreaming.translation.helpers.SideInputBroadcast;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.SerializableCoder;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.reflect.DoFnSignatures;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.util.WindowedValue;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.TupleTag;
+import org.apache.beam.sdk.values.WindowingStrategy;
+import org.apache.spark.api.java.function.FilterFunction;
+import org.apache.spark.api.java.function.MapFunction;
+import org.apache.spark.sql.Dataset;
+import scala.Tuple2;
+
+/**
+ * Translates a {@link org.apache.beam.sdk.transforms.ParDo} in streaming mode, by applying a {@link
+ * DoFnFunction} to each partition of every micro-batch.
+ *
+ * <p>Unlike in batch mode, the tagged outputs are not persisted before being split, as streaming
+ * Datasets can't be cached: the {@link DoFn} is applied once for every output.
+ *
+ * <p>Side inputs, state and timers are not supported: such a {@link DoFn} is rejected.
+ *
+ * @param <InputT>
+ * @param <OutputT>
+ */
+@SuppressWarnings({
+  "rawtypes", // TODO(https://issues.apache.org/jira/browse/BEAM-10556)
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+class ParDoTranslatorStreaming<InputT, OutputT>
+    implements TransformTranslator<PTransform<PCollection<InputT>, PCollectionTuple>> {
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void translateTransform(
+      PTransform<PCollection<InputT>, PCollectionTuple> transform, TranslationContext context) {
+    String stepName = context.getCurrentTransform().getFullName();
+
+    DoFn<InputT, OutputT> doFn;
+    TupleTag<?> mainOutputTag;
+    try {
+      doFn = (DoFn<InputT, OutputT>) ParDoTranslation.getDoFn(context.getCurrentTransform());
+      mainOutputTag = ParDoTranslation.getMainOutputTag(context.getCurrentTransform());
+      checkState(
+          ParDoTranslation.getSideInputs(context.getCurrentTransform()).isEmpty(),
+          "Side inputs are not supported in streaming mode for the moment.");
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+
+    // Check for not supported advanced features
+    checkState(
+        !DoFnSignatures.isSplittable(doFn),
+        "Not expected to directly translate splittable DoFn, should have been overridden: %s",
+        doFn);
+    checkState(
+        !DoFnSignatures.isStateful(doFn), "States and timers are not supported for the moment.");
+    checkState(
+        !DoFnSignatures.requiresTimeSortedInput(doFn),
+        "@RequiresTimeSortedInput is not supported for the moment");
+
+    PCollection<InputT> input = (PCollection<InputT>) context.getInput();
+    Dataset<WindowedValue<InputT>> inputDataSet = context.getDataset(input);
+    Map<TupleTag<?>, PCollection<?>> outputs = context.getOutputs();
+    WindowingStrategy<?, ?> windowingStrategy = input.getWindowingStrategy();
+    Coder<? extends BoundedWindow> windowCoder = windowingStrategy.getWindowFn().windowCoder();
+
+    List<TupleTag<?>> additionalOutputTags = new ArrayList<>();
+    for (TupleTag<?> tag : outputs.keySet()) {
+      if (!tag.equals(mainOutputTag)) {
+        additionalOutputTags.add(tag);
+      }
+    }
+
+    Map<TupleTag<?>, Coder<?>> outputCoderMap = context.getOutputCoders();
+    DoFnFunction<InputT, OutputT> doFnWrapper =
+        new DoFnFunction(
+            MetricsAccumulator.getInstance(),
+            stepName,
+            doFn,
+            windowingStrategy,
+            Collections.emptyMap(),
+            context.getSerializableOptions(),
+            additionalOutputTags,
+            mainOutputTag,
+            input.getCoder(),
+            outputCoderMap,
+            new SideInputBroadcast(),
+            ParDoTranslation.getSchemaInformation(context.getCurrentTransform()),
+            Collections.emptyMap());
+
+    MultiOuputCoder multipleOutputCoder =
+        MultiOuputCoder.of(SerializableCoder.of(TupleTag.class), outputCoderMap, windowCoder);
+    Dataset<Tuple2<TupleTag<?>, WindowedValue<?>>> allOutputs =
+        inputDataSet.mapPartitions(doFnWrapper, EncoderHelpers.fromBeamCoder(multipleOutputCoder));
+
+    for (Map.Entry<TupleTag<?>, PCollection<?>> output : outputs.entrySet()) {
+      TupleTag<?> tag = output.getKey();
+      Dataset<Tuple2<TupleTag<?>, WindowedValue<?>>> taggedOutputs =
+          outputs.size() > 1
+              ? allOutputs.filter(
+                  (FilterFunction<Tuple2<TupleTag<?>, WindowedValue<?>>>)
+                      value -> value._1.equals(tag))
+              : allOutputs;
+      Coder<WindowedValue<?>> windowedValueCoder =
+          (Coder<WindowedValue<?>>)
+              (Coder<?>) WindowedValue.getFullCoder(output.getValue().getCoder(), windowCoder);
+      Dataset<WindowedValue<?>> outputDataset =
+          taggedOutputs.map(
+              (MapFunction<Tuple2<TupleTag<?>, WindowedValue<?>>, WindowedValue<?>>)
+                  value -> value._2,
+              EncoderHelpers.fromBeamCoder(windowedValueCoder));
+      context.putDatasetWildcard(output.getValue(), outputDataset);
+    }
+  }
+}
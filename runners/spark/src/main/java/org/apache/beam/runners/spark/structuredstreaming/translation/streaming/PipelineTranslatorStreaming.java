@@ -24,9 +24,14 @@ import org.apache.beam.runners.spark.structuredstreaming.SparkStructuredStreamin
 import org.apache.beam.runners.spark.structuredstreaming.translation.PipelineTranslator;
 import org.apache.beam.runners.spark.structuredstreaming.translation.TransformTranslator;
 import org.apache.beam.runners.spark.structuredstreaming.translation.TranslationContext;
+import org.apache.beam.runners.spark.structuredstreaming.translation.batch.PipelineTranslatorBatch;
 import org.apache.beam.sdk.Pipeline;
 import org.apache.beam.sdk.runners.TransformHierarchy;
+import org.apache.beam.sdk.transforms.Flatten;
+import org.apache.beam.sdk.transforms.GroupByKey;
 import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.windowing.Window;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
@@ -58,16 +63,20 @@ public class PipelineTranslatorStreaming extends PipelineTranslator {
   static {
     //    TRANSFORM_TRANSLATORS.put(Combine.PerKey.class, new CombinePerKeyTranslatorBatch());
     //    TRANSFORM_TRANSLATORS.put(Combine.Globally.class, new CombineGloballyTranslatorBatch());
-    //    TRANSFORM_TRANSLATORS.put(GroupByKey.class, new GroupByKeyTranslatorBatch());
+    TRANSFORM_TRANSLATORS.put(GroupByKey.class, new GroupByKeyTranslatorStreaming());
 
     // TODO: Do we need to have a dedicated translator for {@code Reshuffle} if it's deprecated?
     // TRANSFORM_TRANSLATORS.put(Reshuffle.class, new ReshuffleTranslatorBatch());
 
-    //    TRANSFORM_TRANSLATORS.put(Flatten.PCollections.class, new FlattenTranslatorBatch());
-    //
-    //    TRANSFORM_TRANSLATORS.put(Window.Assign.class, new WindowAssignTranslatorBatch());
-    //
-    //    TRANSFORM_TRANSLATORS.put(ParDo.MultiOutput.class, new ParDoTranslatorBatch());
+    // Flatten and Window.Assign are translated the same way as in batch mode.
+    TRANSFORM_TRANSLATORS.put(
+        Flatten.PCollections.class,
+        PipelineTranslatorBatch.getStreamingTranslator(Flatten.PCollections.class));
+
+    TRANSFORM_TRANSLATORS.put(
+        Window.Assign.class, PipelineTranslatorBatch.getStreamingTranslator(Window.Assign.class));
+
+    TRANSFORM_TRANSLATORS.put(ParDo.MultiOutput.class, new ParDoTranslatorStreaming());
 
     TRANSFORM_TRANSLATORS.put(
         SplittableParDo.PrimitiveUnboundedRead.class, new ReadSourceTranslatorStreaming());
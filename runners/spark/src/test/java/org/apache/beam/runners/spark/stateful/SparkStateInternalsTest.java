@@ -24,8 +24,8 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 /**
- * Tests for {@link SparkStateInternals}. This is based on {@link StateInternalsTest}. Ignore set
- * and map tests.
+ * Tests for {@link SparkStateInternals}. This is based on {@link StateInternalsTest}. Ignore set,
+ * map and ordered list tests.
  */
 @RunWith(JUnit4.class)
 public class SparkStateInternalsTest extends StateInternalsTest {
@@ -62,4 +62,12 @@ public class SparkStateInternalsTest extends StateInternalsTest {
   @Override
   @Ignore
   public void testMapReadable() {}
+
+  @Override
+  @Ignore
+  public void testOrderedList() {}
+
+  @Override
+  @Ignore
+  public void testOrderedListIsEmpty() {}
 }
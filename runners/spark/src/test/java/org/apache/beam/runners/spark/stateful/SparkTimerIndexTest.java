@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.spark.stateful;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+
+import java.nio.charset.StandardCharsets;
+import org.apache.beam.runners.spark.util.ByteArray;
+import org.apache.beam.sdk.util.SerializableUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link SparkTimerIndex}. */
+@RunWith(JUnit4.class)
+public class SparkTimerIndexTest {
+
+  @Test
+  public void testDueKeysAreOrderedByTimestamp() {
+    SparkTimerIndex index =
+        new SparkTimerIndex().put(key("a"), 30L).put(key("b"), 10L).put(key("c"), 20L);
+
+    assertThat(index.dueKeys(10L), empty());
+    assertThat(index.dueKeys(21L), contains(key("b"), key("c")));
+    assertThat(index.dueKeys(Long.MAX_VALUE), contains(key("b"), key("c"), key("a")));
+  }
+
+  @Test
+  public void testPutReplacesAndRemovesTimers() {
+    SparkTimerIndex index =
+        new SparkTimerIndex()
+            .put(key("a"), 10L)
+            .put(key("b"), 20L)
+            .put(key("a"), 30L)
+            .put(key("b"), null);
+
+    assertThat(index.dueKeys(25L), empty());
+    assertThat(index.dueKeys(31L), contains(key("a")));
+  }
+
+  @Test
+  public void testPutDoesNotModifyPreviousIndex() {
+    SparkTimerIndex previous = new SparkTimerIndex().put(key("a"), 10L).put(key("b"), 20L);
+
+    SparkTimerIndex updated = previous.put(key("a"), null).put(key("c"), 5L);
+
+    assertThat(previous.dueKeys(Long.MAX_VALUE), contains(key("a"), key("b")));
+    assertThat(updated.dueKeys(Long.MAX_VALUE), contains(key("c"), key("b")));
+  }
+
+  @Test
+  public void testSerialization() {
+    SparkTimerIndex index = new SparkTimerIndex().put(key("a"), 20L).put(key("b"), 10L);
+
+    SparkTimerIndex deserialized = SerializableUtils.clone(index);
+
+    assertThat(deserialized.dueKeys(Long.MAX_VALUE), contains(key("b"), key("a")));
+    assertThat(
+        deserialized.put(key("c"), 15L).dueKeys(Long.MAX_VALUE),
+        contains(key("b"), key("c"), key("a")));
+  }
+
+  private static ByteArray key(String key) {
+    return new ByteArray(key.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.spark.structuredstreaming.translation.batch;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import org.apache.beam.runners.spark.structuredstreaming.SparkStructuredStreamingPipelineOptions;
+import org.apache.beam.runners.spark.structuredstreaming.SparkStructuredStreamingRunner;
+import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.io.GenerateSequence;
+import org.apache.beam.sdk.options.ExperimentalOptions;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.transforms.GroupByKey;
+import org.apache.beam.sdk.transforms.MapElements;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.TypeDescriptors;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
+
+/**
+ * Compares the time and the peak heap usage of the {@link GroupByKey} translations, grouping a
+ * few large groups with and without sorting, see {@link GroupByKeyTranslatorBatch}.
+ */
+public class GroupByKeyBenchmark {
+  private static final int NUM_KEYS = 4;
+  private static final long NUM_ELEMENTS = 1_000_000L;
+
+  public static void main(String[] args) {
+    benchmark(false);
+    benchmark(true);
+  }
+
+  private static void benchmark(boolean sortBased) {
+    SparkStructuredStreamingPipelineOptions options =
+        PipelineOptionsFactory.create().as(SparkStructuredStreamingPipelineOptions.class);
+    options.setRunner(SparkStructuredStreamingRunner.class);
+    options.setTestMode(true);
+    if (!sortBased) {
+      ExperimentalOptions.addExperiment(
+          options.as(ExperimentalOptions.class),
+          GroupByKeyTranslatorBatch.DISABLE_SORT_BASED_EXPERIMENT);
+    }
+    Pipeline pipeline = Pipeline.create(options);
+
+    PCollection<String> sizes =
+        pipeline
+            .apply(GenerateSequence.from(0).to(NUM_ELEMENTS))
+            .apply(
+                MapElements.into(
+                        TypeDescriptors.kvs(TypeDescriptors.integers(), TypeDescriptors.longs()))
+                    .via(i -> KV.of((int) (i % NUM_KEYS), i)))
+            .apply(GroupByKey.create())
+            .apply(
+                MapElements.into(TypeDescriptors.strings())
+                    .via(kv -> kv.getKey() + ":" + Iterables.size(kv.getValue())));
+    String[] expected = new String[NUM_KEYS];
+    for (int key = 0; key < NUM_KEYS; key++) {
+      expected[key] = key + ":" + NUM_ELEMENTS / NUM_KEYS;
+    }
+    PAssert.that(sizes).containsInAnyOrder(expected);
+
+    System.gc();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      pool.resetPeakUsage();
+    }
+    long start = System.nanoTime();
+    pipeline.run().waitUntilFinish();
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+    long peakHeapBytes = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peakHeapBytes += pool.getPeakUsage().getUsed();
+      }
+    }
+    System.out.println(
+        String.format(
+            "sortBased=%s: %fs, peak heap %dMB",
+            sortBased, elapsedMillis / 1000.0, peakHeapBytes / (1024 * 1024)));
+  }
+}
@@ -19,6 +19,7 @@ package org.apache.beam.runners.spark.structuredstreaming.translation.batch;
 
 import static org.apache.beam.sdk.testing.SerializableMatchers.containsInAnyOrder;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -30,13 +31,17 @@ import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.testing.PAssert;
 import org.apache.beam.sdk.transforms.Create;
 import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.Flatten;
 import org.apache.beam.sdk.transforms.GroupByKey;
+import org.apache.beam.sdk.transforms.MapElements;
 import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.transforms.windowing.FixedWindows;
 import org.apache.beam.sdk.transforms.windowing.Window;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionList;
 import org.apache.beam.sdk.values.TimestampedValue;
+import org.apache.beam.sdk.values.TypeDescriptors;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
 import org.joda.time.Duration;
 import org.joda.time.Instant;
@@ -124,4 +129,45 @@ public class GroupByKeyTest implements Serializable {
             });
     pipeline.run();
   }
+
+  @Test
+  public void testGroupByKeyOfLargeGroups() {
+    List<KV<Integer, Integer>> elems = new ArrayList<>();
+    for (int i = 0; i < 3000; i++) {
+      elems.add(KV.of(i % 3, i));
+    }
+
+    PCollection<KV<Integer, Iterable<Integer>>> grouped =
+        pipeline.apply(Create.of(elems)).apply(GroupByKey.create());
+    // consumed in the grouping pass, iterating the values twice.
+    PCollection<KV<Integer, Long>> sums =
+        grouped.apply(
+            MapElements.into(
+                    TypeDescriptors.kvs(TypeDescriptors.integers(), TypeDescriptors.longs()))
+                .via(kv -> KV.of(kv.getKey(), Iterables.size(kv.getValue()) + sum(kv.getValue()))));
+    PAssert.that(sums)
+        .containsInAnyOrder(
+            KV.of(0, 1000L + 1498500L), KV.of(1, 1000L + 1499500L), KV.of(2, 1000L + 1500500L));
+    // consumed from the encoded groups.
+    PCollection<KV<Integer, Iterable<Integer>>> flattened =
+        PCollectionList.of(grouped).apply(Flatten.pCollections());
+    PAssert.thatMap(flattened)
+        .satisfies(
+            results -> {
+              for (int key = 0; key < 3; key++) {
+                assertEquals(1000, Iterables.size(results.get(key)));
+                assertEquals(1000L * 999 * 3 / 2 + 1000L * key, sum(results.get(key)));
+              }
+              return null;
+            });
+    pipeline.run();
+  }
+
+  private static long sum(Iterable<Integer> values) {
+    long sum = 0;
+    for (int value : values) {
+      sum += value;
+    }
+    return sum;
+  }
 }
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.spark.structuredstreaming.translation.batch.functions;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.transforms.windowing.FixedWindows;
+import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
+import org.apache.beam.sdk.transforms.windowing.PaneInfo;
+import org.apache.beam.sdk.util.WindowedValue;
+import org.apache.beam.sdk.util.WindowedValue.FullWindowedValueCoder;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.WindowingStrategy;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterators;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.primitives.UnsignedBytes;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import scala.Tuple2;
+
+/** Test of {@link GroupAlsoByWindowViaSortFn}. */
+@RunWith(JUnit4.class)
+public class GroupAlsoByWindowViaSortFnTest {
+
+  private static final WindowingStrategy<?, IntervalWindow> WINDOWING_STRATEGY =
+      WindowingStrategy.of(FixedWindows.of(Duration.millis(10)));
+  private static final FullWindowedValueCoder<KV<String, Integer>> CODER =
+      WindowedValue.FullWindowedValueCoder.of(
+          KvCoder.of(StringUtf8Coder.of(), VarIntCoder.of()),
+          WINDOWING_STRATEGY.getWindowFn().windowCoder());
+
+  @Rule public ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void testGroupsByKeyAndWindow() throws Exception {
+    List<WindowedValue<KV<String, Iterable<Integer>>>> groups = new ArrayList<>();
+    Iterators.addAll(
+        groups,
+        groupAlsoByWindow(
+            Long.MAX_VALUE,
+            element("a", 1, 1),
+            element("b", 2, 2),
+            element("a", 3, 3),
+            element("a", 5, 11)));
+
+    assertEquals(3, groups.size());
+    for (WindowedValue<KV<String, Iterable<Integer>>> group : groups) {
+      IntervalWindow window = (IntervalWindow) group.getWindows().iterator().next();
+      assertEquals(window.maxTimestamp(), group.getTimestamp());
+      assertEquals(PaneInfo.ON_TIME_AND_ONLY_FIRING, group.getPane());
+    }
+  }
+
+  @Test
+  public void testValuesCanBeIteratedAgainAfterSpilling() throws Exception {
+    List<WindowedValue<KV<String, Integer>>> elements = new ArrayList<>();
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      elements.add(element("a", i, 1));
+      expected.add(i);
+    }
+    // keeps nothing in memory.
+    GroupAlsoByWindowViaSortFn<String, Integer, IntervalWindow> fn =
+        new GroupAlsoByWindowViaSortFn<>(WINDOWING_STRATEGY, CODER, 0);
+    Iterator<WindowedValue<KV<String, Iterable<Integer>>>> groups = fn.call(sorted(elements));
+
+    Iterable<Integer> values = groups.next().getValue().getValue();
+    Iterator<Integer> first = values.iterator();
+    for (int i = 0; i < 50; i++) {
+      assertEquals(Integer.valueOf(i), first.next());
+    }
+    assertThat(values, contains(expected.toArray()));
+    // the first iterator resumes where it was.
+    assertEquals(Integer.valueOf(50), first.next());
+    assertThat(values, contains(expected.toArray()));
+    assertFalse(groups.hasNext());
+  }
+
+  @Test
+  public void testValuesCantBeIteratedAfterNextGroup() throws Exception {
+    Iterator<WindowedValue<KV<String, Iterable<Integer>>>> groups =
+        groupAlsoByWindow(Long.MAX_VALUE, element("a", 1, 1), element("b", 2, 2));
+    Iterable<Integer> values = groups.next().getValue().getValue();
+    assertTrue(groups.hasNext());
+    // the values of the first group which were not read are skipped.
+    assertThat(groups.next().getValue().getValue(), contains(2));
+
+    thrown.expect(IllegalStateException.class);
+    values.iterator();
+  }
+
+  @SafeVarargs
+  private static Iterator<WindowedValue<KV<String, Iterable<Integer>>>> groupAlsoByWindow(
+      long spillThresholdBytes, WindowedValue<KV<String, Integer>>... elements) throws Exception {
+    List<WindowedValue<KV<String, Integer>>> list = new ArrayList<>();
+    for (WindowedValue<KV<String, Integer>> element : elements) {
+      list.add(element);
+    }
+    return new GroupAlsoByWindowViaSortFn<>(WINDOWING_STRATEGY, CODER, spillThresholdBytes)
+        .call(sorted(list));
+  }
+
+  /** Brings the windows to the keys, and sorts the elements by key as Spark would. */
+  private static Iterator<Tuple2<byte[], byte[]>> sorted(
+      List<WindowedValue<KV<String, Integer>>> elements) throws Exception {
+    List<Tuple2<byte[], byte[]>> rows = new ArrayList<>();
+    for (WindowedValue<KV<String, Integer>> element : elements) {
+      Iterators.addAll(
+          rows,
+          GroupAlsoByWindowViaSortFn.bringWindowToKey(
+                  StringUtf8Coder.of(), WINDOWING_STRATEGY.getWindowFn().windowCoder(), CODER)
+              .call(element));
+    }
+    // stable, so the values keep their order within a group.
+    rows.sort((a, b) -> UnsignedBytes.lexicographicalComparator().compare(a._1, b._1));
+    return rows.iterator();
+  }
+
+  private static WindowedValue<KV<String, Integer>> element(
+      String key, int value, long timestampMillis) {
+    Instant timestamp = new Instant(timestampMillis);
+    return WindowedValue.of(
+        KV.of(key, value),
+        timestamp,
+        WINDOWING_STRATEGY.getWindowFn().assignWindow(timestamp),
+        PaneInfo.NO_FIRING);
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.spark.structuredstreaming.translation.batch.functions;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.beam.runners.spark.util.ByteArray;
+import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.transforms.Combine;
+import org.apache.beam.sdk.transforms.CombineFns;
+import org.apache.beam.sdk.transforms.Max;
+import org.apache.beam.sdk.transforms.SimpleFunction;
+import org.apache.beam.sdk.transforms.Sum;
+import org.apache.beam.sdk.transforms.windowing.FixedWindows;
+import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
+import org.apache.beam.sdk.transforms.windowing.PaneInfo;
+import org.apache.beam.sdk.util.WindowedValue;
+import org.apache.beam.sdk.util.WindowedValue.FullWindowedValueCoder;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.TupleTag;
+import org.apache.beam.sdk.values.TypeDescriptors;
+import org.apache.beam.sdk.values.WindowingStrategy;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterators;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import scala.Tuple2;
+
+/** Test of {@link PartialCombineFn} and {@link MergeAccumulatorsFn}. */
+@RunWith(JUnit4.class)
+public class PartialCombineFnTest {
+
+  private static final WindowingStrategy<?, IntervalWindow> WINDOWING_STRATEGY =
+      WindowingStrategy.of(FixedWindows.of(Duration.millis(10)));
+
+  @Test
+  public void testCombinesByKeyAndWindow() throws Exception {
+    List<Tuple2<byte[], byte[]>> partials =
+        partialCombine(
+            Sum.ofIntegers(),
+            Integer.MAX_VALUE,
+            Long.MAX_VALUE,
+            element("a", 1, 1),
+            element("b", 2, 2),
+            element("a", 3, 3),
+            element("a", 5, 11));
+
+    // one accumulator per key and window.
+    assertEquals(3, partials.size());
+    assertThat(
+        merge(Sum.ofIntegers(), partials),
+        containsInAnyOrder(output("a", 4, 1), output("b", 2, 2), output("a", 5, 11)));
+  }
+
+  @Test
+  public void testFlushesWhenFull() throws Exception {
+    List<Tuple2<byte[], byte[]>> partials =
+        partialCombine(
+            Sum.ofIntegers(),
+            1,
+            Long.MAX_VALUE,
+            element("a", 1, 1),
+            element("b", 2, 2),
+            element("a", 3, 3),
+            element("b", 4, 4),
+            element("a", 5, 5));
+
+    // each flush holds a single accumulator, so the keys have several partial accumulators.
+    assertEquals(5, partials.size());
+    assertThat(
+        merge(Sum.ofIntegers(), partials),
+        containsInAnyOrder(output("a", 9, 1), output("b", 6, 2)));
+  }
+
+  @Test
+  public void testFlushesWhenOverSize() throws Exception {
+    List<Tuple2<byte[], byte[]>> partials =
+        partialCombine(
+            Sum.ofIntegers(),
+            Integer.MAX_VALUE,
+            1,
+            element("a", 1, 1),
+            element("a", 3, 3),
+            element("a", 5, 5),
+            element("b", 2, 2));
+
+    // the size is estimated after each of the first inputs, which flushes them one by one.
+    assertEquals(4, partials.size());
+    assertThat(
+        merge(Sum.ofIntegers(), partials),
+        containsInAnyOrder(output("a", 9, 1), output("b", 2, 2)));
+  }
+
+  @Test
+  public void testMergesComposedCombineFns() throws Exception {
+    TupleTag<Integer> sumTag = new TupleTag<>();
+    TupleTag<Integer> maxTag = new TupleTag<>();
+    SimpleFunction<Integer, Integer> identity =
+        SimpleFunction.fromSerializableFunctionWithOutputType(
+            value -> value, TypeDescriptors.integers());
+    CombineFns.ComposedCombineFn<Integer> combineFn =
+        CombineFns.compose()
+            .with(identity, Sum.ofIntegers(), sumTag)
+            .with(identity, Max.ofIntegers(), maxTag);
+
+    // the composed CombineFn iterates the accumulators to merge once per CombineFn.
+    List<Tuple2<byte[], byte[]>> partials =
+        partialCombine(
+            combineFn,
+            1,
+            Long.MAX_VALUE,
+            element("a", 1, 1),
+            element("a", 5, 3),
+            element("a", 3, 5));
+    assertEquals(3, partials.size());
+
+    CombineFns.CoCombineResult result =
+        Iterables.getOnlyElement(merge(combineFn, partials)).getValue().getValue();
+    assertEquals(Integer.valueOf(9), result.get(sumTag));
+    assertEquals(Integer.valueOf(5), result.get(maxTag));
+  }
+
+  @SafeVarargs
+  private static <AccumT> List<Tuple2<byte[], byte[]>> partialCombine(
+      Combine.CombineFn<Integer, AccumT, ?> combineFn,
+      int maxAccumulators,
+      long maxBytes,
+      WindowedValue<KV<String, Integer>>... elements)
+      throws Exception {
+    PartialCombineFn<String, Integer, AccumT, IntervalWindow> fn =
+        new PartialCombineFn<>(
+            combineFn,
+            WINDOWING_STRATEGY,
+            StringUtf8Coder.of(),
+            coder(combineFn),
+            maxAccumulators,
+            maxBytes);
+    List<Tuple2<byte[], byte[]>> partials = new ArrayList<>();
+    Iterators.addAll(partials, fn.call(Arrays.asList(elements).iterator()));
+    return partials;
+  }
+
+  /** Groups the partial accumulators by their key as Spark would, and merges them. */
+  private static <AccumT, OutputT> List<WindowedValue<KV<String, OutputT>>> merge(
+      Combine.CombineFn<Integer, AccumT, OutputT> combineFn, List<Tuple2<byte[], byte[]>> partials)
+      throws Exception {
+    Map<ByteArray, List<Tuple2<byte[], byte[]>>> groups = new HashMap<>();
+    for (Tuple2<byte[], byte[]> partial : partials) {
+      groups.computeIfAbsent(new ByteArray(partial._1), key -> new ArrayList<>()).add(partial);
+    }
+    MergeAccumulatorsFn<String, AccumT, OutputT> fn =
+        new MergeAccumulatorsFn<>(
+            combineFn, WINDOWING_STRATEGY.getTimestampCombiner(), coder(combineFn));
+    List<WindowedValue<KV<String, OutputT>>> outputs = new ArrayList<>();
+    for (Map.Entry<ByteArray, List<Tuple2<byte[], byte[]>>> group : groups.entrySet()) {
+      outputs.add(fn.call(group.getKey().getValue(), group.getValue().iterator()));
+    }
+    return outputs;
+  }
+
+  private static <AccumT> FullWindowedValueCoder<KV<String, AccumT>> coder(
+      Combine.CombineFn<Integer, AccumT, ?> combineFn) throws Exception {
+    return WindowedValue.FullWindowedValueCoder.of(
+        KvCoder.of(
+            StringUtf8Coder.of(),
+            combineFn.getAccumulatorCoder(CoderRegistry.createDefault(), VarIntCoder.of())),
+        WINDOWING_STRATEGY.getWindowFn().windowCoder());
+  }
+
+  private static WindowedValue<KV<String, Integer>> element(
+      String key, int value, long timestampMillis) {
+    Instant timestamp = new Instant(timestampMillis);
+    return WindowedValue.of(
+        KV.of(key, value),
+        timestamp,
+        WINDOWING_STRATEGY.getWindowFn().assignWindow(timestamp),
+        PaneInfo.NO_FIRING);
+  }
+
+  private static WindowedValue<KV<String, Integer>> output(
+      String key, int value, long timestampMillis) {
+    IntervalWindow window =
+        WINDOWING_STRATEGY.getWindowFn().assignWindow(new Instant(timestampMillis));
+    return WindowedValue.of(
+        KV.of(key, value), window.maxTimestamp(), window, PaneInfo.ON_TIME_AND_ONLY_FIRING);
+  }
+}
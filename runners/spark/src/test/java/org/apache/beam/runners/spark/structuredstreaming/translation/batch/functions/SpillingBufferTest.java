@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.spark.structuredstreaming.translation.batch.functions;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterators;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Test class for {@link SpillingBuffer}. */
+@RunWith(JUnit4.class)
+public class SpillingBufferTest {
+  @Rule public final ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void testIteratesInMemoryAndSpilledElements() throws Exception {
+    try (SpillingBuffer buffer = new SpillingBuffer(2)) {
+      buffer.add(new byte[] {1});
+      buffer.add(new byte[] {2});
+      assertFalse(buffer.hasSpilled());
+      buffer.add(new byte[] {3});
+      assertTrue(buffer.hasSpilled());
+
+      Iterator<byte[]> iterator = buffer.iterator(1);
+      buffer.add(new byte[] {4});
+      // the elements added after the iterator was created are not seen.
+      assertArrayEquals(new byte[] {2}, iterator.next());
+      assertArrayEquals(new byte[] {3}, iterator.next());
+      assertFalse(iterator.hasNext());
+      assertEquals(4, Iterators.size(buffer.iterator(0)));
+      assertArrayEquals(new byte[] {4}, Iterators.getOnlyElement(buffer.iterator(3)));
+    }
+  }
+
+  @Test
+  public void testClosingBufferClosesPartiallyReadIterators() throws Exception {
+    SpillingBuffer buffer = new SpillingBuffer(0);
+    for (byte i = 0; i < 3; i++) {
+      buffer.add(new byte[] {i});
+    }
+    Iterator<byte[]> iterator = buffer.iterator(0);
+    assertArrayEquals(new byte[] {0}, iterator.next());
+    buffer.close();
+
+    thrown.expect(UncheckedIOException.class);
+    iterator.next();
+  }
+}
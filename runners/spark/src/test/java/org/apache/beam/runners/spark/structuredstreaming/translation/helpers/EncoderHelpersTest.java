@@ -20,10 +20,21 @@ package org.apache.beam.runners.spark.structuredstreaming.translation.helpers;
 import static org.junit.Assert.assertEquals;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.schemas.SchemaCoder;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
+import org.apache.beam.sdk.transforms.windowing.PaneInfo;
+import org.apache.beam.sdk.util.WindowedValue;
+import org.apache.beam.sdk.values.Row;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructType;
+import org.joda.time.Instant;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -44,4 +55,62 @@ public class EncoderHelpersTest {
         sparkSession.createDataset(data, EncoderHelpers.fromBeamCoder(VarIntCoder.of()));
     assertEquals(data, dataset.collectAsList());
   }
+
+  @Test
+  public void schemaCoderToSparkEncoderTest() {
+    SparkSession sparkSession =
+        SparkSession.builder()
+            .appName("schemaCoderToSparkEncoderTest")
+            .master("local[4]")
+            .getOrCreate();
+    Schema nested = Schema.builder().addStringField("name").build();
+    Schema schema =
+        Schema.builder()
+            .addInt64Field("id")
+            .addNullableField("label", FieldType.STRING)
+            .addDateTimeField("time")
+            .addArrayField("tags", FieldType.STRING)
+            .addMapField("counts", FieldType.STRING, FieldType.INT32)
+            .addRowField("nested", nested)
+            .build();
+    WindowedValue.FullWindowedValueCoder<Row> coder =
+        WindowedValue.FullWindowedValueCoder.of(
+            SchemaCoder.of(schema), GlobalWindow.Coder.INSTANCE);
+    List<WindowedValue<Row>> data =
+        Arrays.asList(
+            WindowedValue.of(
+                Row.withSchema(schema)
+                    .addValues(
+                        1L,
+                        "one",
+                        new Instant(1000),
+                        Arrays.asList("a", "b"),
+                        Collections.singletonMap("a", 1),
+                        Row.withSchema(nested).addValue("first").build())
+                    .build(),
+                new Instant(1),
+                GlobalWindow.INSTANCE,
+                PaneInfo.NO_FIRING),
+            WindowedValue.of(
+                Row.withSchema(schema)
+                    .addValues(
+                        2L,
+                        null,
+                        new Instant(2000),
+                        Collections.emptyList(),
+                        Collections.emptyMap(),
+                        Row.withSchema(nested).addValue("second").build())
+                    .build(),
+                new Instant(2),
+                GlobalWindow.INSTANCE,
+                PaneInfo.ON_TIME_AND_ONLY_FIRING));
+    Dataset<WindowedValue<Row>> dataset =
+        sparkSession.createDataset(data, EncoderHelpers.fromBeamCoder(coder));
+
+    // the fields are mapped to typed Spark columns.
+    StructType valueType = (StructType) dataset.schema().apply("value").dataType();
+    assertEquals(DataTypes.LongType, valueType.apply("id").dataType());
+    assertEquals(DataTypes.TimestampType, valueType.apply("time").dataType());
+    assertEquals(data, dataset.collectAsList());
+  }
 }
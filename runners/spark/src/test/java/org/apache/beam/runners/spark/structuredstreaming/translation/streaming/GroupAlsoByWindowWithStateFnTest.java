@@ -0,0 +1,306 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.spark.structuredstreaming.translation.streaming;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.apache.beam.sdk.transforms.windowing.FixedWindows;
+import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
+import org.apache.beam.sdk.transforms.windowing.PaneInfo;
+import org.apache.beam.sdk.transforms.windowing.TimestampCombiner;
+import org.apache.beam.sdk.util.WindowedValue;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.TimestampedValue;
+import org.apache.beam.sdk.values.WindowingStrategy;
+import org.apache.beam.sdk.values.WindowingStrategy.AccumulationMode;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterators;
+import org.apache.spark.sql.streaming.GroupState;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import scala.Option;
+import scala.Tuple2;
+
+/** Test of {@link GroupAlsoByWindowWithStateFn}. */
+@RunWith(JUnit4.class)
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+public class GroupAlsoByWindowWithStateFnTest {
+
+  private static final FixedWindows WINDOW_FN = FixedWindows.of(Duration.millis(10));
+  private static final IntervalWindow WINDOW = new IntervalWindow(new Instant(0), new Instant(10));
+
+  @Test
+  public void testOutOfOrderValuesFireInOnTimePane() throws Exception {
+    GroupSimulator group = new GroupSimulator(WindowingStrategy.of(WINDOW_FN));
+
+    assertTrue(group.advance(0, 5).isEmpty());
+    // a value arriving out of order, in a later micro-batch, while the window is still open.
+    assertTrue(group.advance(8, 1).isEmpty());
+
+    List<WindowedValue<KV<String, Iterable<Integer>>>> panes = group.advance(10);
+    assertEquals(1, panes.size());
+    assertThat(panes.get(0).getValue().getValue(), containsInAnyOrder(5, 1));
+    assertEquals(WINDOW.maxTimestamp(), panes.get(0).getTimestamp());
+    assertEquals(PaneInfo.ON_TIME_AND_ONLY_FIRING, panes.get(0).getPane());
+    assertFalse(group.state.exists());
+  }
+
+  @Test
+  public void testOnTimePaneFiresWithoutNewValues() throws Exception {
+    GroupSimulator group =
+        new GroupSimulator(
+            WindowingStrategy.of(WINDOW_FN).withTimestampCombiner(TimestampCombiner.EARLIEST));
+
+    assertTrue(group.advance(0, 5, 3).isEmpty());
+    // the watermark has not passed the end of the window yet.
+    assertTrue(group.advance(9).isEmpty());
+
+    List<WindowedValue<KV<String, Iterable<Integer>>>> panes = group.advance(15);
+    assertEquals(1, panes.size());
+    assertThat(panes.get(0).getValue().getValue(), containsInAnyOrder(5, 3));
+    assertEquals(new Instant(3), panes.get(0).getTimestamp());
+  }
+
+  @Test
+  public void testLateValuesFireLatePanes() throws Exception {
+    GroupSimulator group =
+        new GroupSimulator(WindowingStrategy.of(WINDOW_FN).withAllowedLateness(millis(20)));
+
+    group.advance(0, 5);
+    List<WindowedValue<KV<String, Iterable<Integer>>>> onTime = group.advance(15);
+    assertEquals(1, onTime.size());
+    assertThat(onTime.get(0).getValue().getValue(), contains(5));
+    assertEquals(
+        PaneInfo.createPane(true, false, PaneInfo.Timing.ON_TIME), onTime.get(0).getPane());
+
+    List<WindowedValue<KV<String, Iterable<Integer>>>> late = group.advance(16, 3);
+    assertEquals(1, late.size());
+    assertThat(late.get(0).getValue().getValue(), contains(3));
+    assertEquals(WINDOW.maxTimestamp(), late.get(0).getTimestamp());
+    assertEquals(
+        PaneInfo.createPane(false, false, PaneInfo.Timing.LATE, 1, 1), late.get(0).getPane());
+
+    // the window expires at the end of the window plus the allowed lateness.
+    assertTrue(group.advance(29).isEmpty());
+    assertTrue(group.state.exists());
+    assertTrue(group.advance(30).isEmpty());
+    assertFalse(group.state.exists());
+  }
+
+  @Test
+  public void testLatePanesAccumulate() throws Exception {
+    GroupSimulator group =
+        new GroupSimulator(
+            WindowingStrategy.of(WINDOW_FN)
+                .withAllowedLateness(millis(20))
+                .withMode(AccumulationMode.ACCUMULATING_FIRED_PANES));
+
+    group.advance(0, 5);
+    group.advance(15);
+    List<WindowedValue<KV<String, Iterable<Integer>>>> late = group.advance(16, 3);
+    assertEquals(1, late.size());
+    assertThat(late.get(0).getValue().getValue(), containsInAnyOrder(5, 3));
+  }
+
+  @Test
+  public void testFirstValuesAfterEndOfWindowAreLate() throws Exception {
+    GroupSimulator group =
+        new GroupSimulator(WindowingStrategy.of(WINDOW_FN).withAllowedLateness(millis(20)));
+
+    List<WindowedValue<KV<String, Iterable<Integer>>>> late = group.advance(15, 3);
+    assertEquals(1, late.size());
+    assertThat(late.get(0).getValue().getValue(), contains(3));
+    assertEquals(PaneInfo.createPane(true, false, PaneInfo.Timing.LATE), late.get(0).getPane());
+  }
+
+  @Test
+  public void testValuesOfExpiredWindowsAreDropped() throws Exception {
+    GroupSimulator group =
+        new GroupSimulator(WindowingStrategy.of(WINDOW_FN).withAllowedLateness(millis(20)));
+
+    group.advance(0, 5);
+    assertEquals(1, group.advance(15).size());
+    assertTrue(group.advance(31, 3).isEmpty());
+    assertFalse(group.state.exists());
+  }
+
+  @Test
+  public void testTimeoutsAreAfterTheEpoch() throws Exception {
+    // the end of the window is at the epoch, where Spark rejects the timeout.
+    IntervalWindow window = new IntervalWindow(new Instant(-9), new Instant(1));
+    GroupSimulator group = new GroupSimulator(WindowingStrategy.of(WINDOW_FN), window);
+
+    assertTrue(group.advance(0, -5).isEmpty());
+    assertEquals(Long.valueOf(1L), group.state.timeoutMillis);
+    assertTrue(group.advance(1).isEmpty());
+
+    List<WindowedValue<KV<String, Iterable<Integer>>>> panes = group.advance(2);
+    assertEquals(1, panes.size());
+    assertThat(panes.get(0).getValue().getValue(), contains(-5));
+    assertEquals(window.maxTimestamp(), panes.get(0).getTimestamp());
+  }
+
+  private static Duration millis(long millis) {
+    return Duration.millis(millis);
+  }
+
+  /**
+   * Invokes a {@link GroupAlsoByWindowWithStateFn} on the ("key", window) group the way Spark
+   * does: with the new values of a micro-batch, if any, or else once the timeout of the group has
+   * passed.
+   */
+  private static class GroupSimulator {
+    private final GroupAlsoByWindowWithStateFn<String, Integer, IntervalWindow> fn;
+    private final IntervalWindow window;
+    private final FakeGroupState<KV<Long, List<TimestampedValue<Integer>>>> state =
+        new FakeGroupState<>();
+
+    GroupSimulator(WindowingStrategy<?, IntervalWindow> windowingStrategy) {
+      this(windowingStrategy, WINDOW);
+    }
+
+    GroupSimulator(WindowingStrategy<?, IntervalWindow> windowingStrategy, IntervalWindow window) {
+      this.fn = new GroupAlsoByWindowWithStateFn<>(windowingStrategy);
+      this.window = window;
+    }
+
+    List<WindowedValue<KV<String, Iterable<Integer>>>> advance(
+        long watermarkMillis, int... timestamps) throws Exception {
+      state.watermarkMillis = watermarkMillis;
+      List<Tuple2<Timestamp, WindowedValue<KV<String, Integer>>>> values = new ArrayList<>();
+      for (int timestamp : timestamps) {
+        values.add(
+            new Tuple2<>(
+                null,
+                WindowedValue.of(
+                    KV.of("key", timestamp), new Instant(timestamp), window, PaneInfo.NO_FIRING)));
+      }
+      state.hasTimedOut = values.isEmpty();
+      List<WindowedValue<KV<String, Iterable<Integer>>>> panes = new ArrayList<>();
+      if (!values.isEmpty()
+          || (state.timeoutMillis != null && state.timeoutMillis < watermarkMillis)) {
+        state.timeoutMillis = null;
+        Iterators.addAll(panes, fn.call(KV.of("key", window), values.iterator(), state));
+      }
+      return panes;
+    }
+  }
+
+  /** A {@link GroupState} with an event-time timeout. */
+  private static class FakeGroupState<S> implements GroupState<S> {
+    private S value;
+    private Long timeoutMillis;
+    private long watermarkMillis;
+    private boolean hasTimedOut;
+
+    @Override
+    public boolean exists() {
+      return value != null;
+    }
+
+    @Override
+    public S get() {
+      if (value == null) {
+        throw new NoSuchElementException("State is either not defined or has already been removed");
+      }
+      return value;
+    }
+
+    @Override
+    public Option<S> getOption() {
+      return Option.apply(value);
+    }
+
+    @Override
+    public void update(S newValue) {
+      value = newValue;
+    }
+
+    @Override
+    public void remove() {
+      value = null;
+    }
+
+    @Override
+    public boolean hasTimedOut() {
+      return hasTimedOut;
+    }
+
+    @Override
+    public void setTimeoutDuration(long durationMs) {
+      throw new UnsupportedOperationException("Only event-time timeouts are supported");
+    }
+
+    @Override
+    public void setTimeoutDuration(String duration) {
+      throw new UnsupportedOperationException("Only event-time timeouts are supported");
+    }
+
+    @Override
+    public void setTimeoutTimestamp(long timestampMs) {
+      // as Spark does, reject timeouts which are not positive or would be before the watermark.
+      if (timestampMs <= 0) {
+        throw new IllegalArgumentException("Timeout timestamp must be positive");
+      }
+      if (timestampMs < watermarkMillis) {
+        throw new IllegalArgumentException(
+            "Timeout timestamp " + timestampMs + " is before the watermark " + watermarkMillis);
+      }
+      timeoutMillis = timestampMs;
+    }
+
+    @Override
+    public void setTimeoutTimestamp(long timestampMs, String additionalDuration) {
+      throw new UnsupportedOperationException("Additional durations are not supported");
+    }
+
+    @Override
+    public void setTimeoutTimestamp(Date timestamp) {
+      setTimeoutTimestamp(timestamp.getTime());
+    }
+
+    @Override
+    public void setTimeoutTimestamp(Date timestamp, String additionalDuration) {
+      throw new UnsupportedOperationException("Additional durations are not supported");
+    }
+
+    @Override
+    public long getCurrentWatermarkMs() {
+      return watermarkMillis;
+    }
+
+    @Override
+    public long getCurrentProcessingTimeMs() {
+      return System.currentTimeMillis();
+    }
+  }
+}
@@ -0,0 +1,319 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.spark.structuredstreaming.translation.streaming;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.beam.runners.spark.structuredstreaming.SparkStructuredStreamingPipelineOptions;
+import org.apache.beam.runners.spark.structuredstreaming.SparkStructuredStreamingRunner;
+import org.apache.beam.runners.spark.structuredstreaming.translation.TransformTranslator;
+import org.apache.beam.runners.spark.structuredstreaming.translation.TranslationContext;
+import org.apache.beam.runners.spark.structuredstreaming.translation.helpers.EncoderHelpers;
+import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.runners.TransformHierarchy;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.Flatten;
+import org.apache.beam.sdk.transforms.GroupByKey;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.transforms.windowing.FixedWindows;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
+import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
+import org.apache.beam.sdk.transforms.windowing.Window;
+import org.apache.beam.sdk.util.WindowedValue;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PBegin;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionList;
+import org.apache.beam.sdk.values.WindowingStrategy;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Ordering;
+import org.apache.spark.api.java.function.MapFunction;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Encoders;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.streaming.OutputMode;
+import org.apache.spark.sql.streaming.StreamingQuery;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.TestName;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Test class for beam to spark translation in streaming mode. The input lines of a test are read
+ * from the files added to a directory, and each call to {@link #outputs} runs the micro-batches of
+ * the files added so far.
+ */
+@RunWith(JUnit4.class)
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+public class StreamingTranslatorsTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  @Rule public final TestName testName = new TestName();
+
+  private SparkStructuredStreamingPipelineOptions options;
+  private Pipeline pipeline;
+  private SparkSession sparkSession;
+  private StreamingQuery query;
+
+  @Before
+  public void setUp() {
+    options = PipelineOptionsFactory.create().as(SparkStructuredStreamingPipelineOptions.class);
+    options.setRunner(SparkStructuredStreamingRunner.class);
+    options.setStreaming(true);
+    options.setTestMode(true);
+    pipeline = Pipeline.create(options);
+  }
+
+  @After
+  public void tearDown() {
+    if (query != null) {
+      query.stop();
+    }
+  }
+
+  @Test
+  public void testParDo() throws Exception {
+    File directory = temporaryFolder.newFolder();
+    PCollection<String> output =
+        pipeline.apply(new ReadLines(directory)).apply(ParDo.of(new FormatFn()));
+    start(output);
+
+    addLines(directory, "a,1", "b,2");
+    assertThat(values(outputs(output)), containsInAnyOrder("a@1", "b@2"));
+
+    addLines(directory, "a,3");
+    assertThat(values(outputs(output)), containsInAnyOrder("a@1", "b@2", "a@3"));
+  }
+
+  @Test
+  public void testFlatten() throws Exception {
+    File directory1 = temporaryFolder.newFolder();
+    File directory2 = temporaryFolder.newFolder();
+    PCollection<KV<String, Integer>> output =
+        PCollectionList.of(pipeline.apply("Read1", new ReadLines(directory1)))
+            .and(pipeline.apply("Read2", new ReadLines(directory2)))
+            .apply(Flatten.pCollections());
+    start(output);
+
+    addLines(directory1, "a,1");
+    addLines(directory2, "b,2");
+    assertThat(values(outputs(output)), containsInAnyOrder(KV.of("a", 1), KV.of("b", 2)));
+  }
+
+  @Test
+  public void testWindowAssign() throws Exception {
+    File directory = temporaryFolder.newFolder();
+    PCollection<KV<String, Integer>> output =
+        pipeline
+            .apply(new ReadLines(directory))
+            .apply(Window.into(FixedWindows.of(Duration.millis(10))));
+    start(output);
+
+    addLines(directory, "a,1", "b,12");
+    List<BoundedWindow> windows = new ArrayList<>();
+    for (WindowedValue<KV<String, Integer>> value : outputs(output)) {
+      windows.add(Iterables.getOnlyElement(value.getWindows()));
+    }
+    assertThat(
+        windows,
+        containsInAnyOrder(
+            new IntervalWindow(new Instant(0), new Instant(10)),
+            new IntervalWindow(new Instant(10), new Instant(20))));
+  }
+
+  @Test
+  public void testGroupByKey() throws Exception {
+    File directory = temporaryFolder.newFolder();
+    PCollection<KV<String, Iterable<Integer>>> output =
+        pipeline
+            .apply(new ReadLines(directory))
+            .apply(Window.into(FixedWindows.of(Duration.millis(10))))
+            .apply(GroupByKey.create());
+    start(output);
+
+    addLines(directory, "a,1", "a,5", "b,3");
+    assertThat(groups(outputs(output)), empty());
+
+    // a value out of order, while the watermark is not past the end of the first window yet.
+    addLines(directory, "a,7", "a,12");
+    assertThat(groups(outputs(output)), containsInAnyOrder("a@0:[1, 5, 7]", "b@0:[3]"));
+
+    // the value of the first window is late, which is dropped as the window has expired.
+    addLines(directory, "a,2", "a,30");
+    assertThat(
+        groups(outputs(output)), containsInAnyOrder("a@0:[1, 5, 7]", "b@0:[3]", "a@10:[12]"));
+  }
+
+  /** Translates the pipeline and starts a query writing the given output to memory. */
+  private <T> void start(PCollection<T> output) {
+    PipelineTranslatorStreaming translator = new TestPipelineTranslator(options);
+    translator.translate(pipeline);
+    TranslationContext context = translator.getTranslationContext();
+    sparkSession = context.getSparkSession();
+    Dataset<WindowedValue<T>> dataset = context.getDataset(output);
+    query =
+        dataset
+            .writeStream()
+            .format("memory")
+            .queryName(testName.getMethodName())
+            .outputMode(OutputMode.Append())
+            .start();
+  }
+
+  /** Processes the lines added so far and returns all the elements of the given output. */
+  private <T> List<WindowedValue<T>> outputs(PCollection<T> output) {
+    query.processAllAvailable();
+    Coder<WindowedValue<T>> coder =
+        WindowedValue.getFullCoder(
+            output.getCoder(), output.getWindowingStrategy().getWindowFn().windowCoder());
+    return sparkSession
+        .table(testName.getMethodName())
+        .as(EncoderHelpers.fromBeamCoder(coder))
+        .collectAsList();
+  }
+
+  private void addLines(File directory, String... lines) throws IOException {
+    // the file is moved into the directory once written, for Spark not to read it partially.
+    File file = temporaryFolder.newFile();
+    Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+    Files.move(
+        file.toPath(),
+        new File(directory, file.getName()).toPath(),
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static <T> List<T> values(List<WindowedValue<T>> windowedValues) {
+    List<T> values = new ArrayList<>();
+    for (WindowedValue<T> windowedValue : windowedValues) {
+      values.add(windowedValue.getValue());
+    }
+    return values;
+  }
+
+  /** Formats the given groups as "key@window start:[sorted values]". */
+  private static List<String> groups(List<WindowedValue<KV<String, Iterable<Integer>>>> groups) {
+    List<String> formatted = new ArrayList<>();
+    for (WindowedValue<KV<String, Iterable<Integer>>> group : groups) {
+      IntervalWindow window = (IntervalWindow) Iterables.getOnlyElement(group.getWindows());
+      formatted.add(
+          group.getValue().getKey()
+              + "@"
+              + window.start().getMillis()
+              + ":"
+              + Ordering.natural().sortedCopy(group.getValue().getValue()));
+    }
+    return formatted;
+  }
+
+  private static class FormatFn extends DoFn<KV<String, Integer>, String> {
+    @ProcessElement
+    public void processElement(
+        @Element KV<String, Integer> element,
+        @Timestamp Instant timestamp,
+        OutputReceiver<String> receiver) {
+      receiver.output(element.getKey() + "@" + timestamp.getMillis());
+    }
+  }
+
+  /**
+   * Reads the "key,value" lines of the files added to a directory, as elements timestamped with
+   * their value.
+   */
+  private static class ReadLines extends PTransform<PBegin, PCollection<KV<String, Integer>>> {
+    private final String directory;
+
+    ReadLines(File directory) {
+      this.directory = directory.getAbsolutePath();
+    }
+
+    @Override
+    public PCollection<KV<String, Integer>> expand(PBegin input) {
+      return PCollection.createPrimitiveOutputInternal(
+          input.getPipeline(),
+          WindowingStrategy.globalDefault(),
+          PCollection.IsBounded.UNBOUNDED,
+          KvCoder.of(StringUtf8Coder.of(), VarIntCoder.of()));
+    }
+  }
+
+  private static class ReadLinesTranslator implements TransformTranslator<ReadLines> {
+    @Override
+    public void translateTransform(ReadLines transform, TranslationContext context) {
+      Dataset<WindowedValue<KV<String, Integer>>> elements =
+          context
+              .getSparkSession()
+              .readStream()
+              .text(transform.directory)
+              .as(Encoders.STRING())
+              .map(
+                  (MapFunction<String, WindowedValue<KV<String, Integer>>>)
+                      ReadLinesTranslator::parse,
+                  EncoderHelpers.fromBeamCoder(
+                      WindowedValue.getFullCoder(
+                          KvCoder.of(StringUtf8Coder.of(), VarIntCoder.of()),
+                          GlobalWindow.Coder.INSTANCE)));
+      context.putDataset(context.getOutput(), elements);
+    }
+
+    private static WindowedValue<KV<String, Integer>> parse(String line) {
+      String[] keyAndValue = line.split(",");
+      int value = Integer.parseInt(keyAndValue[1]);
+      return WindowedValue.timestampedValueInGlobalWindow(
+          KV.of(keyAndValue[0], value), new Instant(value));
+    }
+  }
+
+  /** Translates the {@link ReadLines} transforms in addition to the streaming translators. */
+  private static class TestPipelineTranslator extends PipelineTranslatorStreaming {
+    TestPipelineTranslator(SparkStructuredStreamingPipelineOptions options) {
+      super(options);
+    }
+
+    @Override
+    protected TransformTranslator<?> getTransformTranslator(TransformHierarchy.Node node) {
+      if (node.getTransform() instanceof ReadLines) {
+        return new ReadLinesTranslator();
+      }
+      return super.getTransformTranslator(node);
+    }
+  }
+}
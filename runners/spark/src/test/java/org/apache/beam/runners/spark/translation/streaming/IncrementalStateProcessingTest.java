@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.spark.translation.streaming;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.apache.beam.runners.spark.ReuseSparkContextRule;
+import org.apache.beam.runners.spark.SparkContextOptions;
+import org.apache.beam.runners.spark.SparkPipelineOptions;
+import org.apache.beam.runners.spark.StreamingTest;
+import org.apache.beam.runners.spark.io.CreateStream;
+import org.apache.beam.runners.spark.stateful.SparkGroupAlsoByWindowViaWindowSet;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.GroupByKey;
+import org.apache.beam.sdk.transforms.MapElements;
+import org.apache.beam.sdk.transforms.windowing.FixedWindows;
+import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
+import org.apache.beam.sdk.transforms.windowing.Window;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.TimestampedValue;
+import org.apache.beam.sdk.values.TypeDescriptors;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
+import org.apache.spark.streaming.api.java.JavaStreamingListener;
+import org.apache.spark.streaming.api.java.JavaStreamingListenerBatchCompleted;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for {@link SparkPipelineOptions#isIncrementalStateProcessing()}, comparing the micro-batch
+ * latency of {@link SparkGroupAlsoByWindowViaWindowSet} with and without it.
+ *
+ * <p>The pipeline holds state for many idle keys, which only fire once the watermark passes the
+ * end of their window, while a few hot keys receive input in every micro-batch. Idle keys must
+ * fire on their end of window timers, even though no micro-batch holds new input for them.
+ */
+@Category(StreamingTest.class)
+public class IncrementalStateProcessingTest implements Serializable {
+  private static final Logger LOG = LoggerFactory.getLogger(IncrementalStateProcessingTest.class);
+
+  private static final int NUM_IDLE_KEYS = 2000;
+  private static final int NUM_HOT_KEYS = 10;
+  private static final int NUM_BATCHES = 10;
+
+  private static final Queue<Long> processingDelays = new ConcurrentLinkedQueue<>();
+
+  @Rule public final transient TestPipeline p = TestPipeline.create();
+  @Rule public final transient ReuseSparkContextRule noContextReuse = ReuseSparkContextRule.no();
+
+  @Test
+  public void testMicroBatchLatencyWithUpdateStateByKey() {
+    runGroupByKey(false);
+  }
+
+  @Test
+  public void testMicroBatchLatencyWithMapWithState() {
+    runGroupByKey(true);
+  }
+
+  @Test
+  public void testTimersFireForKeysWithoutNewInputWithUpdateStateByKey() {
+    runTimersWithoutNewInput(false);
+  }
+
+  @Test
+  public void testTimersFireForKeysWithoutNewInputWithMapWithState() {
+    runTimersWithoutNewInput(true);
+  }
+
+  /**
+   * Holds state for keys which only receive input in the first micro-batch, then passes the end of
+   * their window in a micro-batch without input and sends late input for them in the next one.
+   * Their on time panes only hold the first input if their end of window timers fired in the
+   * micro-batch without input.
+   */
+  @SuppressWarnings("unchecked")
+  private void runTimersWithoutNewInput(boolean incrementalStateProcessing) {
+    SparkPipelineOptions options = p.getOptions().as(SparkPipelineOptions.class);
+    options.setIncrementalStateProcessing(incrementalStateProcessing);
+
+    Instant instant = new Instant(0);
+    Duration windowSize = Duration.standardHours(1);
+    List<TimestampedValue<KV<Integer, Integer>>> onTime = new ArrayList<>();
+    List<TimestampedValue<KV<Integer, Integer>>> late = new ArrayList<>();
+    List<String> expectedOnTime = new ArrayList<>();
+    for (int key = 0; key < NUM_IDLE_KEYS; key++) {
+      onTime.add(TimestampedValue.of(KV.of(key, 1), instant));
+      late.add(TimestampedValue.of(KV.of(key, 2), instant));
+      expectedOnTime.add(key + ":1");
+    }
+    CreateStream<KV<Integer, Integer>> source =
+        CreateStream.of(
+                KvCoder.of(VarIntCoder.of(), VarIntCoder.of()),
+                Duration.millis(options.getBatchIntervalMillis()))
+            .nextBatch(onTime.toArray(new TimestampedValue[0]))
+            .advanceWatermarkForNextBatch(instant.plus(windowSize).plus(windowSize))
+            .emptyBatch()
+            .nextBatch(late.toArray(new TimestampedValue[0]))
+            .advanceNextBatchWatermarkToInfinity();
+
+    PCollection<String> sums =
+        p.apply(source)
+            .apply(
+                Window.<KV<Integer, Integer>>into(FixedWindows.of(windowSize))
+                    .withAllowedLateness(Duration.standardDays(1)))
+            .apply(GroupByKey.create())
+            .apply(
+                MapElements.into(TypeDescriptors.strings())
+                    .via(kv -> kv.getKey() + ":" + sum(kv.getValue())));
+
+    IntervalWindow window = new IntervalWindow(instant, windowSize);
+    PAssert.that(sums).inOnTimePane(window).containsInAnyOrder(expectedOnTime);
+    p.run();
+  }
+
+  private static int sum(Iterable<Integer> values) {
+    int sum = 0;
+    for (int value : values) {
+      sum += value;
+    }
+    return sum;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void runGroupByKey(boolean incrementalStateProcessing) {
+    processingDelays.clear();
+    SparkContextOptions options = p.getOptions().as(SparkContextOptions.class);
+    options.setIncrementalStateProcessing(incrementalStateProcessing);
+    options.setListeners(Collections.singletonList(new ProcessingDelayListener()));
+
+    Instant instant = new Instant(0);
+    List<TimestampedValue<KV<Integer, Integer>>> idle = new ArrayList<>();
+    for (int key = NUM_HOT_KEYS; key < NUM_HOT_KEYS + NUM_IDLE_KEYS; key++) {
+      idle.add(TimestampedValue.of(KV.of(key, 1), instant));
+    }
+    CreateStream<KV<Integer, Integer>> source =
+        CreateStream.of(
+                KvCoder.of(VarIntCoder.of(), VarIntCoder.of()),
+                Duration.millis(options.getBatchIntervalMillis()))
+            .nextBatch(idle.toArray(new TimestampedValue[0]));
+    for (int batch = 0; batch < NUM_BATCHES; batch++) {
+      List<TimestampedValue<KV<Integer, Integer>>> hot = new ArrayList<>();
+      for (int key = 0; key < NUM_HOT_KEYS; key++) {
+        hot.add(TimestampedValue.of(KV.of(key, 1), instant.plus(Duration.standardSeconds(batch))));
+      }
+      source =
+          source
+              .advanceWatermarkForNextBatch(instant.plus(Duration.standardSeconds(batch)))
+              .nextBatch(hot.toArray(new TimestampedValue[0]));
+    }
+    // allow a few more micro-batches for the end of window timers to fire.
+    source = source.advanceNextBatchWatermarkToInfinity().emptyBatch().emptyBatch().emptyBatch();
+
+    PCollection<String> counts =
+        p.apply(source)
+            .apply(Window.into(FixedWindows.of(Duration.standardHours(1))))
+            .apply(GroupByKey.create())
+            .apply(
+                MapElements.into(TypeDescriptors.strings())
+                    .via(kv -> kv.getKey() + ":" + Iterables.size(kv.getValue())));
+
+    List<String> expected = new ArrayList<>();
+    for (int key = 0; key < NUM_HOT_KEYS + NUM_IDLE_KEYS; key++) {
+      expected.add(key + ":" + (key < NUM_HOT_KEYS ? NUM_BATCHES : 1));
+    }
+    // the idle keys only fire with the end of window timers, as they receive no further input.
+    IntervalWindow window = new IntervalWindow(instant, Duration.standardHours(1));
+    PAssert.that(counts).inOnTimePane(window).containsInAnyOrder(expected);
+    p.run();
+
+    assertThat(processingDelays.size(), greaterThan(0));
+    long totalDelay = 0;
+    for (long delay : processingDelays) {
+      totalDelay += delay;
+    }
+    LOG.info(
+        "Average micro-batch processing delay with incrementalStateProcessing={}: {} ms over {} "
+            + "micro-batches.",
+        incrementalStateProcessing,
+        totalDelay / processingDelays.size(),
+        processingDelays.size());
+  }
+
+  /** Records the processing delay of every completed micro-batch. */
+  private static class ProcessingDelayListener extends JavaStreamingListener {
+    @Override
+    public void onBatchCompleted(JavaStreamingListenerBatchCompleted batchCompleted) {
+      processingDelays.add(batchCompleted.batchInfo().processingDelay());
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.coders;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkState;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.BitSet;
+import java.util.Objects;
+import org.apache.beam.sdk.annotations.Experimental;
+import org.apache.beam.sdk.annotations.Experimental.Kind;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.SchemaCoder;
+import org.apache.beam.sdk.util.VarInt;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.sdk.values.RowWithEncodedValues;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.io.ByteStreams;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@link Coder} for {@link Row}s of a given schema whose encoding allows decoding individual
+ * fields. Used by {@link SchemaCoder#withLazyDecoding()}.
+ *
+ * <p>The encoding consists of the number of fields, a bitmap of the null fields and the length of
+ * the encoding of every non-null field, followed by the encodings of the non-null fields. Decoding
+ * reads the lengths into an offset table and returns a {@link RowWithEncodedValues} that decodes
+ * each field when it is first accessed. Encoding a {@link RowWithEncodedValues} of a compatible
+ * schema copies its encoded fields without decoding them.
+ *
+ * <p>Like the encoding of {@link RowCoder}, fields that were added to the end of the schema are
+ * decoded as null, and fields that were removed from the end of the schema are dropped.
+ */
+@Experimental(Kind.SCHEMAS)
+@SuppressWarnings({
+  "nullness", // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+  "rawtypes"
+})
+public class LazyRowCoder extends CustomCoder<Row> {
+  private static final BitSetCoder NULL_LIST_CODER = BitSetCoder.of();
+
+  private final Schema schema;
+  private final Coder[] fieldCoders;
+
+  public static LazyRowCoder of(Schema schema) {
+    return new LazyRowCoder(schema);
+  }
+
+  private LazyRowCoder(Schema schema) {
+    this.schema = schema;
+    this.fieldCoders = new Coder[schema.getFieldCount()];
+    for (int i = 0; i < schema.getFieldCount(); ++i) {
+      // Nulls are tracked in the bitmap, so the field coders do not need to handle them.
+      fieldCoders[i] =
+          SchemaCoder.coderForFieldType(schema.getField(i).getType().withNullable(false));
+    }
+  }
+
+  public Schema getSchema() {
+    return schema;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void encode(Row value, OutputStream outStream) throws IOException {
+    int fieldCount = value.getFieldCount();
+    checkState(fieldCount == schema.getFieldCount());
+    if (value instanceof RowWithEncodedValues
+        && ((RowWithEncodedValues) value).isEncodedWith(fieldCoders)) {
+      encodeWithoutDecoding((RowWithEncodedValues) value, outStream);
+      return;
+    }
+
+    BitSet nullFields = new BitSet(fieldCount);
+    int[] ends = new int[fieldCount];
+    ByteArrayOutputStream encodedFields = new ByteArrayOutputStream();
+    for (int i = 0; i < fieldCount; ++i) {
+      Object fieldValue = value.getValue(i);
+      if (fieldValue == null) {
+        nullFields.set(i);
+      } else {
+        fieldCoders[i].encode(fieldValue, encodedFields);
+      }
+      ends[i] = encodedFields.size();
+    }
+
+    VarInt.encode(fieldCount, outStream);
+    NULL_LIST_CODER.encode(nullFields, outStream);
+    int start = 0;
+    for (int i = 0; i < fieldCount; ++i) {
+      if (!nullFields.get(i)) {
+        VarInt.encode(ends[i] - start, outStream);
+      }
+      start = ends[i];
+    }
+    encodedFields.writeTo(outStream);
+  }
+
+  private void encodeWithoutDecoding(RowWithEncodedValues value, OutputStream outStream)
+      throws IOException {
+    int fieldCount = value.getFieldCount();
+    BitSet nullFields = new BitSet(fieldCount);
+    for (int i = 0; i < fieldCount; ++i) {
+      nullFields.set(i, value.isNull(i));
+    }
+    VarInt.encode(fieldCount, outStream);
+    NULL_LIST_CODER.encode(nullFields, outStream);
+    for (int i = 0; i < fieldCount; ++i) {
+      if (!nullFields.get(i)) {
+        VarInt.encode(value.getEncodedLength(i), outStream);
+      }
+    }
+    for (int i = 0; i < fieldCount; ++i) {
+      if (!nullFields.get(i)) {
+        value.writeEncodedValue(i, outStream);
+      }
+    }
+  }
+
+  @Override
+  public Row decode(InputStream inStream) throws IOException {
+    int encodedFieldCount = VarInt.decodeInt(inStream);
+    BitSet nullFields = NULL_LIST_CODER.decode(inStream);
+
+    int fieldCount = fieldCoders.length;
+    int[] offsets = new int[fieldCount];
+    int[] lengths = new int[fieldCount];
+    int totalLength = 0;
+    int droppedLength = 0;
+    for (int i = 0; i < encodedFieldCount; ++i) {
+      if (nullFields.get(i)) {
+        continue;
+      }
+      int length = VarInt.decodeInt(inStream);
+      if (i < fieldCount) {
+        offsets[i] = totalLength;
+        lengths[i] = length;
+        totalLength += length;
+      } else {
+        // In the case of a schema change going backwards, drop the extra fields.
+        droppedLength += length;
+      }
+    }
+    // If the schema was evolved to contain more fields, fill them in with nulls.
+    if (encodedFieldCount < fieldCount) {
+      nullFields.set(encodedFieldCount, fieldCount);
+    }
+
+    byte[] encoded = new byte[totalLength];
+    ByteStreams.readFully(inStream, encoded);
+    ByteStreams.skipFully(inStream, droppedLength);
+    return Row.withSchema(schema)
+        .withEncodedValues(fieldCoders, nullFields, offsets, lengths, encoded);
+  }
+
+  @Override
+  public void verifyDeterministic() throws NonDeterministicException {
+    verifyDeterministic(this, "All fields must have deterministic encoding", fieldCoders);
+  }
+
+  @Override
+  public boolean consistentWithEquals() {
+    return true;
+  }
+
+  @Override
+  public boolean equals(@Nullable Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return schema.equals(((LazyRowCoder) o).schema);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(schema);
+  }
+
+  @Override
+  public String toString() {
+    return "LazyRowCoder<" + schema + ">";
+  }
+}
@@ -41,6 +41,7 @@ import org.apache.beam.sdk.coders.AvroCoder;
 import org.apache.beam.sdk.coders.CannotProvideCoderException;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.coders.RowCoder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.io.FileBasedSink.FilenamePolicy;
 import org.apache.beam.sdk.io.FileIO.MatchConfiguration;
@@ -60,6 +61,7 @@ import org.apache.beam.sdk.transforms.display.DisplayData;
 import org.apache.beam.sdk.values.PBegin;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PDone;
+import org.apache.beam.sdk.values.Row;
 import org.apache.beam.sdk.values.TypeDescriptors;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.annotations.VisibleForTesting;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Function;
@@ -201,6 +203,13 @@ import org.joda.time.Duration;
  *     p.apply(AvroIO.read(...).from(...).withBeamSchemas(true));
  * }</pre>
  *
+ * <p>If only the Beam {@link Row}s are needed, {@link #readRows} decodes the Avro files directly
+ * into rows, which avoids allocating an intermediate {@link GenericRecord} per record:
+ *
+ * <pre>{@code
+ * PCollection<Row> rows = p.apply(AvroIO.readRows(schema).from(...));
+ * }</pre>
+ *
  * <h3>Inferring Beam schemas from Avro PCollections</h3>
  *
  * <p>If you created an Avro-based PCollection by other means e.g. reading records from Kafka or as
@@ -424,6 +433,38 @@ public class AvroIO {
         .build();
   }
 
+  /**
+   * Reads Avro file(s) containing records of the specified schema directly into Beam {@link Row}s.
+   * The Beam schema of the output is {@link AvroUtils#toBeamSchema} of the specified schema.
+   *
+   * <p>Records are decoded without going through an intermediate {@link GenericRecord}, and fields
+   * of the files' writer schema that are not part of the specified schema are skipped.
+   */
+  @Experimental(Kind.SCHEMAS)
+  public static Read<Row> readRows(Schema schema) {
+    return new AutoValue_AvroIO_Read.Builder<Row>()
+        .setMatchConfiguration(MatchConfiguration.create(EmptyMatchTreatment.DISALLOW))
+        .setRecordClass(Row.class)
+        .setSchema(schema)
+        .setInferBeamSchema(true)
+        .setHintMatchesManyFiles(false)
+        .build();
+  }
+
+  /**
+   * Like {@link #readRows(Schema)}, but for a {@link PCollection} of {@link ReadableFile}, for
+   * example, returned by {@link FileIO#readMatches}.
+   */
+  @Experimental(Kind.SCHEMAS)
+  public static ReadFiles<Row> readFilesRows(Schema schema) {
+    return new AutoValue_AvroIO_ReadFiles.Builder<Row>()
+        .setRecordClass(Row.class)
+        .setSchema(schema)
+        .setInferBeamSchema(true)
+        .setDesiredBundleSizeBytes(DEFAULT_BUNDLE_SIZE_BYTES)
+        .build();
+  }
+
   /**
    * Reads Avro file(s) containing records of the specified schema. The schema is specified as a
    * JSON-encoded string.
@@ -570,9 +611,21 @@ public class AvroIO {
   @Experimental(Kind.SCHEMAS)
   private static <T> PCollection<T> setBeamSchema(
       PCollection<T> pc, Class<T> clazz, @Nullable Schema schema) {
+    if (clazz == Row.class) {
+      // Rows are already produced with a RowCoder for the Beam schema of the Avro schema.
+      return pc;
+    }
     return pc.setCoder(AvroUtils.schemaCoder(clazz, schema));
   }
 
+  @SuppressWarnings("unchecked")
+  private static <T> Coder<T> createOutputCoder(Class<T> recordClass, Schema schema) {
+    if (recordClass == Row.class) {
+      return (Coder<T>) RowCoder.of(AvroUtils.toBeamSchema(schema));
+    }
+    return AvroCoder.of(recordClass, schema);
+  }
+
   /**
    * 64MB is a reasonable value that allows to amortize the cost of opening files, but is not so
    * large as to exhaust a typical runner's maximum amount of output per ProcessElement call.
@@ -696,10 +749,14 @@ public class AvroIO {
       }
 
       // All other cases go through FileIO + ReadFiles
-      ReadFiles<T> readFiles =
-          (getRecordClass() == GenericRecord.class)
-              ? (ReadFiles<T>) readFilesGenericRecords(getSchema())
-              : readFiles(getRecordClass());
+      ReadFiles<T> readFiles;
+      if (getRecordClass() == GenericRecord.class) {
+        readFiles = (ReadFiles<T>) readFilesGenericRecords(getSchema());
+      } else if (getRecordClass() == Row.class) {
+        readFiles = (ReadFiles<T>) readFilesRows(getSchema());
+      } else {
+        readFiles = readFiles(getRecordClass());
+      }
       return input
           .apply("Create filepattern", Create.ofProvider(getFilepattern(), StringUtf8Coder.of()))
           .apply("Match All", FileIO.matchAll().withConfiguration(getMatchConfiguration()))
@@ -736,6 +793,9 @@ public class AvroIO {
       if (readerFactory != null) {
         source = source.withDatumReaderFactory(readerFactory);
       }
+      if (recordClass == Row.class) {
+        return (AvroSource<T>) source.withRowSchema(schema);
+      }
       return recordClass == GenericRecord.class
           ? (AvroSource<T>) source.withSchema(schema)
           : source.withSchema(recordClass);
@@ -804,7 +864,7 @@ public class AvroIO {
                   getDesiredBundleSizeBytes(),
                   new CreateSourceFn<>(
                       getRecordClass(), getSchema().toString(), getDatumReaderFactory()),
-                  AvroCoder.of(getRecordClass(), getSchema())));
+                  createOutputCoder(getRecordClass(), getSchema())));
       return getInferBeamSchema() ? setBeamSchema(read, getRecordClass(), getSchema()) : read;
     }
 
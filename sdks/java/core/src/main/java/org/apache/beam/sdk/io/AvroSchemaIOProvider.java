@@ -97,13 +97,9 @@ public class AvroSchemaIOProvider implements SchemaIOProvider {
       return new PTransform<PBegin, PCollection<Row>>() {
         @Override
         public PCollection<Row> expand(PBegin begin) {
-          return begin
-              .apply(
-                  "AvroIORead",
-                  AvroIO.readGenericRecords(AvroUtils.toAvroSchema(dataSchema, null, null))
-                      .withBeamSchemas(true)
-                      .from(location))
-              .apply("ToRows", Convert.toRows());
+          return begin.apply(
+              "AvroIORead",
+              AvroIO.readRows(AvroUtils.toAvroSchema(dataSchema, null, null)).from(location));
         }
       };
     }
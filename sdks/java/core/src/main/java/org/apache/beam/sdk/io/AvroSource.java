@@ -22,7 +22,6 @@ import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Prec
 import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkNotNull;
 import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkState;
 
-import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -37,6 +36,7 @@ import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 import java.util.WeakHashMap;
 import java.util.zip.Inflater;
@@ -52,18 +52,23 @@ import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.reflect.ReflectData;
 import org.apache.avro.reflect.ReflectDatumReader;
+import org.apache.avro.util.ByteBufferInputStream;
 import org.apache.beam.sdk.PipelineRunner;
 import org.apache.beam.sdk.annotations.Experimental;
 import org.apache.beam.sdk.annotations.Experimental.Kind;
 import org.apache.beam.sdk.coders.AvroCoder;
 import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.RowCoder;
 import org.apache.beam.sdk.io.fs.EmptyMatchTreatment;
 import org.apache.beam.sdk.io.fs.MatchResult.Metadata;
 import org.apache.beam.sdk.io.fs.ResourceId;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.ValueProvider;
+import org.apache.beam.sdk.schemas.utils.AvroRowDatumReader;
+import org.apache.beam.sdk.schemas.utils.AvroUtils;
 import org.apache.beam.sdk.transforms.SerializableFunction;
 import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.Row;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.annotations.VisibleForTesting;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.MoreObjects;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
@@ -149,17 +154,20 @@ public class AvroSource<T> extends BlockBasedSource<T> {
 
   private static final DatumReaderFactory<?> REFLECT_DATUM_READER_FACTORY = ReflectDatumReader::new;
 
+  private static final DatumReaderFactory<?> ROW_DATUM_READER_FACTORY = AvroRowDatumReader::new;
+
   // Use cases of AvroSource are:
   // 1) AvroSource<GenericRecord> Reading GenericRecord records with a specified schema.
   // 2) AvroSource<Foo> Reading records of a generated Avro class Foo.
   // 3) AvroSource<T> Reading GenericRecord records with an unspecified schema
   //    and converting them to type T.
-  //                     |    Case 1     |    Case 2   |     Case 3    |
-  // type                | GenericRecord |     Foo     | GenericRecord |
-  // readerSchemaString  |    non-null   |   non-null  |     null      |
-  // parseFn             |      null     |     null    |   non-null    |
-  // outputCoder         |      null     |     null    |   non-null    |
-  // readerFactory       |     either    |    either   |    either     |
+  // 4) AvroSource<Row> Decoding records of a specified schema directly into Beam Rows.
+  //                     |    Case 1     |    Case 2   |     Case 3    |  Case 4  |
+  // type                | GenericRecord |     Foo     | GenericRecord |   Row    |
+  // readerSchemaString  |    non-null   |   non-null  |     null      | non-null |
+  // parseFn             |      null     |     null    |   non-null    |   null   |
+  // outputCoder         |      null     |     null    |   non-null    | non-null |
+  // readerFactory       |     either    |    either   |    either     | non-null |
   private static class Mode<T> implements Serializable {
     private final Class<?> type;
 
@@ -191,7 +199,7 @@ public class AvroSource<T> extends BlockBasedSource<T> {
     }
 
     private Coder<T> getOutputCoder() {
-      if (parseFn == null) {
+      if (outputCoder == null) {
         return AvroCoder.of((Class<T>) type, internOrParseSchemaString(readerSchemaString));
       } else {
         return outputCoder;
@@ -232,6 +240,12 @@ public class AvroSource<T> extends BlockBasedSource<T> {
     return new Mode<>(clazz, ReflectData.get().getSchema(clazz).toString(), null, null, factory);
   }
 
+  private static Mode<Row> readRowsWithSchema(String schema) {
+    Coder<Row> outputCoder =
+        RowCoder.of(AvroUtils.toBeamSchema(internOrParseSchemaString(schema)));
+    return new Mode<>(Row.class, schema, null, outputCoder, ROW_DATUM_READER_FACTORY);
+  }
+
   private static <T> Mode<T> parseGenericRecords(
       SerializableFunction<GenericRecord, T> parseFn,
       Coder<T> outputCoder,
@@ -306,6 +320,37 @@ public class AvroSource<T> extends BlockBasedSource<T> {
         readGeneratedClasses(clazz, mode.readerFactory));
   }
 
+  /**
+   * Reads files containing records that conform to the given schema, decoding them directly into
+   * Beam {@link Row}s with the Beam schema {@link AvroUtils#toBeamSchema} of that schema.
+   *
+   * <p>Unlike reading {@link GenericRecord}s and converting them with {@link
+   * AvroUtils#toBeamRowStrict}, this does not allocate an intermediate record per element, and
+   * fields that are not part of the given schema are skipped without being decoded.
+   */
+  public AvroSource<Row> withRowSchema(String schema) {
+    checkArgument(schema != null, "schema can not be null");
+    if (getMode() == SINGLE_FILE_OR_SUBRANGE) {
+      return new AvroSource<>(
+          getSingleFileMetadata(),
+          getMinBundleSize(),
+          getStartOffset(),
+          getEndOffset(),
+          readRowsWithSchema(schema));
+    }
+    return new AvroSource<>(
+        getFileOrPatternSpecProvider(),
+        getEmptyMatchTreatment(),
+        getMinBundleSize(),
+        readRowsWithSchema(schema));
+  }
+
+  /** Like {@link #withRowSchema(String)}. */
+  public AvroSource<Row> withRowSchema(Schema schema) {
+    checkArgument(schema != null, "schema can not be null");
+    return withRowSchema(schema.toString());
+  }
+
   /**
    * Reads {@link GenericRecord} of unspecified schema and maps them to instances of a custom type
    * using the given {@code parseFn} and encoded using the given coder.
@@ -593,8 +638,9 @@ public class AvroSource<T> extends BlockBasedSource<T> {
      *   <li>"null" (the string, not the value): Uncompressed data
      * </ul>
      */
-    private static InputStream decodeAsInputStream(byte[] data, String codec) throws IOException {
-      ByteArrayInputStream byteStream = new ByteArrayInputStream(data);
+    private static InputStream decodeAsInputStream(ByteBuffer data, String codec)
+        throws IOException {
+      InputStream byteStream = new ByteBufferInputStream(Collections.singletonList(data));
       switch (codec) {
         case DataFileConstants.SNAPPY_CODEC:
           return new SnappyCompressorInputStream(byteStream, 1 << 16 /* Avro uses 64KB blocks */);
@@ -613,7 +659,8 @@ public class AvroSource<T> extends BlockBasedSource<T> {
       }
     }
 
-    AvroBlock(byte[] data, long numRecords, Mode<T> mode, String writerSchemaString, String codec)
+    AvroBlock(
+        ByteBuffer data, long numRecords, Mode<T> mode, String writerSchemaString, String codec)
         throws IOException {
       this.mode = mode;
       this.numRecords = numRecords;
@@ -625,10 +672,13 @@ public class AvroSource<T> extends BlockBasedSource<T> {
 
       this.reader = mode.createReader(writerSchema, readerSchema);
 
-      if (codec.equals(DataFileConstants.NULL_CODEC)) {
+      if (codec.equals(DataFileConstants.NULL_CODEC) && data.hasArray()) {
         // Avro can read from a byte[] using a more efficient implementation.  If the input is not
         // compressed, pass the data in directly.
-        this.decoder = DecoderFactory.get().binaryDecoder(data, null);
+        this.decoder =
+            DecoderFactory.get()
+                .binaryDecoder(
+                    data.array(), data.arrayOffset() + data.position(), data.remaining(), null);
       } else {
         this.decoder = DecoderFactory.get().binaryDecoder(decodeAsInputStream(data, codec), null);
       }
@@ -701,6 +751,10 @@ public class AvroSource<T> extends BlockBasedSource<T> {
     // Initialized in readNextBlock.
     private @Nullable BinaryDecoder decoder;
 
+    // Set in startReading if the file is memory-mapped, in which case blocks are read as views of
+    // the mapped file rather than copied into a new array.
+    private @Nullable MemoryMappedFileChannel mappedChannel;
+
     /** Reads Avro records of type {@code T} from the specified source. */
     public AvroReader(AvroSource<T> source) {
       super(source);
@@ -741,13 +795,7 @@ public class AvroSource<T> extends BlockBasedSource<T> {
 
       // Create the current block by reading blockSize bytes. Block sizes permitted by the Avro
       // specification are [32, 2^30], so the cast is safe.
-      byte[] data = new byte[(int) blockSize];
-      int bytesRead = IOUtils.readFully(stream, data);
-      checkState(
-          blockSize == bytesRead,
-          "Only able to read %s/%s bytes in the block before EOF reached.",
-          bytesRead,
-          blockSize);
+      ByteBuffer data = readBlockData((int) blockSize);
       currentBlock =
           new AvroBlock<>(
               data,
@@ -760,7 +808,7 @@ public class AvroSource<T> extends BlockBasedSource<T> {
       byte[] syncMarker = metadata.getSyncMarker();
       byte[] readSyncMarker = new byte[syncMarker.length];
       long syncMarkerOffset = startOfNextBlock + headerSize + blockSize;
-      bytesRead = IOUtils.readFully(stream, readSyncMarker);
+      int bytesRead = IOUtils.readFully(stream, readSyncMarker);
       checkState(
           bytesRead == syncMarker.length,
           "Only able to read %s/%s bytes of Avro sync marker at position %s before EOF reached.",
@@ -787,6 +835,30 @@ public class AvroSource<T> extends BlockBasedSource<T> {
       return true;
     }
 
+    private ByteBuffer readBlockData(int blockSize) throws IOException {
+      ByteBuffer view =
+          (mappedChannel == null || blockSize == 0) ? null : mappedChannel.readView(blockSize);
+      if (view != null && view.remaining() == blockSize) {
+        return view;
+      }
+
+      // Either the file is not mapped, or the block spans two mapped segments or is truncated, in
+      // which case what is mapped is copied and the rest of the block is read from the stream.
+      byte[] data = new byte[blockSize];
+      int bytesRead = 0;
+      if (view != null) {
+        bytesRead = view.remaining();
+        view.get(data, 0, bytesRead);
+      }
+      bytesRead += IOUtils.readFully(stream, data, bytesRead, blockSize - bytesRead);
+      checkState(
+          blockSize == bytesRead,
+          "Only able to read %s/%s bytes in the block before EOF reached.",
+          bytesRead,
+          blockSize);
+      return ByteBuffer.wrap(data);
+    }
+
     @Override
     public AvroBlock<T> getCurrentBlock() {
       return currentBlock;
@@ -855,10 +927,20 @@ public class AvroSource<T> extends BlockBasedSource<T> {
       // Satisfy the post condition.
       stream = createStream(channel);
       countStream = new CountingInputStream(stream);
+      long firstBlockOffset = startOffset + advancePastNextSyncMarker(stream, syncMarker);
       synchronized (progressLock) {
-        currentBlockOffset = startOffset + advancePastNextSyncMarker(stream, syncMarker);
+        currentBlockOffset = firstBlockOffset;
         currentBlockSizeBytes = 0;
       }
+
+      if (channel instanceof MemoryMappedFileChannel) {
+        // Drop the bytes pushed back while seeking the sync marker, so that the position of the
+        // channel is exactly the position of the stream and blocks can be viewed in the mapping.
+        mappedChannel = (MemoryMappedFileChannel) channel;
+        mappedChannel.position(firstBlockOffset);
+        stream = createStream(channel);
+        countStream = new CountingInputStream(stream);
+      }
     }
 
     /**
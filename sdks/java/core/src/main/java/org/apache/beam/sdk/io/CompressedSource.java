@@ -95,6 +95,9 @@ public class CompressedSource<T> extends FileBasedSource<T> {
     /** @see Compression#ZSTD */
     ZSTD(Compression.ZSTD),
 
+    /** @see Compression#LZ4 */
+    LZ4(Compression.LZ4),
+
     /** @see Compression#LZO */
     LZO(Compression.LZO),
 
@@ -149,6 +152,9 @@ public class CompressedSource<T> extends FileBasedSource<T> {
         case ZSTD:
           return ZSTD;
 
+        case LZ4:
+          return LZ4;
+
         case LZO:
           return LZO;
 
@@ -17,8 +17,12 @@
  */
 package org.apache.beam.sdk.io;
 
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PushbackInputStream;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
@@ -35,11 +39,21 @@ import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
 import org.apache.commons.compress.compressors.deflate.DeflateCompressorInputStream;
 import org.apache.commons.compress.compressors.deflate.DeflateCompressorOutputStream;
+import org.apache.commons.compress.compressors.deflate.DeflateParameters;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorInputStream;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorOutputStream;
 import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
 import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
-/** Various compression types for reading/writing files. */
+/**
+ * Various compression types for reading/writing files.
+ *
+ * <p>Files are written with the default compression level of each codec. Use {@link
+ * CompressionParameters} to choose a different level, or to compress {@link #ZSTD} with several
+ * worker threads.
+ */
 @SuppressWarnings("ImmutableEnumChecker")
 public enum Compression {
   /**
@@ -79,7 +93,7 @@ public enum Compression {
       // Determine if the input stream is gzipped. The input stream returned from the
       // GCS connector may already be decompressed; GCS does this based on the
       // content-encoding property.
-      PushbackInputStream stream = new PushbackInputStream(Channels.newInputStream(channel), 2);
+      PushbackInputStream stream = new PushbackInputStream(newBufferedInputStream(channel), 2);
       byte[] headerBytes = new byte[2];
       int bytesRead =
           ByteStreams.read(
@@ -99,6 +113,18 @@ public enum Compression {
     public WritableByteChannel writeCompressed(WritableByteChannel channel) throws IOException {
       return Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(channel), true));
     }
+
+    @Override
+    WritableByteChannel writeCompressed(
+        WritableByteChannel channel, @Nullable Integer level, @Nullable Integer workers)
+        throws IOException {
+      checkArgument(workers == null, WORKERS_UNSUPPORTED, this);
+      if (level == null) {
+        return writeCompressed(channel);
+      }
+      return Channels.newChannel(
+          new LeveledGzipOutputStream(Channels.newOutputStream(channel), level));
+    }
   },
 
   /** BZip compression. */
@@ -106,7 +132,7 @@ public enum Compression {
     @Override
     public ReadableByteChannel readDecompressed(ReadableByteChannel channel) throws IOException {
       return Channels.newChannel(
-          new BZip2CompressorInputStream(Channels.newInputStream(channel), true));
+          new BZip2CompressorInputStream(newBufferedInputStream(channel), true));
     }
 
     @Override
@@ -114,13 +140,26 @@ public enum Compression {
       return Channels.newChannel(
           new BZip2CompressorOutputStream(Channels.newOutputStream(channel)));
     }
+
+    /** For BZip2, the level is the block size in units of 100k, from 1 to 9. */
+    @Override
+    WritableByteChannel writeCompressed(
+        WritableByteChannel channel, @Nullable Integer level, @Nullable Integer workers)
+        throws IOException {
+      checkArgument(workers == null, WORKERS_UNSUPPORTED, this);
+      if (level == null) {
+        return writeCompressed(channel);
+      }
+      return Channels.newChannel(
+          new BZip2CompressorOutputStream(Channels.newOutputStream(channel), level));
+    }
   },
 
   /** Zip compression. */
   ZIP(".zip", ".zip") {
     @Override
     public ReadableByteChannel readDecompressed(ReadableByteChannel channel) throws IOException {
-      FullZipInputStream zip = new FullZipInputStream(Channels.newInputStream(channel));
+      FullZipInputStream zip = new FullZipInputStream(newBufferedInputStream(channel));
       return Channels.newChannel(zip);
     }
 
@@ -140,17 +179,49 @@ public enum Compression {
    * responsibility to declare an explicit dependency on {@code zstd-jni}. Attempts to read or write
    * .zst files without {@code zstd-jni} loaded will result in {@code NoClassDefFoundError} at
    * runtime.
+   *
+   * <p>When writing, the compression level can range from negative levels, which trade compression
+   * ratio for speed, up to 22, and several worker threads can be used to compress a single file.
    */
   ZSTD(".zst", ".zst", ".zstd") {
     @Override
     public ReadableByteChannel readDecompressed(ReadableByteChannel channel) throws IOException {
-      return Channels.newChannel(new ZstdCompressorInputStream(Channels.newInputStream(channel)));
+      return Channels.newChannel(new ZstdCompressorInputStream(newBufferedInputStream(channel)));
     }
 
     @Override
     public WritableByteChannel writeCompressed(WritableByteChannel channel) throws IOException {
       return Channels.newChannel(new ZstdCompressorOutputStream(Channels.newOutputStream(channel)));
     }
+
+    @Override
+    WritableByteChannel writeCompressed(
+        WritableByteChannel channel, @Nullable Integer level, @Nullable Integer workers)
+        throws IOException {
+      return Channels.newChannel(
+          ZstdCompression.createOutputStream(Channels.newOutputStream(channel), level, workers));
+    }
+  },
+
+  /**
+   * LZ4 compression using the LZ4 frame format.
+   *
+   * <p>The {@code .lz4} extension is specified by the <a
+   * href=https://github.com/lz4/lz4/blob/dev/doc/lz4_Frame_format.md>LZ4 frame format</a>.
+   * Concatenated frames are read as a single stream. LZ4 has a single compression level.
+   */
+  LZ4(".lz4", ".lz4") {
+    @Override
+    public ReadableByteChannel readDecompressed(ReadableByteChannel channel) throws IOException {
+      return Channels.newChannel(
+          new FramedLZ4CompressorInputStream(newBufferedInputStream(channel), true));
+    }
+
+    @Override
+    public WritableByteChannel writeCompressed(WritableByteChannel channel) throws IOException {
+      return Channels.newChannel(
+          new FramedLZ4CompressorOutputStream(Channels.newOutputStream(channel)));
+    }
   },
 
   /**
@@ -168,7 +239,7 @@ public enum Compression {
     @Override
     public ReadableByteChannel readDecompressed(ReadableByteChannel channel) throws IOException {
       return Channels.newChannel(
-          LzoCompression.createLzoInputStream(Channels.newInputStream(channel)));
+          LzoCompression.createLzoInputStream(newBufferedInputStream(channel)));
     }
 
     @Override
@@ -196,7 +267,7 @@ public enum Compression {
     @Override
     public ReadableByteChannel readDecompressed(ReadableByteChannel channel) throws IOException {
       return Channels.newChannel(
-          LzoCompression.createLzopInputStream(Channels.newInputStream(channel)));
+          LzoCompression.createLzopInputStream(newBufferedInputStream(channel)));
     }
 
     @Override
@@ -210,8 +281,7 @@ public enum Compression {
   DEFLATE(".deflate", ".deflate", ".zlib") {
     @Override
     public ReadableByteChannel readDecompressed(ReadableByteChannel channel) throws IOException {
-      return Channels.newChannel(
-          new DeflateCompressorInputStream(Channels.newInputStream(channel)));
+      return Channels.newChannel(new DeflateCompressorInputStream(newBufferedInputStream(channel)));
     }
 
     @Override
@@ -219,8 +289,31 @@ public enum Compression {
       return Channels.newChannel(
           new DeflateCompressorOutputStream(Channels.newOutputStream(channel)));
     }
+
+    @Override
+    WritableByteChannel writeCompressed(
+        WritableByteChannel channel, @Nullable Integer level, @Nullable Integer workers)
+        throws IOException {
+      checkArgument(workers == null, WORKERS_UNSUPPORTED, this);
+      if (level == null) {
+        return writeCompressed(channel);
+      }
+      DeflateParameters parameters = new DeflateParameters();
+      parameters.setCompressionLevel(level);
+      return Channels.newChannel(
+          new DeflateCompressorOutputStream(Channels.newOutputStream(channel), parameters));
+    }
   };
 
+  /**
+   * Size of the buffer between the compressed input and the decompressor. Most decompressors issue
+   * many small reads, which would otherwise each go to the underlying channel.
+   */
+  private static final int READ_BUFFER_SIZE = 1 << 16;
+
+  private static final String LEVEL_UNSUPPORTED = "%s does not support compression levels";
+  private static final String WORKERS_UNSUPPORTED = "%s does not support compression workers";
+
   private final String suggestedSuffix;
   private final ImmutableList<String> detectedSuffixes;
 
@@ -265,6 +358,32 @@ public enum Compression {
   public abstract WritableByteChannel writeCompressed(WritableByteChannel channel)
       throws IOException;
 
+  /**
+   * Like {@link #writeCompressed(WritableByteChannel)}, but compresses with the given level and
+   * number of worker threads. A {@code null} value uses the default of the codec.
+   *
+   * @see CompressionParameters
+   */
+  WritableByteChannel writeCompressed(
+      WritableByteChannel channel, @Nullable Integer level, @Nullable Integer workers)
+      throws IOException {
+    checkArgument(level == null, LEVEL_UNSUPPORTED, this);
+    checkArgument(workers == null, WORKERS_UNSUPPORTED, this);
+    return writeCompressed(channel);
+  }
+
+  private static InputStream newBufferedInputStream(ReadableByteChannel channel) {
+    return new BufferedInputStream(Channels.newInputStream(channel), READ_BUFFER_SIZE);
+  }
+
+  /** A {@link GZIPOutputStream} that compresses with a given level. */
+  private static class LeveledGzipOutputStream extends GZIPOutputStream {
+    LeveledGzipOutputStream(OutputStream out, int level) throws IOException {
+      super(out, true);
+      def.setLevel(level);
+    }
+  }
+
   /** Concatenates all {@link ZipInputStream}s contained within the zip file. */
   private static class FullZipInputStream extends InputStream {
     private ZipInputStream zipInputStream;
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.io;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import com.google.auto.value.AutoValue;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import org.apache.beam.sdk.io.FileBasedSink.WritableByteChannelFactory;
+import org.apache.beam.sdk.util.MimeTypes;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@link WritableByteChannelFactory} that compresses output using a {@link Compression} with
+ * non-default parameters.
+ *
+ * <p>The compression level trades compression speed for output size. Its meaning and range depend
+ * on the codec: {@link Compression#GZIP} and {@link Compression#DEFLATE} accept levels from 0 to 9,
+ * {@link Compression#BZIP2} accepts block sizes from 1 to 9 and {@link Compression#ZSTD} accepts
+ * levels up to 22. {@link Compression#ZSTD} can also compress each file using several worker
+ * threads.
+ *
+ * <p>For example, to write Zstandard compressed text files at level 1 using 4 threads per file:
+ *
+ * <pre>{@code
+ * PCollection<String> lines = ...;
+ * lines.apply(
+ *     TextIO.write()
+ *         .to("/path/to/file.txt")
+ *         .withCompression(
+ *             CompressionParameters.of(Compression.ZSTD).withLevel(1).withWorkers(4)));
+ * }</pre>
+ */
+@AutoValue
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+public abstract class CompressionParameters implements WritableByteChannelFactory {
+
+  /** Returns the {@link Compression} used to compress output. */
+  public abstract Compression getCompression();
+
+  /** Returns the compression level, or {@code null} to use the default level of the codec. */
+  public abstract @Nullable Integer getLevel();
+
+  /** Returns the number of worker threads, or {@code null} to compress on the calling thread. */
+  public abstract @Nullable Integer getWorkers();
+
+  abstract Builder toBuilder();
+
+  @AutoValue.Builder
+  abstract static class Builder {
+    abstract Builder setCompression(Compression compression);
+
+    abstract Builder setLevel(@Nullable Integer level);
+
+    abstract Builder setWorkers(@Nullable Integer workers);
+
+    abstract CompressionParameters build();
+  }
+
+  /** Returns parameters that compress output with the defaults of the given {@link Compression}. */
+  public static CompressionParameters of(Compression compression) {
+    checkArgument(compression != null, "compression can not be null");
+    checkArgument(
+        compression != Compression.AUTO && compression != Compression.ZIP,
+        "%s is not supported for writing",
+        compression);
+    return new AutoValue_CompressionParameters.Builder().setCompression(compression).build();
+  }
+
+  /** Returns parameters like these, but that compress with the given level. */
+  public CompressionParameters withLevel(int level) {
+    return toBuilder().setLevel(level).build();
+  }
+
+  /**
+   * Returns parameters like these, but that compress each file using the given number of worker
+   * threads. Only supported by {@link Compression#ZSTD}.
+   */
+  public CompressionParameters withWorkers(int workers) {
+    checkArgument(workers > 0, "workers must be positive, but was %s", workers);
+    checkArgument(
+        getCompression() == Compression.ZSTD,
+        "%s does not support compression workers",
+        getCompression());
+    return toBuilder().setWorkers(workers).build();
+  }
+
+  @Override
+  public @Nullable String getMimeType() {
+    return (getCompression() == Compression.UNCOMPRESSED) ? null : MimeTypes.BINARY;
+  }
+
+  @Override
+  public String getSuggestedFilenameSuffix() {
+    return getCompression().getSuggestedSuffix();
+  }
+
+  @Override
+  public WritableByteChannel create(WritableByteChannel channel) throws IOException {
+    return getCompression().writeCompressed(channel, getLevel(), getWorkers());
+  }
+
+  @Override
+  public final String toString() {
+    if (getLevel() == null && getWorkers() == null) {
+      return getCompression().toString();
+    }
+    StringBuilder builder = new StringBuilder(getCompression().toString()).append('(');
+    if (getLevel() != null) {
+      builder.append("level=").append(getLevel());
+    }
+    if (getWorkers() != null) {
+      builder.append((getLevel() != null) ? ", " : "").append("workers=").append(getWorkers());
+    }
+    return builder.append(')').toString();
+  }
+}
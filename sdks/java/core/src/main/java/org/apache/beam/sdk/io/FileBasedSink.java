@@ -143,6 +143,9 @@ public abstract class FileBasedSink<UserT, DestinationT, OutputT>
     /** @see Compression#ZSTD */
     ZSTD(Compression.ZSTD),
 
+    /** @see Compression#LZ4 */
+    LZ4(Compression.LZ4),
+
     /** @see Compression#LZO */
     LZO(Compression.LZO),
 
@@ -193,6 +196,9 @@ public abstract class FileBasedSink<UserT, DestinationT, OutputT>
         case ZSTD:
           return ZSTD;
 
+        case LZ4:
+          return LZ4;
+
         case LZO:
           return LZO;
 
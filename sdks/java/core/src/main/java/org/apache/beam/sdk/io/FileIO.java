@@ -929,6 +929,8 @@ public class FileIO {
 
     abstract Compression getCompression();
 
+    abstract @Nullable CompressionParameters getCompressionParameters();
+
     abstract @Nullable ValueProvider<Integer> getNumShards();
 
     abstract @Nullable PTransform<PCollection<UserT>, PCollectionView<Integer>> getSharding();
@@ -973,6 +975,9 @@ public class FileIO {
 
       abstract Builder<DestinationT, UserT> setCompression(Compression compression);
 
+      abstract Builder<DestinationT, UserT> setCompressionParameters(
+          @Nullable CompressionParameters compressionParameters);
+
       abstract Builder<DestinationT, UserT> setNumShards(
           @Nullable ValueProvider<Integer> numShards);
 
@@ -1141,7 +1146,21 @@ public class FileIO {
       checkArgument(compression != null, "compression can not be null");
       checkArgument(
           compression != Compression.AUTO, "AUTO compression is not supported for writing");
-      return toBuilder().setCompression(compression).build();
+      checkArgument(
+          compression != Compression.ZIP, "ZIP compression is not supported for writing");
+      return toBuilder().setCompression(compression).setCompressionParameters(null).build();
+    }
+
+    /**
+     * Like {@link #withCompression(Compression)}, but compresses using the given {@link
+     * CompressionParameters}, e.g. with a specific compression level.
+     */
+    public Write<DestinationT, UserT> withCompression(CompressionParameters parameters) {
+      checkArgument(parameters != null, "parameters can not be null");
+      return toBuilder()
+          .setCompression(parameters.getCompression())
+          .setCompressionParameters(parameters)
+          .build();
     }
 
     /**
@@ -1290,6 +1309,7 @@ public class FileIO {
       }
 
       resolvedSpec.setCompression(getCompression());
+      resolvedSpec.setCompressionParameters(getCompressionParameters());
       resolvedSpec.setNumShards(getNumShards());
       resolvedSpec.setSharding(getSharding());
       resolvedSpec.setIgnoreWindowing(getIgnoreWindowing());
@@ -1347,10 +1367,17 @@ public class FileIO {
                 spec.getTempDirectory(),
                 input -> FileSystems.matchNewResource(input, true /* isDirectory */)),
             new DynamicDestinationsAdapter<>(spec),
-            spec.getCompression());
+            writableByteChannelFactory(spec));
         this.spec = spec;
       }
 
+      private static WritableByteChannelFactory writableByteChannelFactory(Write<?, ?> spec) {
+        CompressionParameters parameters = spec.getCompressionParameters();
+        return (parameters == null)
+            ? CompressionType.fromCanonical(spec.getCompression())
+            : parameters;
+      }
+
       @Override
       public WriteOperation<DestinationT, OutputT> createWriteOperation() {
         return new WriteOperation<DestinationT, OutputT>(this) {
@@ -79,6 +79,10 @@ import org.slf4j.LoggerFactory;
  *   <li>file:/C:/Users/beam/Documents/pom.xml
  *   <li>file:///C:/Users/beam/Documents/pom.xml
  * </ul>
+ *
+ * <p>When the {@value #MEMORY_MAPPED_READS_EXPERIMENT} experiment is enabled, files are opened as
+ * read-only memory mappings. Readers such as {@link TextSource} and {@link AvroSource} then decode
+ * records from views of the mapped file instead of copying the file contents into heap buffers.
  */
 @SuppressWarnings({
   "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
@@ -90,7 +94,18 @@ class LocalFileSystem extends FileSystem<LocalResourceId> {
   /** Matches a glob containing a wildcard, capturing the portion before the first wildcard. */
   private static final Pattern GLOB_PREFIX = Pattern.compile("(?<PREFIX>[^\\[*?]*)[\\[*?].*");
 
-  LocalFileSystem() {}
+  /** Experiment that makes {@link #open} return memory-mapped channels. */
+  static final String MEMORY_MAPPED_READS_EXPERIMENT = "use_memory_mapped_local_reads";
+
+  private final boolean memoryMappedReads;
+
+  LocalFileSystem() {
+    this(false);
+  }
+
+  LocalFileSystem(boolean memoryMappedReads) {
+    this.memoryMappedReads = memoryMappedReads;
+  }
 
   @Override
   protected List<MatchResult> match(List<String> specs) throws IOException {
@@ -123,6 +138,9 @@ class LocalFileSystem extends FileSystem<LocalResourceId> {
   @Override
   protected ReadableByteChannel open(LocalResourceId resourceId) throws IOException {
     LOG.debug("opening file {}", resourceId);
+    if (memoryMappedReads) {
+      return MemoryMappedFileChannel.open(resourceId.getPath().toFile());
+    }
     @SuppressWarnings("resource") // The caller is responsible for closing the channel.
     FileInputStream inputStream = new FileInputStream(resourceId.getPath().toFile());
     // Use this method for creating the channel (rather than new FileChannel) so that we get
@@ -20,6 +20,7 @@ package org.apache.beam.sdk.io;
 import com.google.auto.service.AutoService;
 import org.apache.beam.sdk.annotations.Experimental;
 import org.apache.beam.sdk.annotations.Experimental.Kind;
+import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -30,6 +31,9 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 public class LocalFileSystemRegistrar implements FileSystemRegistrar {
   @Override
   public Iterable<FileSystem<?>> fromOptions(@Nullable PipelineOptions options) {
-    return ImmutableList.of(new LocalFileSystem());
+    return ImmutableList.of(
+        new LocalFileSystem(
+            ExperimentalOptions.hasExperiment(
+                options, LocalFileSystem.MEMORY_MAPPED_READS_EXPERIMENT)));
   }
 }
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.io;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.annotations.VisibleForTesting;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A read-only {@link SeekableByteChannel} over a memory-mapped local file.
+ *
+ * <p>In addition to the regular {@link #read(ByteBuffer)}, which copies from the mapping into the
+ * destination buffer, {@link #readView(int)} returns read-only views of the mapped file contents,
+ * which lets readers that understand this channel decode records without copying them into heap
+ * buffers first.
+ *
+ * <p>Files larger than the maximum size of a {@link ByteBuffer} are mapped in several segments. The
+ * underlying file descriptor is closed as soon as the file is mapped; the mapping itself is
+ * released when it is garbage collected.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+class MemoryMappedFileChannel implements SeekableByteChannel {
+  private static final int MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+  private final MappedByteBuffer[] segments;
+  private final int segmentSize;
+  private final long size;
+  private long position;
+  private boolean open;
+
+  private MemoryMappedFileChannel(MappedByteBuffer[] segments, int segmentSize, long size) {
+    this.segments = segments;
+    this.segmentSize = segmentSize;
+    this.size = size;
+    this.position = 0;
+    this.open = true;
+  }
+
+  /** Maps the given file into memory. */
+  static MemoryMappedFileChannel open(File file) throws IOException {
+    return open(file, MAX_SEGMENT_SIZE);
+  }
+
+  @VisibleForTesting
+  static MemoryMappedFileChannel open(File file, int segmentSize) throws IOException {
+    checkArgument(segmentSize > 0, "segmentSize must be positive, but was %s", segmentSize);
+    // Use a FileInputStream (rather than FileChannel.open) so that we get a regular
+    // FileNotFoundException for missing files.
+    try (FileInputStream inputStream = new FileInputStream(file);
+        FileChannel fileChannel = inputStream.getChannel()) {
+      long size = fileChannel.size();
+      int numSegments = (int) ((size + segmentSize - 1) / segmentSize);
+      MappedByteBuffer[] segments = new MappedByteBuffer[numSegments];
+      for (int i = 0; i < numSegments; i++) {
+        long offset = (long) i * segmentSize;
+        segments[i] =
+            fileChannel.map(MapMode.READ_ONLY, offset, Math.min(segmentSize, size - offset));
+      }
+      return new MemoryMappedFileChannel(segments, segmentSize, size);
+    }
+  }
+
+  /**
+   * Returns a read-only view of up to {@code maxBytes} bytes starting at the current position and
+   * advances the position past them, or returns {@code null} at the end of the file.
+   *
+   * <p>The view may contain fewer than {@code maxBytes} bytes even if more bytes remain in the
+   * file, but it is never empty. It remains valid after this channel is closed.
+   */
+  @Nullable
+  ByteBuffer readView(int maxBytes) throws IOException {
+    checkArgument(maxBytes > 0, "maxBytes must be positive, but was %s", maxBytes);
+    ensureOpen();
+    if (position >= size) {
+      return null;
+    }
+    ByteBuffer segment = segments[(int) (position / segmentSize)].duplicate();
+    int offset = (int) (position % segmentSize);
+    int length = Math.min(maxBytes, segment.limit() - offset);
+    segment.position(offset);
+    segment.limit(offset + length);
+    position += length;
+    return segment.slice();
+  }
+
+  @Override
+  public int read(ByteBuffer dst) throws IOException {
+    ensureOpen();
+    if (position >= size) {
+      return -1;
+    }
+    int bytesRead = 0;
+    while (dst.hasRemaining() && position < size) {
+      ByteBuffer view = readView(dst.remaining());
+      bytesRead += view.remaining();
+      dst.put(view);
+    }
+    return bytesRead;
+  }
+
+  @Override
+  public int write(ByteBuffer src) {
+    throw new NonWritableChannelException();
+  }
+
+  @Override
+  public long position() throws IOException {
+    ensureOpen();
+    return position;
+  }
+
+  @Override
+  public MemoryMappedFileChannel position(long newPosition) throws IOException {
+    checkArgument(newPosition >= 0, "newPosition must be non-negative, but was %s", newPosition);
+    ensureOpen();
+    position = newPosition;
+    return this;
+  }
+
+  @Override
+  public long size() throws IOException {
+    ensureOpen();
+    return size;
+  }
+
+  @Override
+  public SeekableByteChannel truncate(long size) {
+    throw new NonWritableChannelException();
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public void close() {
+    open = false;
+  }
+
+  private void ensureOpen() throws ClosedChannelException {
+    if (!open) {
+      throw new ClosedChannelException();
+    }
+  }
+}
@@ -0,0 +1,263 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.io;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.schemas.Schema.TypeName;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.vendor.grpc.v1p26p0.com.google.protobuf.ByteString;
+import org.apache.beam.vendor.grpc.v1p26p0.com.google.protobuf.CodedInputStream;
+import org.apache.beam.vendor.grpc.v1p26p0.com.google.protobuf.WireFormat;
+
+/**
+ * Parses serialized {@code tf.Example} protocol buffers into {@link Row}s of a given {@link
+ * Schema}, without depending on the TensorFlow protos.
+ *
+ * <p>Each field of the schema is read from the feature with the same name. Features that are not
+ * in the schema are skipped without being decoded. The supported field types are:
+ *
+ * <ul>
+ *   <li>{@link TypeName#INT64}, read from an {@code Int64List}.
+ *   <li>{@link TypeName#FLOAT} and {@link TypeName#DOUBLE}, read from a {@code FloatList}.
+ *   <li>{@link TypeName#STRING} and {@link TypeName#BYTES}, read from a {@code BytesList}.
+ *   <li>{@link TypeName#ARRAY} and {@link TypeName#ITERABLE} of any of the types above.
+ * </ul>
+ *
+ * <p>Scalar fields require the feature to contain exactly one value. A missing or empty feature is
+ * read as {@code null} for nullable fields and as an empty list for array fields, and fails for
+ * other fields.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+class TFExampleParser implements Serializable {
+  // Field numbers of the messages in tensorflow/core/example/{example,feature}.proto.
+  private static final int EXAMPLE_FEATURES = 1;
+  private static final int FEATURES_FEATURE = 1;
+  private static final int MAP_ENTRY_KEY = 1;
+  private static final int MAP_ENTRY_VALUE = 2;
+  private static final int FEATURE_BYTES_LIST = 1;
+  private static final int FEATURE_FLOAT_LIST = 2;
+  private static final int FEATURE_INT64_LIST = 3;
+  private static final int LIST_VALUE = 1;
+
+  private final Schema schema;
+  private final Map<String, Integer> fieldIndices;
+
+  TFExampleParser(Schema schema) {
+    this.schema = schema;
+    this.fieldIndices = new HashMap<>();
+    for (int i = 0; i < schema.getFieldCount(); i++) {
+      Schema.Field field = schema.getField(i);
+      FieldType type = field.getType();
+      if (type.getTypeName().isCollectionType()) {
+        type = type.getCollectionElementType();
+      }
+      checkArgument(
+          listKind(type.getTypeName()) != 0,
+          "Field %s has type %s, which can not be read from a tf.Example",
+          field.getName(),
+          field.getType());
+      fieldIndices.put(field.getName(), i);
+    }
+  }
+
+  Schema getSchema() {
+    return schema;
+  }
+
+  /** Parses a serialized {@code tf.Example} into a {@link Row}. */
+  Row parse(byte[] example) throws IOException {
+    Object[] values = new Object[schema.getFieldCount()];
+    CodedInputStream in = CodedInputStream.newInstance(example);
+    in.enableAliasing(true);
+    for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+      if (tag == lengthDelimited(EXAMPLE_FEATURES)) {
+        int limit = in.pushLimit(in.readRawVarint32());
+        parseFeatures(in, values);
+        in.popLimit(limit);
+      } else {
+        in.skipField(tag);
+      }
+    }
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] == null) {
+        values[i] = missingValue(schema.getField(i));
+      }
+    }
+    return Row.withSchema(schema).attachValues(Arrays.asList(values));
+  }
+
+  private void parseFeatures(CodedInputStream in, Object[] values) throws IOException {
+    for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+      if (tag != lengthDelimited(FEATURES_FEATURE)) {
+        in.skipField(tag);
+        continue;
+      }
+      // A map entry. The value is only decoded if the key is part of the schema.
+      int limit = in.pushLimit(in.readRawVarint32());
+      String key = null;
+      ByteString feature = ByteString.EMPTY;
+      for (int entryTag = in.readTag(); entryTag != 0; entryTag = in.readTag()) {
+        if (entryTag == lengthDelimited(MAP_ENTRY_KEY)) {
+          key = in.readStringRequireUtf8();
+        } else if (entryTag == lengthDelimited(MAP_ENTRY_VALUE)) {
+          feature = in.readBytes();
+        } else {
+          in.skipField(entryTag);
+        }
+      }
+      in.popLimit(limit);
+
+      Integer index = (key == null) ? null : fieldIndices.get(key);
+      if (index != null) {
+        values[index] = parseFeature(schema.getField(index), feature);
+      }
+    }
+  }
+
+  private static Object parseFeature(Schema.Field field, ByteString feature) throws IOException {
+    FieldType type = field.getType();
+    boolean isCollection = type.getTypeName().isCollectionType();
+    FieldType elementType = isCollection ? type.getCollectionElementType() : type;
+    int expectedKind = listKind(elementType.getTypeName());
+
+    List<Object> list = Collections.emptyList();
+    CodedInputStream in = feature.newCodedInput();
+    for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+      int kind = WireFormat.getTagFieldNumber(tag);
+      if (kind < FEATURE_BYTES_LIST || kind > FEATURE_INT64_LIST) {
+        in.skipField(tag);
+        continue;
+      }
+      checkArgument(
+          kind == expectedKind,
+          "Feature %s is a %s, but field has type %s",
+          field.getName(),
+          listName(kind),
+          field.getType());
+      int limit = in.pushLimit(in.readRawVarint32());
+      list = parseList(in, elementType.getTypeName());
+      in.popLimit(limit);
+    }
+
+    if (isCollection) {
+      return list;
+    } else if (list.isEmpty()) {
+      return null;
+    }
+    checkArgument(
+        list.size() == 1,
+        "Feature %s has %s values, but field is not an array",
+        field.getName(),
+        list.size());
+    return list.get(0);
+  }
+
+  private static List<Object> parseList(CodedInputStream in, TypeName typeName)
+      throws IOException {
+    List<Object> values = new ArrayList<>();
+    for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+      if (WireFormat.getTagFieldNumber(tag) != LIST_VALUE) {
+        in.skipField(tag);
+        continue;
+      }
+      if (typeName == TypeName.STRING || typeName == TypeName.BYTES) {
+        ByteString value = in.readBytes();
+        values.add((typeName == TypeName.STRING) ? value.toStringUtf8() : value.toByteArray());
+      } else if (WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+        // Packed repeated field, which is how TensorFlow writes numeric lists.
+        int limit = in.pushLimit(in.readRawVarint32());
+        while (in.getBytesUntilLimit() > 0) {
+          values.add(readNumber(in, typeName));
+        }
+        in.popLimit(limit);
+      } else {
+        values.add(readNumber(in, typeName));
+      }
+    }
+    return values;
+  }
+
+  private static Object readNumber(CodedInputStream in, TypeName typeName) throws IOException {
+    switch (typeName) {
+      case INT64:
+        return in.readInt64();
+      case FLOAT:
+        return in.readFloat();
+      case DOUBLE:
+        return (double) in.readFloat();
+      default:
+        throw new IllegalArgumentException("Unexpected numeric type " + typeName);
+    }
+  }
+
+  private static Object missingValue(Schema.Field field) {
+    FieldType type = field.getType();
+    if (type.getNullable()) {
+      return null;
+    } else if (type.getTypeName().isCollectionType()) {
+      return Collections.emptyList();
+    }
+    throw new IllegalArgumentException(
+        String.format(
+            "Feature %s is missing or empty, but field is not nullable", field.getName()));
+  }
+
+  /** Returns the field number of the list in a {@code Feature} that holds the given type. */
+  private static int listKind(TypeName typeName) {
+    switch (typeName) {
+      case STRING:
+      case BYTES:
+        return FEATURE_BYTES_LIST;
+      case FLOAT:
+      case DOUBLE:
+        return FEATURE_FLOAT_LIST;
+      case INT64:
+        return FEATURE_INT64_LIST;
+      default:
+        return 0;
+    }
+  }
+
+  private static String listName(int kind) {
+    switch (kind) {
+      case FEATURE_BYTES_LIST:
+        return "BytesList";
+      case FEATURE_FLOAT_LIST:
+        return "FloatList";
+      default:
+        return "Int64List";
+    }
+  }
+
+  private static int lengthDelimited(int fieldNumber) {
+    return (fieldNumber << 3) | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+  }
+}
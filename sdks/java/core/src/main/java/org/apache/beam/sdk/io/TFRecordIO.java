@@ -22,11 +22,13 @@ import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Prec
 
 import com.google.auto.value.AutoValue;
 import java.io.IOException;
+import java.lang.reflect.Constructor;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.util.NoSuchElementException;
+import java.util.zip.Checksum;
 import org.apache.beam.sdk.annotations.Experimental;
 import org.apache.beam.sdk.annotations.Experimental.Kind;
 import org.apache.beam.sdk.coders.ByteArrayCoder;
@@ -37,15 +39,20 @@ import org.apache.beam.sdk.io.fs.ResourceId;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.ValueProvider;
 import org.apache.beam.sdk.options.ValueProvider.StaticValueProvider;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.transforms.SerializableFunction;
 import org.apache.beam.sdk.transforms.display.DisplayData;
 import org.apache.beam.sdk.util.MimeTypes;
 import org.apache.beam.sdk.values.PBegin;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PDone;
+import org.apache.beam.sdk.values.Row;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.annotations.VisibleForTesting;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.hash.HashFunction;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.hash.Hasher;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.hash.Hashing;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -74,6 +81,7 @@ public class TFRecordIO {
     return new AutoValue_TFRecordIO_Read.Builder()
         .setValidate(true)
         .setCompression(Compression.AUTO)
+        .setVerifyChecksums(true)
         .build();
   }
 
@@ -82,7 +90,7 @@ public class TFRecordIO {
    * FileIO.ReadableFile}, returned by {@link FileIO#readMatches}.
    */
   public static ReadFiles readFiles() {
-    return new AutoValue_TFRecordIO_ReadFiles.Builder().build();
+    return new AutoValue_TFRecordIO_ReadFiles.Builder().setVerifyChecksums(true).build();
   }
 
   /**
@@ -108,6 +116,36 @@ public class TFRecordIO {
     return new Sink();
   }
 
+  /**
+   * A {@link PTransform} that parses records containing serialized {@code tf.Example} protocol
+   * buffers, e.g. as returned by {@link #read}, into {@link Row}s of the given {@link Schema}.
+   *
+   * <p>Each field of the schema is read from the feature with the same name, and all other
+   * features are skipped. Fields of type {@code INT64} are read from an {@code Int64List}, fields
+   * of type {@code FLOAT} or {@code DOUBLE} from a {@code FloatList} and fields of type {@code
+   * STRING} or {@code BYTES} from a {@code BytesList}. Array fields of these types receive all
+   * values of the feature, while other fields require the feature to have exactly one value. A
+   * missing feature is read as {@code null} for nullable fields and as an empty array for array
+   * fields.
+   *
+   * <pre>{@code
+   * Schema schema =
+   *     Schema.builder()
+   *         .addInt64Field("label")
+   *         .addArrayField("embedding", FieldType.FLOAT)
+   *         .build();
+   * PCollection<Row> examples =
+   *     p.apply(TFRecordIO.read().from("/path/to/examples*.tfrecord"))
+   *         .apply(TFRecordIO.parseExamples(schema));
+   * }</pre>
+   */
+  @Experimental(Kind.SCHEMAS)
+  public static ParseExamples parseExamples(Schema schema) {
+    return new AutoValue_TFRecordIO_ParseExamples.Builder()
+        .setParser(new TFExampleParser(schema))
+        .build();
+  }
+
   /** Implementation of {@link #read}. */
   @AutoValue
   public abstract static class Read extends PTransform<PBegin, PCollection<byte[]>> {
@@ -118,6 +156,8 @@ public class TFRecordIO {
 
     abstract Compression getCompression();
 
+    abstract boolean getVerifyChecksums();
+
     abstract Builder toBuilder();
 
     @AutoValue.Builder
@@ -128,6 +168,8 @@ public class TFRecordIO {
 
       abstract Builder setCompression(Compression compression);
 
+      abstract Builder setVerifyChecksums(boolean verifyChecksums);
+
       abstract Read build();
     }
 
@@ -177,6 +219,18 @@ public class TFRecordIO {
       return toBuilder().setCompression(compression).build();
     }
 
+    /**
+     * Returns a transform for reading TFRecord files that does not verify the checksum of the data
+     * of each record.
+     *
+     * <p>Verifying checksums is a significant part of the cost of reading small records. It can be
+     * skipped when the files are known to be intact, e.g. because the storage system verifies
+     * their integrity. The checksum of the length of each record is still verified.
+     */
+    public Read withoutChecksumVerification() {
+      return toBuilder().setVerifyChecksums(false).build();
+    }
+
     @Override
     public PCollection<byte[]> expand(PBegin input) {
       if (getFilepattern() == null) {
@@ -203,7 +257,7 @@ public class TFRecordIO {
 
     // Helper to create a source specific to the requested compression type.
     protected FileBasedSource<byte[]> getSource() {
-      return CompressedSource.from(new TFRecordSource(getFilepattern()))
+      return CompressedSource.from(new TFRecordSource(getFilepattern(), getVerifyChecksums()))
           .withCompression(getCompression());
     }
 
@@ -216,6 +270,10 @@ public class TFRecordIO {
                   .withLabel("Compression Type"))
           .addIfNotDefault(
               DisplayData.item("validation", getValidate()).withLabel("Validation Enabled"), true)
+          .addIfNotDefault(
+              DisplayData.item("verifyChecksums", getVerifyChecksums())
+                  .withLabel("Checksum Verification Enabled"),
+              true)
           .addIfNotNull(
               DisplayData.item("filePattern", getFilepattern()).withLabel("File Pattern"));
     }
@@ -228,27 +286,83 @@ public class TFRecordIO {
   public abstract static class ReadFiles
       extends PTransform<PCollection<FileIO.ReadableFile>, PCollection<byte[]>> {
 
+    abstract boolean getVerifyChecksums();
+
     abstract Builder toBuilder();
 
     @AutoValue.Builder
     abstract static class Builder {
+      abstract Builder setVerifyChecksums(boolean verifyChecksums);
+
       abstract TFRecordIO.ReadFiles build();
     }
 
+    /** Like {@link Read#withoutChecksumVerification()}. */
+    public ReadFiles withoutChecksumVerification() {
+      return toBuilder().setVerifyChecksums(false).build();
+    }
+
     @Override
     public PCollection<byte[]> expand(PCollection<FileIO.ReadableFile> input) {
       return input.apply(
           "Read all via FileBasedSource",
           new ReadAllViaFileBasedSource<>(
-              Long.MAX_VALUE, new CreateSourceFn(), DEFAULT_BYTE_ARRAY_CODER));
+              Long.MAX_VALUE,
+              new CreateSourceFn(getVerifyChecksums()),
+              DEFAULT_BYTE_ARRAY_CODER));
     }
 
     private static class CreateSourceFn
         implements SerializableFunction<String, FileBasedSource<byte[]>> {
+      private final boolean verifyChecksums;
+
+      private CreateSourceFn(boolean verifyChecksums) {
+        this.verifyChecksums = verifyChecksums;
+      }
 
       @Override
       public FileBasedSource<byte[]> apply(String input) {
-        return new TFRecordSource(StaticValueProvider.of(input));
+        return new TFRecordSource(StaticValueProvider.of(input), verifyChecksums);
+      }
+    }
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+
+  /** Implementation of {@link #parseExamples}. */
+  @AutoValue
+  public abstract static class ParseExamples
+      extends PTransform<PCollection<byte[]>, PCollection<Row>> {
+
+    abstract TFExampleParser getParser();
+
+    abstract Builder toBuilder();
+
+    @AutoValue.Builder
+    abstract static class Builder {
+      abstract Builder setParser(TFExampleParser parser);
+
+      abstract ParseExamples build();
+    }
+
+    @Override
+    public PCollection<Row> expand(PCollection<byte[]> input) {
+      return input
+          .apply("ParseExamples", ParDo.of(new ParseExamplesFn(getParser())))
+          .setRowSchema(getParser().getSchema());
+    }
+
+    private static class ParseExamplesFn extends DoFn<byte[], Row> {
+      private final TFExampleParser parser;
+
+      private ParseExamplesFn(TFExampleParser parser) {
+        this.parser = parser;
+      }
+
+      @ProcessElement
+      public void processElement(@Element byte[] example, OutputReceiver<Row> out)
+          throws IOException {
+        out.output(parser.parse(example));
       }
     }
   }
@@ -486,20 +600,24 @@ public class TFRecordIO {
   /** A {@link FileBasedSource} which can decode records in TFRecord files. */
   @VisibleForTesting
   static class TFRecordSource extends FileBasedSource<byte[]> {
+    private final boolean verifyChecksums;
+
     @VisibleForTesting
-    TFRecordSource(ValueProvider<String> fileSpec) {
+    TFRecordSource(ValueProvider<String> fileSpec, boolean verifyChecksums) {
       super(fileSpec, Long.MAX_VALUE);
+      this.verifyChecksums = verifyChecksums;
     }
 
-    private TFRecordSource(Metadata metadata, long start, long end) {
+    private TFRecordSource(Metadata metadata, long start, long end, boolean verifyChecksums) {
       super(metadata, Long.MAX_VALUE, start, end);
+      this.verifyChecksums = verifyChecksums;
     }
 
     @Override
     protected FileBasedSource<byte[]> createForSubrangeOfFile(
         Metadata metadata, long start, long end) {
       checkArgument(start == 0, "TFRecordSource is not splittable");
-      return new TFRecordSource(metadata, start, end);
+      return new TFRecordSource(metadata, start, end, verifyChecksums);
     }
 
     @Override
@@ -533,8 +651,11 @@ public class TFRecordIO {
       private @Nullable ReadableByteChannel inChannel;
       private @Nullable TFRecordCodec codec;
 
+      private final boolean verifyChecksums;
+
       private TFRecordReader(TFRecordSource source) {
         super(source);
+        this.verifyChecksums = source.verifyChecksums;
       }
 
       @Override
@@ -562,7 +683,7 @@ public class TFRecordIO {
       @Override
       protected void startReading(ReadableByteChannel channel) throws IOException {
         this.inChannel = channel;
-        this.codec = new TFRecordCodec();
+        this.codec = new TFRecordCodec(verifyChecksums);
       }
 
       @Override
@@ -642,26 +763,72 @@ public class TFRecordIO {
   /**
    * Codec for TFRecords file format. See
    * https://www.tensorflow.org/versions/r1.11/api_guides/python/python_io#TFRecords_Format_Details
+   *
+   * <p>Reads are buffered, so a codec must only be used to read from a single channel.
    */
   @VisibleForTesting
   static class TFRecordCodec {
     private static final int HEADER_LEN = (Long.SIZE + Integer.SIZE) / Byte.SIZE;
     private static final int FOOTER_LEN = Integer.SIZE / Byte.SIZE;
-    private static HashFunction crc32c = Hashing.crc32c();
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The constructor of {@code java.util.zip.CRC32C}, which is available and intrinsified by the
+     * JIT starting with Java 9, or {@code null} if it is not available.
+     */
+    private static final @Nullable Constructor<? extends Checksum> JDK_CRC32C = findJdkCrc32c();
 
-    private ByteBuffer header = ByteBuffer.allocate(HEADER_LEN).order(ByteOrder.LITTLE_ENDIAN);
-    private ByteBuffer footer = ByteBuffer.allocate(FOOTER_LEN).order(ByteOrder.LITTLE_ENDIAN);
+    private final boolean verifyDataChecksums;
+    private final Checksum crc32c = newCrc32c();
+    private final ByteBuffer header =
+        ByteBuffer.allocate(HEADER_LEN).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer footer =
+        ByteBuffer.allocate(FOOTER_LEN).order(ByteOrder.LITTLE_ENDIAN);
+    // Bytes read ahead from the input channel, ready to be consumed. Allocated on first read.
+    private @Nullable ByteBuffer readBuffer;
 
-    private int mask(int crc) {
-      return ((crc >>> 15) | (crc << 17)) + 0xa282ead8;
+    TFRecordCodec() {
+      this(true);
     }
 
-    private int hashLong(long x) {
-      return mask(crc32c.hashLong(x).asInt());
+    /**
+     * Creates a codec that, if {@code verifyDataChecksums} is {@code false}, does not verify the
+     * checksum of the data of each record when reading. The checksum of the record length is
+     * always verified, as reading a corrupt length would misinterpret the rest of the file.
+     */
+    TFRecordCodec(boolean verifyDataChecksums) {
+      this.verifyDataChecksums = verifyDataChecksums;
     }
 
-    private int hashBytes(byte[] x) {
-      return mask(crc32c.hashBytes(x).asInt());
+    private static @Nullable Constructor<? extends Checksum> findJdkCrc32c() {
+      try {
+        return Class.forName("java.util.zip.CRC32C")
+            .asSubclass(Checksum.class)
+            .getConstructor();
+      } catch (ClassNotFoundException | NoSuchMethodException e) {
+        return null;
+      }
+    }
+
+    private static Checksum newCrc32c() {
+      if (JDK_CRC32C != null) {
+        try {
+          return JDK_CRC32C.newInstance();
+        } catch (ReflectiveOperationException e) {
+          // Fall through to the portable implementation.
+        }
+      }
+      return new HashingCrc32c();
+    }
+
+    private int mask(int crc) {
+      return ((crc >>> 15) | (crc << 17)) + 0xa282ead8;
+    }
+
+    private int maskedCrc32c(byte[] data, int offset, int length) {
+      crc32c.reset();
+      crc32c.update(data, offset, length);
+      return mask((int) crc32c.getValue());
     }
 
     public int recordLength(byte[] data) {
@@ -670,7 +837,7 @@ public class TFRecordIO {
 
     public byte @Nullable [] read(ReadableByteChannel inChannel) throws IOException {
       header.clear();
-      int headerBytes = read(inChannel, header);
+      int headerBytes = readBuffered(inChannel, header);
       if (headerBytes == 0) {
         return null;
       }
@@ -678,7 +845,7 @@ public class TFRecordIO {
 
       header.rewind();
       long length64 = header.getLong();
-      long lengthHash = hashLong(length64);
+      int lengthHash = maskedCrc32c(header.array(), 0, Long.BYTES);
       int maskedCrc32OfLength = header.getInt();
       if (lengthHash != maskedCrc32OfLength) {
         throw new IOException(
@@ -692,40 +859,80 @@ public class TFRecordIO {
       }
 
       ByteBuffer data = ByteBuffer.allocate(length);
-      readFully(inChannel, data);
+      readFullyBuffered(inChannel, data);
 
       footer.clear();
-      readFully(inChannel, footer);
+      readFullyBuffered(inChannel, footer);
       footer.rewind();
 
-      int maskedCrc32OfData = footer.getInt();
-      int dataHash = hashBytes(data.array());
-      if (dataHash != maskedCrc32OfData) {
-        throw new IOException(
-            String.format(
-                "Mismatch of data mask when reading a record. Expected %d but received %d.",
-                maskedCrc32OfData, dataHash));
+      if (verifyDataChecksums) {
+        int maskedCrc32OfData = footer.getInt();
+        int dataHash = maskedCrc32c(data.array(), 0, length);
+        if (dataHash != maskedCrc32OfData) {
+          throw new IOException(
+              String.format(
+                  "Mismatch of data mask when reading a record. Expected %d but received %d.",
+                  maskedCrc32OfData, dataHash));
+        }
       }
       return data.array();
     }
 
     public void write(WritableByteChannel outChannel, byte[] data) throws IOException {
-      int maskedCrc32OfLength = hashLong(data.length);
-      int maskedCrc32OfData = hashBytes(data);
-
       header.clear();
-      header.putLong(data.length).putInt(maskedCrc32OfLength);
+      header.putLong(data.length);
+      header.putInt(maskedCrc32c(header.array(), 0, Long.BYTES));
       header.rewind();
       writeFully(outChannel, header);
 
       writeFully(outChannel, ByteBuffer.wrap(data));
 
       footer.clear();
-      footer.putInt(maskedCrc32OfData);
+      footer.putInt(maskedCrc32c(data, 0, data.length));
       footer.rewind();
       writeFully(outChannel, footer);
     }
 
+    private void readFullyBuffered(ReadableByteChannel in, ByteBuffer bb) throws IOException {
+      int expected = bb.remaining();
+      int actual = readBuffered(in, bb);
+      if (expected != actual) {
+        throw new IOException(String.format("expected %d, but got %d", expected, actual));
+      }
+    }
+
+    /**
+     * Like {@link #read(ReadableByteChannel, ByteBuffer)}, but serves small reads from a buffer
+     * that is filled with as many bytes as the channel provides, instead of issuing several reads
+     * on the channel for every record.
+     */
+    private int readBuffered(ReadableByteChannel in, ByteBuffer bb) throws IOException {
+      if (readBuffer == null) {
+        readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        readBuffer.flip();
+      }
+      int expected = bb.remaining();
+      while (bb.hasRemaining()) {
+        if (readBuffer.hasRemaining()) {
+          int n = Math.min(bb.remaining(), readBuffer.remaining());
+          bb.put(readBuffer.array(), readBuffer.position(), n);
+          readBuffer.position(readBuffer.position() + n);
+        } else if (bb.remaining() >= readBuffer.capacity()) {
+          // Large reads bypass the buffer.
+          read(in, bb);
+          break;
+        } else {
+          readBuffer.clear();
+          int bytesRead = in.read(readBuffer);
+          readBuffer.flip();
+          if (bytesRead < 0) {
+            break;
+          }
+        }
+      }
+      return expected - bb.remaining();
+    }
+
     @VisibleForTesting
     static void readFully(ReadableByteChannel in, ByteBuffer bb) throws IOException {
       int expected = bb.remaining();
@@ -747,5 +954,35 @@ public class TFRecordIO {
         channel.write(buffer);
       }
     }
+
+    /**
+     * A {@link Checksum} computing CRC32C with Guava, for Java versions that do not provide {@code
+     * java.util.zip.CRC32C}. {@link #getValue} may only be called once after each {@link #reset}.
+     */
+    private static class HashingCrc32c implements Checksum {
+      private static final HashFunction CRC32C = Hashing.crc32c();
+
+      private Hasher hasher = CRC32C.newHasher();
+
+      @Override
+      public void update(int b) {
+        hasher.putByte((byte) b);
+      }
+
+      @Override
+      public void update(byte[] b, int off, int len) {
+        hasher.putBytes(b, off, len);
+      }
+
+      @Override
+      public long getValue() {
+        return hasher.hash().asInt() & 0xffffffffL;
+      }
+
+      @Override
+      public void reset() {
+        hasher = CRC32C.newHasher();
+      }
+    }
   }
 }
@@ -911,6 +911,15 @@ public class TextIO {
           FileBasedSink.CompressionType.fromCanonical(compression));
     }
 
+    /**
+     * Returns a transform for writing to text files like this one but that compresses output using
+     * the given {@link CompressionParameters}, e.g. with a specific compression level.
+     */
+    public TypedWrite<UserT, DestinationT> withCompression(CompressionParameters parameters) {
+      checkArgument(parameters != null, "parameters can not be null");
+      return withWritableByteChannelFactory(parameters);
+    }
+
     /**
      * Preserves windowing of input elements and writes them to files based on the element's window.
      *
@@ -1170,6 +1179,11 @@ public class TextIO {
       return new Write(inner.withCompression(compression));
     }
 
+    /** See {@link TypedWrite#withCompression(CompressionParameters)}. */
+    public Write withCompression(CompressionParameters parameters) {
+      return new Write(inner.withCompression(parameters));
+    }
+
     /** See {@link TypedWrite#withWindowedWrites}. */
     public Write withWindowedWrites() {
       return new Write(inner.withWindowedWrites());
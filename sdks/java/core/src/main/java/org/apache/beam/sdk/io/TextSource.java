@@ -31,6 +31,7 @@ import org.apache.beam.sdk.io.fs.MatchResult;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.ValueProvider;
 import org.apache.beam.vendor.grpc.v1p26p0.com.google.protobuf.ByteString;
+import org.apache.beam.vendor.grpc.v1p26p0.com.google.protobuf.UnsafeByteOperations;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.annotations.VisibleForTesting;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -90,6 +91,8 @@ class TextSource extends FileBasedSource<String> {
   @VisibleForTesting
   static class TextBasedReader extends FileBasedReader<String> {
     private static final int READ_BUFFER_SIZE = 8192;
+    // Views of memory-mapped files are not copied, so they can be much larger than the read buffer.
+    private static final int MAPPED_READ_SIZE = 1 << 20;
     private static final ByteString UTF8_BOM =
         ByteString.copyFrom(new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF});
     private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
@@ -102,6 +105,7 @@ class TextSource extends FileBasedSource<String> {
     private volatile boolean elementIsPresent;
     private @Nullable String currentValue;
     private @Nullable ReadableByteChannel inChannel;
+    private @Nullable MemoryMappedFileChannel mappedChannel;
     private byte @Nullable [] delimiter;
 
     private TextBasedReader(TextSource source, byte[] delimiter) {
@@ -137,6 +141,8 @@ class TextSource extends FileBasedSource<String> {
     @Override
     protected void startReading(ReadableByteChannel channel) throws IOException {
       this.inChannel = channel;
+      this.mappedChannel =
+          (channel instanceof MemoryMappedFileChannel) ? (MemoryMappedFileChannel) channel : null;
       // If the first offset is greater than zero, we need to skip bytes until we see our
       // first delimiter.
       long startOffset = getCurrentSource().getStartOffset();
@@ -270,6 +276,15 @@ class TextSource extends FileBasedSource<String> {
       // While we aren't at EOF or haven't fulfilled the minimum buffer capacity,
       // attempt to read more bytes.
       while (buffer.size() <= minCapacity && !eof) {
+        if (mappedChannel != null) {
+          ByteBuffer view = mappedChannel.readView(MAPPED_READ_SIZE);
+          if (view == null) {
+            eof = true;
+          } else {
+            buffer = buffer.concat(UnsafeByteOperations.unsafeWrap(view));
+          }
+          continue;
+        }
         eof = inChannel.read(readBuffer) == -1;
         readBuffer.flip();
         buffer = buffer.concat(ByteString.copyFrom(readBuffer));
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.io;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Creates Zstandard output streams using {@code zstd-jni} directly.
+ *
+ * <p>{@code zstd-jni} is an optional dependency: every reference to it is kept in this class, which
+ * is only loaded when {@link Compression#ZSTD} output is written with {@link
+ * CompressionParameters}, so that {@link Compression} can be loaded without it.
+ */
+class ZstdCompression {
+
+  private ZstdCompression() {}
+
+  /** Returns a stream compressing to {@code out} with the given level and number of workers. */
+  static OutputStream createOutputStream(
+      OutputStream out, @Nullable Integer level, @Nullable Integer workers) throws IOException {
+    ZstdOutputStream stream = new ZstdOutputStream(out);
+    if (level != null) {
+      stream.setLevel(level);
+    }
+    if (workers != null) {
+      stream.setWorkers(workers);
+    }
+    return stream;
+  }
+}
@@ -28,6 +28,7 @@ import org.apache.beam.sdk.annotations.Experimental;
 import org.apache.beam.sdk.annotations.Experimental.Kind;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.CustomCoder;
+import org.apache.beam.sdk.coders.LazyRowCoder;
 import org.apache.beam.sdk.coders.RowCoder;
 import org.apache.beam.sdk.coders.RowCoderGenerator;
 import org.apache.beam.sdk.schemas.Schema.Field;
@@ -35,6 +36,7 @@ import org.apache.beam.sdk.schemas.Schema.FieldType;
 import org.apache.beam.sdk.transforms.SerializableFunction;
 import org.apache.beam.sdk.util.SerializableUtils;
 import org.apache.beam.sdk.values.Row;
+import org.apache.beam.sdk.values.RowWithEncodedValues;
 import org.apache.beam.sdk.values.TypeDescriptor;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -49,6 +51,7 @@ public class SchemaCoder<T> extends CustomCoder<T> {
   private final TypeDescriptor<T> typeDescriptor;
   private final SerializableFunction<T, Row> toRowFunction;
   private final SerializableFunction<Row, T> fromRowFunction;
+  private final boolean lazyDecoding;
   private transient @Nullable Coder<Row> delegateCoder;
 
   protected SchemaCoder(
@@ -56,6 +59,15 @@ public class SchemaCoder<T> extends CustomCoder<T> {
       TypeDescriptor<T> typeDescriptor,
       SerializableFunction<T, Row> toRowFunction,
       SerializableFunction<Row, T> fromRowFunction) {
+    this(schema, typeDescriptor, toRowFunction, fromRowFunction, false);
+  }
+
+  private SchemaCoder(
+      Schema schema,
+      TypeDescriptor<T> typeDescriptor,
+      SerializableFunction<T, Row> toRowFunction,
+      SerializableFunction<Row, T> fromRowFunction,
+      boolean lazyDecoding) {
     checkArgument(
         !typeDescriptor.hasUnresolvedParameters(),
         "Cannot create SchemaCoder with a TypeDescriptor that has unresolved parameters: %s",
@@ -69,6 +81,7 @@ public class SchemaCoder<T> extends CustomCoder<T> {
     this.fromRowFunction = fromRowFunction;
     this.typeDescriptor = typeDescriptor;
     this.schema = schema;
+    this.lazyDecoding = lazyDecoding;
   }
 
   /**
@@ -89,6 +102,26 @@ public class SchemaCoder<T> extends CustomCoder<T> {
     return RowCoder.of(schema);
   }
 
+  /**
+   * Returns a {@link SchemaCoder} like this one, but that uses an encoding that allows decoding
+   * individual fields of a {@link Row}. See {@link LazyRowCoder}.
+   *
+   * <p>Decoded rows are {@link RowWithEncodedValues}, which only decode fields when they are
+   * accessed, and which are re-encoded without decoding their fields. This makes shuffling wide
+   * rows of which only a few fields are accessed, for example by {@link
+   * org.apache.beam.sdk.schemas.transforms.Select} or {@link
+   * org.apache.beam.sdk.schemas.transforms.Filter}, much cheaper. Each encoded row is slightly
+   * larger, as it contains the length of each field.
+   */
+  public SchemaCoder<T> withLazyDecoding() {
+    return new SchemaCoder<>(schema, typeDescriptor, toRowFunction, fromRowFunction, true);
+  }
+
+  /** Returns whether this coder uses the encoding of {@link #withLazyDecoding()}. */
+  public boolean usesLazyDecoding() {
+    return lazyDecoding;
+  }
+
   /** Returns the schema associated with this type. */
   public Schema getSchema() {
     return schema;
@@ -108,7 +141,7 @@ public class SchemaCoder<T> extends CustomCoder<T> {
     if (delegateCoder == null) {
       // RowCoderGenerator caches based on id, so if a new instance of this RowCoder is
       // deserialized, we don't need to run ByteBuddy again to construct the class.
-      delegateCoder = RowCoderGenerator.generate(schema);
+      delegateCoder = lazyDecoding ? LazyRowCoder.of(schema) : RowCoderGenerator.generate(schema);
     }
     return delegateCoder;
   }
@@ -205,12 +238,13 @@ public class SchemaCoder<T> extends CustomCoder<T> {
     return schema.equals(that.schema)
         && typeDescriptor.equals(that.typeDescriptor)
         && toRowFunction.equals(that.toRowFunction)
-        && fromRowFunction.equals(that.fromRowFunction);
+        && fromRowFunction.equals(that.fromRowFunction)
+        && lazyDecoding == that.lazyDecoding;
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(schema, typeDescriptor, toRowFunction, fromRowFunction);
+    return Objects.hash(schema, typeDescriptor, toRowFunction, fromRowFunction, lazyDecoding);
   }
 
   private static RowIdentity identity() {
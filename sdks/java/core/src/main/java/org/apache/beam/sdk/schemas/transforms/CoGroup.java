@@ -229,6 +229,8 @@ public class CoGroup {
 
     abstract boolean getSideInput();
 
+    abstract boolean getLazyDecoding();
+
     abstract Builder toBuilder();
 
     @AutoValue.Builder
@@ -239,6 +241,8 @@ public class CoGroup {
 
       abstract Builder setSideInput(boolean sideInput);
 
+      abstract Builder setLazyDecoding(boolean lazyDecoding);
+
       abstract By build();
     }
 
@@ -258,6 +262,7 @@ public class CoGroup {
           .setFieldAccessDescriptor(fieldAccessDescriptor)
           .setOptionalParticipation(false)
           .setSideInput(false)
+          .setLazyDecoding(false)
           .build();
     }
 
@@ -274,6 +279,17 @@ public class CoGroup {
     public By withSideInput() {
       return toBuilder().setSideInput(true).build();
     }
+
+    /**
+     * Keeps the rows of this input encoded when it is a side input, so that cached side inputs
+     * take less memory and only the fields that are accessed are decoded.
+     *
+     * <p>This changes the coder of the side input, so a pipeline using it is not update compatible
+     * with one that does not. It has no effect unless {@link #withSideInput()} is also used.
+     */
+    public By withLazyDecoding() {
+      return toBuilder().setLazyDecoding(true).build();
+    }
   }
 
   static class JoinArguments implements Serializable {
@@ -312,6 +328,12 @@ public class CoGroup {
           ? allInputsJoinArgs.getSideInput()
           : joinArgsMap.get(tag).getSideInput();
     }
+
+    private boolean getLazyDecoding(String tag) {
+      return (allInputsJoinArgs != null)
+          ? allInputsJoinArgs.getLazyDecoding()
+          : joinArgsMap.get(tag).getLazyDecoding();
+    }
   }
 
   /**
@@ -360,7 +382,8 @@ public class CoGroup {
     private static JoinInformation from(
         PCollectionTuple input,
         Function<String, FieldAccessDescriptor> getFieldAccessDescriptor,
-        Function<String, Boolean> getIsSideInput) {
+        Function<String, Boolean> getIsSideInput,
+        Function<String, Boolean> getLazyDecoding) {
       KeyedPCollectionTuple<Row> keyedPCollectionTuple =
           KeyedPCollectionTuple.empty(input.getPipeline());
 
@@ -403,9 +426,11 @@ public class CoGroup {
         TupleTag randomTag = new TupleTag<>();
         String keyedTag = tag + "_" + randomTag;
         tagToKeyedTag.put(tagIndex, keyedTag);
+        boolean isSideInput = getIsSideInput.apply(tag);
         PCollection<KV<Row, Row>> keyedPCollection =
-            extractKey(pc, schema, keySchema, resolved, tag);
-        if (getIsSideInput.apply(tag)) {
+            extractKey(
+                pc, schema, keySchema, resolved, tag, isSideInput && getLazyDecoding.apply(tag));
+        if (isSideInput) {
           sideInputs.put(
               keyedTag, keyedPCollection.apply("computeSideInputView" + tag, View.asMultimap()));
         } else {
@@ -426,7 +451,10 @@ public class CoGroup {
         Schema schema,
         Schema keySchema,
         FieldAccessDescriptor keyFields,
-        String tag) {
+        String tag,
+        boolean lazyDecoding) {
+      SchemaCoder<Row> valueCoder =
+          lazyDecoding ? SchemaCoder.of(schema).withLazyDecoding() : SchemaCoder.of(schema);
       return pCollection
           .apply(
               "extractKey" + tag,
@@ -440,7 +468,7 @@ public class CoGroup {
                       o.output(KV.of(rowSelector.select(row), row));
                     }
                   }))
-          .setCoder(KvCoder.of(SchemaCoder.of(keySchema), SchemaCoder.of(schema)));
+          .setCoder(KvCoder.of(SchemaCoder.of(keySchema), valueCoder));
     }
   }
 
@@ -737,7 +765,10 @@ public class CoGroup {
 
       JoinInformation joinInformation =
           JoinInformation.from(
-              input, joinArgs::getFieldAccessDescriptor, joinArgs::getSideInputSource);
+              input,
+              joinArgs::getFieldAccessDescriptor,
+              joinArgs::getSideInputSource,
+              joinArgs::getLazyDecoding);
 
       Collection<PCollectionView<Map<Row, Iterable<Row>>>> views =
           joinInformation.sideInputs.values();
@@ -780,7 +811,10 @@ public class CoGroup {
 
       JoinInformation joinInformation =
           JoinInformation.from(
-              input, joinArgs::getFieldAccessDescriptor, joinArgs::getSideInputSource);
+              input,
+              joinArgs::getFieldAccessDescriptor,
+              joinArgs::getSideInputSource,
+              joinArgs::getLazyDecoding);
 
       Result.verifyExpandedArgs(joinInformation, joinArgs);
       Schema outputSchema = Result.getExpandedOutputSchema(joinInformation, joinArgs);
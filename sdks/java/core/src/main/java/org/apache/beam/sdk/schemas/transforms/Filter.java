@@ -106,6 +106,12 @@ public class Filter {
 
       abstract @Nullable Schema getInputSchema();
 
+      /**
+       * The id of the field passed to the predicate if it is a single top-level field, which is
+       * then read from the row directly instead of being selected into a new row.
+       */
+      abstract @Nullable Integer getTopLevelFieldId();
+
       abstract Builder<FieldT> toBuilder();
 
       @AutoValue.Builder
@@ -121,6 +127,8 @@ public class Filter {
 
         abstract Builder<FieldT> setInputSchema(@Nullable Schema inputSchema);
 
+        abstract Builder<FieldT> setTopLevelFieldId(@Nullable Integer topLevelFieldId);
+
         abstract FilterDescription<FieldT> build();
       }
 
@@ -203,6 +211,7 @@ public class Filter {
                           .setSelectedSchema(
                               SelectHelpers.getOutputSchema(
                                   inputSchema, f.getFieldAccessDescriptor()))
+                          .setTopLevelFieldId(topLevelFieldId(f))
                           .build())
               .collect(Collectors.toList());
 
@@ -212,6 +221,15 @@ public class Filter {
                 @ProcessElement
                 public void process(@Element Row row, OutputReceiver<Row> o) {
                   for (FilterDescription filter : resolvedFilters) {
+                    Integer topLevelFieldId = filter.getTopLevelFieldId();
+                    if (topLevelFieldId != null) {
+                      SerializableFunction<Object, Boolean> predicate =
+                          (SerializableFunction<Object, Boolean>) filter.getPredicate();
+                      if (!predicate.apply(row.getValue(topLevelFieldId))) {
+                        return;
+                      }
+                      continue;
+                    }
                     Row selected = filter.getRowSelector().select(row);
                     if (filter.getSelectsSingleField()) {
                       SerializableFunction<Object, Boolean> predicate =
@@ -232,5 +250,16 @@ public class Filter {
                 }
               }));
     }
+
+    private static @Nullable Integer topLevelFieldId(FilterDescription<?> filter) {
+      FieldAccessDescriptor fieldAccessDescriptor = filter.getFieldAccessDescriptor();
+      if (!filter.getSelectsSingleField()
+          || fieldAccessDescriptor.getAllFields()
+          || !fieldAccessDescriptor.getNestedFieldsAccessed().isEmpty()
+          || fieldAccessDescriptor.getFieldsAccessed().size() != 1) {
+        return null;
+      }
+      return fieldAccessDescriptor.getFieldsAccessed().get(0).getFieldId();
+    }
   }
 }
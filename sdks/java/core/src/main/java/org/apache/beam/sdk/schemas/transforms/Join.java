@@ -51,6 +51,27 @@ import org.checkerframework.checker.nullness.qual.Nullable;
  * }</pre>
  *
  * <p>Full outer joins, left outer joins, and right outer joins are also supported.
+ *
+ * <p>When the right-hand PCollection is small, for example a dimension table joined against a
+ * stream of facts, inner and left outer joins can broadcast it to every worker instead of shuffling
+ * both sides:
+ *
+ * <pre>{@code PCollection<Row> joined = facts.apply(Join.innerJoin(dimensions)
+ *       .using("country")
+ *       .withBroadcastRight());
+ * }</pre>
+ *
+ * <p>The right-hand PCollection is then materialized as a multimap side input from the join key to
+ * the matching rows, which runners index by the encoded key, and every left-hand row is joined by
+ * looking up its key, without a shuffle. With {@link Impl#withLazyDecoding()}, the right-hand rows
+ * are kept in their encoded form and only decoded when they are accessed. The whole right-hand
+ * PCollection must fit in the side input cache of a worker for this to perform well.
+ *
+ * <p>Broadcasting is never chosen automatically, and a broadcast join does not fall back to a
+ * {@link CoGroup} when the right-hand side turns out to be large: a {@link PCollection} carries no
+ * size estimate when the pipeline is constructed, so which side is small must be known by the
+ * caller. Outside of the multimap indexing provided by the runner, the right-hand rows are not
+ * stored in a dedicated hash table.
  */
 @Experimental(Kind.SCHEMAS)
 @SuppressWarnings({
@@ -173,15 +194,21 @@ public class Join {
     private final JoinType joinType;
     private final transient PCollection<RhsT> rhs;
     private final FieldsEqual.@Nullable Impl predicate;
+    private final boolean lazyDecoding;
 
     private Impl(JoinType joinType, PCollection<RhsT> rhs) {
-      this(joinType, rhs, null);
+      this(joinType, rhs, null, false);
     }
 
-    private Impl(JoinType joinType, PCollection<RhsT> rhs, FieldsEqual.Impl predicate) {
+    private Impl(
+        JoinType joinType,
+        PCollection<RhsT> rhs,
+        FieldsEqual.Impl predicate,
+        boolean lazyDecoding) {
       this.joinType = joinType;
       this.rhs = rhs;
       this.predicate = predicate;
+      this.lazyDecoding = lazyDecoding;
     }
 
     /**
@@ -189,7 +216,8 @@ public class Join {
      * PCollections
      */
     public Impl<LhsT, RhsT> using(String... fieldNames) {
-      return new Impl<>(joinType, rhs, FieldsEqual.left(fieldNames).right(fieldNames));
+      return new Impl<>(
+          joinType, rhs, FieldsEqual.left(fieldNames).right(fieldNames), lazyDecoding);
     }
 
     /**
@@ -197,7 +225,7 @@ public class Join {
      * PCollections
      */
     public Impl<LhsT, RhsT> using(Integer... fieldIds) {
-      return new Impl<>(joinType, rhs, FieldsEqual.left(fieldIds).right(fieldIds));
+      return new Impl<>(joinType, rhs, FieldsEqual.left(fieldIds).right(fieldIds), lazyDecoding);
     }
 
     /**
@@ -206,12 +234,53 @@ public class Join {
      */
     public Impl<LhsT, RhsT> using(FieldAccessDescriptor fieldAccessDescriptor) {
       return new Impl<>(
-          joinType, rhs, FieldsEqual.left(fieldAccessDescriptor).right(fieldAccessDescriptor));
+          joinType,
+          rhs,
+          FieldsEqual.left(fieldAccessDescriptor).right(fieldAccessDescriptor),
+          lazyDecoding);
     }
 
     /** Join the PCollections using the provided predicate. */
     public Impl<LhsT, RhsT> on(FieldsEqual.Impl predicate) {
-      return new Impl<>(joinType, rhs, predicate);
+      return new Impl<>(joinType, rhs, predicate, lazyDecoding);
+    }
+
+    /**
+     * Broadcast the right-hand PCollection to every worker as a side input, and join the left-hand
+     * PCollection against it without a shuffle. Only supported for inner and left outer joins, as
+     * unmatched right-hand rows cannot be detected when the left-hand side is not grouped.
+     *
+     * <p>The right-hand side is broadcast whatever its size, see the {@link Join} documentation.
+     */
+    public Impl<LhsT, RhsT> withBroadcastRight() {
+      switch (joinType) {
+        case INNER:
+        case INNER_BROADCAST:
+          return new Impl<>(JoinType.INNER_BROADCAST, rhs, predicate, lazyDecoding);
+        case LEFT_OUTER:
+        case LEFT_OUTER_BROADCAST:
+          return new Impl<>(JoinType.LEFT_OUTER_BROADCAST, rhs, predicate, lazyDecoding);
+        default:
+          throw new IllegalArgumentException(
+              "The right-hand side can only be broadcast for inner and left outer joins, not for "
+                  + joinType
+                  + " joins.");
+      }
+    }
+
+    /**
+     * Keep the rows of a broadcast right-hand PCollection encoded in the side input, decoding their
+     * fields only when they are accessed. This reduces the memory used by cached side inputs, but
+     * changes their coder, so a pipeline using it is not update compatible with one that does not.
+     * Has no effect unless the right-hand side is broadcast.
+     */
+    public Impl<LhsT, RhsT> withLazyDecoding() {
+      return new Impl<>(joinType, rhs, predicate, true);
+    }
+
+    private CoGroup.By broadcastBy(FieldAccessDescriptor fieldAccessDescriptor) {
+      CoGroup.By by = CoGroup.By.fieldAccessDescriptor(fieldAccessDescriptor).withSideInput();
+      return lazyDecoding ? by.withLazyDecoding() : by;
     }
 
     @Override
@@ -227,9 +296,7 @@ public class Join {
         case INNER_BROADCAST:
           return tuple.apply(
               CoGroup.join(LHS_TAG, CoGroup.By.fieldAccessDescriptor(resolvedPredicate.lhs))
-                  .join(
-                      RHS_TAG,
-                      CoGroup.By.fieldAccessDescriptor(resolvedPredicate.rhs).withSideInput())
+                  .join(RHS_TAG, broadcastBy(resolvedPredicate.rhs))
                   .crossProductJoin());
         case OUTER:
           return tuple.apply(
@@ -255,9 +322,7 @@ public class Join {
               CoGroup.join(LHS_TAG, CoGroup.By.fieldAccessDescriptor(resolvedPredicate.lhs))
                   .join(
                       RHS_TAG,
-                      CoGroup.By.fieldAccessDescriptor(resolvedPredicate.rhs)
-                          .withOptionalParticipation()
-                          .withSideInput())
+                      broadcastBy(resolvedPredicate.rhs).withOptionalParticipation())
                   .crossProductJoin());
         case RIGHT_OUTER:
           return tuple.apply(
@@ -40,6 +40,7 @@ import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.transforms.SerializableFunction;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.Row;
+import org.apache.beam.sdk.values.RowWithEncodedValues;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.MoreObjects;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableMap;
@@ -133,6 +134,9 @@ public class Select {
     private final Schema inputSchema;
     private final Schema outputSchema;
     RowSelector rowSelector;
+    // Ids of the selected fields if only top-level fields are selected, otherwise null. Such a
+    // selection can share the encoded values of a RowWithEncodedValues.
+    private final int @Nullable [] topLevelFieldIds;
 
     // TODO: This should be the same as resolved so that Beam knows which fields
     // are being accessed. Currently Beam only supports wildcard descriptors.
@@ -146,11 +150,20 @@ public class Select {
       this.inputSchema = inputSchema;
       this.outputSchema = outputSchema;
       this.rowSelector = new RowSelectorContainer(inputSchema, fieldAccessDescriptor, true);
+      this.topLevelFieldIds =
+          (!fieldAccessDescriptor.getAllFields()
+                  && fieldAccessDescriptor.getNestedFieldsAccessed().isEmpty())
+              ? fieldAccessDescriptor.fieldIdsAccessed().stream().mapToInt(i -> i).toArray()
+              : null;
     }
 
     @ProcessElement
     public void process(@FieldAccess("selectFields") @Element Row row, OutputReceiver<Row> r) {
-      r.output(rowSelector.select(row));
+      if (topLevelFieldIds != null && row instanceof RowWithEncodedValues) {
+        r.output(((RowWithEncodedValues) row).select(outputSchema, topLevelFieldIds));
+      } else {
+        r.output(rowSelector.select(row));
+      }
     }
   }
 
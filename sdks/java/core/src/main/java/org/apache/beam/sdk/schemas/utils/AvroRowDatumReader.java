@@ -0,0 +1,329 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.schemas.utils;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.avro.LogicalType;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema.Type;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.Decoder;
+import org.apache.beam.sdk.annotations.Experimental;
+import org.apache.beam.sdk.annotations.Experimental.Kind;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.schemas.logicaltypes.EnumerationType;
+import org.apache.beam.sdk.schemas.utils.AvroUtils.TypeWithNullability;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.sdk.values.SchemaVerification;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+
+/**
+ * A {@link DatumReader} that decodes Avro binary data directly into Beam {@link Row}s, without
+ * materializing an intermediate {@link org.apache.avro.generic.GenericRecord}.
+ *
+ * <p>The writer schema is resolved against the reader schema once, when the reader is created,
+ * into a tree of value decoders. Fields that only exist in the writer schema are skipped in the
+ * binary stream, and fields that only exist in the reader schema are set to their default value,
+ * which they must have unless they are nullable. The Beam schema of the produced rows is {@link
+ * AvroUtils#toBeamSchema} of the reader schema and values are converted the same way as {@link
+ * AvroUtils#toBeamRowStrict}.
+ *
+ * <p>Types that need Avro's full schema resolution (general unions, decimals and values whose
+ * writer and reader schemas differ other than by record fields) are decoded with a {@link
+ * GenericDatumReader} and converted field by field.
+ */
+@Experimental(Kind.SCHEMAS)
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+public class AvroRowDatumReader implements DatumReader<Row> {
+  private final org.apache.avro.Schema readerSchema;
+  private final Schema beamSchema;
+  private RecordDecoder decoder;
+
+  public AvroRowDatumReader(org.apache.avro.Schema schema) {
+    this(schema, schema);
+  }
+
+  public AvroRowDatumReader(
+      org.apache.avro.Schema writerSchema, org.apache.avro.Schema readerSchema) {
+    checkArgument(
+        readerSchema.getType() == Type.RECORD,
+        "Can only read Avro records as rows, but got %s",
+        readerSchema.getType());
+    this.readerSchema = readerSchema;
+    this.beamSchema = AvroUtils.toBeamSchema(readerSchema);
+    this.decoder = new RecordDecoder(writerSchema, readerSchema, beamSchema);
+  }
+
+  /** Returns the Beam {@link Schema} of the rows produced by this reader. */
+  public Schema getBeamSchema() {
+    return beamSchema;
+  }
+
+  @Override
+  public void setSchema(org.apache.avro.Schema writerSchema) {
+    this.decoder = new RecordDecoder(writerSchema, readerSchema, beamSchema);
+  }
+
+  @Override
+  public Row read(@Nullable Row reuse, Decoder in) throws IOException {
+    return decoder.read(in);
+  }
+
+  /** Decodes a single value of a given writer schema into its Beam {@link Row} representation. */
+  @FunctionalInterface
+  private interface ValueDecoder {
+    @Nullable
+    Object read(Decoder in) throws IOException;
+  }
+
+  /**
+   * Decodes a record of the writer schema into a {@link Row} of the reader schema. Values are
+   * attached to the row directly, so every decoder must produce the value of its field as {@link
+   * Row.Builder#build} would store it, e.g. an {@link EnumerationType.Value} for an enum.
+   */
+  private static class RecordDecoder implements ValueDecoder {
+    private final Schema beamSchema;
+    // Indexed by writer field. A negative position means the field is skipped.
+    private final ValueDecoder[] fieldDecoders;
+    private final int[] fieldPositions;
+    // Indexed by reader field, the values of the fields missing from the writer schema.
+    private final Object[] defaultValues;
+
+    RecordDecoder(
+        org.apache.avro.Schema writerSchema,
+        org.apache.avro.Schema readerSchema,
+        Schema beamSchema) {
+      this.beamSchema = beamSchema;
+      List<org.apache.avro.Schema.Field> writerFields = writerSchema.getFields();
+      this.fieldDecoders = new ValueDecoder[writerFields.size()];
+      this.fieldPositions = new int[writerFields.size()];
+      boolean[] present = new boolean[readerSchema.getFields().size()];
+      for (int i = 0; i < writerFields.size(); i++) {
+        org.apache.avro.Schema.Field writerField = writerFields.get(i);
+        org.apache.avro.Schema.Field readerField = readerSchema.getField(writerField.name());
+        if (readerField == null) {
+          org.apache.avro.Schema skippedSchema = writerField.schema();
+          fieldPositions[i] = -1;
+          fieldDecoders[i] =
+              in -> {
+                GenericDatumReader.skip(skippedSchema, in);
+                return null;
+              };
+        } else {
+          fieldPositions[i] = readerField.pos();
+          fieldDecoders[i] =
+              createDecoder(
+                  writerField.schema(),
+                  readerField.schema(),
+                  beamSchema.getField(readerField.pos()).getType());
+          present[readerField.pos()] = true;
+        }
+      }
+      this.defaultValues = new Object[present.length];
+      for (int i = 0; i < present.length; i++) {
+        if (present[i]) {
+          continue;
+        }
+        org.apache.avro.Schema.Field readerField = readerSchema.getFields().get(i);
+        FieldType fieldType = beamSchema.getField(i).getType();
+        if (readerField.defaultVal() != null) {
+          defaultValues[i] =
+              AvroUtils.convertAvroFieldStrict(
+                  GenericData.get().getDefaultValue(readerField), readerField.schema(), fieldType);
+        } else {
+          checkArgument(
+              fieldType.getNullable(),
+              "Field %s is missing from the writer schema, and has no default value and is not"
+                  + " nullable",
+              readerField.name());
+        }
+      }
+    }
+
+    @Override
+    public Row read(Decoder in) throws IOException {
+      Object[] values = defaultValues.clone();
+      for (int i = 0; i < fieldDecoders.length; i++) {
+        Object value = fieldDecoders[i].read(in);
+        int position = fieldPositions[i];
+        if (position >= 0) {
+          values[position] = value;
+        }
+      }
+      return Row.withSchema(beamSchema).attachValues(Arrays.asList(values));
+    }
+  }
+
+  private static ValueDecoder createDecoder(
+      org.apache.avro.Schema writerSchema,
+      org.apache.avro.Schema readerSchema,
+      FieldType fieldType) {
+    if (writerSchema.getType() == Type.RECORD && readerSchema.getType() == Type.RECORD) {
+      return new RecordDecoder(writerSchema, readerSchema, fieldType.getRowSchema());
+    }
+    if (!writerSchema.equals(readerSchema)) {
+      return createResolvingDecoder(writerSchema, readerSchema, fieldType);
+    }
+
+    TypeWithNullability type = new TypeWithNullability(readerSchema);
+    if (type.nullable) {
+      if (type.type.getType() == Type.UNION) {
+        return createResolvingDecoder(writerSchema, readerSchema, fieldType);
+      }
+      List<org.apache.avro.Schema> branches = readerSchema.getTypes();
+      ValueDecoder[] branchDecoders = new ValueDecoder[branches.size()];
+      for (int i = 0; i < branches.size(); i++) {
+        org.apache.avro.Schema branch = branches.get(i);
+        if (branch.getType() == Type.NULL) {
+          branchDecoders[i] =
+              in -> {
+                in.readNull();
+                return null;
+              };
+        } else {
+          branchDecoders[i] = createDecoder(branch, branch, fieldType.withNullable(false));
+        }
+      }
+      return in -> branchDecoders[in.readIndex()].read(in);
+    }
+
+    LogicalType logicalType = LogicalTypes.fromSchema(type.type);
+    if (logicalType instanceof LogicalTypes.TimestampMillis) {
+      return in -> new Instant(in.readLong());
+    } else if (logicalType instanceof LogicalTypes.Date) {
+      return in -> Instant.EPOCH.plus(Duration.standardDays(in.readInt()));
+    } else if (logicalType instanceof LogicalTypes.Decimal) {
+      return createResolvingDecoder(writerSchema, readerSchema, fieldType);
+    }
+
+    switch (type.type.getType()) {
+      case FIXED:
+        int size = type.type.getFixedSize();
+        return in -> {
+          byte[] bytes = new byte[size];
+          in.readFixed(bytes);
+          return bytes;
+        };
+
+      case BYTES:
+        return in -> {
+          ByteBuffer buffer = in.readBytes(null);
+          byte[] bytes = new byte[buffer.remaining()];
+          buffer.get(bytes);
+          return bytes;
+        };
+
+      case STRING:
+        return Decoder::readString;
+
+      case INT:
+        return Decoder::readInt;
+
+      case LONG:
+        return Decoder::readLong;
+
+      case FLOAT:
+        return Decoder::readFloat;
+
+      case DOUBLE:
+        return Decoder::readDouble;
+
+      case BOOLEAN:
+        return Decoder::readBoolean;
+
+      case ENUM:
+        // The index written to the stream is the ordinal of the symbol in the reader schema, as
+        // writer and reader schema are equal.
+        EnumerationType enumerationType = fieldType.getLogicalType(EnumerationType.class);
+        return in -> enumerationType.valueOf(in.readEnum());
+
+      case ARRAY:
+        ValueDecoder elementDecoder =
+            createDecoder(
+                type.type.getElementType(),
+                type.type.getElementType(),
+                fieldType.getCollectionElementType());
+        return in -> {
+          List<Object> values = new ArrayList<>();
+          for (long n = in.readArrayStart(); n > 0; n = in.arrayNext()) {
+            for (long i = 0; i < n; i++) {
+              values.add(elementDecoder.read(in));
+            }
+          }
+          return values;
+        };
+
+      case MAP:
+        ValueDecoder valueDecoder =
+            createDecoder(
+                type.type.getValueType(), type.type.getValueType(), fieldType.getMapValueType());
+        return in -> {
+          Map<Object, Object> values = new HashMap<>();
+          for (long n = in.readMapStart(); n > 0; n = in.mapNext()) {
+            for (long i = 0; i < n; i++) {
+              String key = in.readString();
+              values.put(key, valueDecoder.read(in));
+            }
+          }
+          return values;
+        };
+
+      case UNION:
+        return createResolvingDecoder(writerSchema, readerSchema, fieldType);
+
+      case NULL:
+        throw new IllegalArgumentException("Can't convert 'null' to non-nullable field");
+
+      default:
+        throw new AssertionError("Unexpected AVRO Schema.Type: " + type.type.getType());
+    }
+  }
+
+  /**
+   * Falls back to Avro's schema resolution for a single value, converting the result with {@link
+   * AvroUtils#convertAvroFieldStrict} into the base type expected by {@link Row}.
+   */
+  private static ValueDecoder createResolvingDecoder(
+      org.apache.avro.Schema writerSchema,
+      org.apache.avro.Schema readerSchema,
+      FieldType fieldType) {
+    GenericDatumReader<Object> reader = new GenericDatumReader<>(writerSchema, readerSchema);
+    return in -> {
+      Object value =
+          AvroUtils.convertAvroFieldStrict(reader.read(null, in), readerSchema, fieldType);
+      return (value == null)
+          ? null
+          : SchemaVerification.verifyFieldValue(value, fieldType, readerSchema.getName());
+    };
+  }
+}
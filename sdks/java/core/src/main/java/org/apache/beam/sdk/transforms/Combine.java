@@ -18,6 +18,7 @@
 package org.apache.beam.sdk.transforms;
 
 import static org.apache.beam.sdk.options.ExperimentalOptions.hasExperiment;
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
 import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkState;
 
 import java.io.IOException;
@@ -1513,6 +1514,12 @@ public class Combine {
   public static class PerKey<K, InputT, OutputT>
       extends PTransform<PCollection<KV<K, InputT>>, PCollection<KV<K, OutputT>>> {
 
+    /**
+     * The default number of times a key must recently occur on a worker, across bundles, to be
+     * considered hot.
+     */
+    public static final long DEFAULT_HOT_KEY_THRESHOLD = 1000;
+
     private final GlobalCombineFn<? super InputT, ?, OutputT> fn;
     private final DisplayData.ItemSpec<? extends Class<?>> fnDisplayData;
     private final boolean fewKeys;
@@ -1573,7 +1580,7 @@ public class Combine {
      */
     public PerKeyWithHotKeyFanout<K, InputT, OutputT> withHotKeyFanout(
         SerializableFunction<? super K, Integer> hotKeyFanout) {
-      return new PerKeyWithHotKeyFanout<>(fn, fnDisplayData, hotKeyFanout);
+      return new PerKeyWithHotKeyFanout<>(fn, fnDisplayData, hotKeyFanout, 0);
     }
 
     /**
@@ -1595,7 +1602,53 @@ public class Combine {
             public Integer apply(K unused) {
               return hotKeyFanout;
             }
-          });
+          },
+          0);
+    }
+
+    /**
+     * Like {@link #withHotKeyFanout(int)}, but only spreading the keys that are detected to be hot
+     * while processing, so that the keys which are hot need not be known up front.
+     *
+     * <p>Each worker estimates the frequencies of the keys it recently processed, across bundles.
+     * Once a key has occurred {@code hotKeyThreshold} times, its following values are spread among
+     * {@code hotKeyFanout} intermediate nodes for partial combining, for as long as the key stays
+     * frequent. All other values are combined directly.
+     *
+     * <p>Detections are reported by the {@code hotKeysDetected} counter, and a sample of the hot
+     * keys is logged.
+     */
+    public PerKeyWithHotKeyFanout<K, InputT, OutputT> withAdaptiveHotKeyFanout(
+        final int hotKeyFanout, final long hotKeyThreshold) {
+      checkArgument(hotKeyThreshold > 0, "hotKeyThreshold must be positive");
+      return new PerKeyWithHotKeyFanout<>(
+          fn,
+          fnDisplayData,
+          new SimpleFunction<K, Integer>() {
+            @Override
+            public void populateDisplayData(Builder builder) {
+              super.populateDisplayData(builder);
+              builder
+                  .add(DisplayData.item("fanout", hotKeyFanout).withLabel("Key Fanout Size"))
+                  .add(
+                      DisplayData.item("hotKeyThreshold", hotKeyThreshold)
+                          .withLabel("Hot Key Threshold"));
+            }
+
+            @Override
+            public Integer apply(K unused) {
+              return hotKeyFanout;
+            }
+          },
+          hotKeyThreshold);
+    }
+
+    /**
+     * Like {@link #withAdaptiveHotKeyFanout(int, long)}, treating keys that occur {@value
+     * #DEFAULT_HOT_KEY_THRESHOLD} times as hot.
+     */
+    public PerKeyWithHotKeyFanout<K, InputT, OutputT> withAdaptiveHotKeyFanout(int hotKeyFanout) {
+      return withAdaptiveHotKeyFanout(hotKeyFanout, DEFAULT_HOT_KEY_THRESHOLD);
     }
 
     /** Returns the {@link GlobalCombineFn} used by this Combine operation. */
@@ -1641,14 +1694,19 @@ public class Combine {
     private final GlobalCombineFn<? super InputT, ?, OutputT> fn;
     private final DisplayData.ItemSpec<? extends Class<?>> fnDisplayData;
     private final SerializableFunction<? super K, Integer> hotKeyFanout;
+    // If positive, only keys that recently occurred this many times on the worker, across bundles,
+    // are spread.
+    private final long hotKeyThreshold;
 
     private PerKeyWithHotKeyFanout(
         GlobalCombineFn<? super InputT, ?, OutputT> fn,
         DisplayData.ItemSpec<? extends Class<?>> fnDisplayData,
-        SerializableFunction<? super K, Integer> hotKeyFanout) {
+        SerializableFunction<? super K, Integer> hotKeyFanout,
+        long hotKeyThreshold) {
       this.fn = fn;
       this.fnDisplayData = fnDisplayData;
       this.hotKeyFanout = hotKeyFanout;
+      this.hotKeyThreshold = hotKeyThreshold;
     }
 
     @Override
@@ -1897,6 +1955,15 @@ public class Combine {
               ParDo.of(
                       new DoFn<KV<K, InputT>, KV<K, InputT>>() {
                         transient int nonce;
+                        transient @Nullable HotKeyDetector<K> hotKeyDetector;
+
+                        @Setup
+                        public void setup() {
+                          if (hotKeyThreshold > 0) {
+                            hotKeyDetector =
+                                new HotKeyDetector<>(inputCoder.getKeyCoder(), hotKeyThreshold);
+                          }
+                        }
 
                         @StartBundle
                         public void startBundle() {
@@ -1911,7 +1978,10 @@ public class Combine {
                         @ProcessElement
                         public void processElement(
                             @Element KV<K, InputT> kv, MultiOutputReceiver receiver) {
-                          int spread = hotKeyFanout.apply(kv.getKey());
+                          int spread =
+                              hotKeyDetector == null || hotKeyDetector.isHot(kv.getKey())
+                                  ? hotKeyFanout.apply(kv.getKey())
+                                  : 1;
                           if (spread <= 1) {
                             receiver.get(cold).output(kv);
                           } else {
@@ -17,9 +17,19 @@
  */
 package org.apache.beam.sdk.transforms;
 
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import org.apache.beam.sdk.coders.BooleanCoder;
 import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderException;
 import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.state.MapState;
 import org.apache.beam.sdk.state.StateSpec;
 import org.apache.beam.sdk.state.StateSpecs;
 import org.apache.beam.sdk.state.TimeDomain;
@@ -27,9 +37,12 @@ import org.apache.beam.sdk.state.Timer;
 import org.apache.beam.sdk.state.TimerSpec;
 import org.apache.beam.sdk.state.TimerSpecs;
 import org.apache.beam.sdk.state.ValueState;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.util.CoderUtils;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.TypeDescriptor;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.hash.Hashing;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.joda.time.Duration;
 
@@ -63,6 +76,12 @@ import org.joda.time.Duration;
  * PCollection<String> deduplicatedWords =
  *     words.apply(Deduplicate.<String>values());
  * }</pre>
+ *
+ * <p>By default, every distinct value is kept in its own state cell with its own expiry timer. When
+ * deduplicating a very large number of values, setting and firing these timers can dominate the
+ * cost of deduplication. The {@code withExpiryBuckets} methods instead distribute the values over a
+ * fixed number of shards, which each keep the values they have seen in a {@link MapState}, and
+ * expire them in buckets of time with a single timer per shard and bucket.
  */
 public final class Deduplicate {
   /** The default is the {@link TimeDomain#PROCESSING_TIME processing time domain}. */
@@ -77,10 +96,13 @@ public final class Deduplicate {
   public static final class Values<T> extends PTransform<PCollection<T>, PCollection<T>> {
     private final TimeDomain timeDomain;
     private final Duration duration;
+    private final @Nullable ExpiryBuckets expiryBuckets;
 
-    private Values(TimeDomain timeDomain, Duration duration) {
+    private Values(
+        TimeDomain timeDomain, Duration duration, @Nullable ExpiryBuckets expiryBuckets) {
       this.timeDomain = timeDomain;
       this.duration = duration;
+      this.expiryBuckets = expiryBuckets;
     }
 
     @Override
@@ -95,7 +117,7 @@ public final class Deduplicate {
                       return KV.of(element, (Void) null);
                     }
                   }))
-          .apply(new KeyedValues<>(timeDomain, duration))
+          .apply(new KeyedValues<>(timeDomain, duration, expiryBuckets))
           .apply(Keys.create());
     }
 
@@ -103,14 +125,22 @@ public final class Deduplicate {
      * Returns a {@code Values} {@link PTransform} like this one but with the specified time domain.
      */
     public Values<T> withTimeDomain(TimeDomain timeDomain) {
-      return new Values<T>(timeDomain, duration);
+      return new Values<T>(timeDomain, duration, expiryBuckets);
     }
 
     /**
      * Returns a {@code Values} {@link PTransform} like this one but with the specified duration.
      */
     public Values<T> withDuration(Duration duration) {
-      return new Values<T>(timeDomain, duration);
+      return new Values<T>(timeDomain, duration, expiryBuckets);
+    }
+
+    /**
+     * Returns a {@code Values} {@link PTransform} like this one but that expires values in buckets.
+     * See {@link KeyedValues#withExpiryBuckets(Duration, int)}.
+     */
+    public Values<T> withExpiryBuckets(Duration bucketSize, int numShards) {
+      return new Values<T>(timeDomain, duration, ExpiryBuckets.of(bucketSize, numShards));
     }
   }
 
@@ -130,15 +160,18 @@ public final class Deduplicate {
     private final @Nullable Coder<IdT> coder;
     private final TimeDomain timeDomain;
     private final Duration duration;
+    private final @Nullable ExpiryBuckets expiryBuckets;
 
     private WithRepresentativeValues(
         TimeDomain timeDomain,
         Duration duration,
+        @Nullable ExpiryBuckets expiryBuckets,
         SerializableFunction<T, IdT> fn,
         @Nullable TypeDescriptor<IdT> type,
         @Nullable Coder<IdT> coder) {
       this.timeDomain = timeDomain;
       this.duration = duration;
+      this.expiryBuckets = expiryBuckets;
       this.fn = fn;
       this.type = type;
       this.coder = coder;
@@ -158,7 +191,7 @@ public final class Deduplicate {
      *     value coder will be cleared.
      */
     public WithRepresentativeValues<T, IdT> withRepresentativeType(TypeDescriptor<IdT> type) {
-      return new WithRepresentativeValues<>(timeDomain, duration, fn, type, null);
+      return new WithRepresentativeValues<>(timeDomain, duration, expiryBuckets, fn, type, null);
     }
 
     /**
@@ -175,7 +208,7 @@ public final class Deduplicate {
      *     descriptor will be cleared.
      */
     public WithRepresentativeValues<T, IdT> withRepresentativeCoder(Coder<IdT> coder) {
-      return new WithRepresentativeValues<>(timeDomain, duration, fn, null, coder);
+      return new WithRepresentativeValues<>(timeDomain, duration, expiryBuckets, fn, null, coder);
     }
 
     /**
@@ -183,7 +216,8 @@ public final class Deduplicate {
      * specified time domain.
      */
     public WithRepresentativeValues<T, IdT> withTimeDomain(TimeDomain timeDomain) {
-      return new WithRepresentativeValues<>(timeDomain, duration, fn, type, coder);
+      return new WithRepresentativeValues<>(
+          timeDomain, duration, expiryBuckets, fn, type, coder);
     }
 
     /**
@@ -191,7 +225,18 @@ public final class Deduplicate {
      * the specified deduplication duration.
      */
     public WithRepresentativeValues<T, IdT> withDuration(Duration duration) {
-      return new WithRepresentativeValues<>(timeDomain, duration, fn, type, coder);
+      return new WithRepresentativeValues<>(
+          timeDomain, duration, expiryBuckets, fn, type, coder);
+    }
+
+    /**
+     * Return a {@code WithRepresentativeValues} {@link PTransform} that is like this one, but that
+     * expires representative values in buckets. See {@link KeyedValues#withExpiryBuckets(Duration,
+     * int)}.
+     */
+    public WithRepresentativeValues<T, IdT> withExpiryBuckets(Duration bucketSize, int numShards) {
+      return new WithRepresentativeValues<>(
+          timeDomain, duration, ExpiryBuckets.of(bucketSize, numShards), fn, type, coder);
     }
 
     @Override
@@ -205,7 +250,7 @@ public final class Deduplicate {
         inputWithKey.setCoder(KvCoder.of(coder, input.getCoder()));
       }
       return inputWithKey
-          .apply(new KeyedValues<>(timeDomain, duration))
+          .apply(new KeyedValues<>(timeDomain, duration, expiryBuckets))
           .apply(org.apache.beam.sdk.transforms.Values.create());
     }
   }
@@ -218,15 +263,39 @@ public final class Deduplicate {
       extends PTransform<PCollection<KV<K, V>>, PCollection<KV<K, V>>> {
     private final TimeDomain timeDomain;
     private final Duration duration;
+    private final @Nullable ExpiryBuckets expiryBuckets;
 
-    private KeyedValues(TimeDomain timeDomain, Duration duration) {
+    private KeyedValues(
+        TimeDomain timeDomain, Duration duration, @Nullable ExpiryBuckets expiryBuckets) {
       this.timeDomain = timeDomain;
       this.duration = duration;
+      this.expiryBuckets = expiryBuckets;
     }
 
     @Override
     public PCollection<KV<K, V>> expand(PCollection<KV<K, V>> input) {
-      return input.apply(ParDo.of(new DeduplicateFn<>(timeDomain, duration)));
+      if (expiryBuckets == null) {
+        return input.apply(ParDo.of(new DeduplicateFn<>(timeDomain, duration)));
+      }
+      KvCoder<K, V> inputCoder = (KvCoder<K, V>) input.getCoder();
+      Coder<K> keyCoder = inputCoder.getKeyCoder();
+      int numShards = expiryBuckets.numShards;
+      return input
+          .apply(
+              "AssignShard",
+              MapElements.via(
+                  new SimpleFunction<KV<K, V>, KV<Integer, KV<K, V>>>() {
+                    @Override
+                    public KV<Integer, KV<K, V>> apply(KV<K, V> element) {
+                      return KV.of(shard(keyCoder, element.getKey(), numShards), element);
+                    }
+                  }))
+          .setCoder(KvCoder.of(VarIntCoder.of(), inputCoder))
+          .apply(
+              ParDo.of(
+                  new BucketedDeduplicateFn<>(
+                      timeDomain, duration, expiryBuckets.bucketSize, keyCoder)))
+          .setCoder(inputCoder);
     }
 
     /**
@@ -234,7 +303,7 @@ public final class Deduplicate {
      * domain.
      */
     public KeyedValues<K, V> withTimeDomain(TimeDomain timeDomain) {
-      return new KeyedValues<>(timeDomain, duration);
+      return new KeyedValues<>(timeDomain, duration, expiryBuckets);
     }
 
     /**
@@ -242,7 +311,22 @@ public final class Deduplicate {
      * duration.
      */
     public KeyedValues<K, V> withDuration(Duration duration) {
-      return new KeyedValues<>(timeDomain, duration);
+      return new KeyedValues<>(timeDomain, duration, expiryBuckets);
+    }
+
+    /**
+     * Returns a {@code KeyedValues} {@link PTransform} like this one but that distributes the keys
+     * over {@code numShards} shards, and expires the keys of each shard in buckets of {@code
+     * bucketSize}, with a single timer per shard and bucket instead of a timer per key.
+     *
+     * <p>Keys are deduplicated for at least the specified duration rounded up to a multiple of
+     * {@code bucketSize}, and at most one {@code bucketSize} longer, or longer if the timers of
+     * the shard fire late. When a bucket expires, all keys of its shard are scanned, so {@code
+     * bucketSize} should be a sizeable fraction of the duration. The number of shards bounds the
+     * parallelism of deduplication. Requires a runner that supports {@link MapState}.
+     */
+    public KeyedValues<K, V> withExpiryBuckets(Duration bucketSize, int numShards) {
+      return new KeyedValues<>(timeDomain, duration, ExpiryBuckets.of(bucketSize, numShards));
     }
   }
 
@@ -251,7 +335,7 @@ public final class Deduplicate {
    * TimeDomain#PROCESSING_TIME processing time domain}.
    */
   public static <T> Deduplicate.Values<T> values() {
-    return new Deduplicate.Values<>(DEFAULT_TIME_DOMAIN, DEFAULT_DURATION);
+    return new Deduplicate.Values<>(DEFAULT_TIME_DOMAIN, DEFAULT_DURATION, null);
   }
 
   /**
@@ -259,7 +343,7 @@ public final class Deduplicate {
    * mins within the {@link TimeDomain#PROCESSING_TIME processing time domain}.
    */
   public static <K, V> Deduplicate.KeyedValues<K, V> keyedValues() {
-    return new Deduplicate.KeyedValues<>(DEFAULT_TIME_DOMAIN, DEFAULT_DURATION);
+    return new Deduplicate.KeyedValues<>(DEFAULT_TIME_DOMAIN, DEFAULT_DURATION, null);
   }
 
   /**
@@ -269,7 +353,7 @@ public final class Deduplicate {
   public static <T, IdT> Deduplicate.WithRepresentativeValues<T, IdT> withRepresentativeValueFn(
       SerializableFunction<T, IdT> representativeValueFn) {
     return new Deduplicate.WithRepresentativeValues<T, IdT>(
-        DEFAULT_TIME_DOMAIN, DEFAULT_DURATION, representativeValueFn, null, null);
+        DEFAULT_TIME_DOMAIN, DEFAULT_DURATION, null, representativeValueFn, null, null);
   }
 
   /////////////////////////////////////////////////////////////////////////////
@@ -322,4 +406,138 @@ public final class Deduplicate {
       seenState.clear();
     }
   }
+
+  /** The bucket size and number of shards of {@code withExpiryBuckets}. */
+  private static class ExpiryBuckets implements Serializable {
+    private final Duration bucketSize;
+    private final int numShards;
+
+    private ExpiryBuckets(Duration bucketSize, int numShards) {
+      this.bucketSize = bucketSize;
+      this.numShards = numShards;
+    }
+
+    private static ExpiryBuckets of(Duration bucketSize, int numShards) {
+      checkArgument(
+          bucketSize.isLongerThan(Duration.ZERO),
+          "bucketSize must be positive, but was %s",
+          bucketSize);
+      checkArgument(numShards > 0, "numShards must be positive, but was %s", numShards);
+      return new ExpiryBuckets(bucketSize, numShards);
+    }
+  }
+
+  /**
+   * Returns the shard of the given key. Uses the encoded key, so that the shard does not depend on
+   * the hash code of the key, which may differ between workers.
+   */
+  private static <K> int shard(Coder<K> keyCoder, K key, int numShards) {
+    try {
+      byte[] encodedKey = CoderUtils.encodeToByteArray(keyCoder, key);
+      return Math.floorMod(Hashing.murmur3_32().hashBytes(encodedKey).asInt(), numShards);
+    } catch (CoderException e) {
+      throw new RuntimeException("Unable to encode key " + key, e);
+    }
+  }
+
+  /**
+   * A stateful {@link DoFn} that keeps the keys seen by a shard in a {@link MapState}, along with
+   * the bucket in which they were first seen. A single timer fires at the end of every bucket while
+   * the shard has keys, and removes the keys that were first seen more than {@code duration}
+   * (rounded up to whole buckets) before the start of the bucket.
+   *
+   * <p>Buckets are numbered by the number of times the timer has fired since the shard was last
+   * empty, rather than by time, so that they work the same for every {@link TimeDomain}.
+   */
+  private static class BucketedDeduplicateFn<K, V> extends DoFn<KV<Integer, KV<K, V>>, KV<K, V>> {
+    private static final String EXPIRY_TIMER = "expiryTimer";
+    private static final String SEEN_STATE = "seen";
+    private static final String BUCKET_STATE = "bucket";
+
+    @TimerId(EXPIRY_TIMER)
+    private final TimerSpec expiryTimerSpec;
+
+    @StateId(SEEN_STATE)
+    private final StateSpec<MapState<K, Long>> seenState;
+
+    @StateId(BUCKET_STATE)
+    private final StateSpec<ValueState<Long>> bucketState = StateSpecs.value(VarLongCoder.of());
+
+    private final TimeDomain timeDomain;
+    private final Duration bucketSize;
+
+    /** The number of whole buckets after which a key expires. */
+    private final long bucketsPerDuration;
+
+    private BucketedDeduplicateFn(
+        TimeDomain timeDomain, Duration duration, Duration bucketSize, Coder<K> keyCoder) {
+      this.expiryTimerSpec = TimerSpecs.timer(timeDomain);
+      this.timeDomain = timeDomain;
+      this.seenState = StateSpecs.map(keyCoder, VarLongCoder.of());
+      this.bucketSize = bucketSize;
+      this.bucketsPerDuration =
+          Math.max(1, (duration.getMillis() + bucketSize.getMillis() - 1) / bucketSize.getMillis());
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element KV<Integer, KV<K, V>> element,
+        OutputReceiver<KV<K, V>> receiver,
+        @StateId(SEEN_STATE) MapState<K, Long> seenState,
+        @StateId(BUCKET_STATE) ValueState<Long> bucketState,
+        @TimerId(EXPIRY_TIMER) Timer expiryTimer) {
+      K key = element.getValue().getKey();
+      if (seenState.get(key).read() != null) {
+        return;
+      }
+      Long bucket = bucketState.read();
+      if (bucket == null) {
+        // The shard has no keys, so its timer is not set.
+        bucket = 0L;
+        bucketState.write(bucket);
+        expiryTimer.offset(bucketSize).setRelative();
+      }
+      seenState.put(key, bucket);
+      receiver.output(element.getValue());
+    }
+
+    @OnTimer(EXPIRY_TIMER)
+    public void onExpiry(
+        OnTimerContext context,
+        BoundedWindow window,
+        @StateId(SEEN_STATE) MapState<K, Long> seenState,
+        @StateId(BUCKET_STATE) ValueState<Long> bucketState,
+        @TimerId(EXPIRY_TIMER) Timer expiryTimer) {
+      long bucket = bucketState.read() + 1;
+      List<K> expired = new ArrayList<>();
+      boolean hasRemainingKeys = false;
+      for (Map.Entry<K, Long> entry : seenState.entries().read()) {
+        // Keys first seen in the middle of a bucket live for bucketsPerDuration whole buckets after
+        // that one, so that they are kept for at least the deduplication duration.
+        if (bucket - entry.getValue() > bucketsPerDuration) {
+          expired.add(entry.getKey());
+        } else {
+          hasRemainingKeys = true;
+        }
+      }
+      for (K key : expired) {
+        seenState.remove(key);
+      }
+      // Event time timers cannot be set past the expiry of the window, so the remaining keys are
+      // kept until the end of the window, and then all cleared.
+      boolean windowExpiring =
+          timeDomain == TimeDomain.EVENT_TIME
+              && context.fireTimestamp().plus(bucketSize).isAfter(window.maxTimestamp());
+      if (hasRemainingKeys && !windowExpiring) {
+        bucketState.write(bucket);
+        expiryTimer.offset(bucketSize).setRelative();
+      } else if (hasRemainingKeys && context.fireTimestamp().isBefore(window.maxTimestamp())) {
+        bucketState.write(bucket);
+        expiryTimer.set(window.maxTimestamp());
+      } else {
+        seenState.clear();
+        bucketState.clear();
+      }
+    }
+  }
 }
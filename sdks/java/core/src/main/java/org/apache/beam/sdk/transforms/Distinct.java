@@ -17,11 +17,19 @@
  */
 package org.apache.beam.sdk.transforms;
 
+import java.util.HashSet;
+import java.util.Set;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderException;
 import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.coders.NullableCoder;
+import org.apache.beam.sdk.coders.StructuralByteArray;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
 import org.apache.beam.sdk.transforms.windowing.DefaultTrigger;
 import org.apache.beam.sdk.transforms.windowing.PaneInfo;
+import org.apache.beam.sdk.util.CoderUtils;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.TypeDescriptor;
@@ -59,12 +67,24 @@ import org.joda.time.Duration;
  *     words.apply(Distinct.<String>create());
  * }</pre>
  *
+ * <p>When the input contains many duplicates, {@link #withPreDeduplication(long)} drops the
+ * duplicates found within a bundle before they are shuffled.
+ *
  * @param <T> the type of the elements of the input and output {@code PCollection}s
  */
 @SuppressWarnings({
   "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
 })
 public class Distinct<T> extends PTransform<PCollection<T>, PCollection<T>> {
+  private final long maxPreDeduplicationBytes;
+
+  public Distinct() {
+    this(0);
+  }
+
+  private Distinct(long maxPreDeduplicationBytes) {
+    this.maxPreDeduplicationBytes = maxPreDeduplicationBytes;
+  }
 
   /**
    * Returns a {@code Distinct<T>} {@code PTransform}.
@@ -72,7 +92,21 @@ public class Distinct<T> extends PTransform<PCollection<T>, PCollection<T>> {
    * @param <T> the type of the elements of the input and output {@code PCollection}s
    */
   public static <T> Distinct<T> create() {
-    return new Distinct<>();
+    return new Distinct<>(0);
+  }
+
+  /**
+   * Returns a {@code Distinct<T>} {@code PTransform} like this one, but that drops the duplicates
+   * of elements already seen in the same window and bundle before shuffling the elements.
+   *
+   * <p>The encoded elements seen are kept in memory, and forgotten whenever they exceed roughly
+   * {@code maxBufferedBytes}, so duplicates that are far apart in a bundle are still removed by the
+   * shuffle. This reduces the amount of data shuffled when the input contains many duplicates close
+   * to each other, at the cost of encoding every element one more time.
+   */
+  public Distinct<T> withPreDeduplication(long maxBufferedBytes) {
+    checkPreDeduplicationBytes(maxBufferedBytes);
+    return new Distinct<>(maxBufferedBytes);
   }
 
   /**
@@ -83,7 +117,30 @@ public class Distinct<T> extends PTransform<PCollection<T>, PCollection<T>> {
    */
   public static <T, IdT> WithRepresentativeValues<T, IdT> withRepresentativeValueFn(
       SerializableFunction<T, IdT> fn) {
-    return new WithRepresentativeValues<>(fn, null);
+    return new WithRepresentativeValues<>(fn, null, 0);
+  }
+
+  private static void checkPreDeduplicationBytes(long maxBufferedBytes) {
+    if (maxBufferedBytes <= 0) {
+      throw new IllegalArgumentException(
+          "maxBufferedBytes must be positive, but was " + maxBufferedBytes);
+    }
+  }
+
+  /**
+   * Applies a {@link PreDeduplicateFn} to {@code keyed} if {@code maxBufferedBytes} is positive.
+   */
+  private static <K, V> PCollection<KV<K, V>> preDeduplicate(
+      PCollection<KV<K, V>> keyed, long maxBufferedBytes) {
+    if (maxBufferedBytes <= 0) {
+      return keyed;
+    }
+    KvCoder<K, V> coder = (KvCoder<K, V>) keyed.getCoder();
+    return keyed
+        .apply(
+            "PreDeduplicate",
+            ParDo.of(new PreDeduplicateFn<K, V>(coder.getKeyCoder(), maxBufferedBytes)))
+        .setCoder(coder);
   }
 
   private static <T, W extends BoundedWindow> void validateWindowStrategy(
@@ -102,16 +159,18 @@ public class Distinct<T> extends PTransform<PCollection<T>, PCollection<T>> {
   @Override
   public PCollection<T> expand(PCollection<T> in) {
     validateWindowStrategy(in.getWindowingStrategy());
-    PCollection<KV<T, Void>> combined =
+    PCollection<KV<T, Void>> keyed =
         in.apply(
-                "KeyByElement",
-                MapElements.via(
-                    new SimpleFunction<T, KV<T, Void>>() {
-                      @Override
-                      public KV<T, Void> apply(T element) {
-                        return KV.of(element, (Void) null);
-                      }
-                    }))
+            "KeyByElement",
+            MapElements.via(
+                new SimpleFunction<T, KV<T, Void>>() {
+                  @Override
+                  public KV<T, Void> apply(T element) {
+                    return KV.of(element, (Void) null);
+                  }
+                }));
+    PCollection<KV<T, Void>> combined =
+        preDeduplicate(keyed, maxPreDeduplicationBytes)
             .apply(
                 "DropValues",
                 Combine.perKey(
@@ -149,11 +208,15 @@ public class Distinct<T> extends PTransform<PCollection<T>, PCollection<T>> {
       extends PTransform<PCollection<T>, PCollection<T>> {
     private final SerializableFunction<T, IdT> fn;
     private final TypeDescriptor<IdT> representativeType;
+    private final long maxPreDeduplicationBytes;
 
     private WithRepresentativeValues(
-        SerializableFunction<T, IdT> fn, TypeDescriptor<IdT> representativeType) {
+        SerializableFunction<T, IdT> fn,
+        TypeDescriptor<IdT> representativeType,
+        long maxPreDeduplicationBytes) {
       this.fn = fn;
       this.representativeType = representativeType;
+      this.maxPreDeduplicationBytes = maxPreDeduplicationBytes;
     }
 
     @Override
@@ -167,7 +230,7 @@ public class Distinct<T> extends PTransform<PCollection<T>, PCollection<T>> {
       PCollection<KV<IdT, T>> keyed = in.apply("KeyByRepresentativeValue", withKeys);
       KvCoder<IdT, T> keyedCoder = (KvCoder<IdT, T>) keyed.getCoder();
       PCollection<KV<IdT, T>> combined =
-          keyed
+          preDeduplicate(keyed, maxPreDeduplicationBytes)
               .apply(
                   "OneValuePerKey",
                   Combine.perKey(
@@ -213,7 +276,64 @@ public class Distinct<T> extends PTransform<PCollection<T>, PCollection<T>> {
      *     the specified output type descriptor.
      */
     public WithRepresentativeValues<T, IdT> withRepresentativeType(TypeDescriptor<IdT> type) {
-      return new WithRepresentativeValues<>(fn, type);
+      return new WithRepresentativeValues<>(fn, type, maxPreDeduplicationBytes);
+    }
+
+    /**
+     * Return a {@code WithRepresentativeValues} {@link PTransform} that is like this one, but that
+     * drops the elements whose representative value was already seen in the same window and bundle
+     * before shuffling the elements. See {@link Distinct#withPreDeduplication(long)}.
+     */
+    public WithRepresentativeValues<T, IdT> withPreDeduplication(long maxBufferedBytes) {
+      checkPreDeduplicationBytes(maxBufferedBytes);
+      return new WithRepresentativeValues<>(fn, representativeType, maxBufferedBytes);
+    }
+  }
+
+  /**
+   * Drops the elements whose key was already seen in the same window earlier in the bundle. The
+   * keys seen are kept in encoded form, and forgotten whenever their estimated size exceeds {@code
+   * maxBufferedBytes}.
+   */
+  private static class PreDeduplicateFn<K, V> extends DoFn<KV<K, V>, KV<K, V>> {
+    /** A rough estimate of the memory used by an entry of the set of seen keys. */
+    private static final long ENTRY_OVERHEAD_BYTES = 64;
+
+    private final Counter preDeduplicatedElements =
+        Metrics.counter(Distinct.class, "preDeduplicatedElements");
+
+    private final Coder<K> keyCoder;
+    private final long maxBufferedBytes;
+
+    private transient Set<KV<BoundedWindow, StructuralByteArray>> seen;
+    private transient long bufferedBytes;
+
+    private PreDeduplicateFn(Coder<K> keyCoder, long maxBufferedBytes) {
+      this.keyCoder = keyCoder;
+      this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    @StartBundle
+    public void startBundle() {
+      seen = new HashSet<>();
+      bufferedBytes = 0;
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element KV<K, V> element, BoundedWindow window, OutputReceiver<KV<K, V>> receiver)
+        throws CoderException {
+      byte[] encodedKey = CoderUtils.encodeToByteArray(keyCoder, element.getKey());
+      if (!seen.add(KV.of(window, new StructuralByteArray(encodedKey)))) {
+        preDeduplicatedElements.inc();
+        return;
+      }
+      bufferedBytes += encodedKey.length + ENTRY_OVERHEAD_BYTES;
+      if (bufferedBytes > maxBufferedBytes) {
+        seen.clear();
+        bufferedBytes = 0;
+      }
+      receiver.output(element);
     }
   }
 }
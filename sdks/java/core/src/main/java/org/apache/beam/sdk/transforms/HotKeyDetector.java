@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.transforms;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Detects the keys that occur at least a given number of times among the recent elements, using a
+ * count-min sketch of the key frequencies. Used by {@link
+ * Combine.PerKey#withAdaptiveHotKeyFanout(int, long)}.
+ *
+ * <p>The sketch is kept across bundles, so that keys are detected regardless of the bundle sizes
+ * chosen by the runner. It is aged by halving all its counts every {@code DECAY_PERIOD_FACTOR *
+ * threshold} recorded occurrences: keys stay hot while they make up more than about {@code 1 / (2
+ * * DECAY_PERIOD_FACTOR)} of the elements, and cool down afterwards.
+ *
+ * <p>The sketch never underestimates frequencies, so every key that reaches the threshold is
+ * detected. Keys that collide with hot keys in every row of the sketch may be reported as hot as
+ * well.
+ *
+ * <p>Detections are reported to a single counter. The keys themselves are not reported as metrics,
+ * which would have an unbounded number of names and could expose user data; a few of them are
+ * logged after each aging of the sketch instead.
+ */
+class HotKeyDetector<K> {
+  private static final Logger LOG = LoggerFactory.getLogger(HotKeyDetector.class);
+
+  private static final int DEPTH = 4;
+  private static final int WIDTH = 1 << 10;
+  private static final long DECAY_PERIOD_FACTOR = 64;
+  private static final int MAX_TRACKED_HOT_KEYS = 100;
+  private static final int MAX_LOGGED_HOT_KEYS = 10;
+  private static final int MAX_LOGGED_KEY_LENGTH = 100;
+
+  private final Counter hotKeysDetected = Metrics.counter(Combine.class, "hotKeysDetected");
+
+  private final Coder<K> keyCoder;
+  private final long threshold;
+  private final long decayPeriod;
+  private final long[] counts = new long[DEPTH * WIDTH];
+  // The hot keys detected since the sketch was last aged, bounded by MAX_TRACKED_HOT_KEYS.
+  private final Set<Object> detectedKeys = new HashSet<>();
+  private long occurrencesUntilDecay;
+  private int loggedKeys;
+
+  HotKeyDetector(Coder<K> keyCoder, long threshold) {
+    this.keyCoder = keyCoder;
+    this.threshold = threshold;
+    this.decayPeriod = DECAY_PERIOD_FACTOR * threshold;
+    this.occurrencesUntilDecay = decayPeriod;
+  }
+
+  /**
+   * Records an occurrence of the given key, and returns whether the key has occurred at least
+   * {@code threshold} times among the recent elements.
+   */
+  boolean isHot(K key) {
+    if (occurrencesUntilDecay-- == 0) {
+      decay();
+    }
+    // Use the structural value so that keys which encode identically are counted together.
+    Object structuralKey = keyCoder.structuralValue(key);
+    int h1 = mix(structuralKey.hashCode());
+    int h2 = mix(h1) | 1;
+    long estimate = Long.MAX_VALUE;
+    for (int i = 0; i < DEPTH; i++) {
+      int index = i * WIDTH + ((h1 + i * h2) & (WIDTH - 1));
+      estimate = Math.min(estimate, ++counts[index]);
+    }
+    if (estimate < threshold) {
+      return false;
+    }
+    if (detectedKeys.size() < MAX_TRACKED_HOT_KEYS && detectedKeys.add(structuralKey)) {
+      hotKeysDetected.inc();
+      if (loggedKeys < MAX_LOGGED_HOT_KEYS) {
+        loggedKeys++;
+        String keyName = String.valueOf(key);
+        if (keyName.length() > MAX_LOGGED_KEY_LENGTH) {
+          keyName = keyName.substring(0, MAX_LOGGED_KEY_LENGTH);
+        }
+        LOG.info("Detected hot key {}, occurring at least {} times.", keyName, threshold);
+      }
+    }
+    return true;
+  }
+
+  /** Halves the estimated frequencies, so that keys which are no longer hot cool down. */
+  private void decay() {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] >>>= 1;
+    }
+    detectedKeys.clear();
+    loggedKeys = 0;
+    occurrencesUntilDecay = decayPeriod - 1;
+  }
+
+  /** The finalization step of MurmurHash3, which spreads the bits of hash codes. */
+  private static int mix(int h) {
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+}
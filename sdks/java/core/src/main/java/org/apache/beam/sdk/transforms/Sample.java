@@ -19,19 +19,30 @@ package org.apache.beam.sdk.transforms;
 
 import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 import org.apache.beam.sdk.coders.BigEndianIntegerCoder;
 import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderException;
 import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.coders.CustomCoder;
+import org.apache.beam.sdk.coders.DoubleCoder;
 import org.apache.beam.sdk.coders.IterableCoder;
 import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.transforms.Combine.CombineFn;
 import org.apache.beam.sdk.transforms.display.DisplayData;
+import org.apache.beam.sdk.util.VarInt;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.TypeDescriptor;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * {@code PTransform}s for taking samples of the elements in a {@code PCollection}, or samples of
@@ -40,6 +51,11 @@ import org.apache.beam.sdk.values.PCollection;
  * <p>{@link #fixedSizeGlobally(int)} and {@link #fixedSizePerKey(int)} compute uniformly random
  * samples. {@link #any(long)} is faster, but provides no uniformity guarantees.
  *
+ * <p>{@link #reservoirCombineFn(int)} and {@link #weightedCombineFn(int, SerializableFunction)}
+ * compute uniform and weighted samples by reservoir sampling, drawing random numbers only for the
+ * inputs that enter the sample. {@link #perStratum(int, SerializableFunction)} uses them to sample
+ * each stratum of a {@code PCollection} separately.
+ *
  * <p>{@link #combineFn} can also be used manually, in combination with state and with the {@link
  * Combine} transform.
  */
@@ -54,6 +70,30 @@ public class Sample {
     return new FixedSizedSampleFn<>(sampleSize);
   }
 
+  /**
+   * Returns a {@link CombineFn} that computes a fixed-sized uniform sample of its inputs by
+   * reservoir sampling.
+   *
+   * <p>Unlike {@link #combineFn}, which draws a random number for each input, the returned {@code
+   * CombineFn} draws how many inputs to skip before the next one enters the sample, so that most
+   * inputs cost a single subtraction. Its accumulators hold at most {@code sampleSize} elements
+   * with one {@code double} each.
+   */
+  public static <T> ReservoirSampleFn<T> reservoirCombineFn(int sampleSize) {
+    return new ReservoirSampleFn<>(sampleSize, null);
+  }
+
+  /**
+   * Returns a {@link CombineFn} that computes a fixed-sized weighted sample of its inputs, without
+   * replacement, by reservoir sampling. Each input is selected with a probability proportional to
+   * the non-negative weight that {@code weightFn} returns for it. Inputs of weight zero are never
+   * selected.
+   */
+  public static <T> ReservoirSampleFn<T> weightedCombineFn(
+      int sampleSize, SerializableFunction<T, Double> weightFn) {
+    return new ReservoirSampleFn<>(sampleSize, weightFn);
+  }
+
   /**
    * Returns a {@link CombineFn} that computes a fixed-sized potentially non-uniform sample of its
    * inputs.
@@ -143,6 +183,37 @@ public class Sample {
     return new FixedSizePerKey<>(sampleSize);
   }
 
+  /**
+   * Returns a {@code PTransform} that takes a {@code PCollection<T>}, assigns each element to the
+   * stratum that {@code stratumFn} returns for it, and returns a {@code PCollection<KV<S,
+   * Iterable<T>>>} that maps each stratum to a uniform sample of {@code sampleSize} of its
+   * elements. If a stratum has fewer than {@code sampleSize} elements, all of them are output.
+   *
+   * <p>The sample of each stratum is computed with {@link #reservoirCombineFn}, so no more than
+   * {@code sampleSize} elements per stratum are held in memory or shuffled from each bundle,
+   * however large the stratum is. Use {@link PerStratum#withWeights} to take weighted samples.
+   *
+   * <p>Example of use:
+   *
+   * <pre>{@code
+   * PCollection<Row> rows = ...;
+   * PCollection<KV<String, Iterable<Row>>> sampleOf100PerCountry =
+   *     rows.apply(
+   *         Sample.<Row, String>perStratum(100, row -> row.getString("country"))
+   *             .withStratumType(TypeDescriptors.strings()));
+   * }</pre>
+   *
+   * @param sampleSize the number of elements to select for each stratum; must be {@code >= 0}
+   * @param stratumFn the function that assigns each element to its stratum
+   * @param <T> the type of the elements
+   * @param <S> the type of the strata
+   */
+  public static <T, S> PerStratum<T, S> perStratum(
+      int sampleSize, SerializableFunction<T, S> stratumFn) {
+    checkArgument(sampleSize >= 0, "sample size must be >= 0, but was %s", sampleSize);
+    return new PerStratum<>(sampleSize, stratumFn, null, null);
+  }
+
   /////////////////////////////////////////////////////////////////////////////
 
   /** Implementation of {@link #any(long)}. */
@@ -360,4 +431,318 @@ public class Sample {
       builder.add(DisplayData.item("sampleSize", sampleSize).withLabel("Sample Size"));
     }
   }
+
+  /** Implementation of {@link #perStratum(int, SerializableFunction)}. */
+  public static class PerStratum<T, S>
+      extends PTransform<PCollection<T>, PCollection<KV<S, Iterable<T>>>> {
+    private final int sampleSize;
+    private final SerializableFunction<T, S> stratumFn;
+    private final @Nullable TypeDescriptor<S> stratumType;
+    private final @Nullable SerializableFunction<T, Double> weightFn;
+
+    private PerStratum(
+        int sampleSize,
+        SerializableFunction<T, S> stratumFn,
+        @Nullable TypeDescriptor<S> stratumType,
+        @Nullable SerializableFunction<T, Double> weightFn) {
+      this.sampleSize = sampleSize;
+      this.stratumFn = stratumFn;
+      this.stratumType = stratumType;
+      this.weightFn = weightFn;
+    }
+
+    /**
+     * Returns a {@code PerStratum} that uses the given type to infer the {@code Coder} of the
+     * strata, which is necessary when {@code stratumFn} is a lambda. See {@link
+     * WithKeys#withKeyType}.
+     */
+    public PerStratum<T, S> withStratumType(TypeDescriptor<S> stratumType) {
+      return new PerStratum<>(sampleSize, stratumFn, stratumType, weightFn);
+    }
+
+    /**
+     * Returns a {@code PerStratum} that samples each stratum with probabilities proportional to the
+     * weights that {@code weightFn} returns. See {@link #weightedCombineFn}.
+     */
+    public PerStratum<T, S> withWeights(SerializableFunction<T, Double> weightFn) {
+      return new PerStratum<>(sampleSize, stratumFn, stratumType, weightFn);
+    }
+
+    @Override
+    public PCollection<KV<S, Iterable<T>>> expand(PCollection<T> input) {
+      WithKeys<S, T> withStrata = WithKeys.of(stratumFn);
+      if (stratumType != null) {
+        withStrata = withStrata.withKeyType(stratumType);
+      }
+      return input
+          .apply("AssignStrata", withStrata)
+          .apply("SampleStrata", Combine.perKey(new ReservoirSampleFn<>(sampleSize, weightFn)));
+    }
+
+    @Override
+    public void populateDisplayData(DisplayData.Builder builder) {
+      super.populateDisplayData(builder);
+      builder
+          .add(DisplayData.item("sampleSize", sampleSize).withLabel("Sample Size"))
+          .add(DisplayData.item("stratumFn", stratumFn.getClass()).withLabel("Stratum Function"));
+    }
+  }
+
+  /**
+   * {@code CombineFn} that computes a fixed-size sample of a collection of values by reservoir
+   * sampling, either uniformly or weighted.
+   *
+   * <p>This implements algorithm A-ExpJ of Efraimidis and Spirakis, "Weighted random sampling with
+   * a reservoir" (2006). Each selected element carries a random key {@code u^(1/w)}, where {@code
+   * u} is uniform in {@code (0, 1]} and {@code w} is the weight of the element, and the sample is
+   * the elements with the largest keys. Once the reservoir is full, the total weight of the inputs
+   * to skip before the next one enters it is drawn from the smallest key, so that random numbers
+   * are only drawn for the inputs that are selected. With unit weights this is a uniform sample
+   * equivalent to Li's algorithm L. Because the sample is defined by the keys, merging
+   * accumulators keeps the elements with the largest keys of all of them.
+   *
+   * @param <T> the type of the elements
+   */
+  public static class ReservoirSampleFn<T> extends CombineFn<T, Reservoir<T>, Iterable<T>> {
+    private final int sampleSize;
+    private final @Nullable SerializableFunction<T, Double> weightFn;
+
+    private ReservoirSampleFn(int sampleSize, @Nullable SerializableFunction<T, Double> weightFn) {
+      checkArgument(sampleSize >= 0, "sample size must be >= 0, but was %s", sampleSize);
+      this.sampleSize = sampleSize;
+      this.weightFn = weightFn;
+    }
+
+    @Override
+    public Reservoir<T> createAccumulator() {
+      return new Reservoir<>(sampleSize);
+    }
+
+    @Override
+    public Reservoir<T> addInput(Reservoir<T> accumulator, T input) {
+      if (weightFn == null) {
+        accumulator.add(input, 1.0);
+      } else {
+        Double weight = weightFn.apply(input);
+        checkArgument(
+            weight != null && weight >= 0,
+            "weights must be non-negative, but got %s for %s",
+            weight,
+            input);
+        accumulator.add(input, weight);
+      }
+      return accumulator;
+    }
+
+    @Override
+    public Reservoir<T> mergeAccumulators(Iterable<Reservoir<T>> accumulators) {
+      Iterator<Reservoir<T>> iter = accumulators.iterator();
+      if (!iter.hasNext()) {
+        return createAccumulator();
+      }
+      Reservoir<T> res = iter.next();
+      while (iter.hasNext()) {
+        res.merge(iter.next());
+      }
+      return res;
+    }
+
+    @Override
+    public Iterable<T> extractOutput(Reservoir<T> accumulator) {
+      return accumulator.getElements();
+    }
+
+    @Override
+    public Coder<Reservoir<T>> getAccumulatorCoder(CoderRegistry registry, Coder<T> inputCoder) {
+      return new ReservoirCoder<>(sampleSize, inputCoder);
+    }
+
+    @Override
+    public Coder<Iterable<T>> getDefaultOutputCoder(CoderRegistry registry, Coder<T> inputCoder) {
+      return IterableCoder.of(inputCoder);
+    }
+
+    @Override
+    public void populateDisplayData(DisplayData.Builder builder) {
+      super.populateDisplayData(builder);
+      builder
+          .add(DisplayData.item("sampleSize", sampleSize).withLabel("Sample Size"))
+          .addIfNotNull(
+              DisplayData.item("weightFn", weightFn == null ? null : weightFn.getClass())
+                  .withLabel("Weight Function"));
+    }
+  }
+
+  /**
+   * The accumulator of {@link ReservoirSampleFn}: up to {@code sampleSize} elements with their
+   * random keys, in a binary min-heap ordered by key. The logarithm of each key is stored, which
+   * keeps the keys of heavy and light elements apart in floating point.
+   *
+   * <p>This class is <i>not</i> safe for multithreaded use, except read-only.
+   */
+  static class Reservoir<T> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int sampleSize;
+    private double[] logKeys;
+    private Object[] elements;
+    private int size;
+
+    /**
+     * The weight of the inputs to skip before the next one enters the full reservoir, or {@code
+     * NaN} if it must be drawn from the current smallest key.
+     */
+    private double weightToSkip = Double.NaN;
+
+    private Reservoir(int sampleSize) {
+      this(sampleSize, new double[Math.min(sampleSize, INITIAL_CAPACITY)]);
+    }
+
+    private Reservoir(int sampleSize, double[] logKeys) {
+      this.sampleSize = sampleSize;
+      this.logKeys = logKeys;
+      this.elements = new Object[logKeys.length];
+    }
+
+    private void add(T element, double weight) {
+      if (sampleSize == 0 || weight == 0) {
+        return;
+      }
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      if (size < sampleSize) {
+        offer(Math.log(1 - random.nextDouble()) / weight, element);
+        return;
+      }
+      if (Double.isNaN(weightToSkip)) {
+        drawWeightToSkip(random);
+      }
+      weightToSkip -= weight;
+      if (weightToSkip <= 0) {
+        // The key of the new element is drawn conditionally on it beating the smallest key.
+        double threshold = Math.exp(weight * logKeys[0]);
+        double u = threshold + (1 - threshold) * (1 - random.nextDouble());
+        logKeys[0] = Math.log(u) / weight;
+        elements[0] = element;
+        siftDown(0);
+        drawWeightToSkip(random);
+      }
+    }
+
+    private void merge(Reservoir<T> other) {
+      for (int i = 0; i < other.size; i++) {
+        offer(other.logKeys[i], other.elements[i]);
+      }
+      weightToSkip = Double.NaN;
+    }
+
+    private void drawWeightToSkip(ThreadLocalRandom random) {
+      double smallestLogKey = logKeys[0];
+      weightToSkip =
+          smallestLogKey == 0
+              ? Double.POSITIVE_INFINITY
+              : Math.log(1 - random.nextDouble()) / smallestLogKey;
+    }
+
+    /** Adds an element with the given key if the reservoir is not full or the key is larger. */
+    private void offer(double logKey, Object element) {
+      if (size < sampleSize) {
+        if (size == logKeys.length) {
+          int capacity = (int) Math.min(sampleSize, Math.max(INITIAL_CAPACITY, 2L * size));
+          logKeys = Arrays.copyOf(logKeys, capacity);
+          elements = Arrays.copyOf(elements, capacity);
+        }
+        logKeys[size] = logKey;
+        elements[size] = element;
+        siftUp(size++);
+      } else if (sampleSize > 0 && logKey > logKeys[0]) {
+        logKeys[0] = logKey;
+        elements[0] = element;
+        siftDown(0);
+      }
+    }
+
+    private void siftUp(int index) {
+      while (index > 0) {
+        int parent = (index - 1) / 2;
+        if (logKeys[index] >= logKeys[parent]) {
+          return;
+        }
+        swap(index, parent);
+        index = parent;
+      }
+    }
+
+    private void siftDown(int index) {
+      while (true) {
+        int smallest = index;
+        int left = 2 * index + 1;
+        int right = left + 1;
+        if (left < size && logKeys[left] < logKeys[smallest]) {
+          smallest = left;
+        }
+        if (right < size && logKeys[right] < logKeys[smallest]) {
+          smallest = right;
+        }
+        if (smallest == index) {
+          return;
+        }
+        swap(index, smallest);
+        index = smallest;
+      }
+    }
+
+    private void swap(int i, int j) {
+      double logKey = logKeys[i];
+      logKeys[i] = logKeys[j];
+      logKeys[j] = logKey;
+      Object element = elements[i];
+      elements[i] = elements[j];
+      elements[j] = element;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<T> getElements() {
+      return (List<T>) Arrays.asList(elements).subList(0, size);
+    }
+  }
+
+  /** A {@link Coder} for {@link Reservoir}, encoding each element after its key. */
+  private static class ReservoirCoder<T> extends CustomCoder<Reservoir<T>> {
+    private static final Coder<Double> KEY_CODER = DoubleCoder.of();
+
+    private final int sampleSize;
+    private final Coder<T> elementCoder;
+
+    private ReservoirCoder(int sampleSize, Coder<T> elementCoder) {
+      this.sampleSize = sampleSize;
+      this.elementCoder = elementCoder;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void encode(Reservoir<T> value, OutputStream outStream)
+        throws CoderException, IOException {
+      VarInt.encode(value.size, outStream);
+      for (int i = 0; i < value.size; i++) {
+        KEY_CODER.encode(value.logKeys[i], outStream);
+        elementCoder.encode((T) value.elements[i], outStream);
+      }
+    }
+
+    @Override
+    public Reservoir<T> decode(InputStream inStream) throws CoderException, IOException {
+      int size = VarInt.decodeInt(inStream);
+      Reservoir<T> reservoir = new Reservoir<>(sampleSize, new double[size]);
+      for (int i = 0; i < size; i++) {
+        double logKey = KEY_CODER.decode(inStream);
+        reservoir.offer(logKey, elementCoder.decode(inStream));
+      }
+      return reservoir;
+    }
+
+    @Override
+    public List<? extends Coder<?>> getCoderArguments() {
+      return Arrays.asList(elementCoder);
+    }
+  }
 }
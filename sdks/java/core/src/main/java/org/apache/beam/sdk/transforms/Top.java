@@ -24,10 +24,10 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
-import java.util.PriorityQueue;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.CoderException;
 import org.apache.beam.sdk.coders.CoderRegistry;
@@ -44,7 +44,6 @@ import org.apache.beam.sdk.util.NameUtils.NameOverride;
 import org.apache.beam.sdk.util.common.ElementByteSizeObserver;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
-import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Lists;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
@@ -326,6 +325,44 @@ public class Top {
     return Combine.perKey(largestFn(count));
   }
 
+  /**
+   * Returns a {@code PTransform} that takes an input {@code PCollection<T>} and returns a {@code
+   * PCollection<List<T>>} with a single element containing the {@code count} elements of the input
+   * {@code PCollection<T>} with the largest {@code long} sort keys, in decreasing order of their
+   * sort keys.
+   *
+   * <p>This is equivalent to {@link #of} with a {@link SortKeyComparator}: the sort key of each
+   * element is computed once, and elements are compared by their sort keys alone, which is cheaper
+   * than a {@code Comparator} that inspects the elements on every comparison. To find the elements
+   * with the smallest sort keys, negate the sort key.
+   *
+   * <p>Example of use:
+   *
+   * <pre>{@code
+   * PCollection<Student> students = ...;
+   * PCollection<List<Student>> top10Students =
+   *     students.apply(Top.largestBy(10, student -> student.getTotalScore()));
+   * }</pre>
+   */
+  public static <T> Combine.Globally<T, List<T>> largestBy(
+      int count, SerializableFunction<T, Long> sortKeyFn) {
+    return of(count, new SortKeyComparator<>(sortKeyFn));
+  }
+
+  /**
+   * Returns a {@code PTransform} that takes an input {@code PCollection<KV<K, V>>} and returns a
+   * {@code PCollection<KV<K, List<V>>>} that contains an output element mapping each distinct key
+   * in the input {@code PCollection} to the {@code count} values associated with that key with the
+   * largest {@code long} sort keys, in decreasing order of their sort keys.
+   *
+   * <p>This is equivalent to {@link #perKey} with a {@link SortKeyComparator}. See {@link
+   * #largestBy}.
+   */
+  public static <K, V> PerKey<K, V, List<V>> largestPerKeyBy(
+      int count, SerializableFunction<V, Long> sortKeyFn) {
+    return Combine.perKey(new TopCombineFn<>(count, new SortKeyComparator<>(sortKeyFn)));
+  }
+
   /** @deprecated use {@link Natural} instead */
   @Deprecated
   public static class Largest<T extends Comparable<? super T>>
@@ -370,6 +407,30 @@ public class Top {
     }
   }
 
+  /**
+   * A {@code Serializable} {@code Comparator} that orders elements by a {@code long} sort key
+   * computed from each element.
+   *
+   * <p>The accumulators of {@link Top} compute the sort key of an element once when it is added,
+   * and compare the precomputed keys afterwards instead of calling this {@code Comparator}.
+   */
+  public static class SortKeyComparator<T> implements Comparator<T>, Serializable {
+    private final SerializableFunction<T, Long> sortKeyFn;
+
+    public SortKeyComparator(SerializableFunction<T, Long> sortKeyFn) {
+      this.sortKeyFn = sortKeyFn;
+    }
+
+    public SerializableFunction<T, Long> getSortKeyFn() {
+      return sortKeyFn;
+    }
+
+    @Override
+    public int compare(T a, T b) {
+      return Long.compare(sortKeyFn.apply(a), sortKeyFn.apply(b));
+    }
+  }
+
   ////////////////////////////////////////////////////////////////////////////
 
   /**
@@ -429,36 +490,64 @@ public class Top {
    * A heap that stores only a finite number of top elements according to its provided {@code
    * Comparator}. Implemented as an {@link Accumulator} to facilitate implementation of {@link Top}.
    *
+   * <p>The elements are kept in an array-backed binary heap with the smallest element at the root,
+   * so that an element that does not beat the current smallest of the top elements is rejected
+   * after a single comparison. The heap is never sorted except by {@link #extractOutput}: it is
+   * encoded in heap order, and merged by selecting the largest elements of both heaps in linear
+   * time. If the {@code Comparator} is a {@link SortKeyComparator}, the sort key of each element
+   * is computed once and kept next to the element.
+   *
    * <p>This class is <i>not</i> safe for multithreaded use, except read-only.
    */
   static class BoundedHeap<T, ComparatorT extends Comparator<T> & Serializable>
       implements Accumulator<T, BoundedHeap<T, ComparatorT>, List<T>> {
 
-    /**
-     * A queue with smallest at the head, for quick adds.
-     *
-     * <p>Only one of asList and asQueue may be non-null.
-     */
-    private @Nullable PriorityQueue<T> asQueue;
+    private static final int INITIAL_CAPACITY = 16;
 
-    /**
-     * A list in with largest first, the form of extractOutput().
-     *
-     * <p>Only one of asList and asQueue may be non-null.
-     */
-    private @Nullable List<T> asList;
+    /** The elements, as a binary heap with the smallest element at index 0. */
+    private Object[] elements;
+
+    /** The sort keys of {@link #elements}, or {@code null} if there is no sort key function. */
+    private long @Nullable [] sortKeys;
+
+    /** The number of elements in the heap. */
+    private int size;
 
     /** The user-provided Comparator. */
     private final ComparatorT compareFn;
 
+    /** The sort key function of {@link #compareFn}, if it is a {@link SortKeyComparator}. */
+    private final @Nullable SerializableFunction<T, Long> sortKeyFn;
+
     /** The maximum size of the heap. */
     private final int maximumSize;
 
     /** Creates a new heap with the provided size, comparator, and initial elements. */
-    private BoundedHeap(int maximumSize, ComparatorT compareFn, List<T> asList) {
+    @SuppressWarnings("unchecked")
+    private BoundedHeap(int maximumSize, ComparatorT compareFn, List<T> initialElements) {
       this.maximumSize = maximumSize;
-      this.asList = asList;
       this.compareFn = compareFn;
+      this.sortKeyFn =
+          compareFn instanceof SortKeyComparator
+              ? ((SortKeyComparator<T>) compareFn).getSortKeyFn()
+              : null;
+      int capacity = Math.min(maximumSize, Math.max(INITIAL_CAPACITY, initialElements.size()));
+      this.elements = new Object[capacity];
+      this.sortKeys = sortKeyFn == null ? null : new long[capacity];
+      for (T value : initialElements) {
+        if (size == maximumSize) {
+          break;
+        }
+        elements[size] = value;
+        if (sortKeys != null) {
+          sortKeys[size] = sortKeyFn.apply(value);
+        }
+        size++;
+      }
+      heapify();
+      for (T value : initialElements.subList(size, initialElements.size())) {
+        maybeAddInput(value);
+      }
     }
 
     @Override
@@ -475,23 +564,15 @@ public class Top {
         // Don't add anything.
         return false;
       }
-
-      // If asQueue == null, then this is the first add after the latest call to the
-      // constructor or asList().
-      if (asQueue == null) {
-        asQueue = new PriorityQueue<>(maximumSize, compareFn);
-        for (T item : asList) {
-          asQueue.add(item);
-        }
-        asList = null;
-      }
-
-      if (asQueue.size() < maximumSize) {
-        asQueue.add(value);
+      long sortKey = sortKeyFn == null ? 0L : sortKeyFn.apply(value);
+      if (size < maximumSize) {
+        ensureCapacity(size + 1);
+        set(size, value, sortKey);
+        siftUp(size++);
         return true;
-      } else if (compareFn.compare(value, asQueue.peek()) > 0) {
-        asQueue.poll();
-        asQueue.add(value);
+      } else if (compare(value, sortKey, 0) > 0) {
+        set(0, value, sortKey);
+        siftDown(0);
         return true;
       } else {
         return false;
@@ -500,12 +581,44 @@ public class Top {
 
     @Override
     public void mergeAccumulator(BoundedHeap<T, ComparatorT> accumulator) {
-      for (T value : accumulator.asList()) {
-        if (!maybeAddInput(value)) {
-          // If this element of accumulator does not make the top N, neither
-          // will the rest, which are all smaller.
-          break;
+      int otherSize = accumulator.size;
+      if (otherSize == 0) {
+        return;
+      }
+      if (size + otherSize <= maximumSize) {
+        ensureCapacity(size + otherSize);
+        System.arraycopy(accumulator.elements, 0, elements, size, otherSize);
+        if (sortKeys != null) {
+          System.arraycopy(accumulator.sortKeys, 0, sortKeys, size, otherSize);
+        }
+        size += otherSize;
+        heapify();
+      } else if (otherSize * 8 < size) {
+        // Offering the few elements of accumulator one by one is cheaper than a selection over the
+        // union of both heaps.
+        for (int i = 0; i < otherSize; i++) {
+          maybeAddInput(accumulator.get(i));
         }
+      } else {
+        // Select the largest maximumSize elements of the union of both heaps in linear time, then
+        // restore the heap property over them.
+        int unionSize = size + otherSize;
+        Object[] unionElements = Arrays.copyOf(elements, unionSize);
+        System.arraycopy(accumulator.elements, 0, unionElements, size, otherSize);
+        long[] unionSortKeys = null;
+        if (sortKeys != null) {
+          unionSortKeys = Arrays.copyOf(sortKeys, unionSize);
+          System.arraycopy(accumulator.sortKeys, 0, unionSortKeys, size, otherSize);
+        }
+        elements = unionElements;
+        sortKeys = unionSortKeys;
+        select(unionSize - maximumSize, unionSize);
+        elements = Arrays.copyOfRange(unionElements, unionSize - maximumSize, unionSize);
+        if (unionSortKeys != null) {
+          sortKeys = Arrays.copyOfRange(unionSortKeys, unionSize - maximumSize, unionSize);
+        }
+        size = maximumSize;
+        heapify();
       }
     }
 
@@ -516,15 +629,139 @@ public class Top {
 
     /** Returns the contents of this Heap as a List sorted largest-to-smallest. */
     private List<T> asList() {
-      if (asList == null) {
-        List<T> smallestFirstList = Lists.newArrayListWithCapacity(asQueue.size());
-        while (!asQueue.isEmpty()) {
-          smallestFirstList.add(asQueue.poll());
+      Integer[] order = new Integer[size];
+      for (int i = 0; i < size; i++) {
+        order[i] = i;
+      }
+      Arrays.sort(order, (a, b) -> compare(b, a));
+      List<T> largestFirstList = new ArrayList<>(size);
+      for (int i : order) {
+        largestFirstList.add(get(i));
+      }
+      return largestFirstList;
+    }
+
+    /** Returns the contents of this Heap in heap order, without sorting them. */
+    @SuppressWarnings("unchecked")
+    private List<T> asUnsortedList() {
+      return (List<T>) Arrays.asList(elements).subList(0, size);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T get(int index) {
+      return (T) elements[index];
+    }
+
+    private void set(int index, T value, long sortKey) {
+      elements[index] = value;
+      if (sortKeys != null) {
+        sortKeys[index] = sortKey;
+      }
+    }
+
+    private int compare(int i, int j) {
+      return sortKeys != null
+          ? Long.compare(sortKeys[i], sortKeys[j])
+          : compareFn.compare(get(i), get(j));
+    }
+
+    private int compare(T value, long sortKey, int index) {
+      return sortKeys != null
+          ? Long.compare(sortKey, sortKeys[index])
+          : compareFn.compare(value, get(index));
+    }
+
+    private void swap(int i, int j) {
+      Object element = elements[i];
+      elements[i] = elements[j];
+      elements[j] = element;
+      if (sortKeys != null) {
+        long sortKey = sortKeys[i];
+        sortKeys[i] = sortKeys[j];
+        sortKeys[j] = sortKey;
+      }
+    }
+
+    private void ensureCapacity(int capacity) {
+      if (capacity > elements.length) {
+        int newCapacity = (int) Math.min(maximumSize, Math.max(capacity, 2L * elements.length));
+        elements = Arrays.copyOf(elements, newCapacity);
+        if (sortKeys != null) {
+          sortKeys = Arrays.copyOf(sortKeys, newCapacity);
+        }
+      }
+    }
+
+    private void heapify() {
+      for (int i = size / 2 - 1; i >= 0; i--) {
+        siftDown(i);
+      }
+    }
+
+    private void siftUp(int index) {
+      while (index > 0) {
+        int parent = (index - 1) / 2;
+        if (compare(index, parent) >= 0) {
+          return;
+        }
+        swap(index, parent);
+        index = parent;
+      }
+    }
+
+    private void siftDown(int index) {
+      while (true) {
+        int smallest = index;
+        int left = 2 * index + 1;
+        int right = left + 1;
+        if (left < size && compare(left, smallest) < 0) {
+          smallest = left;
+        }
+        if (right < size && compare(right, smallest) < 0) {
+          smallest = right;
+        }
+        if (smallest == index) {
+          return;
+        }
+        swap(index, smallest);
+        index = smallest;
+      }
+    }
+
+    /**
+     * Partially orders the first {@code length} elements so that the element at {@code k} is the
+     * one a full sort would put there, with no larger elements before it and no smaller ones after.
+     * Uses quickselect with a three-way partition, so that runs of equal elements are not
+     * quadratic.
+     */
+    private void select(int k, int length) {
+      int lo = 0;
+      int hi = length - 1;
+      while (lo < hi) {
+        int pivot = lo + (hi - lo) / 2;
+        swap(lo, pivot);
+        // Invariant: [lo, lt) < pivot, [lt, i) == pivot, (gt, hi] > pivot, pivot is at lt.
+        int lt = lo;
+        int i = lo + 1;
+        int gt = hi;
+        while (i <= gt) {
+          int cmp = compare(i, lt);
+          if (cmp < 0) {
+            swap(lt++, i++);
+          } else if (cmp > 0) {
+            swap(i, gt--);
+          } else {
+            i++;
+          }
+        }
+        if (k < lt) {
+          hi = lt - 1;
+        } else if (k > gt) {
+          lo = gt + 1;
+        } else {
+          return;
         }
-        asList = Lists.reverse(smallestFirstList);
-        asQueue = null;
       }
-      return asList;
     }
   }
 
@@ -544,7 +781,7 @@ public class Top {
     @Override
     public void encode(BoundedHeap<T, ComparatorT> value, OutputStream outStream)
         throws CoderException, IOException {
-      listCoder.encode(value.asList(), outStream);
+      listCoder.encode(value.asUnsortedList(), outStream);
     }
 
     @Override
@@ -560,13 +797,13 @@ public class Top {
 
     @Override
     public boolean isRegisterByteSizeObserverCheap(BoundedHeap<T, ComparatorT> value) {
-      return listCoder.isRegisterByteSizeObserverCheap(value.asList());
+      return listCoder.isRegisterByteSizeObserverCheap(value.asUnsortedList());
     }
 
     @Override
     public void registerByteSizeObserver(
         BoundedHeap<T, ComparatorT> value, ElementByteSizeObserver observer) throws Exception {
-      listCoder.registerByteSizeObserver(value.asList(), observer);
+      listCoder.registerByteSizeObserver(value.asUnsortedList(), observer);
     }
 
     @Override
@@ -33,6 +33,7 @@ import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.TupleTag;
 import org.apache.beam.sdk.values.TupleTagList;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterators;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Lists;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.PeekingIterator;
@@ -57,7 +58,7 @@ public class CoGbkResult {
 
   private final CoGbkResultSchema schema;
 
-  private static final int DEFAULT_IN_MEMORY_ELEMENT_COUNT = 10_000;
+  static final int DEFAULT_IN_MEMORY_ELEMENT_COUNT = 10_000;
 
   private static final Logger LOG = LoggerFactory.getLogger(CoGbkResult.class);
 
@@ -72,9 +73,23 @@ public class CoGbkResult {
     this(schema, taggedValues, DEFAULT_IN_MEMORY_ELEMENT_COUNT);
   }
 
-  @SuppressWarnings("unchecked")
   public CoGbkResult(
       CoGbkResultSchema schema, Iterable<RawUnionValue> taggedValues, int inMemoryElementCount) {
+    this(schema, taggedValues, inMemoryElementCount, null);
+  }
+
+  /**
+   * Like {@link #CoGbkResult(CoGbkResultSchema, Iterable, int)}, but if {@code taggedValues} can
+   * not be reiterated and has more than {@code inMemoryElementCount} elements, the remaining
+   * elements are written to disk by the given {@link CoGbkResultSpiller} instead of being kept in
+   * memory.
+   */
+  @SuppressWarnings("unchecked")
+  CoGbkResult(
+      CoGbkResultSchema schema,
+      Iterable<RawUnionValue> taggedValues,
+      int inMemoryElementCount,
+      @Nullable CoGbkResultSpiller spiller) {
     this.schema = schema;
     valueMap = new ArrayList<>();
     for (int unionTag = 0; unionTag < schema.size(); unionTag++) {
@@ -86,7 +101,8 @@ public class CoGbkResult {
     final Iterator<RawUnionValue> taggedIter = taggedValues.iterator();
     int elementCount = 0;
     while (taggedIter.hasNext()) {
-      if (elementCount++ >= inMemoryElementCount && taggedIter instanceof Reiterator) {
+      if (elementCount++ >= inMemoryElementCount
+          && (taggedIter instanceof Reiterator || spiller != null)) {
         // Let the tails be lazy.
         break;
       }
@@ -102,7 +118,21 @@ public class CoGbkResult {
       valueList.add(value.getValue());
     }
 
-    if (taggedIter.hasNext()) {
+    if (taggedIter.hasNext() && !(taggedIter instanceof Reiterator)) {
+      // The tail can only be iterated once, so write it to disk and append views of the spilled
+      // values of each tag to the lists computed earlier.
+      LOG.info(
+          "CoGbkResult has more than {} elements, spilling the remaining elements to disk.",
+          inMemoryElementCount);
+      List<Iterable<?>> spilled = spiller.spill(taggedIter, schema.size());
+      for (int unionTag = 0; unionTag < schema.size(); unionTag++) {
+        valueMap.set(
+            unionTag,
+            Iterables.concat(
+                (Iterable<Object>) valueMap.get(unionTag),
+                (Iterable<Object>) spilled.get(unionTag)));
+      }
+    } else if (taggedIter.hasNext()) {
       // If we get here, there were more elements than we can afford to
       // keep in memory, so we copy the re-iterable of remaining items
       // and append filtered views to each of the sorted lists computed earlier.
@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.transforms.join;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Distribution;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.io.CountingOutputStream;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the values of a {@link CoGbkResult} that do not fit in memory to local files, one per
+ * union tag, encoded with the element coders of the {@link UnionCoder}.
+ *
+ * <p>A file lives as long as the {@link CoGbkResult CoGbkResults} reading it: it is deleted once
+ * they are garbage collected, the next time values are spilled or {@link #deleteUnreachableFiles()}
+ * is called, or when the spiller is closed, which also closes the files which are still being read.
+ * An iterator only keeps its file open until it has read all its values.
+ */
+@SuppressWarnings({
+  "nullness", // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+  "rawtypes"
+})
+class CoGbkResultSpiller implements AutoCloseable {
+  private static final Logger LOG = LoggerFactory.getLogger(CoGbkResultSpiller.class);
+
+  private final Counter spilledKeys = Metrics.counter(CoGroupByKey.class, "spilledKeys");
+  private final Distribution spilledElementsPerKey =
+      Metrics.distribution(CoGroupByKey.class, "spilledElementsPerKey");
+  private final Distribution spilledBytesPerKey =
+      Metrics.distribution(CoGroupByKey.class, "spilledBytesPerKey");
+
+  /** Receives the references of the spilled iterables which are no longer reachable. */
+  private static final ReferenceQueue<Object> UNREACHABLE = new ReferenceQueue<>();
+  /** Keeps the references of the spilled iterables until they are enqueued. */
+  private static final Set<SpillFileReference> LIVE_FILES = ConcurrentHashMap.newKeySet();
+
+  private final UnionCoder unionCoder;
+  private final @Nullable File directory;
+  /** The files written by this spiller which are not deleted yet. */
+  private final Set<SpillFileReference> files = ConcurrentHashMap.newKeySet();
+  /** The inputs of the iterators which did not read all their values yet. */
+  private final Set<InputStream> openInputs = ConcurrentHashMap.newKeySet();
+
+  CoGbkResultSpiller(UnionCoder unionCoder) {
+    this(unionCoder, null);
+  }
+
+  /** Spills to the given directory, or to the default temporary directory if it is null. */
+  CoGbkResultSpiller(UnionCoder unionCoder, @Nullable File directory) {
+    this.unionCoder = unionCoder;
+    this.directory = directory;
+  }
+
+  /**
+   * Writes the remaining values of {@code tail} to disk, and returns for every union tag an {@link
+   * Iterable} that lazily reads back the values of that tag.
+   */
+  @SuppressWarnings("unchecked")
+  List<Iterable<?>> spill(Iterator<RawUnionValue> tail, int numTags) {
+    deleteUnreachableFiles();
+    List<Coder<?>> elementCoders = unionCoder.getElementCoders();
+    File[] files = new File[numTags];
+    CountingOutputStream[] outputs = new CountingOutputStream[numTags];
+    long[] counts = new long[numTags];
+    long totalCount = 0;
+    long totalBytes = 0;
+    try {
+      try {
+        while (tail.hasNext()) {
+          RawUnionValue value = tail.next();
+          int unionTag = value.getUnionTag();
+          if (numTags <= unionTag) {
+            throw new IllegalStateException(
+                "union tag " + unionTag + " has no corresponding tuple tag in the result schema");
+          }
+          if (outputs[unionTag] == null) {
+            files[unionTag] = File.createTempFile("cogbk-spill-", ".bin", directory);
+            outputs[unionTag] =
+                new CountingOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(files[unionTag])));
+          }
+          ((Coder) elementCoders.get(unionTag)).encode(value.getValue(), outputs[unionTag]);
+          counts[unionTag]++;
+          totalCount++;
+        }
+      } finally {
+        for (CountingOutputStream output : outputs) {
+          if (output != null) {
+            output.close();
+            totalBytes += output.getCount();
+          }
+        }
+      }
+    } catch (IOException e) {
+      deleteAll(files);
+      throw new RuntimeException("Unable to spill CoGbkResult to disk", e);
+    } catch (RuntimeException e) {
+      deleteAll(files);
+      throw e;
+    }
+
+    LOG.debug("Spilled {} CoGbkResult elements ({} bytes) to disk.", totalCount, totalBytes);
+    spilledKeys.inc();
+    spilledElementsPerKey.update(totalCount);
+    spilledBytesPerKey.update(totalBytes);
+
+    List<Iterable<?>> spilled = new ArrayList<>(numTags);
+    for (int unionTag = 0; unionTag < numTags; unionTag++) {
+      if (counts[unionTag] == 0) {
+        spilled.add(ImmutableList.of());
+      } else {
+        SpilledIterable<?> iterable =
+            new SpilledIterable<>(
+                files[unionTag], elementCoders.get(unionTag), counts[unionTag], openInputs);
+        SpillFileReference reference =
+            new SpillFileReference(iterable, files[unionTag], this.files);
+        LIVE_FILES.add(reference);
+        this.files.add(reference);
+        spilled.add(iterable);
+      }
+    }
+    return spilled;
+  }
+
+  /** Deletes the spill files whose {@link CoGbkResult CoGbkResults} were garbage collected. */
+  static void deleteUnreachableFiles() {
+    Reference<?> reference;
+    while ((reference = UNREACHABLE.poll()) != null) {
+      SpillFileReference spillFileReference = (SpillFileReference) reference;
+      LIVE_FILES.remove(spillFileReference);
+      spillFileReference.spillerFiles.remove(spillFileReference);
+      delete(spillFileReference.file);
+    }
+  }
+
+  /**
+   * Closes the files being read and deletes all the files written by this spiller, so that the
+   * {@link CoGbkResult CoGbkResults} reading them can't be iterated anymore.
+   */
+  @Override
+  public void close() {
+    for (InputStream input : openInputs) {
+      try {
+        input.close();
+      } catch (IOException e) {
+        LOG.warn("Unable to close a CoGbkResult spill file", e);
+      }
+      openInputs.remove(input);
+    }
+    for (SpillFileReference reference : files) {
+      LIVE_FILES.remove(reference);
+      delete(reference.file);
+      files.remove(reference);
+    }
+  }
+
+  private static void deleteAll(File[] files) {
+    for (File file : files) {
+      if (file != null) {
+        delete(file);
+      }
+    }
+  }
+
+  private static void delete(File file) {
+    if (!file.delete() && file.exists()) {
+      LOG.warn("Unable to delete CoGbkResult spill file {}", file);
+    }
+  }
+
+  /**
+   * A reference to a {@link SpilledIterable}, which is enqueued once the iterable, and so every
+   * iterator reading its file, is unreachable.
+   */
+  private static class SpillFileReference extends PhantomReference<Object> {
+    private final File file;
+    private final Set<SpillFileReference> spillerFiles;
+
+    private SpillFileReference(
+        SpilledIterable<?> iterable, File file, Set<SpillFileReference> spillerFiles) {
+      super(iterable, UNREACHABLE);
+      this.file = file;
+      this.spillerFiles = spillerFiles;
+    }
+  }
+
+  /** An {@link Iterable} that decodes the values of a spill file every time it is iterated. */
+  private static class SpilledIterable<T> implements Iterable<T> {
+    private final File file;
+    private final Coder<T> coder;
+    private final long count;
+    private final Set<InputStream> openInputs;
+
+    private SpilledIterable(File file, Coder<T> coder, long count, Set<InputStream> openInputs) {
+      this.file = file;
+      this.coder = coder;
+      this.count = count;
+      this.openInputs = openInputs;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      return new Iterator<T>() {
+        private long remaining = count;
+        private InputStream input;
+
+        @Override
+        public boolean hasNext() {
+          return remaining > 0;
+        }
+
+        @Override
+        public T next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          try {
+            if (input == null) {
+              input = new BufferedInputStream(new FileInputStream(file));
+              openInputs.add(input);
+            }
+            T value = coder.decode(input);
+            if (--remaining == 0) {
+              openInputs.remove(input);
+              input.close();
+            }
+            return value;
+          } catch (IOException e) {
+            throw new RuntimeException("Unable to read CoGbkResult spill file " + file, e);
+          }
+        }
+      };
+    }
+
+    @Override
+    public String toString() {
+      return "SpilledIterable{file=" + file + ", count=" + count + "}";
+    }
+  }
+}
@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.List;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.Flatten;
 import org.apache.beam.sdk.transforms.GroupByKey;
@@ -31,6 +32,7 @@ import org.apache.beam.sdk.transforms.join.KeyedPCollectionTuple.TaggedKeyedPCol
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PCollectionList;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * A {@link PTransform} that performs a {@link CoGroupByKey} on a tuple of tables. A {@link
@@ -70,16 +72,36 @@ import org.apache.beam.sdk.values.PCollectionList;
  */
 public class CoGroupByKey<K>
     extends PTransform<KeyedPCollectionTuple<K>, PCollection<KV<K, CoGbkResult>>> {
+  /** The experiment that enables {@link #withSpillingToDisk()} for all {@link CoGroupByKey}s. */
+  public static final String SPILL_TO_DISK_EXPERIMENT = "cogbk_spill_to_disk";
+
   /**
    * Returns a {@code CoGroupByKey<K>} {@code PTransform}.
    *
    * @param <K> the type of the keys in the input and output {@code PCollection}s
    */
   public static <K> CoGroupByKey<K> create() {
-    return new CoGroupByKey<>();
+    return new CoGroupByKey<>(false);
+  }
+
+  /**
+   * Returns a {@link CoGroupByKey} that writes the values of a key to local disk once there are
+   * more than can be kept in memory, and the runner does not support reiterating the grouped
+   * values. This allows joins on hot keys to complete with a fixed amount of memory on such
+   * runners.
+   *
+   * <p>The same behavior can be enabled for all {@link CoGroupByKey}s of a pipeline, including
+   * those used by libraries, with the {@code cogbk_spill_to_disk} experiment.
+   */
+  public CoGroupByKey<K> withSpillingToDisk() {
+    return new CoGroupByKey<>(true);
   }
 
-  private CoGroupByKey() {}
+  private final boolean spillToDisk;
+
+  private CoGroupByKey(boolean spillToDisk) {
+    this.spillToDisk = spillToDisk;
+  }
 
   @Override
   public PCollection<KV<K, CoGbkResult>> expand(KeyedPCollectionTuple<K> input) {
@@ -120,7 +142,15 @@ public class CoGroupByKey<K>
     CoGbkResultSchema tupleTags = input.getCoGbkResultSchema();
     PCollection<KV<K, CoGbkResult>> result =
         groupedTable.apply(
-            "ConstructCoGbkResultFn", ParDo.of(new ConstructCoGbkResultFn<>(tupleTags)));
+            "ConstructCoGbkResultFn",
+            ParDo.of(
+                new ConstructCoGbkResultFn<>(
+                    tupleTags,
+                    spillToDisk
+                            || ExperimentalOptions.hasExperiment(
+                                input.getPipeline().getOptions(), SPILL_TO_DISK_EXPERIMENT)
+                        ? unionCoder
+                        : null)));
     result.setCoder(KvCoder.of(keyCoder, CoGbkResultCoder.of(tupleTags, unionCoder)));
 
     return result;
@@ -181,15 +211,39 @@ public class CoGroupByKey<K>
       extends DoFn<KV<K, Iterable<RawUnionValue>>, KV<K, CoGbkResult>> {
 
     private final CoGbkResultSchema schema;
+    // The coder used to spill values to disk, or null if spilling is disabled.
+    private final @Nullable UnionCoder spillCoder;
+    private transient @Nullable CoGbkResultSpiller spiller;
 
-    public ConstructCoGbkResultFn(CoGbkResultSchema schema) {
+    public ConstructCoGbkResultFn(CoGbkResultSchema schema, @Nullable UnionCoder spillCoder) {
       this.schema = schema;
+      this.spillCoder = spillCoder;
+    }
+
+    @Setup
+    public void setup() {
+      if (spillCoder != null) {
+        spiller = new CoGbkResultSpiller(spillCoder);
+      }
     }
 
     @ProcessElement
     public void processElement(ProcessContext c) {
       KV<K, Iterable<RawUnionValue>> e = c.element();
-      c.output(KV.of(e.getKey(), new CoGbkResult(schema, e.getValue())));
+      c.output(
+          KV.of(
+              e.getKey(),
+              new CoGbkResult(
+                  schema, e.getValue(), CoGbkResult.DEFAULT_IN_MEMORY_ELEMENT_COUNT, spiller)));
+    }
+
+    @Teardown
+    public void teardown() {
+      // The results output so far can outlive their bundle, but not the DoFn: the files still used
+      // by unreachable results are deleted when they are garbage collected, and the others here.
+      if (spiller != null) {
+        spiller.close();
+      }
     }
   }
 }
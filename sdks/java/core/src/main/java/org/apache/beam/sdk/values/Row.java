@@ -25,6 +25,7 @@ import java.io.Serializable;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -37,6 +38,7 @@ import java.util.stream.IntStream;
 import org.apache.beam.sdk.annotations.Experimental;
 import org.apache.beam.sdk.annotations.Experimental.Kind;
 import org.apache.beam.sdk.annotations.Internal;
+import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.schemas.Factory;
 import org.apache.beam.sdk.schemas.FieldAccessDescriptor;
 import org.apache.beam.sdk.schemas.FieldValueGetter;
@@ -783,6 +785,18 @@ public abstract class Row implements Serializable {
       return new RowWithGetters(schema, fieldValueGetterFactory, getterTarget);
     }
 
+    /**
+     * Returns a {@link RowWithEncodedValues} whose non-null fields are the slices of {@code
+     * encoded} at the given offsets and lengths, encoded with the corresponding field coders.
+     */
+    @Internal
+    @SuppressWarnings("rawtypes")
+    public Row withEncodedValues(
+        Coder[] fieldCoders, BitSet nullFields, int[] offsets, int[] lengths, byte[] encoded) {
+      checkState(values.isEmpty());
+      return new RowWithEncodedValues(schema, fieldCoders, nullFields, offsets, lengths, encoded);
+    }
+
     public Row build() {
       checkNotNull(schema);
 
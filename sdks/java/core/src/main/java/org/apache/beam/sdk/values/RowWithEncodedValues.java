@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.values;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import org.apache.beam.sdk.annotations.Experimental;
+import org.apache.beam.sdk.annotations.Experimental.Kind;
+import org.apache.beam.sdk.annotations.Internal;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.schemas.Schema;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A Concrete subclass of {@link Row} that is backed by the encoded values of its fields, and only
+ * decodes a field when it is accessed.
+ *
+ * <p>Each non-null field is stored as a slice of a byte array, encoded with the corresponding
+ * {@link Coder}. Decoded values are cached, so every field is decoded at most once. Rows that only
+ * have a few of their fields accessed, for example by a projection or a filter, therefore never
+ * pay for decoding the remaining fields.
+ */
+@Experimental(Kind.SCHEMAS)
+@SuppressWarnings({
+  "nullness", // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+  "rawtypes"
+})
+public class RowWithEncodedValues extends Row {
+  private final Coder[] fieldCoders;
+  private final BitSet nullFields;
+  private final int[] offsets;
+  private final int[] lengths;
+  private final byte[] encoded;
+
+  private transient Object @Nullable [] decodedValues;
+
+  RowWithEncodedValues(
+      Schema schema,
+      Coder[] fieldCoders,
+      BitSet nullFields,
+      int[] offsets,
+      int[] lengths,
+      byte[] encoded) {
+    super(schema);
+    checkArgument(
+        fieldCoders.length == schema.getFieldCount()
+            && offsets.length == fieldCoders.length
+            && lengths.length == fieldCoders.length,
+        "Expected %s field coders, offsets and lengths",
+        schema.getFieldCount());
+    this.fieldCoders = fieldCoders;
+    this.nullFields = nullFields;
+    this.offsets = offsets;
+    this.lengths = lengths;
+    this.encoded = encoded;
+  }
+
+  @Override
+  @SuppressWarnings({"TypeParameterUnusedInFormals", "unchecked"})
+  public <T> @Nullable T getValue(int fieldIdx) {
+    if (fieldIdx < 0 || fieldIdx >= fieldCoders.length) {
+      throw new IllegalArgumentException("No field at index " + fieldIdx);
+    }
+    if (nullFields.get(fieldIdx)) {
+      return null;
+    }
+    if (decodedValues == null) {
+      decodedValues = new Object[fieldCoders.length];
+    }
+    Object value = decodedValues[fieldIdx];
+    if (value == null) {
+      try {
+        value =
+            fieldCoders[fieldIdx].decode(
+                new ByteArrayInputStream(encoded, offsets[fieldIdx], lengths[fieldIdx]));
+      } catch (IOException e) {
+        throw new RuntimeException(
+            "Unable to decode field " + getSchema().getField(fieldIdx).getName(), e);
+      }
+      decodedValues[fieldIdx] = value;
+    }
+    return (T) value;
+  }
+
+  @Override
+  public int getFieldCount() {
+    return fieldCoders.length;
+  }
+
+  @Override
+  public List<Object> getValues() {
+    List<Object> values = new ArrayList<>(fieldCoders.length);
+    for (int i = 0; i < fieldCoders.length; i++) {
+      values.add(getValue(i));
+    }
+    return values;
+  }
+
+  /**
+   * Returns a row of the given fields of this row, backed by the same encoded values, so that no
+   * field is decoded. The types of the fields of {@code schema} must match the selected fields.
+   */
+  public Row select(Schema schema, int[] fieldIds) {
+    Coder[] selectedCoders = new Coder[fieldIds.length];
+    BitSet selectedNulls = new BitSet(fieldIds.length);
+    int[] selectedOffsets = new int[fieldIds.length];
+    int[] selectedLengths = new int[fieldIds.length];
+    for (int i = 0; i < fieldIds.length; i++) {
+      int fieldId = fieldIds[i];
+      selectedCoders[i] = fieldCoders[fieldId];
+      selectedNulls.set(i, nullFields.get(fieldId));
+      selectedOffsets[i] = offsets[fieldId];
+      selectedLengths[i] = lengths[fieldId];
+    }
+    return new RowWithEncodedValues(
+        schema, selectedCoders, selectedNulls, selectedOffsets, selectedLengths, encoded);
+  }
+
+  /** Returns whether the fields of this row are encoded with the given coders. */
+  @Internal
+  public boolean isEncodedWith(Coder[] coders) {
+    return fieldCoders == coders || Arrays.equals(fieldCoders, coders);
+  }
+
+  /** Returns whether the given field is null, without decoding it. */
+  @Internal
+  public boolean isNull(int fieldIdx) {
+    return nullFields.get(fieldIdx);
+  }
+
+  /** Returns the length of the encoded value of the given non-null field. */
+  @Internal
+  public int getEncodedLength(int fieldIdx) {
+    return lengths[fieldIdx];
+  }
+
+  /** Writes the encoded value of the given non-null field to the stream. */
+  @Internal
+  public void writeEncodedValue(int fieldIdx, OutputStream outputStream) throws IOException {
+    outputStream.write(encoded, offsets[fieldIdx], lengths[fieldIdx]);
+  }
+}
@@ -21,6 +21,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.apache.beam.sdk.annotations.Experimental;
 import org.apache.beam.sdk.annotations.Experimental.Kind;
@@ -54,9 +55,9 @@ public class RowWithGetters extends Row {
   private final Object getterTarget;
   private final List<FieldValueGetter> getters;
 
-  private final Map<Integer, Collection> cachedCollections = Maps.newHashMap();
-  private final Map<Integer, Iterable> cachedIterables = Maps.newHashMap();
-  private final Map<Integer, Map> cachedMaps = Maps.newHashMap();
+  // Converted collections, iterables and maps, indexed by field. Only allocated once such a field
+  // is accessed, so that rows of schemas without these fields do not pay for it.
+  private Object @Nullable [] cachedValues;
 
   RowWithGetters(
       Schema schema, Factory<List<FieldValueGetter>> getterFactory, Object getterTarget) {
@@ -112,21 +113,21 @@ public class RowWithGetters extends Row {
     } else if (type.getTypeName().equals(TypeName.ARRAY)) {
       return cacheKey != null
           ? (T)
-              cachedCollections.computeIfAbsent(
-                  cacheKey, i -> getCollectionValue(type.getCollectionElementType(), fieldValue))
+              cached(
+                  cacheKey, () -> getCollectionValue(type.getCollectionElementType(), fieldValue))
           : (T) getCollectionValue(type.getCollectionElementType(), fieldValue);
     } else if (type.getTypeName().equals(TypeName.ITERABLE)) {
       return cacheKey != null
           ? (T)
-              cachedIterables.computeIfAbsent(
-                  cacheKey, i -> getIterableValue(type.getCollectionElementType(), fieldValue))
+              cached(
+                  cacheKey, () -> getIterableValue(type.getCollectionElementType(), fieldValue))
           : (T) getIterableValue(type.getCollectionElementType(), fieldValue);
     } else if (type.getTypeName().equals(TypeName.MAP)) {
       Map map = (Map) fieldValue;
       return cacheKey != null
           ? (T)
-              cachedMaps.computeIfAbsent(
-                  cacheKey, i -> getMapValue(type.getMapKeyType(), type.getMapValueType(), map))
+              cached(
+                  cacheKey, () -> getMapValue(type.getMapKeyType(), type.getMapValueType(), map))
           : (T) getMapValue(type.getMapKeyType(), type.getMapValueType(), map);
     } else {
       if (type.isLogicalType(OneOfType.IDENTIFIER)) {
@@ -143,6 +144,18 @@ public class RowWithGetters extends Row {
     }
   }
 
+  private Object cached(int fieldIdx, Supplier<Object> valueSupplier) {
+    if (cachedValues == null) {
+      cachedValues = new Object[getters.size()];
+    }
+    Object value = cachedValues[fieldIdx];
+    if (value == null) {
+      value = valueSupplier.get();
+      cachedValues[fieldIdx] = value;
+    }
+    return value;
+  }
+
   @Override
   public int getFieldCount() {
     return getters.size();
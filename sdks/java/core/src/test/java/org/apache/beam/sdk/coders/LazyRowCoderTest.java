@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.coders;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.schemas.SchemaCoder;
+import org.apache.beam.sdk.testing.CoderProperties;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.sdk.values.RowWithEncodedValues;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link LazyRowCoder}. */
+@RunWith(JUnit4.class)
+public class LazyRowCoderTest {
+  private static final Schema NESTED_SCHEMA =
+      Schema.builder().addInt32Field("f1_int").addStringField("f1_str").build();
+
+  private static final Schema SCHEMA =
+      Schema.builder()
+          .addInt64Field("f_int64")
+          .addNullableField("f_string", FieldType.STRING)
+          .addArrayField("f_array", FieldType.DOUBLE)
+          .addRowField("f_nested", NESTED_SCHEMA)
+          .build();
+
+  private static final Row ROW =
+      Row.withSchema(SCHEMA)
+          .addValues(
+              42L,
+              "foo",
+              ImmutableList.of(1.0, 2.0),
+              Row.withSchema(NESTED_SCHEMA).addValues(18, "bar").build())
+          .build();
+
+  @Test
+  public void testEncodeDecode() throws Exception {
+    CoderProperties.coderDecodeEncodeEqual(LazyRowCoder.of(SCHEMA), ROW);
+    CoderProperties.coderDeterministic(LazyRowCoder.of(SCHEMA), ROW, ROW);
+  }
+
+  @Test
+  public void testNullValues() throws Exception {
+    Row row =
+        Row.withSchema(SCHEMA)
+            .addValues(1L, null, ImmutableList.of(), ROW.getRow("f_nested"))
+            .build();
+    Row decoded = CoderUtils.clone(LazyRowCoder.of(SCHEMA), row);
+    assertEquals(row, decoded);
+    assertNull(decoded.getString("f_string"));
+  }
+
+  @Test
+  public void testDecodesToRowWithEncodedValues() throws Exception {
+    Row decoded = CoderUtils.clone(LazyRowCoder.of(SCHEMA), ROW);
+    assertTrue(decoded instanceof RowWithEncodedValues);
+    assertEquals(SCHEMA, decoded.getSchema());
+    assertEquals("bar", decoded.getRow("f_nested").getString("f1_str"));
+    assertEquals(ROW.getValues(), decoded.getValues());
+  }
+
+  @Test
+  public void testReencodeWithoutDecoding() throws Exception {
+    LazyRowCoder coder = LazyRowCoder.of(SCHEMA);
+    byte[] encoded = CoderUtils.encodeToByteArray(coder, ROW);
+    Row decoded = CoderUtils.decodeFromByteArray(coder, encoded);
+    assertArrayEquals(encoded, CoderUtils.encodeToByteArray(coder, decoded));
+    assertArrayEquals(encoded, CoderUtils.encodeToByteArray(LazyRowCoder.of(SCHEMA), decoded));
+  }
+
+  @Test
+  public void testSelect() throws Exception {
+    Schema selectedSchema =
+        Schema.builder()
+            .addRowField("nested", NESTED_SCHEMA)
+            .addNullableField("string", FieldType.STRING)
+            .build();
+    RowWithEncodedValues decoded =
+        (RowWithEncodedValues) CoderUtils.clone(LazyRowCoder.of(SCHEMA), ROW);
+    Row selected = decoded.select(selectedSchema, new int[] {3, 1});
+
+    Row expected =
+        Row.withSchema(selectedSchema).addValues(ROW.getRow("f_nested"), "foo").build();
+    assertEquals(expected, selected);
+    assertEquals(
+        expected,
+        CoderUtils.decodeFromByteArray(
+            LazyRowCoder.of(selectedSchema),
+            CoderUtils.encodeToByteArray(LazyRowCoder.of(selectedSchema), selected)));
+  }
+
+  @Test
+  public void testDecodeWithAddedFields() throws Exception {
+    Schema evolvedSchema =
+        Schema.builder()
+            .addFields(SCHEMA.getFields())
+            .addNullableField("f_added", FieldType.BOOLEAN)
+            .build();
+    Row decoded =
+        CoderUtils.decodeFromByteArray(
+            LazyRowCoder.of(evolvedSchema),
+            CoderUtils.encodeToByteArray(LazyRowCoder.of(SCHEMA), ROW));
+    assertEquals(ROW.getValues(), decoded.getValues().subList(0, SCHEMA.getFieldCount()));
+    assertNull(decoded.getBoolean("f_added"));
+  }
+
+  @Test
+  public void testDecodeWithRemovedFields() throws Exception {
+    Schema evolvedSchema =
+        Schema.builder()
+            .addInt64Field("f_int64")
+            .addNullableField("f_string", FieldType.STRING)
+            .build();
+    Row decoded =
+        CoderUtils.decodeFromByteArray(
+            LazyRowCoder.of(evolvedSchema),
+            CoderUtils.encodeToByteArray(LazyRowCoder.of(SCHEMA), ROW));
+    assertEquals(Row.withSchema(evolvedSchema).addValues(42L, "foo").build(), decoded);
+  }
+
+  @Test
+  public void testSchemaCoderWithLazyDecoding() throws Exception {
+    SchemaCoder<Row> coder = RowCoder.of(SCHEMA).withLazyDecoding();
+    assertTrue(coder.usesLazyDecoding());
+    assertFalse(RowCoder.of(SCHEMA).usesLazyDecoding());
+    assertEquals(coder, RowCoder.of(SCHEMA).withLazyDecoding());
+    assertNotEquals(coder, RowCoder.of(SCHEMA));
+
+    CoderProperties.coderDecodeEncodeEqual(coder, ROW);
+    CoderProperties.coderSerializable(coder);
+    assertTrue(CoderUtils.clone(coder, ROW) instanceof RowWithEncodedValues);
+  }
+}
@@ -69,6 +69,7 @@ import org.apache.beam.sdk.io.FileBasedSink.FilenamePolicy;
 import org.apache.beam.sdk.io.FileBasedSink.OutputFileHints;
 import org.apache.beam.sdk.io.fs.ResourceId;
 import org.apache.beam.sdk.options.ValueProvider.StaticValueProvider;
+import org.apache.beam.sdk.schemas.utils.AvroUtils;
 import org.apache.beam.sdk.testing.NeedsRunner;
 import org.apache.beam.sdk.testing.PAssert;
 import org.apache.beam.sdk.testing.TestPipeline;
@@ -93,6 +94,7 @@ import org.apache.beam.sdk.transforms.windowing.Window;
 import org.apache.beam.sdk.util.SerializableUtils;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PCollectionView;
+import org.apache.beam.sdk.values.Row;
 import org.apache.beam.sdk.values.TimestampedValue;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Charsets;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.MoreObjects;
@@ -404,6 +406,40 @@ public class AvroIOTest implements Serializable {
           AvroIO.readGenericRecords(SCHEMA.toString()).withBeamSchemas(withBeamSchemas));
     }
 
+    @Test
+    @Category(NeedsRunner.class)
+    public void testWriteThenReadRows() throws Throwable {
+      File outputFile = tmpFolder.newFile("output.avro");
+
+      List<AvroGeneratedUser> values =
+          ImmutableList.of(
+              new AvroGeneratedUser("Bob", 256, null),
+              new AvroGeneratedUser("Alice", 128, null),
+              new AvroGeneratedUser("Ted", null, "white"));
+      List<Row> expected = new ArrayList<>();
+      for (AvroGeneratedUser value : values) {
+        expected.add(AvroUtils.toBeamRowStrict(value, AvroUtils.toBeamSchema(SCHEMA)));
+      }
+
+      writePipeline
+          .apply(Create.of(values))
+          .apply(
+              AvroIO.write(AvroGeneratedUser.class)
+                  .to(writePipeline.newProvider(outputFile.getAbsolutePath()))
+                  .withoutSharding());
+      writePipeline.run();
+
+      PCollection<Row> rows =
+          readPipeline.apply(
+              "Read",
+              AvroIO.readRows(SCHEMA)
+                  .from(readPipeline.newProvider(outputFile.getAbsolutePath())));
+      assertEquals(AvroUtils.toBeamSchema(SCHEMA), rows.getSchema());
+      PAssert.that(rows).containsInAnyOrder(expected);
+
+      readPipeline.run();
+    }
+
     @Test
     @Category(NeedsRunner.class)
     public void testWriteSingleFileThenReadUsingAllMethods() throws Throwable {
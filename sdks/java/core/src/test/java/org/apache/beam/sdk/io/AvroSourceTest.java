@@ -169,6 +169,38 @@ public class AvroSourceTest {
     }
   }
 
+  @Test
+  public void testReadMemoryMappedFile() throws Exception {
+    PipelineOptions options =
+        PipelineOptionsFactory.fromArgs(
+                "--experiments=" + LocalFileSystem.MEMORY_MAPPED_READS_EXPERIMENT)
+            .create();
+    FileSystems.setDefaultPipelineOptions(options);
+    try {
+      List<FixedRecord> expected = createFixedRecords(DEFAULT_RECORD_COUNT);
+      for (String codec :
+          new String[] {DataFileConstants.NULL_CODEC, DataFileConstants.DEFLATE_CODEC}) {
+        String filename =
+            generateTestFile(
+                "mapped-" + codec + ".avro",
+                expected,
+                SyncBehavior.SYNC_REGULAR,
+                DEFAULT_RECORD_COUNT / 10 /* max records per block */,
+                AvroCoder.of(FixedRecord.class),
+                codec);
+        AvroSource<FixedRecord> source = AvroSource.from(filename).withSchema(FixedRecord.class);
+
+        assertThat(
+            SourceTestUtils.readFromSource(source, options),
+            containsInAnyOrder(expected.toArray()));
+        SourceTestUtils.assertSourcesEqualReferenceSource(
+            source, source.split(new File(filename).length() / 3, options), options);
+      }
+    } finally {
+      FileSystems.setDefaultPipelineOptions(PipelineOptionsFactory.create());
+    }
+  }
+
   @Test
   public void testSplitAtFraction() throws Exception {
     // A reduced dataset is enough here.
@@ -68,6 +68,7 @@ import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.primitives.Bytes
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
 import org.apache.commons.compress.compressors.deflate.DeflateCompressorOutputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorOutputStream;
 import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.joda.time.Instant;
@@ -143,6 +144,12 @@ public class CompressedSourceTest {
     source = CompressedSource.from(new ByteSource("input.zstd", 1));
     assertFalse(source.isSplittable());
 
+    // LZ4 files are not splittable
+    source = CompressedSource.from(new ByteSource("input.lz4", 1));
+    assertFalse(source.isSplittable());
+    source = CompressedSource.from(new ByteSource("input.LZ4", 1));
+    assertFalse(source.isSplittable());
+
     // LZO files are not splittable
     source = CompressedSource.from(new ByteSource("input.lzo_deflate", 1));
     assertFalse(source.isSplittable());
@@ -273,6 +280,20 @@ public class CompressedSourceTest {
     runReadTest(input, CompressionMode.ZSTD);
   }
 
+  /** Test reading nonempty input with lz4. */
+  @Test
+  public void testReadLz4() throws Exception {
+    byte[] input = generateInput(5000);
+    runReadTest(input, CompressionMode.LZ4);
+  }
+
+  /** Test reading empty input with lz4. */
+  @Test
+  public void testEmptyReadLz4() throws Exception {
+    byte[] input = generateInput(0);
+    runReadTest(input, CompressionMode.LZ4);
+  }
+
   /** Test reading empty input with lzo. */
   @Test
   public void testEmptyReadLzo() throws Exception {
@@ -525,6 +546,15 @@ public class CompressedSourceTest {
     verifyReadContents(input, tmpFile, null /* default auto decompression factory */);
   }
 
+  /** Test reading according to filepattern when the file is lz4 compressed. */
+  @Test
+  public void testCompressedAccordingToFilepatternLz4() throws Exception {
+    byte[] input = generateInput(100);
+    File tmpFile = tmpFolder.newFile("test.lz4");
+    writeFile(tmpFile, input, CompressionMode.LZ4);
+    verifyReadContents(input, tmpFile, null /* default auto decompression factory */);
+  }
+
   /** Test reading according to filepattern when the file is lzo compressed using LZO Codec. */
   @Test
   public void testCompressedAccordingToFilepatternLzo() throws Exception {
@@ -865,6 +895,8 @@ public class CompressedSourceTest {
         return new TestZipOutputStream(stream);
       case ZSTD:
         return new ZstdCompressorOutputStream(stream);
+      case LZ4:
+        return new FramedLZ4CompressorOutputStream(stream);
       case DEFLATE:
         return new DeflateCompressorOutputStream(stream);
       case LZO:
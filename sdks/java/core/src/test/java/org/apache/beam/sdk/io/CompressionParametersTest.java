@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Random;
+import org.apache.beam.sdk.util.MimeTypes;
+import org.apache.beam.sdk.util.SerializableUtils;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.io.ByteStreams;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link CompressionParameters}. */
+@RunWith(JUnit4.class)
+public class CompressionParametersTest {
+  @Rule public ExpectedException thrown = ExpectedException.none();
+
+  private static byte[] generateInput(int size) {
+    // Compressible, but not trivially so.
+    Random random = new Random(285930);
+    byte[] input = new byte[size];
+    for (int i = 0; i < size; i++) {
+      input[i] = (byte) ('a' + random.nextInt(4));
+    }
+    return input;
+  }
+
+  private static byte[] compress(CompressionParameters parameters, byte[] input)
+      throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (WritableByteChannel channel = parameters.create(Channels.newChannel(out))) {
+      channel.write(ByteBuffer.wrap(input));
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] decompress(Compression compression, byte[] compressed) throws IOException {
+    try (InputStream in =
+        Channels.newInputStream(
+            compression.readDecompressed(
+                Channels.newChannel(new ByteArrayInputStream(compressed))))) {
+      return ByteStreams.toByteArray(in);
+    }
+  }
+
+  private void verifyRoundTrip(CompressionParameters parameters) throws IOException {
+    byte[] input = generateInput(100_000);
+    assertArrayEquals(input, decompress(parameters.getCompression(), compress(parameters, input)));
+  }
+
+  @Test
+  public void testDefaults() throws IOException {
+    for (Compression compression :
+        new Compression[] {
+          Compression.UNCOMPRESSED,
+          Compression.GZIP,
+          Compression.BZIP2,
+          Compression.ZSTD,
+          Compression.LZ4,
+          Compression.DEFLATE
+        }) {
+      verifyRoundTrip(CompressionParameters.of(compression));
+    }
+  }
+
+  @Test
+  public void testGzipLevels() throws IOException {
+    byte[] input = generateInput(100_000);
+    byte[] fast = compress(CompressionParameters.of(Compression.GZIP).withLevel(1), input);
+    byte[] best = compress(CompressionParameters.of(Compression.GZIP).withLevel(9), input);
+    assertArrayEquals(input, decompress(Compression.GZIP, fast));
+    assertArrayEquals(input, decompress(Compression.GZIP, best));
+    assertTrue(best.length < fast.length);
+  }
+
+  @Test
+  public void testLevels() throws IOException {
+    verifyRoundTrip(CompressionParameters.of(Compression.BZIP2).withLevel(1));
+    verifyRoundTrip(CompressionParameters.of(Compression.DEFLATE).withLevel(0));
+    verifyRoundTrip(CompressionParameters.of(Compression.ZSTD).withLevel(19));
+  }
+
+  @Test
+  public void testZstdWorkers() throws IOException {
+    verifyRoundTrip(CompressionParameters.of(Compression.ZSTD).withLevel(1).withWorkers(2));
+  }
+
+  @Test
+  public void testWorkersUnsupported() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("GZIP does not support compression workers");
+    CompressionParameters.of(Compression.GZIP).withWorkers(2);
+  }
+
+  @Test
+  public void testLevelUnsupported() throws IOException {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("LZ4 does not support compression levels");
+    compress(CompressionParameters.of(Compression.LZ4).withLevel(1), new byte[0]);
+  }
+
+  @Test
+  public void testAutoUnsupported() {
+    thrown.expect(IllegalArgumentException.class);
+    CompressionParameters.of(Compression.AUTO);
+  }
+
+  @Test
+  public void testOutputFileHints() {
+    CompressionParameters parameters = CompressionParameters.of(Compression.ZSTD).withLevel(3);
+    assertEquals(".zst", parameters.getSuggestedFilenameSuffix());
+    assertEquals(MimeTypes.BINARY, parameters.getMimeType());
+    assertNull(CompressionParameters.of(Compression.UNCOMPRESSED).getMimeType());
+  }
+
+  @Test
+  public void testToString() {
+    assertEquals("GZIP", CompressionParameters.of(Compression.GZIP).toString());
+    assertEquals(
+        "GZIP(level=9)", CompressionParameters.of(Compression.GZIP).withLevel(9).toString());
+    assertEquals(
+        "ZSTD(level=1, workers=4)",
+        CompressionParameters.of(Compression.ZSTD).withLevel(1).withWorkers(4).toString());
+  }
+
+  @Test
+  public void testSerializable() {
+    CompressionParameters parameters = CompressionParameters.of(Compression.ZSTD).withLevel(5);
+    assertEquals(parameters, SerializableUtils.clone(parameters));
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.io;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import org.apache.beam.sdk.testing.InterceptingUrlClassLoader;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link Compression}. */
+@RunWith(JUnit4.class)
+public class CompressionTest {
+
+  /** A class loader which fails to load the classes of {@code zstd-jni}. */
+  private static class WithoutZstdJniClassLoader extends ClassLoader {
+    WithoutZstdJniClassLoader(ClassLoader parent) {
+      super(parent);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      if (name.startsWith("com.github.luben.zstd.")) {
+        throw new ClassNotFoundException(name);
+      }
+      return super.loadClass(name, resolve);
+    }
+  }
+
+  @Test
+  public void testLoadsWithoutZstdJni() throws Exception {
+    ClassLoader loader =
+        new InterceptingUrlClassLoader(
+            new WithoutZstdJniClassLoader(getClass().getClassLoader()),
+            name ->
+                name.equals(Compression.class.getName())
+                    || name.startsWith(Compression.class.getName() + "$")
+                    || name.equals(ZstdCompression.class.getName()));
+    Class<?> compression = Class.forName(Compression.class.getName(), true, loader);
+    assertNotEquals(Compression.class, compression);
+    assertEquals(Compression.values().length, compression.getEnumConstants().length);
+
+    // Other codecs can be used.
+    Object gzip = compression.getMethod("valueOf", String.class).invoke(null, "GZIP");
+    WritableByteChannel channel =
+        (WritableByteChannel)
+            compression
+                .getMethod("writeCompressed", WritableByteChannel.class)
+                .invoke(gzip, Channels.newChannel(new ByteArrayOutputStream()));
+    channel.close();
+
+    // Only writing Zstandard with zstd-jni requires it.
+    Object zstd = compression.getMethod("valueOf", String.class).invoke(null, "ZSTD");
+    Method writeWithParameters =
+        compression.getDeclaredMethod(
+            "writeCompressed", WritableByteChannel.class, Integer.class, Integer.class);
+    writeWithParameters.setAccessible(true);
+    try {
+      writeWithParameters.invoke(zstd, Channels.newChannel(new ByteArrayOutputStream()), 1, null);
+      fail("Writing Zstandard output should require zstd-jni");
+    } catch (InvocationTargetException e) {
+      assertThat(e.getCause(), instanceOf(NoClassDefFoundError.class));
+    }
+  }
+}
@@ -453,4 +453,11 @@ public class FileIOTest implements Serializable {
         "Output file shard 0 exists after pipeline completes",
         new File(outputFileName + "-0").exists());
   }
+
+  @Test
+  public void testWriteRejectsZipCompression() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("ZIP compression is not supported for writing");
+    FileIO.<String>write().withCompression(Compression.ZIP);
+  }
 }
@@ -20,6 +20,7 @@ package org.apache.beam.sdk.io;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
@@ -33,6 +34,7 @@ import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
 import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -117,6 +119,33 @@ public class LocalFileSystemTest {
     assertEquals(expected, data);
   }
 
+  @Test
+  public void testReadWithMemoryMappedReads() throws Exception {
+    String expected = "my test string";
+    File existingFile = temporaryFolder.newFile();
+    Files.write(expected, existingFile, StandardCharsets.UTF_8);
+    ReadableByteChannel channel =
+        new LocalFileSystem(true /* memoryMappedReads */)
+            .open(LocalResourceId.fromPath(existingFile.toPath(), false /* isDirectory */));
+    assertThat(channel, instanceOf(MemoryMappedFileChannel.class));
+    String data;
+    try (Reader reader = Channels.newReader(channel, StandardCharsets.UTF_8.name())) {
+      data = new LineReader(reader).readLine();
+    }
+    assertEquals(expected, data);
+  }
+
+  @Test
+  public void testReadNonExistentFileWithMemoryMappedReads() throws Exception {
+    thrown.expect(FileNotFoundException.class);
+    new LocalFileSystem(true /* memoryMappedReads */)
+        .open(
+            LocalResourceId.fromPath(
+                temporaryFolder.getRoot().toPath().resolve("non-existent-file.txt"),
+                false /* isDirectory */))
+        .close();
+  }
+
   @Test
   public void testReadNonExistentFile() throws Exception {
     thrown.expect(FileNotFoundException.class);
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link MemoryMappedFileChannel}. */
+@RunWith(JUnit4.class)
+public class MemoryMappedFileChannelTest {
+  @Rule public ExpectedException thrown = ExpectedException.none();
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File createFile(byte[] contents) throws Exception {
+    File file = temporaryFolder.newFile();
+    Files.write(contents, file);
+    return file;
+  }
+
+  private static byte[] bytes(int length) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = (byte) i;
+    }
+    return bytes;
+  }
+
+  @Test
+  public void testReadAcrossSegments() throws Exception {
+    byte[] contents = bytes(100);
+    try (MemoryMappedFileChannel channel =
+        MemoryMappedFileChannel.open(createFile(contents), 16)) {
+      assertEquals(100, channel.size());
+
+      ByteBuffer buffer = ByteBuffer.allocate(60);
+      assertEquals(60, channel.read(buffer));
+      ByteBuffer rest = ByteBuffer.allocate(60);
+      assertEquals(40, channel.read(rest));
+      assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+
+      byte[] actual = new byte[100];
+      System.arraycopy(buffer.array(), 0, actual, 0, 60);
+      System.arraycopy(rest.array(), 0, actual, 60, 40);
+      assertArrayEquals(contents, actual);
+    }
+  }
+
+  @Test
+  public void testReadViewStopsAtSegmentBoundary() throws Exception {
+    byte[] contents = bytes(40);
+    try (MemoryMappedFileChannel channel =
+        MemoryMappedFileChannel.open(createFile(contents), 16)) {
+      channel.position(10);
+      ByteBuffer view = channel.readView(100);
+      assertEquals(6, view.remaining());
+      assertEquals(10, view.get(0));
+      assertTrue(view.isReadOnly());
+      assertEquals(16, channel.position());
+
+      view = channel.readView(4);
+      assertEquals(4, view.remaining());
+      assertEquals(16, view.get(0));
+      assertEquals(20, channel.position());
+
+      channel.position(40);
+      assertNull(channel.readView(1));
+    }
+  }
+
+  @Test
+  public void testViewRemainsValidAfterClose() throws Exception {
+    byte[] contents = bytes(10);
+    MemoryMappedFileChannel channel = MemoryMappedFileChannel.open(createFile(contents));
+    ByteBuffer view = channel.readView(10);
+    channel.close();
+    assertFalse(channel.isOpen());
+
+    byte[] actual = new byte[10];
+    view.get(actual);
+    assertArrayEquals(contents, actual);
+  }
+
+  @Test
+  public void testEmptyFile() throws Exception {
+    try (MemoryMappedFileChannel channel = MemoryMappedFileChannel.open(createFile(new byte[0]))) {
+      assertEquals(0, channel.size());
+      assertNull(channel.readView(1));
+      assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+    }
+  }
+
+  @Test
+  public void testReadAfterClose() throws Exception {
+    MemoryMappedFileChannel channel = MemoryMappedFileChannel.open(createFile(bytes(10)));
+    channel.close();
+    thrown.expect(ClosedChannelException.class);
+    channel.read(ByteBuffer.allocate(1));
+  }
+
+  @Test
+  public void testWriteFails() throws Exception {
+    try (MemoryMappedFileChannel channel = MemoryMappedFileChannel.open(createFile(bytes(10)))) {
+      thrown.expect(NonWritableChannelException.class);
+      channel.write(ByteBuffer.allocate(1));
+    }
+  }
+
+  @Test
+  public void testOpenNonExistentFile() throws Exception {
+    thrown.expect(FileNotFoundException.class);
+    MemoryMappedFileChannel.open(new File(temporaryFolder.getRoot(), "non-existent-file"));
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.vendor.grpc.v1p26p0.com.google.protobuf.CodedOutputStream;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link TFExampleParser}. */
+@RunWith(JUnit4.class)
+public class TFExampleParserTest {
+  @Rule public ExpectedException thrown = ExpectedException.none();
+
+  private static final Schema SCHEMA =
+      Schema.builder()
+          .addInt64Field("label")
+          .addStringField("name")
+          .addNullableField("weight", FieldType.DOUBLE)
+          .addArrayField("embedding", FieldType.FLOAT)
+          .addArrayField("ids", FieldType.INT64)
+          .addByteArrayField("raw")
+          .build();
+
+  /** Writes a message containing the given fields, each a serialized message or list. */
+  private static byte[] message(Map<Integer, byte[]> fields) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+    for (Map.Entry<Integer, byte[]> field : fields.entrySet()) {
+      out.writeByteArray(field.getKey(), field.getValue());
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  /** Writes a {@code tf.Example} with the given serialized {@code Feature}s. */
+  private static byte[] example(Map<String, byte[]> features) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+    for (Map.Entry<String, byte[]> feature : features.entrySet()) {
+      out.writeByteArray(
+          1,
+          message(
+              ImmutableMap.of(
+                  1, feature.getKey().getBytes(StandardCharsets.UTF_8), 2, feature.getValue())));
+    }
+    out.flush();
+    return message(ImmutableMap.of(1, bytes.toByteArray()));
+  }
+
+  private static byte[] int64Feature(long... values) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+    for (long value : values) {
+      out.writeInt64NoTag(value);
+    }
+    out.flush();
+    return message(ImmutableMap.of(3, message(ImmutableMap.of(1, bytes.toByteArray()))));
+  }
+
+  private static byte[] unpackedInt64Feature(long... values) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+    for (long value : values) {
+      out.writeInt64(1, value);
+    }
+    out.flush();
+    return message(ImmutableMap.of(3, bytes.toByteArray()));
+  }
+
+  private static byte[] floatFeature(float... values) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+    for (float value : values) {
+      out.writeFloatNoTag(value);
+    }
+    out.flush();
+    return message(ImmutableMap.of(2, message(ImmutableMap.of(1, bytes.toByteArray()))));
+  }
+
+  private static byte[] bytesFeature(byte[] value) throws IOException {
+    return message(ImmutableMap.of(1, message(ImmutableMap.of(1, value))));
+  }
+
+  private static byte[] stringFeature(String value) throws IOException {
+    return bytesFeature(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testParse() throws IOException {
+    byte[] example =
+        example(
+            ImmutableMap.<String, byte[]>builder()
+                .put("label", int64Feature(7))
+                .put("name", stringFeature("foo"))
+                .put("weight", floatFeature(0.5f))
+                .put("embedding", floatFeature(1.0f, 2.0f, 3.0f))
+                .put("ids", unpackedInt64Feature(1, -2))
+                .put("raw", bytesFeature(new byte[] {1, 2}))
+                .put("unknown", stringFeature("skipped"))
+                .build());
+
+    Row row = new TFExampleParser(SCHEMA).parse(example);
+
+    assertEquals(SCHEMA, row.getSchema());
+    assertEquals(7L, (long) row.getInt64("label"));
+    assertEquals("foo", row.getString("name"));
+    assertEquals(0.5, row.getDouble("weight"), 0.0);
+    assertEquals(ImmutableList.of(1.0f, 2.0f, 3.0f), row.getArray("embedding"));
+    assertEquals(ImmutableList.of(1L, -2L), row.getArray("ids"));
+    assertArrayEquals(new byte[] {1, 2}, row.getBytes("raw"));
+  }
+
+  @Test
+  public void testParseMissingFeatures() throws IOException {
+    byte[] example =
+        example(
+            ImmutableMap.of(
+                "label", int64Feature(7),
+                "name", stringFeature("foo"),
+                "raw", bytesFeature(new byte[0])));
+
+    Row row = new TFExampleParser(SCHEMA).parse(example);
+
+    assertNull(row.getDouble("weight"));
+    assertEquals(ImmutableList.of(), row.getArray("embedding"));
+    assertEquals(ImmutableList.of(), row.getArray("ids"));
+  }
+
+  @Test
+  public void testParseMissingNonNullableFeature() throws IOException {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Feature label is missing or empty");
+    new TFExampleParser(SCHEMA).parse(example(ImmutableMap.of("name", stringFeature("foo"))));
+  }
+
+  @Test
+  public void testParseMultipleValuesForScalarField() throws IOException {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Feature label has 2 values, but field is not an array");
+    new TFExampleParser(SCHEMA).parse(example(ImmutableMap.of("label", int64Feature(1, 2))));
+  }
+
+  @Test
+  public void testParseMismatchedFeatureType() throws IOException {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Feature label is a FloatList");
+    new TFExampleParser(SCHEMA).parse(example(ImmutableMap.of("label", floatFeature(1.0f))));
+  }
+
+  @Test
+  public void testUnsupportedFieldType() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("which can not be read from a tf.Example");
+    new TFExampleParser(Schema.builder().addBooleanField("flag").build());
+  }
+}
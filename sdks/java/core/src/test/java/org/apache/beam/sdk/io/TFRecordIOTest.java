@@ -44,6 +44,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
@@ -157,13 +158,18 @@ public class TFRecordIOTest {
   @Test
   public void testReadDisplayData() {
     TFRecordIO.Read read =
-        TFRecordIO.read().from("foo.*").withCompression(GZIP).withoutValidation();
+        TFRecordIO.read()
+            .from("foo.*")
+            .withCompression(GZIP)
+            .withoutValidation()
+            .withoutChecksumVerification();
 
     DisplayData displayData = DisplayData.from(read);
 
     assertThat(displayData, hasDisplayItem("filePattern", "foo.*"));
     assertThat(displayData, hasDisplayItem("compressionType", GZIP.toString()));
     assertThat(displayData, hasDisplayItem("validation", false));
+    assertThat(displayData, hasDisplayItem("verifyChecksums", false));
   }
 
   @Test
@@ -236,6 +242,25 @@ public class TFRecordIOTest {
     runTestRead(data, FOO_RECORDS);
   }
 
+  @Test
+  @Category(NeedsRunner.class)
+  public void testReadInvalidDataMaskWithoutChecksumVerification() throws Exception {
+    byte[] data = BaseEncoding.base64().decode(FOO_RECORD_BASE64);
+    data[16] += (byte) 1;
+    File tmpFile =
+        Files.createTempFile(tempFolder.getRoot().toPath(), "file", ".tfrecords").toFile();
+    try (FileOutputStream fos = new FileOutputStream(tmpFile)) {
+      fos.write(data);
+    }
+
+    PCollection<String> output =
+        readPipeline
+            .apply(TFRecordIO.read().from(tmpFile.getPath()).withoutChecksumVerification())
+            .apply(ParDo.of(new ByteArrayToString()));
+    PAssert.that(output).containsInAnyOrder(FOO_RECORDS);
+    readPipeline.run();
+  }
+
   private void runTestRead(String base64, String[] expected) throws IOException {
     runTestRead(BaseEncoding.base64().decode(base64), expected);
   }
@@ -572,4 +597,24 @@ public class TFRecordIOTest {
     assertEquals("foo", new String(foo, StandardCharsets.UTF_8));
     assertEquals("bar", new String(bar, StandardCharsets.UTF_8));
   }
+
+  @Test
+  public void testTFRecordCodecRecordsLargerThanReadBuffer() throws IOException {
+    TFRecordCodec codec = new TFRecordCodec();
+    byte[] small = "foo".getBytes(StandardCharsets.UTF_8);
+    byte[] large = new byte[200_000];
+    ThreadLocalRandom.current().nextBytes(large);
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    PickyWriteChannel outChan = new PickyWriteChannel(baos);
+    codec.write(outChan, small);
+    codec.write(outChan, large);
+    codec.write(outChan, small);
+
+    ReadableByteChannel inChan = Channels.newChannel(new ByteArrayInputStream(baos.toByteArray()));
+    assertArrayEquals(small, codec.read(inChan));
+    assertArrayEquals(large, codec.read(inChan));
+    assertArrayEquals(small, codec.read(inChan));
+    assertNull(codec.read(inChan));
+  }
 }
@@ -620,6 +620,20 @@ public class TextIOWriteTest {
     assertThat(displayData, hasDisplayItem("fileFooter", "myFooter"));
   }
 
+  @Test
+  public void testWriteDisplayDataWithCompressionParameters() {
+    TextIO.Write write =
+        TextIO.write()
+            .to("foo")
+            .withCompression(
+                CompressionParameters.of(Compression.ZSTD).withLevel(1).withWorkers(4));
+
+    DisplayData displayData = DisplayData.from(write);
+
+    assertThat(
+        displayData, hasDisplayItem("writableByteChannelFactory", "ZSTD(level=1, workers=4)"));
+  }
+
   @Test
   public void testGetName() {
     assertEquals("TextIO.Write", TextIO.write().to("somefile").getName());
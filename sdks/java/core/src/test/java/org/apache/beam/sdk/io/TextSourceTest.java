@@ -17,17 +17,25 @@
  */
 package org.apache.beam.sdk.io;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.io.FileIO.ReadableFile;
 import org.apache.beam.sdk.io.fs.EmptyMatchTreatment;
+import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.options.ValueProvider;
 import org.apache.beam.sdk.testing.NeedsRunner;
 import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.SourceTestUtils;
 import org.apache.beam.sdk.testing.TestPipeline;
 import org.apache.beam.sdk.transforms.Create;
 import org.apache.beam.sdk.transforms.DoFn;
@@ -104,6 +112,35 @@ public class TextSourceTest {
     pipeline.run();
   }
 
+  @Test
+  public void testReadMemoryMappedFile() throws Exception {
+    PipelineOptions options =
+        PipelineOptionsFactory.fromArgs(
+                "--experiments=" + LocalFileSystem.MEMORY_MAPPED_READS_EXPERIMENT)
+            .create();
+    FileSystems.setDefaultPipelineOptions(options);
+    try {
+      List<String> lines = new ArrayList<>();
+      for (int i = 0; i < 1000; i++) {
+        lines.add("line " + i);
+      }
+      Path path =
+          createTestFile("test_txt_mapped", Charset.forName("UTF-8"), lines.toArray(new String[0]));
+      TextSource source =
+          new TextSource(
+              ValueProvider.StaticValueProvider.of(path.toString()),
+              EmptyMatchTreatment.DISALLOW,
+              null);
+
+      assertThat(
+          SourceTestUtils.readFromSource(source, options), containsInAnyOrder(lines.toArray()));
+      SourceTestUtils.assertSourcesEqualReferenceSource(
+          source, source.split(1024, options), options);
+    } finally {
+      FileSystems.setDefaultPipelineOptions(PipelineOptionsFactory.create());
+    }
+  }
+
   private static class FileReadDoFn extends DoFn<ReadableFile, String> {
 
     @ProcessElement
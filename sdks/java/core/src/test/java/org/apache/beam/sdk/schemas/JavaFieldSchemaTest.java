@@ -446,6 +446,9 @@ public class JavaFieldSchemaTest {
     assertEquals("string1", extractedMap.get("simple1").getString("str"));
     assertEquals("string2", extractedMap.get("simple2").getString("str"));
     assertEquals("string3", extractedMap.get("simple3").getString("str"));
+
+    // Ensure that map caching works.
+    assertSame(extractedMap, row.getMap("map"));
   }
 
   @Test
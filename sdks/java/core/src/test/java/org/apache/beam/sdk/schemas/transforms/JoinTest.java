@@ -19,9 +19,11 @@ package org.apache.beam.sdk.schemas.transforms;
 
 import static junit.framework.TestCase.assertEquals;
 import static org.apache.beam.sdk.schemas.transforms.JoinTestUtils.innerJoin;
+import static org.junit.Assert.assertThrows;
 
 import java.util.List;
 import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.SchemaCoder;
 import org.apache.beam.sdk.schemas.transforms.Join.FieldsEqual;
 import org.apache.beam.sdk.testing.NeedsRunner;
 import org.apache.beam.sdk.testing.PAssert;
@@ -99,9 +101,22 @@ public class JoinTest {
             "innerBroadcast", Join.<Row, Row>innerBroadcastJoin(pc2).using("user", "country"));
     PCollection<Row> joined2 =
         pc1.apply("inner", Join.<Row, Row>innerJoin(pc2).using("user", "country"));
+    PCollection<Row> joined3 =
+        pc1.apply(
+            "innerBroadcastRight",
+            Join.<Row, Row>innerJoin(pc2).using("user", "country").withBroadcastRight());
+    PCollection<Row> joined4 =
+        pc1.apply(
+            "innerBroadcastRightLazy",
+            Join.<Row, Row>innerJoin(pc2)
+                .using("user", "country")
+                .withBroadcastRight()
+                .withLazyDecoding());
 
     assertEquals(expectedSchema, joined1.getSchema());
     assertEquals(expectedSchema, joined2.getSchema());
+    assertEquals(expectedSchema, joined3.getSchema());
+    assertEquals(expectedSchema, joined4.getSchema());
 
     List<Row> expectedJoinedRows =
         innerJoin(
@@ -113,6 +128,8 @@ public class JoinTest {
 
     PAssert.that(joined1).containsInAnyOrder(expectedJoinedRows);
     PAssert.that(joined2).containsInAnyOrder(expectedJoinedRows);
+    PAssert.that(joined3).containsInAnyOrder(expectedJoinedRows);
+    PAssert.that(joined4).containsInAnyOrder(expectedJoinedRows);
 
     pipeline.run();
   }
@@ -342,9 +359,14 @@ public class JoinTest {
             "leftBroadcast", Join.<Row, Row>leftOuterBroadcastJoin(pc2).using("user", "country"));
     PCollection<Row> joined2 =
         pc1.apply("left", Join.<Row, Row>leftOuterJoin(pc2).using("user", "country"));
+    PCollection<Row> joined3 =
+        pc1.apply(
+            "leftBroadcastRight",
+            Join.<Row, Row>leftOuterJoin(pc2).using("user", "country").withBroadcastRight());
 
     assertEquals(expectedSchema, joined1.getSchema());
     assertEquals(expectedSchema, joined2.getSchema());
+    assertEquals(expectedSchema, joined3.getSchema());
 
     List<Row> expectedJoinedRows =
         innerJoin(
@@ -360,9 +382,23 @@ public class JoinTest {
 
     PAssert.that(joined1).containsInAnyOrder(expectedJoinedRows);
     PAssert.that(joined2).containsInAnyOrder(expectedJoinedRows);
+    PAssert.that(joined3).containsInAnyOrder(expectedJoinedRows);
     pipeline.run();
   }
 
+  @Test
+  public void testBroadcastRightRejectedForRightOuterJoins() {
+    PCollection<Row> pc =
+        pipeline.apply(Create.empty(SchemaCoder.of(CG_SCHEMA_1))).setRowSchema(CG_SCHEMA_1);
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> Join.<Row, Row>rightOuterJoin(pc).using("user").withBroadcastRight());
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> Join.<Row, Row>fullOuterJoin(pc).using("user").withBroadcastRight());
+    pipeline.enableAbandonedNodeEnforcement(false);
+  }
+
   @Test
   @Category(NeedsRunner.class)
   public void testRightOuterJoinSameKeys() {
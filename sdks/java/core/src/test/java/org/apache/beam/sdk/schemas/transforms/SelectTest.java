@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import org.apache.beam.sdk.coders.RowCoder;
 import org.apache.beam.sdk.schemas.AutoValueSchema;
 import org.apache.beam.sdk.schemas.Schema;
 import org.apache.beam.sdk.schemas.annotations.DefaultSchema;
@@ -164,6 +165,28 @@ public class SelectTest {
     pipeline.run();
   }
 
+  @Test
+  @Category(NeedsRunner.class)
+  public void testSimpleSelectWithLazyDecoding() {
+    Schema schema =
+        Schema.builder()
+            .addStringField("field1")
+            .addInt32Field("field2")
+            .addDoubleField("field3")
+            .build();
+    Schema outputSchema =
+        Schema.builder().addDoubleField("field3").addStringField("field1").build();
+    PCollection<Row> rows =
+        pipeline
+            .apply(Create.of(Row.withSchema(schema).addValues("field1", 42, 3.14).build()))
+            .setCoder(RowCoder.of(schema).withLazyDecoding())
+            .apply(Select.fieldNames("field3", "field1"));
+    assertEquals(outputSchema, rows.getSchema());
+    PAssert.that(rows)
+        .containsInAnyOrder(Row.withSchema(outputSchema).addValues(3.14, "field1").build());
+    pipeline.run();
+  }
+
   @Test
   @Category(NeedsRunner.class)
   public void testSelectWithOutputSchema() {
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.schemas.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import com.pholser.junit.quickcheck.From;
+import com.pholser.junit.quickcheck.Property;
+import com.pholser.junit.quickcheck.runner.JUnitQuickcheck;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import org.apache.avro.RandomData;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.generic.GenericRecordBuilder;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.beam.sdk.coders.RowCoder;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.logicaltypes.EnumerationType;
+import org.apache.beam.sdk.schemas.utils.AvroGenerators.RecordSchemaGenerator;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableMap;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Lists;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Tests for {@link AvroRowDatumReader}. */
+@RunWith(JUnitQuickcheck.class)
+@SuppressWarnings({
+  "rawtypes", // TODO(https://issues.apache.org/jira/browse/BEAM-10556)
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+public class AvroRowDatumReaderTest {
+
+  private static final org.apache.avro.Schema NESTED_SCHEMA =
+      SchemaBuilder.record("Nested").fields().requiredLong("id").optionalString("tag").endRecord();
+
+  private static final org.apache.avro.Schema WRITER_SCHEMA =
+      SchemaBuilder.record("Record")
+          .fields()
+          .requiredString("name")
+          .name("nested")
+          .type(NESTED_SCHEMA)
+          .noDefault()
+          .name("values")
+          .type()
+          .array()
+          .items()
+          .doubleType()
+          .noDefault()
+          .name("attributes")
+          .type()
+          .map()
+          .values()
+          .stringType()
+          .noDefault()
+          .optionalInt("count")
+          .endRecord();
+
+  @Property(trials = 1000)
+  @SuppressWarnings("unchecked")
+  public void matchesToBeamRowStrict(
+      @From(RecordSchemaGenerator.class) org.apache.avro.Schema avroSchema) throws IOException {
+    Schema schema = AvroUtils.toBeamSchema(avroSchema);
+    Iterable iterable = new RandomData(avroSchema, 10);
+    List<GenericRecord> records = Lists.newArrayList((Iterable<GenericRecord>) iterable);
+
+    AvroRowDatumReader reader = new AvroRowDatumReader(avroSchema);
+    assertEquals(schema, reader.getBeamSchema());
+    for (GenericRecord record : records) {
+      assertEquals(AvroUtils.toBeamRowStrict(record, schema), reader.read(null, decoder(record)));
+    }
+  }
+
+  @Test
+  public void testReadSkipsProjectedOutFields() throws IOException {
+    org.apache.avro.Schema readerSchema =
+        SchemaBuilder.record("Record")
+            .fields()
+            .optionalInt("count")
+            .requiredString("name")
+            .endRecord();
+    GenericRecord record = createRecord();
+
+    Row row = new AvroRowDatumReader(WRITER_SCHEMA, readerSchema).read(null, decoder(record));
+
+    Schema expectedSchema =
+        Schema.builder()
+            .addNullableField("count", Schema.FieldType.INT32)
+            .addStringField("name")
+            .build();
+    assertEquals(Row.withSchema(expectedSchema).addValues(42, "foo").build(), row);
+  }
+
+  @Test
+  public void testReadNestedRecordWithDifferentSchema() throws IOException {
+    org.apache.avro.Schema nestedReaderSchema =
+        SchemaBuilder.record("Nested")
+            .fields()
+            .optionalString("tag")
+            .optionalLong("missing")
+            .endRecord();
+    org.apache.avro.Schema readerSchema =
+        SchemaBuilder.record("Record")
+            .fields()
+            .name("nested")
+            .type(nestedReaderSchema)
+            .noDefault()
+            .name("values")
+            .type()
+            .array()
+            .items()
+            .doubleType()
+            .noDefault()
+            .endRecord();
+    GenericRecord record = createRecord();
+
+    Row row = new AvroRowDatumReader(WRITER_SCHEMA, readerSchema).read(null, decoder(record));
+
+    Schema schema = AvroUtils.toBeamSchema(readerSchema);
+    Row expected =
+        Row.withSchema(schema)
+            .addValues(
+                Row.withSchema(AvroUtils.toBeamSchema(nestedReaderSchema))
+                    .addValues("bar", null)
+                    .build(),
+                ImmutableList.of(1.0, 2.5))
+            .build();
+    assertEquals(expected, row);
+  }
+
+  @Test
+  public void testReadEnum() throws IOException {
+    org.apache.avro.Schema schema =
+        SchemaBuilder.record("Record")
+            .fields()
+            .name("color")
+            .type()
+            .enumeration("Color")
+            .symbols("RED", "GREEN", "BLUE")
+            .noDefault()
+            .endRecord();
+    GenericRecord record =
+        new GenericRecordBuilder(schema)
+            .set("color", new GenericData.EnumSymbol(schema.getField("color").schema(), "GREEN"))
+            .build();
+
+    Row row = new AvroRowDatumReader(schema).read(null, decoder(record));
+
+    assertEquals(AvroUtils.toBeamRowStrict(record, null), row);
+    EnumerationType enumerationType =
+        row.getSchema().getField("color").getType().getLogicalType(EnumerationType.class);
+    assertEquals(
+        "GREEN",
+        enumerationType.toString(row.getLogicalTypeValue("color", EnumerationType.Value.class)));
+    RowCoder coder = RowCoder.of(row.getSchema());
+    assertEquals(
+        row, CoderUtils.decodeFromByteArray(coder, CoderUtils.encodeToByteArray(coder, row)));
+  }
+
+  @Test
+  public void testReadAppliesReaderDefaults() throws IOException {
+    org.apache.avro.Schema readerSchema =
+        SchemaBuilder.record("Record")
+            .fields()
+            .requiredString("name")
+            .name("level")
+            .type()
+            .intType()
+            .intDefault(3)
+            .name("label")
+            .type()
+            .nullable()
+            .stringType()
+            .stringDefault("none")
+            .optionalLong("missing")
+            .endRecord();
+    GenericRecord record = createRecord();
+
+    Row row = new AvroRowDatumReader(WRITER_SCHEMA, readerSchema).read(null, decoder(record));
+
+    Schema expectedSchema = AvroUtils.toBeamSchema(readerSchema);
+    assertEquals(Row.withSchema(expectedSchema).addValues("foo", 3, "none", null).build(), row);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingNonNullableFieldFails() {
+    org.apache.avro.Schema readerSchema =
+        SchemaBuilder.record("Record").fields().requiredString("unknown").endRecord();
+    new AvroRowDatumReader(WRITER_SCHEMA, readerSchema);
+  }
+
+  private static GenericRecord createRecord() {
+    return new GenericRecordBuilder(WRITER_SCHEMA)
+        .set("name", "foo")
+        .set(
+            "nested",
+            new GenericRecordBuilder(NESTED_SCHEMA).set("id", 7L).set("tag", "bar").build())
+        .set("values", ImmutableList.of(1.0, 2.5))
+        .set("attributes", ImmutableMap.of("a", "b"))
+        .set("count", 42)
+        .build();
+  }
+
+  private static BinaryDecoder decoder(GenericRecord record) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<GenericRecord>(record.getSchema(), GenericData.get())
+        .write(record, encoder);
+    encoder.flush();
+    return DecoderFactory.get().binaryDecoder(out.toByteArray(), null);
+  }
+}
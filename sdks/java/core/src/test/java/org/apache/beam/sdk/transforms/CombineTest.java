@@ -738,6 +738,39 @@ public class CombineTest implements Serializable {
       pipeline.run();
     }
 
+    @Test
+    @Category({ValidatesRunner.class})
+    public void testAdaptiveHotKeyCombining() {
+      PCollection<KV<String, Integer>> input =
+          copy(
+              createInput(
+                  pipeline,
+                  Arrays.asList(
+                      KV.of("a", 1), KV.of("a", 1), KV.of("a", 4), KV.of("b", 1), KV.of("b", 13))),
+              10);
+
+      CombineFn<Integer, ?, Double> mean = new MeanInts();
+      PCollection<KV<String, Double>> allHotMean =
+          input.apply(
+              "AllHotMean",
+              Combine.<String, Integer, Double>perKey(mean).withAdaptiveHotKeyFanout(5, 1));
+      PCollection<KV<String, Double>> someHotMean =
+          input.apply(
+              "SomeHotMean",
+              Combine.<String, Integer, Double>perKey(mean).withAdaptiveHotKeyFanout(5, 10));
+      PCollection<KV<String, Double>> defaultMean =
+          input.apply(
+              "DefaultMean",
+              Combine.<String, Integer, Double>perKey(mean).withAdaptiveHotKeyFanout(5));
+
+      List<KV<String, Double>> expected = Arrays.asList(KV.of("a", 2.0), KV.of("b", 7.0));
+      PAssert.that(allHotMean).containsInAnyOrder(expected);
+      PAssert.that(someHotMean).containsInAnyOrder(expected);
+      PAssert.that(defaultMean).containsInAnyOrder(expected);
+
+      pipeline.run();
+    }
+
     @Test
     @Category(ValidatesRunner.class)
     public void testHotKeyCombiningWithAccumulationMode() {
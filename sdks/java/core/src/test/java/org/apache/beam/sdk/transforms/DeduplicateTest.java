@@ -29,6 +29,7 @@ import org.apache.beam.sdk.testing.NeedsRunner;
 import org.apache.beam.sdk.testing.PAssert;
 import org.apache.beam.sdk.testing.TestPipeline;
 import org.apache.beam.sdk.testing.TestStream;
+import org.apache.beam.sdk.testing.UsesMapState;
 import org.apache.beam.sdk.testing.UsesTestStream;
 import org.apache.beam.sdk.testing.UsesTestStreamWithProcessingTime;
 import org.apache.beam.sdk.transforms.windowing.FixedWindows;
@@ -166,6 +167,89 @@ public class DeduplicateTest {
     p.run();
   }
 
+  @Test
+  @Category({NeedsRunner.class, UsesTestStream.class, UsesMapState.class})
+  public void testEventTimeWithExpiryBuckets() {
+    Instant base = new Instant(0);
+    TestStream<String> values =
+        TestStream.create(StringUtf8Coder.of())
+            .advanceWatermarkTo(base)
+            .addElements(
+                TimestampedValue.of("k1", base),
+                TimestampedValue.of("k2", base.plus(Duration.standardSeconds(10))),
+                TimestampedValue.of("k3", base.plus(Duration.standardSeconds(20))),
+                TimestampedValue.of("maybedup", base.plus(Duration.standardSeconds(59))))
+            .advanceWatermarkTo(base.plus(Duration.standardMinutes(1)))
+            .addElements(
+                TimestampedValue.of("k1", base.plus(Duration.standardSeconds(30))),
+                TimestampedValue.of("k2", base.plus(Duration.standardSeconds(40))),
+                TimestampedValue.of("k3", base.plus(Duration.standardSeconds(50))))
+            .advanceWatermarkTo(
+                base.plus(Duration.standardMinutes(2)).plus(Deduplicate.DEFAULT_DURATION))
+            .addElements(TimestampedValue.of("maybedup", base.plus(Duration.standardSeconds(59))))
+            .advanceWatermarkToInfinity();
+
+    PCollection<String> distinctValues =
+        p.apply(values)
+            .apply(
+                Deduplicate.<String>values()
+                    .withTimeDomain(TimeDomain.EVENT_TIME)
+                    .withExpiryBuckets(Duration.standardMinutes(1), 2));
+    PAssert.that(distinctValues)
+        .satisfies(
+            (Iterable<String> input) -> {
+              assertEquals(1, Iterables.frequency(input, "k1"));
+              assertEquals(1, Iterables.frequency(input, "k2"));
+              assertEquals(1, Iterables.frequency(input, "k3"));
+              assertTrue(
+                  Iterables.frequency(input, "maybedup") == 1
+                      || Iterables.frequency(input, "maybedup") == 2);
+              return null;
+            });
+    p.run();
+  }
+
+  @Test
+  @Category({NeedsRunner.class, UsesTestStreamWithProcessingTime.class, UsesMapState.class})
+  public void testProcessingTimeWithExpiryBuckets() {
+    Instant base = new Instant(0);
+    TestStream.Builder<KV<Integer, String>> builder =
+        TestStream.create(KvCoder.of(VarIntCoder.of(), StringUtf8Coder.of()))
+            .advanceWatermarkTo(base)
+            .addElements(
+                TimestampedValue.of(KV.of(1, "k1"), base),
+                TimestampedValue.of(KV.of(2, "k2"), base),
+                TimestampedValue.of(KV.of(3, "k3"), base))
+            .advanceProcessingTime(Duration.standardMinutes(1))
+            .addElements(
+                TimestampedValue.of(KV.of(1, "k1dup"), base),
+                TimestampedValue.of(KV.of(2, "k2dup"), base));
+    // Buckets expire as their timer fires, so advance processing time one bucket at a time.
+    for (int i = 0; i < 12; i++) {
+      builder = builder.advanceProcessingTime(Duration.standardMinutes(1));
+    }
+    TestStream<KV<Integer, String>> values =
+        builder
+            .addElements(TimestampedValue.of(KV.of(1, "k1again"), base))
+            .advanceWatermarkToInfinity();
+
+    PCollection<KV<Integer, String>> distinctValues =
+        p.apply(values)
+            .apply(
+                Deduplicate.<Integer, String>keyedValues()
+                    .withExpiryBuckets(Duration.standardMinutes(1), 2));
+    PAssert.that(distinctValues)
+        .containsInAnyOrder(KV.of(1, "k1"), KV.of(2, "k2"), KV.of(3, "k3"), KV.of(1, "k1again"));
+    p.run();
+  }
+
+  @Test
+  public void testExpiryBucketsRequirePositiveShards() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> Deduplicate.values().withExpiryBuckets(Duration.standardMinutes(1), 0));
+  }
+
   private static class Keys<T> implements SerializableFunction<KV<T, String>, T> {
     @Override
     public T apply(KV<T, String> input) {
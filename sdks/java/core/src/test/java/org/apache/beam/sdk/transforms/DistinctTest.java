@@ -19,24 +19,35 @@ package org.apache.beam.sdk.transforms;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.apache.beam.sdk.PipelineResult;
 import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.metrics.MetricNameFilter;
+import org.apache.beam.sdk.metrics.MetricQueryResults;
+import org.apache.beam.sdk.metrics.MetricResult;
+import org.apache.beam.sdk.metrics.MetricsFilter;
 import org.apache.beam.sdk.testing.NeedsRunner;
 import org.apache.beam.sdk.testing.PAssert;
 import org.apache.beam.sdk.testing.TestPipeline;
 import org.apache.beam.sdk.testing.TestStream;
+import org.apache.beam.sdk.testing.UsesAttemptedMetrics;
+import org.apache.beam.sdk.testing.UsesCounterMetrics;
 import org.apache.beam.sdk.testing.UsesTestStream;
 import org.apache.beam.sdk.testing.UsesTestStreamWithProcessingTime;
 import org.apache.beam.sdk.transforms.windowing.AfterProcessingTime;
@@ -97,6 +108,74 @@ public class DistinctTest {
     p.run();
   }
 
+  @Test
+  @Category({NeedsRunner.class, UsesAttemptedMetrics.class, UsesCounterMetrics.class})
+  public void testDistinctWithPreDeduplication() {
+    List<String> strings = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      strings.add("k" + (i % 10));
+      strings.add("k" + (i % 10));
+      strings.add("unique" + i);
+    }
+
+    PCollection<String> input = p.apply(Create.of(strings).withCoder(StringUtf8Coder.of()));
+
+    // The buffer holds only a few keys at a time: the 1000 adjacent copies of "k" keys are dropped
+    // unless a bundle boundary falls between them, while the other 990 duplicates are only removed
+    // by the shuffle.
+    PCollection<String> output = input.apply(Distinct.<String>create().withPreDeduplication(500));
+
+    Set<String> expected = new HashSet<>(strings);
+    PAssert.that(output).containsInAnyOrder(expected);
+    PipelineResult result = p.run();
+    assertThat(preDeduplicatedElements(result), greaterThanOrEqualTo(500L));
+    assertThat(preDeduplicatedElements(result), lessThanOrEqualTo(1000L));
+  }
+
+  @Test
+  @Category({NeedsRunner.class, UsesAttemptedMetrics.class, UsesCounterMetrics.class})
+  public void testPreDeduplicationDropsDuplicatesBeforeShuffle() {
+    List<String> strings = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      for (int j = 0; j < 10; j++) {
+        strings.add("k" + i);
+      }
+    }
+
+    PCollection<String> output =
+        p.apply(Create.of(strings).withCoder(StringUtf8Coder.of()))
+            .apply(Distinct.<String>create().withPreDeduplication(1 << 20));
+
+    PAssert.that(output).containsInAnyOrder(new HashSet<>(strings));
+    PipelineResult result = p.run();
+    // Duplicates next to each other are dropped unless a bundle boundary falls between them, and
+    // the remaining ones are removed by the shuffle.
+    assertThat(preDeduplicatedElements(result), greaterThan(0L));
+    assertThat(preDeduplicatedElements(result), lessThanOrEqualTo(900L));
+  }
+
+  private static long preDeduplicatedElements(PipelineResult result) {
+    MetricQueryResults metrics =
+        result
+            .metrics()
+            .queryMetrics(
+                MetricsFilter.builder()
+                    .addNameFilter(
+                        MetricNameFilter.named(Distinct.class, "preDeduplicatedElements"))
+                    .build());
+    long total = 0;
+    for (MetricResult<Long> counter : metrics.getCounters()) {
+      total += counter.getAttempted();
+    }
+    return total;
+  }
+
+  @Test
+  public void testPreDeduplicationRequiresPositiveBytes() {
+    thrown.expect(IllegalArgumentException.class);
+    Distinct.<String>create().withPreDeduplication(0);
+  }
+
   private static class Keys<T> implements SerializableFunction<KV<T, String>, T> {
     @Override
     public T apply(KV<T, String> input) {
@@ -136,6 +215,25 @@ public class DistinctTest {
     p.run();
   }
 
+  @Test
+  @Category(NeedsRunner.class)
+  public void testDistinctWithRepresentativeValueAndPreDeduplication() {
+    List<KV<String, String>> strings =
+        Arrays.asList(KV.of("k1", "v1"), KV.of("k1", "v2"), KV.of("k2", "v1"));
+
+    PCollection<KV<String, String>> input = p.apply(Create.of(strings));
+
+    PCollection<KV<String, String>> output =
+        input.apply(
+            Distinct.withRepresentativeValueFn(new Keys<String>())
+                .withRepresentativeType(TypeDescriptor.of(String.class))
+                .withPreDeduplication(1 << 20));
+
+    PAssert.that(output).satisfies(new Checker());
+
+    p.run();
+  }
+
   @Rule public TestPipeline windowedDistinctPipeline = TestPipeline.create();
 
   @Test
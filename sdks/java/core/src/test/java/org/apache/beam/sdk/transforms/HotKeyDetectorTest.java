@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.transforms;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link HotKeyDetector}. */
+@RunWith(JUnit4.class)
+public class HotKeyDetectorTest {
+
+  @Test
+  public void testDetectsKeysReachingThreshold() {
+    HotKeyDetector<String> detector = new HotKeyDetector<>(StringUtf8Coder.of(), 3);
+
+    assertFalse(detector.isHot("hot"));
+    assertFalse(detector.isHot("cold"));
+    assertFalse(detector.isHot("hot"));
+    assertTrue(detector.isHot("hot"));
+    assertTrue(detector.isHot("hot"));
+    assertFalse(detector.isHot("cold"));
+  }
+
+  @Test
+  public void testFrequenciesAreKeptAcrossBundles() {
+    // Bundles of a single element, as in streaming, still detect the key.
+    HotKeyDetector<String> detector = new HotKeyDetector<>(StringUtf8Coder.of(), 3);
+    assertFalse(detector.isHot("key"));
+    assertFalse(detector.isHot("key"));
+    assertTrue(detector.isHot("key"));
+  }
+
+  @Test
+  public void testKeysCoolDown() {
+    HotKeyDetector<String> detector = new HotKeyDetector<>(StringUtf8Coder.of(), 2);
+    assertFalse(detector.isHot("key"));
+    assertTrue(detector.isHot("key"));
+
+    // Once the key is rare among the recent elements, its frequency is aged out.
+    for (int i = 0; i < 10_000; i++) {
+      detector.isHot("other" + (i % 1000));
+    }
+    assertFalse(detector.isHot("key"));
+  }
+
+  @Test
+  public void testManyColdKeys() {
+    HotKeyDetector<String> detector = new HotKeyDetector<>(StringUtf8Coder.of(), 100);
+    for (int i = 0; i < 1000; i++) {
+      assertFalse(detector.isHot("cold" + i));
+    }
+    boolean detected = false;
+    for (int i = 0; i < 100; i++) {
+      detected = detector.isHot("hot");
+    }
+    // The sketch may overestimate, but never underestimates the frequency of a key.
+    assertTrue(detected);
+  }
+}
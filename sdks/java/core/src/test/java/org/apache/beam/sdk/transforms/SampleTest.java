@@ -21,10 +21,15 @@ import static org.apache.beam.sdk.transforms.display.DisplayDataMatchers.hasDisp
 import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.emptyIterable;
 import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.in;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
@@ -38,19 +43,26 @@ import java.util.Set;
 import java.util.TreeSet;
 import org.apache.beam.sdk.TestUtils;
 import org.apache.beam.sdk.coders.BigEndianIntegerCoder;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderRegistry;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.testing.CombineFnTester;
 import org.apache.beam.sdk.testing.NeedsRunner;
 import org.apache.beam.sdk.testing.PAssert;
 import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Combine.CombineFn;
 import org.apache.beam.sdk.transforms.display.DisplayData;
 import org.apache.beam.sdk.transforms.windowing.FixedWindows;
 import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
 import org.apache.beam.sdk.transforms.windowing.Window;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.TimestampedValue;
+import org.apache.beam.sdk.values.TypeDescriptors;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Joiner;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
 import org.hamcrest.Matchers;
 import org.joda.time.Duration;
 import org.joda.time.Instant;
@@ -153,6 +165,16 @@ public class SampleTest {
               Matchers.<String>iterableWithSize(Math.min(lines.size(), limit)),
               everyItem(is(in(lines)))));
     }
+
+    @Test
+    public void testReservoirCombineFn() {
+      CombineFnTester.testCombineFn(
+          Sample.reservoirCombineFn(limit),
+          lines,
+          allOf(
+              Matchers.<String>iterableWithSize(Math.min(lines.size(), limit)),
+              everyItem(is(in(lines)))));
+    }
   }
 
   /** Further tests for Sample transform. */
@@ -370,6 +392,104 @@ public class SampleTest {
       pipeline.run();
     }
 
+    @Test
+    @Category(NeedsRunner.class)
+    public void testSamplePerStratum() {
+      PCollection<Integer> input =
+          pipeline.apply(
+              Create.of(ImmutableList.copyOf(REPEATED_DATA)).withCoder(BigEndianIntegerCoder.of()));
+      PCollection<KV<Boolean, Iterable<Integer>>> output =
+          input.apply(
+              Sample.<Integer, Boolean>perStratum(3, i -> i % 2 == 0)
+                  .withStratumType(TypeDescriptors.booleans()));
+
+      PAssert.that(output)
+          .satisfies(
+              strata -> {
+                for (KV<Boolean, Iterable<Integer>> stratum : strata) {
+                  if (stratum.getKey()) {
+                    new VerifyCorrectSample<>(3, 2, 2, 4, 4).apply(stratum.getValue());
+                  } else {
+                    new VerifyCorrectSample<>(3, 1, 1, 3, 3, 5, 5).apply(stratum.getValue());
+                  }
+                }
+                assertEquals(2, Iterables.size(strata));
+                return null;
+              });
+      pipeline.run();
+    }
+
+    @Test
+    public void testReservoirSampleIsUniform() {
+      CombineFn<Integer, Sample.Reservoir<Integer>, Iterable<Integer>> fn =
+          Sample.reservoirCombineFn(10);
+      int[] counts = new int[100];
+      for (int trial = 0; trial < 5000; trial++) {
+        // Split the input across accumulators to exercise merging as well.
+        List<Sample.Reservoir<Integer>> accumulators = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+          if (i % 30 == 0) {
+            accumulators.add(fn.createAccumulator());
+          }
+          fn.addInput(accumulators.get(accumulators.size() - 1), i);
+        }
+        for (int selected : fn.extractOutput(fn.mergeAccumulators(accumulators))) {
+          counts[selected]++;
+        }
+      }
+      // Each element is expected 500 times, with a standard deviation of about 21.
+      for (int count : counts) {
+        assertThat(count, allOf(greaterThan(380), lessThan(620)));
+      }
+    }
+
+    @Test
+    public void testWeightedReservoirSample() {
+      CombineFn<Integer, Sample.Reservoir<Integer>, Iterable<Integer>> fn =
+          Sample.weightedCombineFn(1, i -> (double) i);
+      int[] counts = new int[3];
+      for (int trial = 0; trial < 6000; trial++) {
+        Sample.Reservoir<Integer> accumulator = fn.createAccumulator();
+        for (int i = 0; i < 300; i++) {
+          fn.addInput(accumulator, i % 3);
+        }
+        for (int selected : fn.extractOutput(accumulator)) {
+          counts[selected]++;
+        }
+      }
+      // Weight zero is never selected, and weight 2 twice as often as weight 1.
+      assertEquals(0, counts[0]);
+      assertThat(counts[1], allOf(greaterThan(1800), lessThan(2200)));
+      assertThat(counts[2], allOf(greaterThan(3800), lessThan(4200)));
+    }
+
+    @Test
+    public void testReservoirAccumulatorCoder() throws Exception {
+      CombineFn<Integer, Sample.Reservoir<Integer>, Iterable<Integer>> fn =
+          Sample.reservoirCombineFn(3);
+      Coder<Sample.Reservoir<Integer>> coder =
+          fn.getAccumulatorCoder(CoderRegistry.createDefault(), BigEndianIntegerCoder.of());
+
+      Sample.Reservoir<Integer> accumulator = fn.createAccumulator();
+      assertThat(fn.extractOutput(CoderUtils.clone(coder, accumulator)), emptyIterable());
+      for (int i = 0; i < 100; i++) {
+        fn.addInput(accumulator, i);
+      }
+      Sample.Reservoir<Integer> decoded = CoderUtils.clone(coder, accumulator);
+      assertThat(
+          fn.extractOutput(decoded),
+          containsInAnyOrder(Iterables.toArray(fn.extractOutput(accumulator), Integer.class)));
+      fn.addInput(decoded, 100);
+      assertThat(fn.extractOutput(decoded), Matchers.<Integer>iterableWithSize(3));
+    }
+
+    @Test
+    public void testWeightedReservoirSampleNegativeWeight() {
+      CombineFn<Integer, Sample.Reservoir<Integer>, Iterable<Integer>> fn =
+          Sample.weightedCombineFn(1, i -> (double) i);
+      assertThrows(IllegalArgumentException.class, () -> fn.addInput(fn.createAccumulator(), -1));
+    }
+
     @Test
     public void testSampleGetName() {
       assertEquals("Sample.Any", Sample.<String>any(1).getName());
@@ -384,6 +504,10 @@ public class SampleTest {
       PTransform<?, ?> samplePerKey = Sample.fixedSizePerKey(2345);
       DisplayData perKeyDisplayData = DisplayData.from(samplePerKey);
       assertThat(perKeyDisplayData, hasDisplayItem("sampleSize", 2345));
+
+      PTransform<?, ?> samplePerStratum = Sample.<Integer, Integer>perStratum(3456, i -> i % 10);
+      DisplayData perStratumDisplayData = DisplayData.from(samplePerStratum);
+      assertThat(perStratumDisplayData, hasDisplayItem("sampleSize", 3456));
     }
   }
 }
@@ -22,19 +22,30 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
 import org.apache.beam.sdk.Pipeline;
 import org.apache.beam.sdk.coders.BigEndianIntegerCoder;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderRegistry;
 import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.ListCoder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarLongCoder;
 import org.apache.beam.sdk.testing.NeedsRunner;
 import org.apache.beam.sdk.testing.PAssert;
 import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Top.BoundedHeap;
+import org.apache.beam.sdk.transforms.Top.SortKeyComparator;
+import org.apache.beam.sdk.transforms.Top.TopCombineFn;
 import org.apache.beam.sdk.transforms.display.DisplayData;
 import org.apache.beam.sdk.transforms.windowing.FixedWindows;
 import org.apache.beam.sdk.transforms.windowing.Window;
+import org.apache.beam.sdk.util.CoderUtils;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
 import org.hamcrest.Matchers;
@@ -121,6 +132,24 @@ public class TopTest {
     p.run();
   }
 
+  @Test
+  @Category(NeedsRunner.class)
+  public void testTopLargestBy() {
+    PCollection<String> input =
+        p.apply(Create.of(Arrays.asList(COLLECTION)).withCoder(StringUtf8Coder.of()));
+
+    PCollection<List<String>> longest =
+        input.apply(Top.<String>largestBy(1, s -> (long) s.length()));
+    PCollection<KV<String, List<Integer>>> smallestPerKey =
+        createInputTable(p).apply(Top.<String, Integer>largestPerKeyBy(2, v -> -(long) v));
+
+    PAssert.thatSingletonIterable(longest).containsInAnyOrder("bb");
+    PAssert.that(smallestPerKey)
+        .containsInAnyOrder(KV.of("a", Arrays.asList(1, 2)), KV.of("b", Arrays.asList(1, 10)));
+
+    p.run();
+  }
+
   @Test
   @Category(NeedsRunner.class)
   @SuppressWarnings("unchecked")
@@ -226,6 +255,64 @@ public class TopTest {
     assertEquals("Combine.perKey(Top(Natural))", Top.<String, Integer>largestPerKey(2).getName());
   }
 
+  @Test
+  public void testMergeAccumulators() {
+    List<Long> values = new ArrayList<>();
+    Random random = new Random(1234);
+    for (int i = 0; i < 1000; i++) {
+      values.add((long) random.nextInt(200));
+    }
+    List<Long> expected = new ArrayList<>(values);
+    Collections.sort(expected, Collections.reverseOrder());
+
+    for (int count : new int[] {0, 1, 10, 100, 2000}) {
+      TopCombineFn<Long, Top.Natural<Long>> naturalFn = Top.largestLongsFn(count);
+      TopCombineFn<Long, SortKeyComparator<Long>> sortKeyFn =
+          new TopCombineFn<>(count, new SortKeyComparator<>(v -> v));
+      List<Long> expectedTop = expected.subList(0, Math.min(count, expected.size()));
+      assertEquals(expectedTop, combineInChunks(naturalFn, values));
+      assertEquals(expectedTop, combineInChunks(sortKeyFn, values));
+    }
+  }
+
+  private static <ComparatorT extends Comparator<Long> & Serializable> List<Long> combineInChunks(
+      TopCombineFn<Long, ComparatorT> fn, List<Long> values) {
+    // Accumulators of very different sizes, to merge both by selection and by insertion.
+    List<BoundedHeap<Long, ComparatorT>> accumulators = new ArrayList<>();
+    int start = 0;
+    for (int chunkSize = 1; start < values.size(); chunkSize *= 3) {
+      BoundedHeap<Long, ComparatorT> accumulator = fn.createAccumulator();
+      for (long value : values.subList(start, Math.min(values.size(), start + chunkSize))) {
+        accumulator = fn.addInput(accumulator, value);
+      }
+      accumulators.add(accumulator);
+      start += chunkSize;
+    }
+    return fn.extractOutput(fn.mergeAccumulators(accumulators));
+  }
+
+  @Test
+  public void testAccumulatorCoder() throws Exception {
+    TopCombineFn<Long, Top.Natural<Long>> fn = Top.largestLongsFn(3);
+    Coder<BoundedHeap<Long, Top.Natural<Long>>> coder =
+        fn.getAccumulatorCoder(CoderRegistry.createDefault(), VarLongCoder.of());
+
+    BoundedHeap<Long, Top.Natural<Long>> accumulator = fn.createAccumulator();
+    for (long value : new long[] {5, 1, 9, 7, 3}) {
+      accumulator = fn.addInput(accumulator, value);
+    }
+    BoundedHeap<Long, Top.Natural<Long>> decoded = CoderUtils.clone(coder, accumulator);
+    assertEquals(Arrays.asList(9L, 7L, 5L), fn.extractOutput(decoded));
+
+    // Accumulators used to be encoded sorted largest first, and still decode to a valid heap.
+    byte[] sorted =
+        CoderUtils.encodeToByteArray(
+            ListCoder.of(VarLongCoder.of()), Arrays.asList(9L, 7L, 5L));
+    decoded = CoderUtils.decodeFromByteArray(coder, sorted);
+    decoded = fn.addInput(decoded, 6L);
+    assertEquals(Arrays.asList(9L, 7L, 6L), fn.extractOutput(decoded));
+  }
+
   @Test
   public void testDisplayData() {
     Top.Natural<Integer> comparer = new Top.Natural<>();
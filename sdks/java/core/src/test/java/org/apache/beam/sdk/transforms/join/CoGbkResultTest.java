@@ -18,23 +18,34 @@
 package org.apache.beam.sdk.transforms.join;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayWithSize;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.emptyArray;
 import static org.hamcrest.Matchers.emptyIterable;
 import static org.hamcrest.Matchers.equalTo;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.VarIntCoder;
 import org.apache.beam.sdk.util.common.Reiterable;
 import org.apache.beam.sdk.util.common.Reiterator;
 import org.apache.beam.sdk.values.TupleTag;
 import org.apache.beam.sdk.values.TupleTagList;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 /** Tests the CoGbkResult. */
 @RunWith(JUnit4.class)
 public class CoGbkResultTest {
+  @Rule public TemporaryFolder spillDirectory = new TemporaryFolder();
+  @Rule public ExpectedException thrown = ExpectedException.none();
 
   @Test
   public void testLazyResults() {
@@ -57,6 +68,78 @@ public class CoGbkResultTest {
     assertThat(result.getAll(new TupleTag<>("tag0")), contains(0, 2, 4));
   }
 
+  @Test
+  public void testSpilledResults() {
+    runSpilledResult(0);
+    runSpilledResult(1);
+    runSpilledResult(3);
+    runSpilledResult(10);
+  }
+
+  public void runSpilledResult(int cacheSize) {
+    // A plain list can not be reiterated, so its tail is spilled.
+    CoGbkResult result =
+        new CoGbkResult(createSchema(5), unionValues(0, 1, 0, 3, 0, 3, 3), cacheSize, spiller());
+    assertThat(result.getAll(new TupleTag<>("tag0")), contains(0, 2, 4));
+    assertThat(result.getAll(new TupleTag<>("tag3")), contains(3, 5, 6));
+    assertThat(result.getAll(new TupleTag<Integer>("tag2")), emptyIterable());
+    assertThat(result.getOnly(new TupleTag<>("tag1")), equalTo(1));
+    assertThat(result.getAll(new TupleTag<>("tag0")), contains(0, 2, 4));
+    assertThat(result.isEmpty(), equalTo(false));
+  }
+
+  @Test
+  public void testSpillFilesOutliveBundlesUntilSpillerIsClosed() throws Exception {
+    CoGbkResultSpiller spiller = spiller();
+    CoGbkResult result =
+        new CoGbkResult(createSchema(5), unionValues(0, 1, 0, 3, 0, 3, 3), 0, spiller);
+    assertThat(spillDirectory.getRoot().list(), arrayWithSize(3));
+
+    // Nothing is deleted while the result is reachable.
+    CoGbkResultSpiller.deleteUnreachableFiles();
+    assertThat(result.getAll(new TupleTag<>("tag3")), contains(3, 5, 6));
+    assertThat(spillDirectory.getRoot().list(), arrayWithSize(3));
+
+    spiller.close();
+    assertThat(spillDirectory.getRoot().list(), emptyArray());
+  }
+
+  @Test
+  public void testClosingSpillerClosesPartiallyReadIterators() throws Exception {
+    CoGbkResultSpiller spiller = spiller();
+    CoGbkResult result =
+        new CoGbkResult(createSchema(5), unionValues(0, 1, 0, 3, 0, 3, 3), 0, spiller);
+    Iterator<Integer> iterator = result.getAll(new TupleTag<Integer>("tag3")).iterator();
+    assertThat(iterator.next(), equalTo(3));
+
+    spiller.close();
+    assertThat(spillDirectory.getRoot().list(), emptyArray());
+    thrown.expect(RuntimeException.class);
+    iterator.next();
+  }
+
+  private CoGbkResultSpiller spiller() {
+    return new CoGbkResultSpiller(
+        UnionCoder.of(Collections.<Coder<?>>nCopies(5, VarIntCoder.of())),
+        spillDirectory.getRoot());
+  }
+
+  private static List<RawUnionValue> unionValues(int... tags) {
+    List<RawUnionValue> values = new ArrayList<>();
+    for (int i = 0; i < tags.length; i++) {
+      values.add(new RawUnionValue(tags[i], i));
+    }
+    return values;
+  }
+
+  @Test
+  public void testReiterableResultsAreNotSpilled() {
+    TestUnionValues values = new TestUnionValues(0, 1, 0, 3, 0, 3, 3);
+    CoGbkResult result = new CoGbkResult(createSchema(5), values, 2, spiller());
+    assertThat(values.maxPos(), equalTo(2));
+    assertThat(result.getAll(new TupleTag<>("tag3")), contains(3, 5, 6));
+  }
+
   private CoGbkResultSchema createSchema(int size) {
     List<TupleTag<?>> tags = new ArrayList<>();
     for (int i = 0; i < size; i++) {
@@ -0,0 +1,571 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.joinlibrary;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.Serializable;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.beam.sdk.annotations.Experimental;
+import org.apache.beam.sdk.annotations.Experimental.Kind;
+import org.apache.beam.sdk.coders.ByteArrayCoder;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.Coder.NonDeterministicException;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.ListCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.extensions.sorter.BufferedExternalSorter;
+import org.apache.beam.sdk.extensions.sorter.ExternalSorter.Options.SorterType;
+import org.apache.beam.sdk.extensions.sorter.SortValues;
+import org.apache.beam.sdk.io.FileIO;
+import org.apache.beam.sdk.io.FileSystems;
+import org.apache.beam.sdk.io.fs.EmptyMatchTreatment;
+import org.apache.beam.sdk.io.fs.MatchResult;
+import org.apache.beam.sdk.io.fs.MoveOptions.StandardMoveOptions;
+import org.apache.beam.sdk.io.fs.ResolveOptions.StandardResolveOptions;
+import org.apache.beam.sdk.io.fs.ResourceId;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.Flatten;
+import org.apache.beam.sdk.transforms.GroupByKey;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.Reify;
+import org.apache.beam.sdk.transforms.View;
+import org.apache.beam.sdk.transforms.join.CoGbkResult;
+import org.apache.beam.sdk.transforms.join.CoGbkResult.CoGbkResultCoder;
+import org.apache.beam.sdk.transforms.join.CoGbkResultSchema;
+import org.apache.beam.sdk.transforms.join.CoGroupByKey;
+import org.apache.beam.sdk.transforms.join.RawUnionValue;
+import org.apache.beam.sdk.transforms.join.UnionCoder;
+import org.apache.beam.sdk.transforms.windowing.DefaultTrigger;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindows;
+import org.apache.beam.sdk.transforms.windowing.Window;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.util.MimeTypes;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PBegin;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionList;
+import org.apache.beam.sdk.values.TupleTag;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.hash.Hashing;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.primitives.UnsignedBytes;
+
+/**
+ * Transforms for writing keyed {@link PCollection PCollections} as files that are bucketed and
+ * sorted by key, and for joining such files without a shuffle of the data.
+ *
+ * <p>{@link #write} hashes every key into one of a fixed number of buckets, and writes each bucket
+ * to a single file, sorted by the encoded key. The files are written to a temporary directory and
+ * renamed once all buckets are written, replacing any bucket files previously written to the
+ * directory. {@link #coGroup} reads datasets written with the same key encoding and number of
+ * buckets, and merges the files of each bucket with a streaming k-way merge, producing the same
+ * {@link CoGbkResult}s as a {@link CoGroupByKey}. Only the names of the bucket files are shuffled.
+ *
+ * <pre>{@code
+ * // Written once, for example by the jobs that produce the datasets.
+ * users.apply(SortedBucketIO.<String, User>write("gs://bucket/users", 1024));
+ * events.apply(SortedBucketIO.<String, Event>write("gs://bucket/events", 1024));
+ *
+ * // Joined any number of times.
+ * PCollection<KV<String, CoGbkResult>> joined =
+ *     pipeline.apply(
+ *         SortedBucketIO.coGroup(StringUtf8Coder.of())
+ *             .and(usersTag, "gs://bucket/users", userCoder)
+ *             .and(eventsTag, "gs://bucket/events", eventCoder));
+ * }</pre>
+ *
+ * <p>The key {@link Coder} must be deterministic, and all datasets that are joined must be written
+ * with the same key {@link Coder} and number of buckets.
+ */
+@Experimental(Kind.SOURCE_SINK)
+@SuppressWarnings({
+  "nullness", // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+  "rawtypes"
+})
+public class SortedBucketIO {
+  private static final String BUCKET_FILE_PATTERN = "bucket-*-of-*.smb";
+  private static final String TEMP_DIRECTORY_PREFIX = ".temp-beam-smb-";
+  private static final Pattern BUCKET_FILE_NAME = Pattern.compile("bucket-(\\d+)-of-(\\d+)\\.smb");
+
+  // Each record is the encoded key followed by the encoded value, both prefixed by their length.
+  private static final KvCoder<byte[], byte[]> RECORD_CODER =
+      KvCoder.of(ByteArrayCoder.of(), ByteArrayCoder.of());
+
+  private static final Comparator<byte[]> KEY_COMPARATOR =
+      UnsignedBytes.lexicographicalComparator();
+
+  /**
+   * Returns a {@link Write} that writes its input to {@code numBuckets} files in the given
+   * directory.
+   */
+  public static <K, V> Write<K, V> write(String directory, int numBuckets) {
+    checkArgument(numBuckets > 0, "numBuckets must be positive, but was %s", numBuckets);
+    return new Write<>(
+        directory,
+        numBuckets,
+        BufferedExternalSorter.options().withExternalSorterType(SorterType.NATIVE));
+  }
+
+  /**
+   * Returns a {@link CoGroup} of no datasets, whose keys are encoded with the given {@link Coder}.
+   * Datasets are added with {@link CoGroup#and}.
+   */
+  public static <K> CoGroup<K> coGroup(Coder<K> keyCoder) {
+    return new CoGroup<>(keyCoder, ImmutableList.of());
+  }
+
+  static String bucketFileName(int bucket, int numBuckets) {
+    return String.format("bucket-%05d-of-%05d.smb", bucket, numBuckets);
+  }
+
+  static int bucketOf(byte[] encodedKey, int numBuckets) {
+    return Math.floorMod(Hashing.murmur3_32().hashBytes(encodedKey).asInt(), numBuckets);
+  }
+
+  private static String asDirectory(String directory) {
+    return directory.endsWith("/") ? directory : directory + "/";
+  }
+
+  private static void verifyDeterministic(Coder<?> keyCoder) {
+    try {
+      keyCoder.verifyDeterministic();
+    } catch (NonDeterministicException e) {
+      throw new IllegalStateException(
+          "the keyCoder of a SortedBucketIO transform must be deterministic", e);
+    }
+  }
+
+  /** Implementation of {@link #write}. */
+  public static class Write<K, V> extends PTransform<PCollection<KV<K, V>>, PCollection<String>> {
+    private final String directory;
+    private final int numBuckets;
+    private final BufferedExternalSorter.Options sorterOptions;
+
+    private Write(
+        String directory, int numBuckets, BufferedExternalSorter.Options sorterOptions) {
+      this.directory = directory;
+      this.numBuckets = numBuckets;
+      this.sorterOptions = sorterOptions;
+    }
+
+    /**
+     * Returns a {@link Write} that sorts the values of each bucket with the given options. By
+     * default buckets are sorted with {@link BufferedExternalSorter#options()} and the native
+     * external sorter.
+     */
+    public Write<K, V> withSorterOptions(BufferedExternalSorter.Options sorterOptions) {
+      return new Write<>(directory, numBuckets, sorterOptions);
+    }
+
+    @Override
+    public PCollection<String> expand(PCollection<KV<K, V>> input) {
+      if (!(input.getCoder() instanceof KvCoder)) {
+        throw new IllegalArgumentException(
+            "SortedBucketIO.write requires its input to use KvCoder, but was " + input.getCoder());
+      }
+      KvCoder<K, V> inputCoder = (KvCoder<K, V>) input.getCoder();
+      verifyDeterministic(inputCoder.getKeyCoder());
+
+      // Every expansion writes to its own temporary directory, like FileBasedSink.
+      String tempDirectory = asDirectory(directory) + TEMP_DIRECTORY_PREFIX + UUID.randomUUID();
+      PCollection<KV<Integer, String>> tempFiles =
+          input
+              // Re-window the data into the global window and remove any existing triggers.
+              .apply(
+                  "RewindowIntoGlobal",
+                  Window.<KV<K, V>>into(new GlobalWindows())
+                      .triggering(DefaultTrigger.of())
+                      .discardingFiredPanes())
+              .apply(
+                  "AssignBuckets",
+                  ParDo.of(
+                      new AssignBucketFn<>(
+                          inputCoder.getKeyCoder(), inputCoder.getValueCoder(), numBuckets)))
+              .setCoder(KvCoder.of(VarIntCoder.of(), RECORD_CODER))
+              .apply("GroupByBucket", GroupByKey.create())
+              .apply("SortBuckets", SortValues.create(sorterOptions))
+              .apply("WriteBuckets", ParDo.of(new WriteBucketFn(tempDirectory, numBuckets)))
+              .setCoder(KvCoder.of(VarIntCoder.of(), StringUtf8Coder.of()));
+
+      // Pass the temporary files via a side input rather than a shuffle, so that the directory is
+      // finalized even if there are no buckets.
+      ListCoder<KV<Integer, String>> tempFilesCoder = ListCoder.of(tempFiles.getCoder());
+      return input
+          .getPipeline()
+          .apply(
+              "GatherTempFiles",
+              Reify.viewInGlobalWindow(tempFiles.apply(View.asList()), tempFilesCoder))
+          .apply(
+              "FinalizeBuckets",
+              ParDo.of(new FinalizeBucketsFn(directory, tempDirectory, numBuckets)))
+          .setCoder(StringUtf8Coder.of());
+    }
+  }
+
+  /** Encodes the key and value of each element, and assigns it to the bucket of its key. */
+  private static class AssignBucketFn<K, V>
+      extends DoFn<KV<K, V>, KV<Integer, KV<byte[], byte[]>>> {
+    private final Coder<K> keyCoder;
+    private final Coder<V> valueCoder;
+    private final int numBuckets;
+
+    private AssignBucketFn(Coder<K> keyCoder, Coder<V> valueCoder, int numBuckets) {
+      this.keyCoder = keyCoder;
+      this.valueCoder = valueCoder;
+      this.numBuckets = numBuckets;
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element KV<K, V> element, OutputReceiver<KV<Integer, KV<byte[], byte[]>>> out)
+        throws IOException {
+      byte[] key = CoderUtils.encodeToByteArray(keyCoder, element.getKey());
+      byte[] value = CoderUtils.encodeToByteArray(valueCoder, element.getValue());
+      out.output(KV.of(bucketOf(key, numBuckets), KV.of(key, value)));
+    }
+  }
+
+  /**
+   * Writes the sorted records of a bucket to a temporary file, and outputs the bucket with the name
+   * of the file.
+   */
+  private static class WriteBucketFn
+      extends DoFn<KV<Integer, Iterable<KV<byte[], byte[]>>>, KV<Integer, String>> {
+    private final String tempDirectory;
+    private final int numBuckets;
+
+    private WriteBucketFn(String tempDirectory, int numBuckets) {
+      this.tempDirectory = tempDirectory;
+      this.numBuckets = numBuckets;
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element KV<Integer, Iterable<KV<byte[], byte[]>>> bucket,
+        OutputReceiver<KV<Integer, String>> out)
+        throws IOException {
+      // Every attempt writes its own file, so that concurrent attempts do not overwrite each other.
+      ResourceId file =
+          FileSystems.matchNewResource(tempDirectory, true)
+              .resolve(
+                  bucketFileName(bucket.getKey(), numBuckets) + "-" + UUID.randomUUID(),
+                  StandardResolveOptions.RESOLVE_FILE);
+      try (OutputStream output =
+          new BufferedOutputStream(
+              Channels.newOutputStream(FileSystems.create(file, MimeTypes.BINARY)))) {
+        for (KV<byte[], byte[]> record : bucket.getValue()) {
+          RECORD_CODER.encode(record, output);
+        }
+      }
+      out.output(KV.of(bucket.getKey(), file.toString()));
+    }
+  }
+
+  /**
+   * Replaces the bucket files of the output directory with the temporary files of the successful
+   * attempts, removes the temporary directory, and outputs the names of the bucket files.
+   */
+  private static class FinalizeBucketsFn extends DoFn<List<KV<Integer, String>>, String> {
+    private final String directory;
+    private final String tempDirectory;
+    private final int numBuckets;
+
+    private FinalizeBucketsFn(String directory, String tempDirectory, int numBuckets) {
+      this.directory = directory;
+      this.tempDirectory = tempDirectory;
+      this.numBuckets = numBuckets;
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element List<KV<Integer, String>> tempFiles, OutputReceiver<String> out)
+        throws IOException {
+      ResourceId outputDirectory = FileSystems.matchNewResource(directory, true);
+      List<ResourceId> sources = new ArrayList<>();
+      List<ResourceId> destinations = new ArrayList<>();
+      for (KV<Integer, String> tempFile : tempFiles) {
+        sources.add(FileSystems.matchNewResource(tempFile.getValue(), false));
+        destinations.add(
+            outputDirectory.resolve(
+                bucketFileName(tempFile.getKey(), numBuckets),
+                StandardResolveOptions.RESOLVE_FILE));
+      }
+
+      // Bucket files left by an earlier write, possibly with another number of buckets, would be
+      // read together with the new ones. The new files are kept, as a retry of this step may
+      // already have renamed some of them.
+      Set<ResourceId> newFiles = new HashSet<>(destinations);
+      List<ResourceId> staleFiles = new ArrayList<>();
+      for (MatchResult.Metadata metadata :
+          FileSystems.match(asDirectory(directory) + BUCKET_FILE_PATTERN, EmptyMatchTreatment.ALLOW)
+              .metadata()) {
+        if (!newFiles.contains(metadata.resourceId())) {
+          staleFiles.add(metadata.resourceId());
+        }
+      }
+      FileSystems.delete(staleFiles, StandardMoveOptions.IGNORE_MISSING_FILES);
+
+      FileSystems.rename(sources, destinations, StandardMoveOptions.IGNORE_MISSING_FILES);
+
+      // Removes the files of failed attempts, then the directory itself.
+      List<ResourceId> leftovers = new ArrayList<>();
+      for (MatchResult.Metadata metadata :
+          FileSystems.match(asDirectory(tempDirectory) + "*", EmptyMatchTreatment.ALLOW)
+              .metadata()) {
+        leftovers.add(metadata.resourceId());
+      }
+      FileSystems.delete(leftovers, StandardMoveOptions.IGNORE_MISSING_FILES);
+      try {
+        FileSystems.delete(
+            Collections.singletonList(FileSystems.matchNewResource(tempDirectory, true)),
+            StandardMoveOptions.IGNORE_MISSING_FILES);
+      } catch (IOException e) {
+        // The directory may not be empty if the file system lists files eventually, and may not
+        // exist at all on file systems without directories. Its files were deleted either way.
+      }
+
+      for (ResourceId destination : destinations) {
+        out.output(destination.toString());
+      }
+    }
+  }
+
+  /** Implementation of {@link #coGroup}. */
+  public static class CoGroup<K> extends PTransform<PBegin, PCollection<KV<K, CoGbkResult>>> {
+    private final Coder<K> keyCoder;
+    private final List<BucketedSource> sources;
+
+    private CoGroup(Coder<K> keyCoder, List<BucketedSource> sources) {
+      this.keyCoder = keyCoder;
+      this.sources = sources;
+    }
+
+    /**
+     * Returns a {@link CoGroup} that also reads the dataset written by {@link #write} to the given
+     * directory, whose values are accessed with the given {@link TupleTag} and decoded with the
+     * given {@link Coder}.
+     */
+    public <V> CoGroup<K> and(TupleTag<V> tag, String directory, Coder<V> valueCoder) {
+      return new CoGroup<>(
+          keyCoder,
+          ImmutableList.<BucketedSource>builder()
+              .addAll(sources)
+              .add(new BucketedSource(tag, directory, valueCoder))
+              .build());
+    }
+
+    @Override
+    public PCollection<KV<K, CoGbkResult>> expand(PBegin input) {
+      checkArgument(!sources.isEmpty(), "SortedBucketIO.coGroup must read at least one dataset");
+      verifyDeterministic(keyCoder);
+
+      List<TupleTag<?>> tags = new ArrayList<>();
+      List<Coder<?>> valueCoders = new ArrayList<>();
+      PCollectionList<KV<Integer, KV<Integer, String>>> bucketFiles =
+          PCollectionList.empty(input.getPipeline());
+      for (int i = 0; i < sources.size(); i++) {
+        BucketedSource source = sources.get(i);
+        tags.add(source.tag);
+        valueCoders.add(source.valueCoder);
+        String directory = asDirectory(source.directory);
+        bucketFiles =
+            bucketFiles.and(
+                input
+                    .apply("Match" + i, FileIO.match().filepattern(directory + BUCKET_FILE_PATTERN))
+                    .apply("ParseBucket" + i, ParDo.of(new ParseBucketFn(i)))
+                    .setCoder(
+                        KvCoder.of(
+                            VarIntCoder.of(), KvCoder.of(VarIntCoder.of(), StringUtf8Coder.of()))));
+      }
+
+      CoGbkResultSchema schema = CoGbkResultSchema.of(tags);
+      return bucketFiles
+          .apply("FlattenBucketFiles", Flatten.pCollections())
+          .apply("GroupByBucket", GroupByKey.create())
+          .apply("MergeBuckets", ParDo.of(new MergeBucketFn<>(keyCoder, valueCoders, schema)))
+          .setCoder(KvCoder.of(keyCoder, CoGbkResultCoder.of(schema, UnionCoder.of(valueCoders))));
+    }
+  }
+
+  /** A dataset read by {@link CoGroup}. */
+  private static class BucketedSource implements Serializable {
+    private final TupleTag<?> tag;
+    private final String directory;
+    private final Coder<?> valueCoder;
+
+    private BucketedSource(TupleTag<?> tag, String directory, Coder<?> valueCoder) {
+      this.tag = tag;
+      this.directory = directory;
+      this.valueCoder = valueCoder;
+    }
+  }
+
+  /** Keys each bucket file by its bucket, and tags it with the index of its dataset. */
+  private static class ParseBucketFn
+      extends DoFn<MatchResult.Metadata, KV<Integer, KV<Integer, String>>> {
+    private final int sourceIndex;
+
+    private ParseBucketFn(int sourceIndex) {
+      this.sourceIndex = sourceIndex;
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element MatchResult.Metadata metadata,
+        OutputReceiver<KV<Integer, KV<Integer, String>>> out) {
+      ResourceId file = metadata.resourceId();
+      Matcher matcher = BUCKET_FILE_NAME.matcher(file.getFilename());
+      if (!matcher.matches()) {
+        throw new IllegalStateException(file + " is not a bucket file");
+      }
+      out.output(
+          KV.of(Integer.parseInt(matcher.group(1)), KV.of(sourceIndex, file.toString())));
+    }
+  }
+
+  /** Merges the sorted files of a bucket into a {@link CoGbkResult} per key. */
+  private static class MergeBucketFn<K>
+      extends DoFn<KV<Integer, Iterable<KV<Integer, String>>>, KV<K, CoGbkResult>> {
+    private final Coder<K> keyCoder;
+    private final List<Coder<?>> valueCoders;
+    private final CoGbkResultSchema schema;
+
+    private MergeBucketFn(
+        Coder<K> keyCoder, List<Coder<?>> valueCoders, CoGbkResultSchema schema) {
+      this.keyCoder = keyCoder;
+      this.valueCoders = valueCoders;
+      this.schema = schema;
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element KV<Integer, Iterable<KV<Integer, String>>> bucket,
+        OutputReceiver<KV<K, CoGbkResult>> out)
+        throws IOException {
+      List<BucketReader> readers = new ArrayList<>();
+      PriorityQueue<BucketReader> queue =
+          new PriorityQueue<>(
+              (a, b) -> KEY_COMPARATOR.compare(a.current.getKey(), b.current.getKey()));
+      try {
+        int numBuckets = -1;
+        for (KV<Integer, String> bucketFile : bucket.getValue()) {
+          ResourceId file = FileSystems.matchNewResource(bucketFile.getValue(), false);
+          Matcher matcher = BUCKET_FILE_NAME.matcher(file.getFilename());
+          checkArgument(matcher.matches(), "%s is not a bucket file", file);
+          int fileNumBuckets = Integer.parseInt(matcher.group(2));
+          if (numBuckets == -1) {
+            numBuckets = fileNumBuckets;
+          } else if (numBuckets != fileNumBuckets) {
+            throw new IllegalStateException(
+                String.format(
+                    "All datasets must have the same number of buckets, but found %s and %s",
+                    numBuckets, fileNumBuckets));
+          }
+          BucketReader reader = new BucketReader(bucketFile.getKey(), file);
+          readers.add(reader);
+          if (reader.advance()) {
+            queue.add(reader);
+          }
+        }
+
+        while (!queue.isEmpty()) {
+          byte[] key = queue.peek().current.getKey();
+          List<RawUnionValue> values = new ArrayList<>();
+          while (!queue.isEmpty()
+              && KEY_COMPARATOR.compare(queue.peek().current.getKey(), key) == 0) {
+            BucketReader reader = queue.poll();
+            boolean hasNext;
+            do {
+              values.add(
+                  new RawUnionValue(
+                      reader.sourceIndex,
+                      CoderUtils.decodeFromByteArray(
+                          valueCoders.get(reader.sourceIndex), reader.current.getValue())));
+              hasNext = reader.advance();
+            } while (hasNext && KEY_COMPARATOR.compare(reader.current.getKey(), key) == 0);
+            if (hasNext) {
+              queue.add(reader);
+            }
+          }
+          out.output(
+              KV.of(
+                  CoderUtils.decodeFromByteArray(keyCoder, key),
+                  new CoGbkResult(schema, values)));
+        }
+      } finally {
+        for (BucketReader reader : readers) {
+          reader.close();
+        }
+      }
+    }
+  }
+
+  /** Reads the records of a bucket file, checking that they are sorted. */
+  private static class BucketReader implements Closeable {
+    private final int sourceIndex;
+    private final ResourceId file;
+    private final PushbackInputStream input;
+    private KV<byte[], byte[]> current;
+
+    private BucketReader(int sourceIndex, ResourceId file) throws IOException {
+      this.sourceIndex = sourceIndex;
+      this.file = file;
+      this.input =
+          new PushbackInputStream(
+              new BufferedInputStream(Channels.newInputStream(FileSystems.open(file))));
+    }
+
+    /** Reads the next record into {@link #current}, returning false at the end of the file. */
+    private boolean advance() throws IOException {
+      int next = input.read();
+      if (next == -1) {
+        return false;
+      }
+      input.unread(next);
+      KV<byte[], byte[]> previous = current;
+      current = RECORD_CODER.decode(input);
+      if (previous != null && KEY_COMPARATOR.compare(previous.getKey(), current.getKey()) > 0) {
+        throw new IllegalStateException("Bucket file " + file + " is not sorted by key");
+      }
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      input.close();
+    }
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.joinlibrary;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.transforms.MapElements;
+import org.apache.beam.sdk.transforms.join.CoGbkResult;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.TupleTag;
+import org.apache.beam.sdk.values.TypeDescriptors;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link SortedBucketIO}. */
+@RunWith(JUnit4.class)
+public class SortedBucketIOTest {
+  private static final int NUM_BUCKETS = 4;
+
+  @Rule public final transient TestPipeline writePipeline = TestPipeline.create();
+  @Rule public final transient TestPipeline readPipeline = TestPipeline.create();
+  @Rule public final transient TestPipeline rewritePipeline = TestPipeline.create();
+  @Rule public final transient TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private void write(String directory, List<KV<String, Long>> values, int numBuckets) {
+    write(writePipeline, directory, values, numBuckets);
+  }
+
+  private void write(
+      TestPipeline pipeline, String directory, List<KV<String, Long>> values, int numBuckets) {
+    pipeline
+        .apply(
+            "Create" + directory,
+            Create.of(values).withCoder(KvCoder.of(StringUtf8Coder.of(), VarLongCoder.of())))
+        .apply(
+            "Write" + directory,
+            SortedBucketIO.<String, Long>write(
+                new File(tmpFolder.getRoot(), directory).getAbsolutePath(), numBuckets));
+  }
+
+  @Test
+  public void testCoGroup() {
+    List<KV<String, Long>> left = new ArrayList<>();
+    List<KV<String, Long>> right = new ArrayList<>();
+    for (long i = 0; i < 100; i++) {
+      left.add(KV.of("key" + (i % 10), i));
+      if (i % 20 == 0) {
+        right.add(KV.of("key" + (i % 40), -i));
+      }
+    }
+    right.add(KV.of("rightOnly", 0L));
+    write("left", left, NUM_BUCKETS);
+    write("right", right, NUM_BUCKETS);
+    writePipeline.run().waitUntilFinish();
+
+    TupleTag<Long> leftTag = new TupleTag<>("left");
+    TupleTag<Long> rightTag = new TupleTag<>("right");
+    PCollection<KV<String, CoGbkResult>> coGrouped =
+        readPipeline.apply(
+            SortedBucketIO.coGroup(StringUtf8Coder.of())
+                .and(
+                    leftTag,
+                    new File(tmpFolder.getRoot(), "left").getAbsolutePath(),
+                    VarLongCoder.of())
+                .and(
+                    rightTag,
+                    new File(tmpFolder.getRoot(), "right").getAbsolutePath(),
+                    VarLongCoder.of()));
+    PCollection<String> sums =
+        coGrouped.apply(
+            MapElements.into(TypeDescriptors.strings())
+                .via(
+                    kv ->
+                        kv.getKey()
+                            + ":"
+                            + Iterables.size(kv.getValue().getAll(leftTag))
+                            + ":"
+                            + Iterables.size(kv.getValue().getAll(rightTag))));
+
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      expected.add("key" + i + ":10:" + (i == 0 ? 3 : 0));
+    }
+    expected.add("key20:0:2");
+    expected.add("rightOnly:0:1");
+    PAssert.that(sums).containsInAnyOrder(expected);
+    readPipeline.run();
+  }
+
+  @Test
+  public void testRewriteReplacesBucketFiles() {
+    List<KV<String, Long>> values = new ArrayList<>();
+    for (long i = 0; i < 100; i++) {
+      values.add(KV.of("key" + i, i));
+    }
+    write("data", values, 8);
+    writePipeline.run().waitUntilFinish();
+    write(rewritePipeline, "data", values, NUM_BUCKETS);
+    rewritePipeline.run().waitUntilFinish();
+
+    // Only the files of the last write are left, without its temporary directory.
+    String[] files = new File(tmpFolder.getRoot(), "data").list();
+    Arrays.sort(files);
+    List<String> expected = new ArrayList<>();
+    for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+      expected.add(SortedBucketIO.bucketFileName(bucket, NUM_BUCKETS));
+    }
+    assertEquals(expected, Arrays.asList(files));
+  }
+
+  @Test
+  public void testBucketFileNames() {
+    assertEquals("bucket-00003-of-00016.smb", SortedBucketIO.bucketFileName(3, 16));
+  }
+}
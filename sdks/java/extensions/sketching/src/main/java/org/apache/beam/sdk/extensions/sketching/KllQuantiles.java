@@ -0,0 +1,516 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sketching;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import org.apache.beam.sdk.annotations.Experimental;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.coders.CustomCoder;
+import org.apache.beam.sdk.transforms.Combine;
+import org.apache.beam.sdk.transforms.Combine.AccumulatingCombineFn;
+import org.apache.beam.sdk.transforms.Combine.AccumulatingCombineFn.Accumulator;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.Top;
+import org.apache.beam.sdk.transforms.display.DisplayData;
+import org.apache.beam.sdk.util.VarInt;
+import org.apache.beam.sdk.util.WeightedValue;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * {@code PTransform}s for computing approximate {@code N}-tiles of a {@code PCollection}, either
+ * globally or per-key, using mergeable KLL sketches.
+ *
+ * <p>These transforms have the same semantics as those of {@link
+ * org.apache.beam.sdk.transforms.ApproximateQuantiles}, and likewise work for any type of element
+ * ordered by a {@code Comparator}. Unlike {@code ApproximateQuantiles}, whose accumulators grow
+ * with the maximum expected input size, the size of a KLL sketch only depends on its accuracy
+ * parameter {@code k} and grows logarithmically with the number of elements. This makes the
+ * accumulators much cheaper to shuffle when combining many values per key.
+ *
+ * <h2>References</h2>
+ *
+ * <pre>
+ *   [KLL16] Karnin, Lang &amp; Liberty, "Optimal Quantile Approximation in Streams",
+ *   Proc. 2016 IEEE FOCS, p 71-78.
+ *   https://arxiv.org/abs/1603.05346
+ * </pre>
+ *
+ * <h2>Parameters</h2>
+ *
+ * <p>The parameter {@code k} bounds the number of elements retained by the topmost compactor of the
+ * sketch, and controls the tradeoff between accuracy and memory use. A sketch retains at most about
+ * {@code 3 * k} elements. With the default {@code k} of {@value #DEFAULT_K}, the rank of each
+ * returned quantile is within about 1.7% of the total number of elements of its exact rank with
+ * high probability.
+ *
+ * <h2>Examples</h2>
+ *
+ * <pre>{@code
+ * PCollection<KV<String, Long>> latencies = ...;
+ * PCollection<KV<String, List<Long>>> percentiles =
+ *     latencies.apply(KllQuantiles.<String, Long>perKey(101));
+ * }</pre>
+ *
+ * <p>The {@link KllQuantilesFn} {@code CombineFn} can be used directly to tune {@code k}:
+ *
+ * <pre>{@code
+ * PCollection<String> words = ...;
+ * PCollection<List<String>> quantiles =
+ *     words.apply(Combine.globally(KllQuantilesFn.<String>create(11).withK(400)));
+ * }</pre>
+ *
+ * <p><b>Warning: this class is experimental.</b> <br>
+ * Its API is subject to change in future versions of Beam.
+ */
+@Experimental
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+public final class KllQuantiles {
+  /** The default value of the accuracy parameter {@code k}. */
+  public static final int DEFAULT_K = 200;
+
+  private KllQuantiles() {
+    // do not instantiate
+  }
+
+  /**
+   * Returns a {@code PTransform} that takes a {@code PCollection<T>} and returns a {@code
+   * PCollection<List<T>>} whose single value is a {@code List} of the approximate {@code N}-tiles
+   * of the elements of the input {@code PCollection}.
+   *
+   * <p>The computed {@code List} is of size {@code numQuantiles}, and contains the input elements'
+   * minimum value, {@code numQuantiles-2} intermediate values, and maximum value, in sorted order,
+   * using the given {@code Comparator} to order values. If there are fewer input elements than
+   * {@code numQuantiles}, then the result {@code List} will contain all the input elements, in
+   * sorted order.
+   *
+   * <p>The argument {@code Comparator} must be {@code Serializable}.
+   *
+   * @param <T> the type of the elements in the input {@code PCollection}
+   * @param numQuantiles the number of elements in the resulting quantile values {@code List}
+   * @param compareFn the function to use to order the elements
+   */
+  public static <T, ComparatorT extends Comparator<T> & Serializable>
+      PTransform<PCollection<T>, PCollection<List<T>>> globally(
+          int numQuantiles, ComparatorT compareFn) {
+    return Combine.globally(KllQuantilesFn.create(numQuantiles, compareFn));
+  }
+
+  /**
+   * Like {@link #globally(int, Comparator)}, but sorts using the elements' natural ordering.
+   *
+   * @param <T> the type of the elements in the input {@code PCollection}
+   * @param numQuantiles the number of elements in the resulting quantile values {@code List}
+   */
+  public static <T extends Comparable<T>> PTransform<PCollection<T>, PCollection<List<T>>> globally(
+      int numQuantiles) {
+    return Combine.globally(KllQuantilesFn.<T>create(numQuantiles));
+  }
+
+  /**
+   * Like {@link #globally(int, Comparator)}, but computes the approximate {@code N}-tiles of the
+   * values associated with each key of the input {@code PCollection}.
+   *
+   * <p>See {@link Combine.PerKey} for how this affects timestamps and windowing.
+   *
+   * @param <K> the type of the keys in the input and output {@code PCollection}s
+   * @param <V> the type of the values in the input {@code PCollection}
+   * @param numQuantiles the number of elements in the resulting quantile values {@code List}
+   * @param compareFn the function to use to order the elements
+   */
+  public static <K, V, ComparatorT extends Comparator<V> & Serializable>
+      PTransform<PCollection<KV<K, V>>, PCollection<KV<K, List<V>>>> perKey(
+          int numQuantiles, ComparatorT compareFn) {
+    return Combine.perKey(KllQuantilesFn.create(numQuantiles, compareFn));
+  }
+
+  /**
+   * Like {@link #perKey(int, Comparator)}, but sorts values using their natural ordering.
+   *
+   * @param <K> the type of the keys in the input and output {@code PCollection}s
+   * @param <V> the type of the values in the input {@code PCollection}
+   * @param numQuantiles the number of elements in the resulting quantile values {@code List}
+   */
+  public static <K, V extends Comparable<V>>
+      PTransform<PCollection<KV<K, V>>, PCollection<KV<K, List<V>>>> perKey(int numQuantiles) {
+    return Combine.perKey(KllQuantilesFn.<V>create(numQuantiles));
+  }
+
+  /**
+   * Implements the {@link Combine.CombineFn} of {@link KllQuantiles} transforms.
+   *
+   * @param <T> the type of the values being combined
+   */
+  public static class KllQuantilesFn<T, ComparatorT extends Comparator<T> & Serializable>
+      extends AccumulatingCombineFn<T, KllSketch<T, ComparatorT>, List<T>> {
+
+    private final int numQuantiles;
+    private final ComparatorT compareFn;
+    private final int k;
+
+    private KllQuantilesFn(int numQuantiles, ComparatorT compareFn, int k) {
+      checkArgument(numQuantiles >= 2, "numQuantiles must be at least 2, but was %s", numQuantiles);
+      checkArgument(
+          k >= KllSketch.MIN_LEVEL_CAPACITY,
+          "k must be at least %s, but was %s",
+          KllSketch.MIN_LEVEL_CAPACITY,
+          k);
+      this.numQuantiles = numQuantiles;
+      this.compareFn = compareFn;
+      this.k = k;
+    }
+
+    /**
+     * Returns a combiner with the given {@code compareFn} and desired number of quantiles. A total
+     * of {@code numQuantiles} elements will appear in the output list, including the minimum and
+     * maximum.
+     *
+     * <p>The {@code Comparator} must be {@code Serializable}.
+     */
+    public static <T, ComparatorT extends Comparator<T> & Serializable>
+        KllQuantilesFn<T, ComparatorT> create(int numQuantiles, ComparatorT compareFn) {
+      return new KllQuantilesFn<>(numQuantiles, compareFn, DEFAULT_K);
+    }
+
+    /** Like {@link #create(int, Comparator)}, but sorts values using their natural ordering. */
+    public static <T extends Comparable<T>> KllQuantilesFn<T, Top.Natural<T>> create(
+        int numQuantiles) {
+      return create(numQuantiles, new Top.Natural<T>());
+    }
+
+    /**
+     * Returns a {@code KllQuantilesFn} that's like this one except that it uses the specified
+     * accuracy parameter {@code k}. Does not modify this combiner.
+     *
+     * <p>The rank error of the quantiles is inversely proportional to {@code k}, while the size of
+     * the accumulators is proportional to {@code k}.
+     */
+    public KllQuantilesFn<T, ComparatorT> withK(int k) {
+      return new KllQuantilesFn<>(numQuantiles, compareFn, k);
+    }
+
+    @Override
+    public KllSketch<T, ComparatorT> createAccumulator() {
+      return new KllSketch<>(compareFn, numQuantiles, k);
+    }
+
+    @Override
+    public Coder<KllSketch<T, ComparatorT>> getAccumulatorCoder(
+        CoderRegistry registry, Coder<T> elementCoder) {
+      return new KllSketchCoder<>(compareFn, numQuantiles, k, elementCoder);
+    }
+
+    @Override
+    public void populateDisplayData(DisplayData.Builder builder) {
+      super.populateDisplayData(builder);
+      builder
+          .add(DisplayData.item("numQuantiles", numQuantiles).withLabel("Quantile Count"))
+          .add(DisplayData.item("k", k).withLabel("Accuracy parameter"))
+          .add(DisplayData.item("comparer", compareFn.getClass()).withLabel("Record Comparer"));
+    }
+  }
+
+  /**
+   * A KLL sketch: a hierarchy of compactors, where the elements retained at level {@code h} each
+   * stand for {@code 2^h} input elements.
+   *
+   * <p>Input elements are added to level 0. Whenever the sketch retains as many elements as its
+   * capacity, the lowest level that is at its capacity is sorted, and a random half of its elements
+   * (either those at even or those at odd positions) is promoted to the next level, while the other
+   * half is discarded. The capacity of a level decreases geometrically with its distance from the
+   * top level, which bounds the total size of the sketch.
+   */
+  static class KllSketch<T, ComparatorT extends Comparator<T> & Serializable>
+      implements Accumulator<T, KllSketch<T, ComparatorT>, List<T>> {
+
+    /** The minimum capacity of a level, so that low levels still compact many elements at once. */
+    static final int MIN_LEVEL_CAPACITY = 8;
+
+    /** The ratio between the capacities of consecutive levels. */
+    private static final double CAPACITY_DECAY = 2.0 / 3;
+
+    private final ComparatorT compareFn;
+    private final int numQuantiles;
+    private final int k;
+
+    /** The number of input elements summarized by this sketch. */
+    private long count;
+
+    private @Nullable T min;
+    private @Nullable T max;
+
+    /** The elements retained at each level. */
+    private final List<List<T>> levels;
+
+    /** The total number of retained elements. */
+    private int numRetained;
+
+    KllSketch(ComparatorT compareFn, int numQuantiles, int k) {
+      this(compareFn, numQuantiles, k, 0, null, null, new ArrayList<>());
+      levels.add(new ArrayList<>());
+    }
+
+    private KllSketch(
+        ComparatorT compareFn,
+        int numQuantiles,
+        int k,
+        long count,
+        @Nullable T min,
+        @Nullable T max,
+        List<List<T>> levels) {
+      this.compareFn = compareFn;
+      this.numQuantiles = numQuantiles;
+      this.k = k;
+      this.count = count;
+      this.min = min;
+      this.max = max;
+      this.levels = levels;
+      for (List<T> level : levels) {
+        numRetained += level.size();
+      }
+    }
+
+    @Override
+    public void addInput(T elem) {
+      if (count == 0) {
+        min = elem;
+        max = elem;
+      } else if (compareFn.compare(elem, min) < 0) {
+        min = elem;
+      } else if (compareFn.compare(elem, max) > 0) {
+        max = elem;
+      }
+      count++;
+      levels.get(0).add(elem);
+      numRetained++;
+      compress();
+    }
+
+    @Override
+    public void mergeAccumulator(KllSketch<T, ComparatorT> other) {
+      if (other.count == 0) {
+        return;
+      }
+      if (count == 0 || compareFn.compare(other.min, min) < 0) {
+        min = other.min;
+      }
+      if (count == 0 || compareFn.compare(other.max, max) > 0) {
+        max = other.max;
+      }
+      count += other.count;
+      while (levels.size() < other.levels.size()) {
+        levels.add(new ArrayList<>());
+      }
+      for (int level = 0; level < other.levels.size(); level++) {
+        levels.get(level).addAll(other.levels.get(level));
+      }
+      numRetained += other.numRetained;
+      compress();
+    }
+
+    /** Compacts levels until the number of retained elements is below the capacity. */
+    private void compress() {
+      while (numRetained >= capacity()) {
+        for (int level = 0; level < levels.size(); level++) {
+          if (levels.get(level).size() >= capacity(level)) {
+            compact(level);
+            break;
+          }
+        }
+      }
+    }
+
+    private void compact(int level) {
+      if (level + 1 == levels.size()) {
+        levels.add(new ArrayList<>());
+      }
+      List<T> elements = levels.get(level);
+      elements.sort(compareFn);
+      List<T> nextLevel = levels.get(level + 1);
+      // An odd element out stays at this level.
+      int numCompacted = elements.size() & ~1;
+      for (int i = ThreadLocalRandom.current().nextInt(2); i < numCompacted; i += 2) {
+        nextLevel.add(elements.get(i));
+      }
+      levels.set(level, new ArrayList<>(elements.subList(numCompacted, elements.size())));
+      numRetained -= numCompacted / 2;
+    }
+
+    private int capacity() {
+      int capacity = 0;
+      for (int level = 0; level < levels.size(); level++) {
+        capacity += capacity(level);
+      }
+      return capacity;
+    }
+
+    private int capacity(int level) {
+      int depth = levels.size() - level - 1;
+      return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+    }
+
+    /**
+     * Returns a list of {@code numQuantiles} elements, containing the minimum, the elements of
+     * approximately evenly spaced ranks, and the maximum, or all elements in sorted order if fewer
+     * than {@code numQuantiles} elements were added.
+     */
+    @Override
+    public List<T> extractOutput() {
+      List<T> quantiles = new ArrayList<>(numQuantiles);
+      if (count == 0) {
+        return quantiles;
+      }
+      if (count < numQuantiles && levels.size() == 1) {
+        quantiles.addAll(levels.get(0));
+        quantiles.sort(compareFn);
+        return quantiles;
+      }
+
+      List<WeightedValue<T>> weighted = new ArrayList<>(numRetained);
+      for (int level = 0; level < levels.size(); level++) {
+        long weight = 1L << level;
+        for (T element : levels.get(level)) {
+          weighted.add(WeightedValue.of(element, weight));
+        }
+      }
+      weighted.sort((a, b) -> compareFn.compare(a.getValue(), b.getValue()));
+
+      quantiles.add(min);
+      long cumulativeWeight = 0;
+      int index = 0;
+      for (int i = 1; i < numQuantiles - 1; i++) {
+        double rank = (double) i * count / (numQuantiles - 1);
+        while (index < weighted.size() - 1
+            && cumulativeWeight + weighted.get(index).getWeight() <= rank) {
+          cumulativeWeight += weighted.get(index).getWeight();
+          index++;
+        }
+        quantiles.add(weighted.get(index).getValue());
+      }
+      quantiles.add(max);
+      return quantiles;
+    }
+
+    long getCount() {
+      return count;
+    }
+
+    int getNumRetained() {
+      return numRetained;
+    }
+  }
+
+  /**
+   * Coder for {@link KllSketch}. The sketch is encoded as the number of input elements, the
+   * minimum and maximum, and the elements retained at each level.
+   */
+  static class KllSketchCoder<T, ComparatorT extends Comparator<T> & Serializable>
+      extends CustomCoder<KllSketch<T, ComparatorT>> {
+    private final ComparatorT compareFn;
+    private final int numQuantiles;
+    private final int k;
+    private final Coder<T> elementCoder;
+
+    KllSketchCoder(ComparatorT compareFn, int numQuantiles, int k, Coder<T> elementCoder) {
+      this.compareFn = compareFn;
+      this.numQuantiles = numQuantiles;
+      this.k = k;
+      this.elementCoder = elementCoder;
+    }
+
+    @Override
+    public void encode(KllSketch<T, ComparatorT> sketch, OutputStream outStream)
+        throws CoderException, IOException {
+      VarInt.encode(sketch.count, outStream);
+      if (sketch.count == 0) {
+        return;
+      }
+      elementCoder.encode(sketch.min, outStream);
+      elementCoder.encode(sketch.max, outStream);
+      VarInt.encode(sketch.levels.size(), outStream);
+      for (List<T> level : sketch.levels) {
+        VarInt.encode(level.size(), outStream);
+        for (T element : level) {
+          elementCoder.encode(element, outStream);
+        }
+      }
+    }
+
+    @Override
+    public KllSketch<T, ComparatorT> decode(InputStream inStream)
+        throws CoderException, IOException {
+      long count = VarInt.decodeLong(inStream);
+      if (count == 0) {
+        return new KllSketch<>(compareFn, numQuantiles, k);
+      }
+      T min = elementCoder.decode(inStream);
+      T max = elementCoder.decode(inStream);
+      int numLevels = VarInt.decodeInt(inStream);
+      List<List<T>> levels = new ArrayList<>(numLevels);
+      for (int i = 0; i < numLevels; i++) {
+        int size = VarInt.decodeInt(inStream);
+        List<T> level = new ArrayList<>(size);
+        for (int j = 0; j < size; j++) {
+          level.add(elementCoder.decode(inStream));
+        }
+        levels.add(level);
+      }
+      return new KllSketch<>(compareFn, numQuantiles, k, count, min, max, levels);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object other) {
+      if (other == this) {
+        return true;
+      }
+      if (!(other instanceof KllSketchCoder)) {
+        return false;
+      }
+      KllSketchCoder<?, ?> that = (KllSketchCoder<?, ?>) other;
+      return this.numQuantiles == that.numQuantiles
+          && this.k == that.k
+          && Objects.equals(this.elementCoder, that.elementCoder)
+          && Objects.equals(this.compareFn, that.compareFn);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(numQuantiles, k, elementCoder, compareFn);
+    }
+
+    @Override
+    public void verifyDeterministic() throws NonDeterministicException {
+      verifyDeterministic(this, "KllSketch.ElementCoder must be deterministic", elementCoder);
+    }
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sketching;
+
+import static org.apache.beam.sdk.transforms.display.DisplayDataMatchers.hasDisplayItem;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.extensions.sketching.KllQuantiles.KllQuantilesFn;
+import org.apache.beam.sdk.extensions.sketching.KllQuantiles.KllSketch;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.ApproximateQuantiles.ApproximateQuantilesCombineFn;
+import org.apache.beam.sdk.transforms.Combine.CombineFn;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.transforms.SerializableFunction;
+import org.apache.beam.sdk.transforms.Top;
+import org.apache.beam.sdk.transforms.Values;
+import org.apache.beam.sdk.transforms.WithKeys;
+import org.apache.beam.sdk.transforms.display.DisplayData;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.values.PCollection;
+import org.junit.Rule;
+import org.junit.Test;
+
+/** Tests for {@link KllQuantiles}. */
+public class KllQuantilesTest {
+
+  @Rule public final transient TestPipeline tp = TestPipeline.create();
+
+  private static final int size = 10000;
+
+  private static final int numQuantiles = 11;
+
+  private static final List<Long> stream = generateStream();
+
+  private static List<Long> generateStream() {
+    List<Long> li = new ArrayList<>();
+    for (long i = 0; i < size; i++) {
+      li.add(i);
+    }
+    Collections.shuffle(li, new Random(1234));
+    return li;
+  }
+
+  @Test
+  public void globally() {
+    PCollection<List<Long>> col =
+        tp.apply(Create.of(stream)).apply(KllQuantiles.<Long>globally(numQuantiles));
+
+    PAssert.thatSingleton("Verify Accuracy", col).satisfies(new VerifyAccuracy());
+    tp.run();
+  }
+
+  @Test
+  public void perKey() {
+    PCollection<List<Long>> col =
+        tp.apply(Create.of(stream))
+            .apply(WithKeys.of(1))
+            .apply(KllQuantiles.<Integer, Long>perKey(numQuantiles))
+            .apply(Values.create());
+
+    PAssert.thatSingleton("Verify Accuracy", col).satisfies(new VerifyAccuracy());
+    tp.run();
+  }
+
+  @Test
+  public void testMergeAccum() {
+    KllQuantilesFn<Long, Top.Natural<Long>> fn = KllQuantilesFn.create(numQuantiles);
+    List<KllSketch<Long, Top.Natural<Long>>> accums = new ArrayList<>();
+    for (int i = 0; i < 7; i++) {
+      accums.add(fn.createAccumulator());
+    }
+    for (int i = 0; i < size; i++) {
+      fn.addInput(accums.get(i % accums.size()), stream.get(i));
+    }
+    KllSketch<Long, Top.Natural<Long>> merged = fn.mergeAccumulators(accums);
+
+    assertEquals(size, merged.getCount());
+    new VerifyAccuracy().apply(fn.extractOutput(merged));
+  }
+
+  @Test
+  public void testFewerElementsThanQuantiles() {
+    KllQuantilesFn<String, Top.Reversed<String>> fn =
+        KllQuantilesFn.create(numQuantiles, new Top.Reversed<>());
+    assertEquals(Arrays.asList("c", "b", "a"), fn.apply(Arrays.asList("b", "a", "c")));
+    assertEquals(Collections.emptyList(), fn.apply(Collections.emptyList()));
+  }
+
+  @Test
+  public void testCoder() throws Exception {
+    KllQuantilesFn<Long, Top.Natural<Long>> fn = KllQuantilesFn.create(numQuantiles);
+    Coder<KllSketch<Long, Top.Natural<Long>>> coder =
+        fn.getAccumulatorCoder(CoderRegistry.createDefault(), VarLongCoder.of());
+
+    KllSketch<Long, Top.Natural<Long>> sketch = fn.createAccumulator();
+    assertEquals(0, CoderUtils.clone(coder, sketch).getCount());
+
+    for (long value : stream) {
+      sketch.addInput(value);
+    }
+    KllSketch<Long, Top.Natural<Long>> decoded = CoderUtils.clone(coder, sketch);
+    assertEquals(sketch.getCount(), decoded.getCount());
+    assertEquals(sketch.getNumRetained(), decoded.getNumRetained());
+    assertEquals(sketch.extractOutput(), decoded.extractOutput());
+  }
+
+  @Test
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public void testSketchSmallerThanApproximateQuantilesState() throws Exception {
+    CoderRegistry registry = CoderRegistry.createDefault();
+    KllQuantilesFn<Long, Top.Natural<Long>> kllFn = KllQuantilesFn.create(numQuantiles);
+    CombineFn<Long, Object, List<Long>> mrlFn =
+        (CombineFn) ApproximateQuantilesCombineFn.<Long>create(numQuantiles);
+    KllSketch<Long, Top.Natural<Long>> kllSketch = kllFn.createAccumulator();
+    Object mrlState = mrlFn.createAccumulator();
+    for (long i = 0; i < 100 * size; i++) {
+      kllSketch.addInput(i);
+      mrlState = mrlFn.addInput(mrlState, i);
+    }
+
+    assertTrue(kllSketch.getNumRetained() <= 3 * KllQuantiles.DEFAULT_K);
+    byte[] kllBytes =
+        CoderUtils.encodeToByteArray(
+            kllFn.getAccumulatorCoder(registry, VarLongCoder.of()), kllSketch);
+    byte[] mrlBytes =
+        CoderUtils.encodeToByteArray(
+            mrlFn.getAccumulatorCoder(registry, VarLongCoder.of()), mrlState);
+    assertTrue(
+        "KLL sketch of " + kllBytes.length + " bytes, state of " + mrlBytes.length + " bytes",
+        kllBytes.length * 4 < mrlBytes.length);
+  }
+
+  @Test
+  public void testDisplayData() {
+    KllQuantilesFn<String, Top.Natural<String>> fn = KllQuantilesFn.<String>create(5).withK(400);
+    assertThat(DisplayData.from(fn), hasDisplayItem("numQuantiles", 5));
+    assertThat(DisplayData.from(fn), hasDisplayItem("k", 400));
+  }
+
+  @Test
+  public void testDeterministicCoder() throws Exception {
+    KllQuantilesFn<String, Top.Natural<String>> fn = KllQuantilesFn.create(numQuantiles);
+    fn.getAccumulatorCoder(CoderRegistry.createDefault(), StringUtf8Coder.of())
+        .verifyDeterministic();
+  }
+
+  static class VerifyAccuracy implements SerializableFunction<List<Long>, Void> {
+    // The rank error of the default sketch is about 1.7% with high probability.
+    final double expectedError = 0.03;
+
+    @Override
+    public Void apply(List<Long> quantiles) {
+      assertEquals(numQuantiles, quantiles.size());
+      for (int i = 0; i < numQuantiles; i++) {
+        double expectedValue = (double) i * (size - 1) / (numQuantiles - 1);
+        assertTrue(
+            "not accurate enough : \nQuantile "
+                + i
+                + " is "
+                + quantiles.get(i)
+                + " and not "
+                + expectedValue,
+            Math.abs(quantiles.get(i) - expectedValue) / size <= expectedError);
+      }
+      return null;
+    }
+  }
+}
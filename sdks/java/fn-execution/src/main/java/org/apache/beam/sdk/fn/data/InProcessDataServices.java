@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.fn.data;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkState;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.Elements;
+import org.apache.beam.model.fnexecution.v1.BeamFnDataGrpc;
+import org.apache.beam.model.pipeline.v1.Endpoints.ApiServiceDescriptor;
+import org.apache.beam.sdk.fn.stream.OutboundObserverFactory;
+import org.apache.beam.sdk.fn.stream.QueueingCallStreamObserver;
+import org.apache.beam.vendor.grpc.v1p26p0.io.grpc.stub.ClientResponseObserver;
+import org.apache.beam.vendor.grpc.v1p26p0.io.grpc.stub.StreamObserver;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A registry of the Beam Fn Data services of this JVM, which lets an SDK harness running in the
+ * same process as the runner exchange {@link Elements} with a data service by reference, through
+ * {@link QueueingCallStreamObserver QueueingCallStreamObservers}, instead of over an in-process
+ * gRPC channel which serializes and frames every message.
+ *
+ * <p>The elements are still encoded once into the {@link Elements} messages: the runner and the SDK
+ * harness generally use different coders for the same PCollection.
+ */
+public final class InProcessDataServices {
+  /** The number of messages which can be queued in each direction before back pressure applies. */
+  private static final int CAPACITY = 64;
+
+  private static final ConcurrentMap<String, BeamFnDataGrpc.BeamFnDataImplBase> SERVICES =
+      new ConcurrentHashMap<>();
+  private static final ExecutorService EXECUTOR =
+      Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder()
+              .setDaemon(true)
+              .setNameFormat("in-process-data-service-%d")
+              .build());
+
+  private InProcessDataServices() {}
+
+  /** Makes the data service reachable in this JVM at the given descriptor. */
+  public static void register(
+      ApiServiceDescriptor descriptor, BeamFnDataGrpc.BeamFnDataImplBase service) {
+    checkState(
+        SERVICES.putIfAbsent(descriptor.getUrl(), service) == null,
+        "A data service is already registered at %s",
+        descriptor.getUrl());
+  }
+
+  /** Removes the data service registered at the given descriptor, if any. */
+  public static void unregister(ApiServiceDescriptor descriptor) {
+    SERVICES.remove(descriptor.getUrl());
+  }
+
+  /**
+   * Returns a factory connecting an inbound observer directly to the data service registered in
+   * this JVM at the given descriptor, to be used instead of a gRPC stub, or {@code null} if there
+   * is no such service.
+   */
+  @SuppressWarnings("unchecked")
+  public static OutboundObserverFactory.@Nullable BasicFactory<Elements, Elements> connectorFor(
+      ApiServiceDescriptor descriptor) {
+    BeamFnDataGrpc.BeamFnDataImplBase service = SERVICES.get(descriptor.getUrl());
+    if (service == null) {
+      return null;
+    }
+    return (StreamObserver<Elements> inboundObserver) -> {
+      QueueingCallStreamObserver<Elements> toClient =
+          new QueueingCallStreamObserver<>(inboundObserver, EXECUTOR, CAPACITY);
+      QueueingCallStreamObserver<Elements> toService =
+          new QueueingCallStreamObserver<>(service.data(toClient), EXECUTOR, CAPACITY);
+      // A failure or a cancellation in either direction fails the whole call, as with gRPC.
+      QueueingCallStreamObserver.link(toClient, toService);
+      if (inboundObserver instanceof ClientResponseObserver) {
+        // Lets the client install its on ready handler, as it would on a gRPC call.
+        ((ClientResponseObserver<Elements, Elements>) inboundObserver).beforeStart(toService);
+      }
+      return toService;
+    };
+  }
+}
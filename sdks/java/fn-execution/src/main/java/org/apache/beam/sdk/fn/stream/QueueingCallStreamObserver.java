@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.fn.stream;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.beam.vendor.grpc.v1p26p0.io.grpc.Status;
+import org.apache.beam.vendor.grpc.v1p26p0.io.grpc.stub.ClientCallStreamObserver;
+import org.apache.beam.vendor.grpc.v1p26p0.io.grpc.stub.StreamObserver;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A thread safe {@link ClientCallStreamObserver} which passes values by reference to a delegate
+ * {@link StreamObserver}, through a lock-free queue drained by a single task at a time on an {@link
+ * Executor}. It stands in for a gRPC call between two parties in the same process, without
+ * serializing the values.
+ *
+ * <p>Flow control is handled with a capacity: the observer is not ready while that many values are
+ * queued, and the on ready handler is run as soon as the queue is drained below the capacity.
+ *
+ * <p>If the delegate throws, it is passed the failure with {@link StreamObserver#onError}, as a
+ * gRPC call would be failed, and the values queued after it are discarded. The observer of the
+ * other direction of the call, if {@link #link linked}, is then failed too, as it is when the call
+ * is cancelled.
+ */
+@ThreadSafe
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+public final class QueueingCallStreamObserver<T> extends ClientCallStreamObserver<T> {
+  private static final Logger LOG = LoggerFactory.getLogger(QueueingCallStreamObserver.class);
+
+  private final StreamObserver<T> delegate;
+  private final Executor executor;
+  private final int capacity;
+  private final Queue<Runnable> queue;
+  private final AtomicInteger queued;
+  private final AtomicBoolean draining;
+  /** Whether the delegate was completed or failed, after which the queued values are discarded. */
+  private volatile boolean closed;
+
+  private volatile @Nullable Runnable onReadyHandler;
+  private volatile @Nullable QueueingCallStreamObserver<?> otherDirection;
+
+  public QueueingCallStreamObserver(StreamObserver<T> delegate, Executor executor, int capacity) {
+    this.delegate = delegate;
+    this.executor = executor;
+    this.capacity = capacity;
+    this.queue = new ConcurrentLinkedQueue<>();
+    this.queued = new AtomicInteger();
+    this.draining = new AtomicBoolean();
+  }
+
+  /**
+   * Links the observers of both directions of a call, so that a failure of the delegate of either
+   * one, or the cancellation of either one, closes the delegates of both with an error.
+   */
+  public static void link(
+      QueueingCallStreamObserver<?> oneDirection, QueueingCallStreamObserver<?> otherDirection) {
+    oneDirection.otherDirection = otherDirection;
+    otherDirection.otherDirection = oneDirection;
+  }
+
+  @Override
+  public void onNext(T value) {
+    enqueue(() -> delegate.onNext(value));
+  }
+
+  @Override
+  public void onError(Throwable t) {
+    enqueue(
+        () -> {
+          closed = true;
+          delegate.onError(t);
+        });
+  }
+
+  @Override
+  public void onCompleted() {
+    enqueue(
+        () -> {
+          closed = true;
+          delegate.onCompleted();
+        });
+  }
+
+  @Override
+  public void cancel(@Nullable String message, @Nullable Throwable cause) {
+    Throwable cancelled = Status.CANCELLED.withDescription(message).withCause(cause).asException();
+    onError(cancelled);
+    QueueingCallStreamObserver<?> other = otherDirection;
+    if (other != null) {
+      other.onError(cancelled);
+    }
+  }
+
+  @Override
+  public boolean isReady() {
+    return queued.get() < capacity;
+  }
+
+  @Override
+  public void setOnReadyHandler(Runnable onReadyHandler) {
+    this.onReadyHandler = onReadyHandler;
+  }
+
+  @Override
+  public void disableAutoInboundFlowControl() {}
+
+  @Override
+  public void request(int count) {}
+
+  @Override
+  public void setMessageCompression(boolean enable) {}
+
+  private void enqueue(Runnable event) {
+    queue.offer(event);
+    queued.incrementAndGet();
+    scheduleDrain();
+  }
+
+  private void scheduleDrain() {
+    if (draining.compareAndSet(false, true)) {
+      executor.execute(this::drain);
+    }
+  }
+
+  private void drain() {
+    Runnable event;
+    while ((event = queue.poll()) != null) {
+      if (!closed) {
+        try {
+          event.run();
+        } catch (RuntimeException e) {
+          fail(e);
+        }
+      }
+      if (queued.decrementAndGet() == capacity - 1) {
+        Runnable handler = onReadyHandler;
+        if (handler != null) {
+          handler.run();
+        }
+      }
+    }
+    draining.set(false);
+    // A value may have been queued after the last poll, while this task was still draining.
+    if (!queue.isEmpty()) {
+      scheduleDrain();
+    }
+  }
+
+  /** Closes the delegate which threw the given failure, and the other direction of the call. */
+  private void fail(RuntimeException e) {
+    if (closed) {
+      LOG.error("Failed to close {}", delegate, e);
+    } else {
+      closed = true;
+      LOG.error("Failed to pass a value to {}, discarding the remaining values", delegate, e);
+      try {
+        delegate.onError(e);
+      } catch (RuntimeException onErrorException) {
+        LOG.error("Failed to pass the failure to {}", delegate, onErrorException);
+      }
+    }
+    QueueingCallStreamObserver<?> other = otherDirection;
+    if (other != null) {
+      other.onError(
+          Status.CANCELLED
+              .withDescription("The other direction of the call failed")
+              .withCause(e)
+              .asException());
+    }
+  }
+}
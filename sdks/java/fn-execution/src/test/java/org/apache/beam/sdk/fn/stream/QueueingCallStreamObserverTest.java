@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.fn.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.beam.sdk.fn.test.TestExecutors;
+import org.apache.beam.sdk.fn.test.TestExecutors.TestExecutorService;
+import org.apache.beam.sdk.fn.test.TestStreams;
+import org.apache.beam.vendor.grpc.v1p26p0.io.grpc.Status;
+import org.apache.beam.vendor.grpc.v1p26p0.io.grpc.stub.StreamObserver;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link QueueingCallStreamObserver}. */
+@RunWith(JUnit4.class)
+public class QueueingCallStreamObserverTest {
+  @Rule public TestExecutorService executor = TestExecutors.from(Executors.newCachedThreadPool());
+
+  @Test
+  public void testValuesArePassedInOrder() throws Exception {
+    List<Integer> onNextValues = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch onCompleted = new CountDownLatch(1);
+    QueueingCallStreamObserver<Integer> streamObserver =
+        new QueueingCallStreamObserver<>(
+            TestStreams.withOnNext(onNextValues::add)
+                .withOnCompleted(onCompleted::countDown)
+                .build(),
+            executor,
+            10);
+
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      streamObserver.onNext(i);
+      expected.add(i);
+    }
+    streamObserver.onCompleted();
+
+    assertTrue(onCompleted.await(10, TimeUnit.SECONDS));
+    assertEquals(expected, onNextValues);
+  }
+
+  @Test
+  public void testIsNotReadyWhileQueueIsFull() throws Exception {
+    CountDownLatch unblockDelegate = new CountDownLatch(1);
+    CountDownLatch onReady = new CountDownLatch(1);
+    QueueingCallStreamObserver<String> streamObserver =
+        new QueueingCallStreamObserver<>(
+            TestStreams.withOnNext(
+                    (String value) -> Uninterruptibles.awaitUninterruptibly(unblockDelegate))
+                .build(),
+            executor,
+            2);
+    streamObserver.setOnReadyHandler(onReady::countDown);
+
+    streamObserver.onNext("A");
+    assertTrue(streamObserver.isReady());
+    streamObserver.onNext("B");
+    assertFalse(streamObserver.isReady());
+
+    unblockDelegate.countDown();
+    assertTrue(onReady.await(10, TimeUnit.SECONDS));
+    assertTrue(streamObserver.isReady());
+  }
+
+  @Test
+  public void testDelegateFailureIsPassedToOnError() throws Exception {
+    List<Integer> onNextValues = Collections.synchronizedList(new ArrayList<>());
+    List<Throwable> onErrors = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch onError = new CountDownLatch(1);
+    RuntimeException failure = new RuntimeException("onNext failed");
+    QueueingCallStreamObserver<Integer> streamObserver =
+        new QueueingCallStreamObserver<>(
+            TestStreams.withOnNext(
+                    (Integer value) -> {
+                      if (value == 1) {
+                        throw failure;
+                      }
+                      onNextValues.add(value);
+                    })
+                .withOnError(
+                    t -> {
+                      onErrors.add(t);
+                      onError.countDown();
+                    })
+                .build(),
+            executor,
+            2);
+
+    for (int i = 0; i < 4; i++) {
+      streamObserver.onNext(i);
+    }
+    streamObserver.onCompleted();
+
+    assertTrue(onError.await(10, TimeUnit.SECONDS));
+    // the values queued after the failure are discarded.
+    assertEquals(Collections.singletonList(0), onNextValues);
+    assertEquals(Collections.singletonList(failure), onErrors);
+  }
+
+  @Test
+  public void testDelegateFailureFailsLinkedObserver() throws Exception {
+    RuntimeException failure = new RuntimeException("onNext failed");
+    QueueingCallStreamObserver<Integer> failing =
+        new QueueingCallStreamObserver<>(
+            TestStreams.withOnNext(
+                    (Integer value) -> {
+                      throw failure;
+                    })
+                .build(),
+            executor,
+            2);
+    List<Throwable> onErrors = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch onError = new CountDownLatch(1);
+    QueueingCallStreamObserver<Integer> linked =
+        new QueueingCallStreamObserver<>(
+            TestStreams.<Integer>withOnNext(value -> {})
+                .withOnError(
+                    t -> {
+                      onErrors.add(t);
+                      onError.countDown();
+                    })
+                .build(),
+            executor,
+            2);
+    QueueingCallStreamObserver.link(failing, linked);
+
+    failing.onNext(1);
+
+    assertTrue(onError.await(10, TimeUnit.SECONDS));
+    Status status = Status.fromThrowable(Iterables.getOnlyElement(onErrors));
+    assertEquals(Status.Code.CANCELLED, status.getCode());
+    assertSame(failure, status.getCause());
+  }
+
+  @Test
+  public void testCancelFailsLinkedObservers() throws Exception {
+    List<Throwable> onErrors = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch onError = new CountDownLatch(2);
+    StreamObserver<String> delegate =
+        TestStreams.<String>withOnNext(value -> {})
+            .withOnError(
+                t -> {
+                  onErrors.add(t);
+                  onError.countDown();
+                })
+            .build();
+    QueueingCallStreamObserver<String> toClient =
+        new QueueingCallStreamObserver<>(delegate, executor, 2);
+    QueueingCallStreamObserver<String> toService =
+        new QueueingCallStreamObserver<>(delegate, executor, 2);
+    QueueingCallStreamObserver.link(toClient, toService);
+
+    toService.cancel("Cancelled by the client", null);
+
+    assertTrue(onError.await(10, TimeUnit.SECONDS));
+    for (Throwable t : onErrors) {
+      assertEquals(Status.Code.CANCELLED, Status.fromThrowable(t).getCode());
+    }
+  }
+}
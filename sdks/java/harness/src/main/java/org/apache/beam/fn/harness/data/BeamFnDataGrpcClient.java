@@ -20,6 +20,7 @@ package org.apache.beam.fn.harness.data;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.Elements;
 import org.apache.beam.model.fnexecution.v1.BeamFnDataGrpc;
 import org.apache.beam.model.pipeline.v1.Endpoints;
 import org.apache.beam.model.pipeline.v1.Endpoints.ApiServiceDescriptor;
@@ -29,6 +30,7 @@ import org.apache.beam.sdk.fn.data.BeamFnDataGrpcMultiplexer;
 import org.apache.beam.sdk.fn.data.BeamFnDataInboundObserver;
 import org.apache.beam.sdk.fn.data.CloseableFnDataReceiver;
 import org.apache.beam.sdk.fn.data.FnDataReceiver;
+import org.apache.beam.sdk.fn.data.InProcessDataServices;
 import org.apache.beam.sdk.fn.data.InboundDataClient;
 import org.apache.beam.sdk.fn.data.LogicalEndpoint;
 import org.apache.beam.sdk.fn.stream.OutboundObserverFactory;
@@ -109,10 +111,19 @@ public class BeamFnDataGrpcClient implements BeamFnDataClient {
       Endpoints.ApiServiceDescriptor apiServiceDescriptor) {
     return cache.computeIfAbsent(
         apiServiceDescriptor,
-        (Endpoints.ApiServiceDescriptor descriptor) ->
-            new BeamFnDataGrpcMultiplexer(
-                descriptor,
-                outboundObserverFactory,
-                BeamFnDataGrpc.newStub(channelFactory.apply(apiServiceDescriptor))::data));
+        (Endpoints.ApiServiceDescriptor descriptor) -> {
+          // Bypass gRPC when the data service runs in this JVM, e.g. for an embedded harness.
+          OutboundObserverFactory.BasicFactory<Elements, Elements> inProcessConnector =
+              InProcessDataServices.connectorFor(descriptor);
+          if (inProcessConnector != null) {
+            LOG.info("Connecting in process to the data service at {}", descriptor.getUrl());
+            return new BeamFnDataGrpcMultiplexer(
+                descriptor, outboundObserverFactory, inProcessConnector);
+          }
+          return new BeamFnDataGrpcMultiplexer(
+              descriptor,
+              outboundObserverFactory,
+              BeamFnDataGrpc.newStub(channelFactory.apply(apiServiceDescriptor))::data);
+        });
   }
 }
@@ -0,0 +1,606 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.io.xml;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.beans.Introspector;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlTransient;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.annotation.XmlValue;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+import org.apache.beam.sdk.annotations.Experimental;
+import org.apache.beam.sdk.annotations.Experimental.Kind;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.schemas.SchemaCoder;
+import org.apache.beam.sdk.schemas.SchemaProvider;
+import org.apache.beam.sdk.transforms.SerializableFunction;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.sdk.values.TypeDescriptor;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.cache.Cache;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.cache.CacheBuilder;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableMap;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.joda.time.Instant;
+import org.joda.time.ReadableInstant;
+
+/**
+ * A {@link SchemaProvider} for JAXB annotated classes.
+ *
+ * <p>The schema contains a field for every field and property that JAXB binds to an XML element,
+ * attribute or value, following the class's {@link XmlAccessorType}: fields and getter/setter
+ * pairs annotated with {@link XmlElement}, {@link XmlAttribute} or {@link XmlValue}, plus the
+ * public, all or no unannotated members depending on the access type. Schema fields are named
+ * after the XML element or attribute. Members of superclasses are included, and members are
+ * ordered as specified by {@link XmlType#propOrder} if present.
+ *
+ * <p>Strings, primitives and their boxed types, {@link BigDecimal}, {@link BigInteger}, {@code
+ * byte[]}, {@link Date}, {@link XMLGregorianCalendar}, enums, arrays and lists of these, and other
+ * JAXB bound classes (as nested rows) are supported. {@link XMLGregorianCalendar}s and enums are
+ * represented as strings, so that converting to a {@link Row} and back is lossless.
+ *
+ * <p>Encoding JAXB objects with the resulting {@link SchemaCoder} is much more compact and faster
+ * than marshalling them to XML text with {@link JAXBCoder}. To use it for a class, annotate the
+ * class with {@code @DefaultSchema(JAXBSchemaProvider.class)} or use {@link #schemaCoder}.
+ */
+@Experimental(Kind.SCHEMAS)
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+public class JAXBSchemaProvider implements SchemaProvider {
+  private static final String DEFAULT_NAME = "##default";
+
+  private static final Map<Class<?>, FieldType> PRIMITIVE_TYPES =
+      ImmutableMap.<Class<?>, FieldType>builder()
+          .put(String.class, FieldType.STRING)
+          .put(byte[].class, FieldType.BYTES)
+          .put(BigDecimal.class, FieldType.DECIMAL)
+          .put(Boolean.class, FieldType.BOOLEAN)
+          .put(boolean.class, FieldType.BOOLEAN)
+          .put(Byte.class, FieldType.BYTE)
+          .put(byte.class, FieldType.BYTE)
+          .put(Short.class, FieldType.INT16)
+          .put(short.class, FieldType.INT16)
+          .put(Integer.class, FieldType.INT32)
+          .put(int.class, FieldType.INT32)
+          .put(Long.class, FieldType.INT64)
+          .put(long.class, FieldType.INT64)
+          .put(Float.class, FieldType.FLOAT)
+          .put(float.class, FieldType.FLOAT)
+          .put(Double.class, FieldType.DOUBLE)
+          .put(double.class, FieldType.DOUBLE)
+          .build();
+
+  /**
+   * The mappings of the classes seen so far, compared by identity. The values are strongly held,
+   * so that a mapping is computed once per class, and they refer to their class: like the other
+   * reflection caches of the SDK, an entry is kept as long as this class is loaded.
+   */
+  private static final Cache<Class<?>, ClassMapping> MAPPINGS =
+      CacheBuilder.newBuilder().weakKeys().build();
+
+  /**
+   * Returns a {@link SchemaCoder} for the given JAXB annotated class.
+   *
+   * @throws IllegalArgumentException if no schema can be inferred for the class
+   */
+  public static <T> SchemaCoder<T> schemaCoder(Class<T> clazz) {
+    return SchemaCoder.of(
+        mappingFor(clazz).schema,
+        TypeDescriptor.of(clazz),
+        new ToRowFn<>(clazz),
+        new FromRowFn<>(clazz));
+  }
+
+  @Override
+  public <T> @Nullable Schema schemaFor(TypeDescriptor<T> typeDescriptor) {
+    ClassMapping mapping = tryMappingFor(typeDescriptor.getRawType());
+    return (mapping == null) ? null : mapping.schema;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> @Nullable SerializableFunction<T, Row> toRowFunction(
+      TypeDescriptor<T> typeDescriptor) {
+    Class<T> clazz = (Class<T>) typeDescriptor.getRawType();
+    return (tryMappingFor(clazz) == null) ? null : new ToRowFn<>(clazz);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> @Nullable SerializableFunction<Row, T> fromRowFunction(
+      TypeDescriptor<T> typeDescriptor) {
+    Class<T> clazz = (Class<T>) typeDescriptor.getRawType();
+    return (tryMappingFor(clazz) == null) ? null : new FromRowFn<>(clazz);
+  }
+
+  private static @Nullable ClassMapping tryMappingFor(Class<?> clazz) {
+    try {
+      return mappingFor(clazz);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private static ClassMapping mappingFor(Class<?> clazz) {
+    return mappingFor(clazz, new HashSet<>());
+  }
+
+  private static ClassMapping mappingFor(Class<?> clazz, Set<Class<?>> visiting) {
+    ClassMapping mapping = MAPPINGS.getIfPresent(clazz);
+    if (mapping == null) {
+      checkArgument(
+          visiting.add(clazz), "Class %s is recursive, which is not supported by schemas", clazz);
+      mapping = new ClassMapping(clazz, visiting);
+      visiting.remove(clazz);
+      MAPPINGS.put(clazz, mapping);
+    }
+    return mapping;
+  }
+
+  /** Converts a JAXB object to a {@link Row}. */
+  private static class ToRowFn<T> implements SerializableFunction<T, Row> {
+    private final Class<T> clazz;
+    private transient @Nullable ClassMapping mapping;
+
+    ToRowFn(Class<T> clazz) {
+      this.clazz = clazz;
+    }
+
+    @Override
+    public Row apply(T input) {
+      if (mapping == null) {
+        mapping = mappingFor(clazz);
+      }
+      return mapping.toRow(input);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object other) {
+      return other instanceof ToRowFn && clazz.equals(((ToRowFn<?>) other).clazz);
+    }
+
+    @Override
+    public int hashCode() {
+      return clazz.hashCode();
+    }
+  }
+
+  /** Converts a {@link Row} to a JAXB object. */
+  private static class FromRowFn<T> implements SerializableFunction<Row, T> {
+    private final Class<T> clazz;
+    private transient @Nullable ClassMapping mapping;
+
+    FromRowFn(Class<T> clazz) {
+      this.clazz = clazz;
+    }
+
+    @Override
+    public T apply(Row input) {
+      if (mapping == null) {
+        mapping = mappingFor(clazz);
+      }
+      return clazz.cast(mapping.fromRow(input));
+    }
+
+    @Override
+    public boolean equals(@Nullable Object other) {
+      return other instanceof FromRowFn && clazz.equals(((FromRowFn<?>) other).clazz);
+    }
+
+    @Override
+    public int hashCode() {
+      return clazz.hashCode();
+    }
+  }
+
+  /** The schema of a JAXB bound class, and how to convert its instances to and from rows. */
+  private static class ClassMapping {
+    private final Schema schema;
+    private final Constructor<?> constructor;
+    private final Member[] members;
+    private final ValueMapping[] values;
+
+    ClassMapping(Class<?> clazz, Set<Class<?>> visiting) {
+      checkArgument(
+          !clazz.isInterface() && !Modifier.isAbstract(clazz.getModifiers()),
+          "Class %s is abstract",
+          clazz);
+      try {
+        constructor = clazz.getDeclaredConstructor();
+      } catch (NoSuchMethodException e) {
+        throw new IllegalArgumentException(
+            String.format("Class %s does not have a no-arg constructor", clazz), e);
+      }
+      constructor.setAccessible(true);
+
+      List<Member> boundMembers = getBoundMembers(clazz);
+      checkArgument(!boundMembers.isEmpty(), "Class %s does not bind any members", clazz);
+      Schema.Builder builder = Schema.builder();
+      members = boundMembers.toArray(new Member[0]);
+      values = new ValueMapping[members.length];
+      for (int i = 0; i < members.length; i++) {
+        Member member = members[i];
+        values[i] = valueMapping(member.genericType, member.type, visiting);
+        FieldType fieldType = values[i].type.withNullable(!member.type.isPrimitive());
+        builder.addField(member.xmlName, fieldType);
+      }
+      schema = builder.build();
+    }
+
+    Row toRow(Object object) {
+      List<Object> rowValues = new ArrayList<>(members.length);
+      for (int i = 0; i < members.length; i++) {
+        Object value = members[i].get(object);
+        rowValues.add((value == null) ? null : values[i].toRowValue.apply(value));
+      }
+      return Row.withSchema(schema).attachValues(rowValues);
+    }
+
+    Object fromRow(Row row) {
+      Object object;
+      try {
+        object = constructor.newInstance();
+      } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+        throw new RuntimeException("Unable to create " + constructor.getDeclaringClass(), e);
+      }
+      for (int i = 0; i < members.length; i++) {
+        Object value = row.getValue(i);
+        if (value != null) {
+          members[i].set(object, values[i].fromRowValue.apply(value));
+        }
+      }
+      return object;
+    }
+  }
+
+  /** A field or a getter/setter pair bound by JAXB. */
+  private static class Member {
+    private final String name;
+    private final String xmlName;
+    private final Class<?> type;
+    private final Type genericType;
+    private final @Nullable Field field;
+    private final @Nullable Method getter;
+    private final @Nullable Method setter;
+
+    private Member(
+        String name,
+        @Nullable String xmlName,
+        Class<?> type,
+        Type genericType,
+        @Nullable Field field,
+        @Nullable Method getter,
+        @Nullable Method setter) {
+      this.name = name;
+      this.xmlName = (xmlName == null || DEFAULT_NAME.equals(xmlName)) ? name : xmlName;
+      this.type = type;
+      this.genericType = genericType;
+      this.field = field;
+      this.getter = getter;
+      this.setter = setter;
+    }
+
+    static Member forField(Field field) {
+      field.setAccessible(true);
+      return new Member(
+          field.getName(),
+          xmlName(field),
+          field.getType(),
+          field.getGenericType(),
+          field,
+          null,
+          null);
+    }
+
+    static Member forProperty(String name, Method getter, Method setter) {
+      getter.setAccessible(true);
+      setter.setAccessible(true);
+      String xmlName = xmlName(getter);
+      return new Member(
+          name,
+          (xmlName != null) ? xmlName : xmlName(setter),
+          getter.getReturnType(),
+          getter.getGenericReturnType(),
+          null,
+          getter,
+          setter);
+    }
+
+    @Nullable
+    Object get(Object object) {
+      try {
+        return (field != null) ? field.get(object) : getter.invoke(object);
+      } catch (IllegalAccessException | InvocationTargetException e) {
+        throw new RuntimeException("Unable to get " + name + " of " + object.getClass(), e);
+      }
+    }
+
+    void set(Object object, Object value) {
+      try {
+        if (field != null) {
+          field.set(object, value);
+        } else {
+          setter.invoke(object, value);
+        }
+      } catch (IllegalAccessException | InvocationTargetException e) {
+        throw new RuntimeException("Unable to set " + name + " of " + object.getClass(), e);
+      }
+    }
+  }
+
+  /** Returns the bound members of the class and its superclasses, superclass members first. */
+  private static List<Member> getBoundMembers(Class<?> clazz) {
+    List<Member> members = new ArrayList<>();
+    if (clazz.getSuperclass() != null && !Object.class.equals(clazz.getSuperclass())) {
+      members.addAll(getBoundMembers(clazz.getSuperclass()));
+    }
+    XmlAccessType accessType = getAccessType(clazz);
+
+    List<Member> declared = new ArrayList<>();
+    for (Field field : clazz.getDeclaredFields()) {
+      int modifiers = field.getModifiers();
+      if (Modifier.isStatic(modifiers)
+          || Modifier.isTransient(modifiers)
+          || field.isSynthetic()
+          || field.isAnnotationPresent(XmlTransient.class)) {
+        continue;
+      }
+      if (isAnnotated(field)
+          || accessType == XmlAccessType.FIELD
+          || (accessType == XmlAccessType.PUBLIC_MEMBER && Modifier.isPublic(modifiers))) {
+        declared.add(Member.forField(field));
+      }
+    }
+
+    // Properties are sorted by name, as the order of declared methods is unspecified.
+    Map<String, Method> getters = new TreeMap<>();
+    Map<String, Method> setters = new LinkedHashMap<>();
+    for (Method method : clazz.getDeclaredMethods()) {
+      if (Modifier.isStatic(method.getModifiers()) || method.isSynthetic() || method.isBridge()) {
+        continue;
+      }
+      String name = method.getName();
+      if (method.getParameterCount() == 0
+          && name.startsWith("get")
+          && name.length() > 3
+          && !void.class.equals(method.getReturnType())) {
+        getters.put(Introspector.decapitalize(name.substring(3)), method);
+      } else if (method.getParameterCount() == 0
+          && name.startsWith("is")
+          && name.length() > 2
+          && boolean.class.equals(method.getReturnType())) {
+        getters.put(Introspector.decapitalize(name.substring(2)), method);
+      } else if (method.getParameterCount() == 1 && name.startsWith("set") && name.length() > 3) {
+        setters.put(Introspector.decapitalize(name.substring(3)), method);
+      }
+    }
+    for (Map.Entry<String, Method> entry : getters.entrySet()) {
+      Method getter = entry.getValue();
+      Method setter = setters.get(entry.getKey());
+      if (setter != null && !setter.getParameterTypes()[0].equals(getter.getReturnType())) {
+        setter = null;
+      }
+      boolean annotated = isAnnotated(getter) || (setter != null && isAnnotated(setter));
+      boolean bound =
+          annotated
+              || (setter != null
+                  && (accessType == XmlAccessType.PROPERTY
+                      || (accessType == XmlAccessType.PUBLIC_MEMBER
+                          && Modifier.isPublic(getter.getModifiers())
+                          && Modifier.isPublic(setter.getModifiers()))));
+      if (!bound
+          || getter.isAnnotationPresent(XmlTransient.class)
+          || (setter != null && setter.isAnnotationPresent(XmlTransient.class))) {
+        continue;
+      }
+      checkArgument(
+          setter != null,
+          "Property %s of %s does not have a setter, which is not supported",
+          entry.getKey(),
+          clazz);
+      declared.add(Member.forProperty(entry.getKey(), getter, setter));
+    }
+
+    XmlType xmlType = clazz.getAnnotation(XmlType.class);
+    if (xmlType != null) {
+      List<String> propOrder = Arrays.asList(xmlType.propOrder());
+      declared.sort(
+          (a, b) -> Integer.compare(orderOf(propOrder, a.name), orderOf(propOrder, b.name)));
+    }
+    members.addAll(declared);
+    return members;
+  }
+
+  private static int orderOf(List<String> propOrder, String name) {
+    int index = propOrder.indexOf(name);
+    return (index < 0) ? Integer.MAX_VALUE : index;
+  }
+
+  private static XmlAccessType getAccessType(Class<?> clazz) {
+    XmlAccessorType accessorType = clazz.getAnnotation(XmlAccessorType.class);
+    if (accessorType == null && clazz.getPackage() != null) {
+      accessorType = clazz.getPackage().getAnnotation(XmlAccessorType.class);
+    }
+    return (accessorType == null) ? XmlAccessType.PUBLIC_MEMBER : accessorType.value();
+  }
+
+  private static boolean isAnnotated(AccessibleObject member) {
+    return member.isAnnotationPresent(XmlElement.class)
+        || member.isAnnotationPresent(XmlAttribute.class)
+        || member.isAnnotationPresent(XmlValue.class);
+  }
+
+  private static @Nullable String xmlName(AccessibleObject member) {
+    XmlElement element = member.getAnnotation(XmlElement.class);
+    if (element != null) {
+      return element.name();
+    }
+    XmlAttribute attribute = member.getAnnotation(XmlAttribute.class);
+    return (attribute != null) ? attribute.name() : null;
+  }
+
+  /** The schema type of a value, and how to convert it to and from its row representation. */
+  private static class ValueMapping {
+    private final FieldType type;
+    private final Function<Object, Object> toRowValue;
+    private final Function<Object, Object> fromRowValue;
+
+    ValueMapping(
+        FieldType type,
+        Function<Object, Object> toRowValue,
+        Function<Object, Object> fromRowValue) {
+      this.type = type;
+      this.toRowValue = toRowValue;
+      this.fromRowValue = fromRowValue;
+    }
+
+    static ValueMapping identity(FieldType type) {
+      return new ValueMapping(type, Function.identity(), Function.identity());
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static ValueMapping valueMapping(
+      Type genericType, Class<?> clazz, Set<Class<?>> visiting) {
+    FieldType primitiveType = PRIMITIVE_TYPES.get(clazz);
+    if (primitiveType != null) {
+      return ValueMapping.identity(primitiveType);
+    } else if (BigInteger.class.equals(clazz)) {
+      return new ValueMapping(
+          FieldType.DECIMAL,
+          value -> new BigDecimal((BigInteger) value),
+          value -> ((BigDecimal) value).toBigIntegerExact());
+    } else if (Date.class.equals(clazz)) {
+      return new ValueMapping(
+          FieldType.DATETIME,
+          value -> new Instant(((Date) value).getTime()),
+          value -> new Date(((ReadableInstant) value).getMillis()));
+    } else if (XMLGregorianCalendar.class.isAssignableFrom(clazz)) {
+      return new ValueMapping(
+          FieldType.STRING,
+          value -> ((XMLGregorianCalendar) value).toXMLFormat(),
+          value -> DatatypeFactoryHolder.INSTANCE.newXMLGregorianCalendar((String) value));
+    } else if (clazz.isEnum()) {
+      return new ValueMapping(
+          FieldType.STRING,
+          value -> ((Enum<?>) value).name(),
+          value -> Enum.valueOf((Class) clazz, (String) value));
+    } else if (clazz.isArray()) {
+      Class<?> componentType = clazz.getComponentType();
+      ValueMapping element = valueMapping(componentType, componentType, visiting);
+      return new ValueMapping(
+          FieldType.array(element.type),
+          value -> {
+            int length = Array.getLength(value);
+            List<Object> list = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+              list.add(element.toRowValue.apply(Array.get(value, i)));
+            }
+            return list;
+          },
+          value -> {
+            Collection<?> list = (Collection<?>) value;
+            Object array = Array.newInstance(componentType, list.size());
+            int i = 0;
+            for (Object item : list) {
+              Array.set(array, i++, element.fromRowValue.apply(item));
+            }
+            return array;
+          });
+    } else if (Collection.class.isAssignableFrom(clazz)) {
+      checkArgument(
+          clazz.isAssignableFrom(ArrayList.class)
+              && genericType instanceof ParameterizedType
+              && ((ParameterizedType) genericType).getActualTypeArguments().length == 1,
+          "Collection type %s is not supported, only lists with a type argument are",
+          genericType);
+      Type elementType = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+      ValueMapping element =
+          valueMapping(elementType, TypeDescriptor.of(elementType).getRawType(), visiting);
+      return new ValueMapping(
+          FieldType.array(element.type),
+          value -> {
+            Collection<?> collection = (Collection<?>) value;
+            List<Object> list = new ArrayList<>(collection.size());
+            for (Object item : collection) {
+              list.add(element.toRowValue.apply(item));
+            }
+            return list;
+          },
+          value -> {
+            Collection<?> collection = (Collection<?>) value;
+            List<Object> list = new ArrayList<>(collection.size());
+            for (Object item : collection) {
+              list.add(element.fromRowValue.apply(item));
+            }
+            return list;
+          });
+    }
+    checkArgument(
+        !clazz.isPrimitive()
+            && !Object.class.equals(clazz)
+            && !clazz.getName().startsWith("java."),
+        "Type %s is not supported",
+        genericType);
+    ClassMapping nested = mappingFor(clazz, visiting);
+    return new ValueMapping(FieldType.row(nested.schema), nested::toRow, nested::fromRow);
+  }
+
+  /** Lazily creates the {@link DatatypeFactory}, which is expensive to look up. */
+  private static class DatatypeFactoryHolder {
+    private static final DatatypeFactory INSTANCE;
+
+    static {
+      try {
+        INSTANCE = DatatypeFactory.newInstance();
+      } catch (DatatypeConfigurationException e) {
+        throw new ExceptionInInitializerError(e);
+      }
+    }
+  }
+}
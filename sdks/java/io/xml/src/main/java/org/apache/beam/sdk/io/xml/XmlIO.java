@@ -31,6 +31,9 @@ import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.ValidationEventHandler;
+import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.annotations.Experimental;
+import org.apache.beam.sdk.annotations.Experimental.Kind;
 import org.apache.beam.sdk.io.BoundedSource;
 import org.apache.beam.sdk.io.CompressedSource;
 import org.apache.beam.sdk.io.Compression;
@@ -42,6 +45,8 @@ import org.apache.beam.sdk.io.ReadAllViaFileBasedSource;
 import org.apache.beam.sdk.io.fs.ResourceId;
 import org.apache.beam.sdk.options.ValueProvider;
 import org.apache.beam.sdk.options.ValueProvider.StaticValueProvider;
+import org.apache.beam.sdk.schemas.SchemaCoder;
+import org.apache.beam.sdk.schemas.transforms.Convert;
 import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.transforms.SerializableFunction;
 import org.apache.beam.sdk.transforms.display.DisplayData;
@@ -49,6 +54,8 @@ import org.apache.beam.sdk.transforms.display.HasDisplayData;
 import org.apache.beam.sdk.values.PBegin;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PDone;
+import org.apache.beam.sdk.values.PInput;
+import org.apache.beam.sdk.values.Row;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.annotations.VisibleForTesting;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -102,6 +109,22 @@ public class XmlIO {
    * <p>Currently, only XML files that use single-byte characters are supported. Using a file that
    * contains multi-byte characters may result in data loss or duplication.
    *
+   * <p>By default, records are encoded with {@link JAXBCoder}, which marshals them back to XML text
+   * whenever they are shuffled or materialized. {@link Read#withBeamSchemas} instead encodes them
+   * with a {@link SchemaCoder} for the schema that {@link JAXBSchemaProvider} infers from the
+   * record class, which is much more compact. {@link Read#asRows} reads the records as {@link
+   * Row}s of that schema. The records are still unmarshalled by JAXB into the record class, and
+   * each of them is then converted to a {@link Row}:
+   *
+   * <pre>{@code
+   * PCollection<Row> rows = p.apply(XmlIO.<Record>read()
+   *     .from(file.toPath().toString())
+   *     .withRootElement("root")
+   *     .withRecordElement("record")
+   *     .withRecordClass(Record.class)
+   *     .asRows());
+   * }</pre>
+   *
    * @param <T> Type of the objects that represent the records of the XML file. The {@code
    *     PCollection} generated by this source will be of this type.
    */
@@ -114,6 +137,7 @@ public class XmlIO {
                 .build())
         .setMinBundleSize(1L)
         .setCompression(Compression.AUTO)
+        .setInferBeamSchema(false)
         .build();
   }
 
@@ -142,6 +166,7 @@ public class XmlIO {
             new AutoValue_XmlIO_MappingConfiguration.Builder<T>()
                 .setCharset(StandardCharsets.UTF_8.name())
                 .build())
+        .setInferBeamSchema(false)
         .build();
   }
 
@@ -237,6 +262,8 @@ public class XmlIO {
 
     abstract long getMinBundleSize();
 
+    abstract boolean getInferBeamSchema();
+
     abstract Builder<T> toBuilder();
 
     @AutoValue.Builder
@@ -249,6 +276,8 @@ public class XmlIO {
 
       abstract Builder<T> setMinBundleSize(long minBundleSize);
 
+      abstract Builder<T> setInferBeamSchema(boolean inferBeamSchema);
+
       abstract Read<T> build();
     }
 
@@ -365,6 +394,29 @@ public class XmlIO {
           getConfiguration().withValidationEventHandler(validationEventHandler));
     }
 
+    /**
+     * If set to true, encodes the records with a {@link SchemaCoder} for the schema inferred by
+     * {@link JAXBSchemaProvider} instead of with {@link JAXBCoder}, and sets that schema on the
+     * output {@link PCollection}.
+     */
+    @Experimental(Kind.SCHEMAS)
+    public Read<T> withBeamSchemas(boolean withBeamSchemas) {
+      return toBuilder().setInferBeamSchema(withBeamSchemas).build();
+    }
+
+    /**
+     * Returns a transform that reads the records as {@link Row}s, with the schema inferred by
+     * {@link JAXBSchemaProvider} from the record class.
+     *
+     * <p>The records are unmarshalled by JAXB into the record class, as by this transform, and then
+     * converted to {@link Row}s, which is fused with the read. No record is encoded with {@link
+     * JAXBCoder} in between.
+     */
+    @Experimental(Kind.SCHEMAS)
+    public PTransform<PBegin, PCollection<Row>> asRows() {
+      return new ReadRows<>(withBeamSchemas(true));
+    }
+
     @Override
     public void populateDisplayData(DisplayData.Builder builder) {
       builder
@@ -385,7 +437,10 @@ public class XmlIO {
     @Override
     public PCollection<T> expand(PBegin input) {
       getConfiguration().validate();
-      return input.apply(org.apache.beam.sdk.io.Read.from(createSource()));
+      PCollection<T> records = input.apply(org.apache.beam.sdk.io.Read.from(createSource()));
+      return getInferBeamSchema()
+          ? records.setCoder(JAXBSchemaProvider.schemaCoder(getConfiguration().getRecordClass()))
+          : records;
     }
   }
 
@@ -395,12 +450,16 @@ public class XmlIO {
       extends PTransform<PCollection<ReadableFile>, PCollection<T>> {
     abstract MappingConfiguration<T> getConfiguration();
 
+    abstract boolean getInferBeamSchema();
+
     abstract Builder<T> toBuilder();
 
     @AutoValue.Builder
     abstract static class Builder<T> {
       abstract Builder<T> setConfiguration(MappingConfiguration<T> configuration);
 
+      abstract Builder<T> setInferBeamSchema(boolean inferBeamSchema);
+
       abstract ReadFiles<T> build();
     }
 
@@ -434,13 +493,49 @@ public class XmlIO {
           getConfiguration().withValidationEventHandler(validationEventHandler));
     }
 
+    /** Like {@link Read#withBeamSchemas}. */
+    @Experimental(Kind.SCHEMAS)
+    public ReadFiles<T> withBeamSchemas(boolean withBeamSchemas) {
+      return toBuilder().setInferBeamSchema(withBeamSchemas).build();
+    }
+
+    /** Like {@link Read#asRows}. */
+    @Experimental(Kind.SCHEMAS)
+    public PTransform<PCollection<ReadableFile>, PCollection<Row>> asRows() {
+      return new ReadRows<>(withBeamSchemas(true));
+    }
+
     @Override
     public PCollection<T> expand(PCollection<ReadableFile> input) {
+      Class<T> recordClass = getConfiguration().getRecordClass();
       return input.apply(
           new ReadAllViaFileBasedSource<>(
               64 * 1024L * 1024L,
               new CreateSourceFn<>(getConfiguration()),
-              JAXBCoder.of(getConfiguration().getRecordClass())));
+              getInferBeamSchema()
+                  ? JAXBSchemaProvider.schemaCoder(recordClass)
+                  : JAXBCoder.of(recordClass)));
+    }
+  }
+
+  /** Implementation of {@link Read#asRows} and {@link ReadFiles#asRows}. */
+  private static class ReadRows<InputT extends PInput, T>
+      extends PTransform<InputT, PCollection<Row>> {
+    private final PTransform<InputT, PCollection<T>> read;
+
+    ReadRows(PTransform<InputT, PCollection<T>> read) {
+      this.read = read;
+    }
+
+    @Override
+    public PCollection<Row> expand(InputT input) {
+      return Pipeline.applyTransform("Read", input, read)
+          .apply("Convert to rows", Convert.toRows());
+    }
+
+    @Override
+    public void populateDisplayData(DisplayData.Builder builder) {
+      read.populateDisplayData(builder);
     }
   }
 
@@ -0,0 +1,309 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.io.xml;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.schemas.SchemaCoder;
+import org.apache.beam.sdk.testing.CoderProperties;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.sdk.values.TypeDescriptor;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link JAXBSchemaProvider}. */
+@RunWith(JUnit4.class)
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+public class JAXBSchemaProviderTest {
+  @Rule public ExpectedException thrown = ExpectedException.none();
+
+  private final JAXBSchemaProvider provider = new JAXBSchemaProvider();
+
+  /** Test enum. */
+  public enum Color {
+    RED,
+    GREEN
+  }
+
+  /** Nested JAXB annotated class. */
+  @XmlAccessorType(XmlAccessType.FIELD)
+  public static class Address {
+    @XmlElement(name = "street_name")
+    private String street;
+
+    @XmlAttribute private int number;
+
+    Address() {}
+
+    Address(String street, int number) {
+      this.street = street;
+      this.number = number;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      if (!(o instanceof Address)) {
+        return false;
+      }
+      Address other = (Address) o;
+      return street.equals(other.street) && number == other.number;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * street.hashCode() + number;
+    }
+  }
+
+  /** JAXB annotated class with fields. */
+  @XmlRootElement(name = "person")
+  @XmlAccessorType(XmlAccessType.FIELD)
+  @XmlType(propOrder = {"name", "age", "balance", "color", "addresses", "tags", "born", "updated"})
+  public static class Person {
+    @XmlAttribute(name = "id")
+    private long id;
+
+    private String name;
+    private Integer age;
+    private BigDecimal balance;
+    private Color color;
+
+    @XmlElement(name = "address")
+    private List<Address> addresses;
+
+    private String[] tags;
+    private Date born;
+    private XMLGregorianCalendar updated;
+
+    @XmlTransient private String ignored;
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      if (!(o instanceof Person)) {
+        return false;
+      }
+      Person other = (Person) o;
+      return id == other.id
+          && name.equals(other.name)
+          && age.equals(other.age)
+          && balance.equals(other.balance)
+          && color == other.color
+          && addresses.equals(other.addresses)
+          && Arrays.equals(tags, other.tags)
+          && born.equals(other.born)
+          && updated.equals(other.updated);
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(id);
+    }
+  }
+
+  /** JAXB annotated class with properties. */
+  @XmlRootElement(name = "bird")
+  public static class Bird {
+    private String name;
+    private String adjective;
+    private String ignored;
+
+    @XmlElement(name = "species")
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public String getAdjective() {
+      return adjective;
+    }
+
+    public void setAdjective(String adjective) {
+      this.adjective = adjective;
+    }
+
+    @XmlTransient
+    public String getIgnored() {
+      return ignored;
+    }
+
+    public void setIgnored(String ignored) {
+      this.ignored = ignored;
+    }
+  }
+
+  /** JAXB annotated class with a member of an unsupported type. */
+  @XmlAccessorType(XmlAccessType.FIELD)
+  public static class Untyped {
+    private Object value;
+  }
+
+  /** JAXB annotated class that contains itself. */
+  @XmlAccessorType(XmlAccessType.FIELD)
+  public static class Node {
+    private List<Node> children;
+  }
+
+  private static final Schema ADDRESS_SCHEMA =
+      Schema.builder()
+          .addNullableField("street_name", FieldType.STRING)
+          .addInt32Field("number")
+          .build();
+
+  private static final Schema PERSON_SCHEMA =
+      Schema.builder()
+          .addNullableField("name", FieldType.STRING)
+          .addNullableField("age", FieldType.INT32)
+          .addNullableField("balance", FieldType.DECIMAL)
+          .addNullableField("color", FieldType.STRING)
+          .addNullableField("address", FieldType.array(FieldType.row(ADDRESS_SCHEMA)))
+          .addNullableField("tags", FieldType.array(FieldType.STRING))
+          .addNullableField("born", FieldType.DATETIME)
+          .addNullableField("updated", FieldType.STRING)
+          .addInt64Field("id")
+          .build();
+
+  private static Person createPerson() throws Exception {
+    Person person = new Person();
+    person.id = 42;
+    person.name = "John";
+    person.age = 30;
+    person.balance = new BigDecimal("123.45");
+    person.color = Color.GREEN;
+    person.addresses = new ArrayList<>();
+    person.addresses.add(new Address("Main Street", 1));
+    person.addresses.add(new Address("Broadway", 200));
+    person.tags = new String[] {"a", "b"};
+    person.born = new Date(1234567890L);
+    person.updated =
+        DatatypeFactory.newInstance().newXMLGregorianCalendar("2020-01-02T03:04:05.123456+01:00");
+    person.ignored = "ignored";
+    return person;
+  }
+
+  @Test
+  public void testSchemaWithFields() {
+    assertEquals(PERSON_SCHEMA, provider.schemaFor(TypeDescriptor.of(Person.class)));
+  }
+
+  @Test
+  public void testSchemaWithProperties() {
+    Schema expected =
+        Schema.builder()
+            .addNullableField("adjective", FieldType.STRING)
+            .addNullableField("species", FieldType.STRING)
+            .build();
+    assertEquals(expected, provider.schemaFor(TypeDescriptor.of(Bird.class)));
+  }
+
+  @Test
+  public void testToRow() throws Exception {
+    Row row = provider.toRowFunction(TypeDescriptor.of(Person.class)).apply(createPerson());
+
+    assertEquals(PERSON_SCHEMA, row.getSchema());
+    assertEquals(42L, (long) row.getInt64("id"));
+    assertEquals("GREEN", row.getString("color"));
+    assertEquals(
+        ImmutableList.of(
+            Row.withSchema(ADDRESS_SCHEMA).addValues("Main Street", 1).build(),
+            Row.withSchema(ADDRESS_SCHEMA).addValues("Broadway", 200).build()),
+        row.getArray("address"));
+    assertEquals(ImmutableList.of("a", "b"), row.getArray("tags"));
+    assertEquals(1234567890L, row.getDateTime("born").getMillis());
+    assertEquals("2020-01-02T03:04:05.123456+01:00", row.getString("updated"));
+  }
+
+  @Test
+  public void testNullValues() {
+    Row row = provider.toRowFunction(TypeDescriptor.of(Person.class)).apply(new Person());
+    assertNull(row.getString("name"));
+    assertEquals(0L, (long) row.getInt64("id"));
+
+    Person person = provider.fromRowFunction(TypeDescriptor.of(Person.class)).apply(row);
+    assertNull(person.name);
+    assertNull(person.addresses);
+  }
+
+  @Test
+  public void testSchemaCoderRoundTrip() throws Exception {
+    SchemaCoder<Person> coder = JAXBSchemaProvider.schemaCoder(Person.class);
+    Person person = createPerson();
+    CoderProperties.coderDecodeEncodeEqual(coder, person);
+    assertEquals(coder, JAXBSchemaProvider.schemaCoder(Person.class));
+
+    Person decoded = CoderUtils.clone(coder, person);
+    assertArrayEquals(person.tags, decoded.tags);
+    assertNull(decoded.ignored);
+  }
+
+  @Test
+  public void testSchemaCoderIsSmallerThanJAXBCoder() throws Exception {
+    Person person = createPerson();
+    ByteArrayOutputStream schemaEncoded = new ByteArrayOutputStream();
+    JAXBSchemaProvider.schemaCoder(Person.class).encode(person, schemaEncoded);
+    ByteArrayOutputStream xmlEncoded = new ByteArrayOutputStream();
+    JAXBCoder.of(Person.class).encode(person, xmlEncoded);
+    assertTrue(schemaEncoded.size() < xmlEncoded.size());
+  }
+
+  @Test
+  public void testRecursiveClass() {
+    assertNull(provider.schemaFor(TypeDescriptor.of(Node.class)));
+
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("is recursive");
+    JAXBSchemaProvider.schemaCoder(Node.class);
+  }
+
+  @Test
+  public void testUnsupportedType() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Type class java.lang.Object is not supported");
+    JAXBSchemaProvider.schemaCoder(Untyped.class);
+  }
+}
@@ -19,6 +19,9 @@ package org.apache.beam.sdk.io.xml;
 
 import static org.apache.beam.sdk.transforms.display.DisplayDataMatchers.hasDisplayItem;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.Serializable;
@@ -29,12 +32,16 @@ import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlType;
 import org.apache.beam.sdk.io.FileIO;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.schemas.SchemaCoder;
 import org.apache.beam.sdk.testing.PAssert;
 import org.apache.beam.sdk.testing.TestPipeline;
 import org.apache.beam.sdk.transforms.Create;
 import org.apache.beam.sdk.transforms.Values;
 import org.apache.beam.sdk.transforms.display.DisplayData;
 import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.Row;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Lists;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.junit.Rule;
@@ -175,6 +182,69 @@ public class XmlIOTest {
     readPipeline.run();
   }
 
+  private void writeBirds(List<Bird> birds) {
+    mainPipeline
+        .apply(Create.of(birds))
+        .apply(
+            XmlIO.<Bird>write()
+                .to(new File(tmpFolder.getRoot(), "birds").getAbsolutePath())
+                .withRecordClass(Bird.class)
+                .withRootElement("birds"));
+    mainPipeline.run();
+  }
+
+  @Test
+  public void testWriteThenReadWithBeamSchemas() {
+    writeBirds(BIRDS);
+
+    PCollection<Bird> readBack =
+        readPipeline.apply(
+            XmlIO.<Bird>read()
+                .from(new File(tmpFolder.getRoot(), "birds").getAbsolutePath() + "*")
+                .withRecordClass(Bird.class)
+                .withRootElement("birds")
+                .withRecordElement("bird")
+                .withBeamSchemas(true));
+
+    assertTrue(readBack.hasSchema());
+    assertThat(readBack.getCoder(), instanceOf(SchemaCoder.class));
+    PAssert.that(readBack).containsInAnyOrder(BIRDS);
+
+    readPipeline.run();
+  }
+
+  @Test
+  public void testWriteThenReadAsRows() {
+    writeBirds(BIRDS);
+
+    PCollection<Row> rows =
+        readPipeline
+            .apply(
+                FileIO.match()
+                    .filepattern(new File(tmpFolder.getRoot(), "birds").getAbsolutePath() + "*"))
+            .apply(FileIO.readMatches())
+            .apply(
+                XmlIO.<Bird>readFiles()
+                    .withRecordClass(Bird.class)
+                    .withRootElement("birds")
+                    .withRecordElement("bird")
+                    .asRows());
+
+    Schema schema =
+        Schema.builder()
+            .addNullableField("species", FieldType.STRING)
+            .addNullableField("adjective", FieldType.STRING)
+            .build();
+    assertEquals(schema, rows.getSchema());
+    PAssert.that(rows)
+        .containsInAnyOrder(
+            Row.withSchema(schema).addValues("robin", "bemused").build(),
+            Row.withSchema(schema).addValues("goose", "evasive").build(),
+            Row.withSchema(schema).addValues("pinçon", "bréche").build());
+
+    readPipeline.run();
+  }
+
   @Test
   public void testDisplayData() {
     DisplayData displayData =